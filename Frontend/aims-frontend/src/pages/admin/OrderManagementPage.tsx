@@ -37,7 +37,6 @@ import {
 import { useNavigate } from "react-router-dom";
 import { Order, OrderStatus } from "../../types/order";
 import orderService from "../../services/orderService";
-import productService from "../../services/productService";
 
 const OrderManagementPage: React.FC = () => {
   const navigate = useNavigate();
@@ -62,16 +61,6 @@ const OrderManagementPage: React.FC = () => {
   const [openRejectDialog, setOpenRejectDialog] = useState(false);
   const [rejectionReason, setRejectionReason] = useState("");
   const [processingAction, setProcessingAction] = useState(false);
-  const [stockCheckResult, setStockCheckResult] = useState<{
-    isValid: boolean;
-    message: string;
-    insufficientItems?: {
-      productId: number;
-      title: string;
-      available: number;
-      required: number;
-    }[];
-  } | null>(null);
 
   useEffect(() => {
     fetchOrders();
@@ -132,102 +121,31 @@ const OrderManagementPage: React.FC = () => {
     navigate(`/order/${orderId}`);
   };
 
-  // Check if all products in the order are in stock
-  const checkStock = async (order: Order) => {
+  // Handle approving an order. Its stock was reserved at checkout, so approval changes no
+  // quantities; rejecting or cancelling the order gives the units back on the server.
+  const handleApproveOrder = async (order: Order) => {
+    setSelectedOrder(order);
     try {
       setProcessingAction(true);
+      await orderService.updateOrderStatus(order.id, "APPROVED");
 
-      // Get current stock levels for all products in the order
-      const stockCheckPromises = order.invoice.cart.items.map(async (item) => {
-        const response = await productService.getProductById(
-          item.product.id.toString()
-        );
-        const product = response.data;
-        return {
-          productId: item.product.id,
-          title: item.product.title,
-          available: product.quantity,
-          required: item.quantity,
-          isAvailable: product.quantity >= item.quantity,
-        };
-      });
+      // Record the operation for audit
+      // await orderService.addOrderNote(
+      //   order.id,
+      //   "Order approved by product manager."
+      // );
 
-      const stockCheckResults = await Promise.all(stockCheckPromises);
-      const insufficientItems = stockCheckResults.filter(
-        (item) => !item.isAvailable
-      );
-
-      console.log("Stock check results:", stockCheckResults);
-
-      const isValid = insufficientItems.length === 0;
-
-      setStockCheckResult({
-        isValid,
-        message: isValid
-          ? "All items are in stock and available for this order."
-          : "Some items in this order are out of stock.",
-        insufficientItems: insufficientItems.map((item) => ({
-          productId: item.productId,
-          title: item.title,
-          available: item.available,
-          required: item.required,
-        })),
-      });
+      await orderService.autoRejectInsufficientStockOrders();
 
-      return isValid;
-    } catch (error) {
-      console.error("Error checking stock:", error);
-      setStockCheckResult({
-        isValid: false,
-        message: "Error checking stock availability.",
-      });
-      return false;
+      fetchOrders(); // Refresh the list
+    } catch (err: any) {
+      console.error("Failed to approve order:", err);
+      setError(err.response?.data?.message || "Failed to approve order");
     } finally {
       setProcessingAction(false);
     }
   };
 
-  // Handle approving an order
-  const handleApproveOrder = async (order: Order) => {
-    setSelectedOrder(order);
-
-    // Check stock before approving
-    const stockAvailable = await checkStock(order);
-
-    if (stockAvailable) {
-      try {
-        setProcessingAction(true);
-        await orderService.updateOrderStatus(order.id, "APPROVED");
-
-        // Record the operation for audit
-        // await orderService.addOrderNote(
-        //   order.id,
-        //   "Order approved by product manager."
-        // );
-
-        // Update product stock quantities
-        for (const item of order.invoice.cart.items) {
-          await productService.updateStock(
-            item.product.id,
-            item.quantity,
-            "decrease"
-          );
-        }
-
-        const autoRejectResponse =
-          await orderService.autoRejectInsufficientStockOrders();
-
-        setStockCheckResult(null);
-        fetchOrders(); // Refresh the list
-      } catch (err: any) {
-        console.error("Failed to approve order:", err);
-        setError(err.response?.data?.message || "Failed to approve order");
-      } finally {
-        setProcessingAction(false);
-      }
-    }
-  };
-
   // Open reject dialog
   const handleOpenRejectDialog = (order: Order) => {
     setSelectedOrder(order);
@@ -488,91 +406,6 @@ const OrderManagementPage: React.FC = () => {
         </>
       )}
 
-      {/* Stock check result alert */}
-      <Dialog
-        open={!!stockCheckResult}
-        onClose={() => setStockCheckResult(null)}
-      >
-        <DialogTitle>
-          {stockCheckResult?.isValid
-            ? "Stock Check Passed"
-            : "Stock Check Failed"}
-        </DialogTitle>
-        <DialogContent>
-          <Typography variant="body1" gutterBottom>
-            {stockCheckResult?.message}
-          </Typography>
-
-          {stockCheckResult?.insufficientItems &&
-            stockCheckResult.insufficientItems.length > 0 && (
-              <>
-                <Typography variant="subtitle1" sx={{ mt: 2, mb: 1 }}>
-                  Out of stock items:
-                </Typography>
-                <TableContainer component={Paper} variant="outlined">
-                  <Table size="small">
-                    <TableHead>
-                      <TableRow>
-                        <TableCell>Product</TableCell>
-                        <TableCell align="right">Required</TableCell>
-                        <TableCell align="right">In Stock</TableCell>
-                        <TableCell align="right">Shortage</TableCell>
-                      </TableRow>
-                    </TableHead>
-                    <TableBody>
-                      {stockCheckResult.insufficientItems.map((item) => (
-                        <TableRow key={item.productId}>
-                          <TableCell>{item.title}</TableCell>
-                          <TableCell align="right">{item.required}</TableCell>
-                          <TableCell align="right">{item.available}</TableCell>
-                          <TableCell align="right" sx={{ color: "error.main" }}>
-                            {item.required - item.available}
-                          </TableCell>
-                        </TableRow>
-                      ))}
-                    </TableBody>
-                  </Table>
-                </TableContainer>
-              </>
-            )}
-        </DialogContent>
-        <DialogActions>
-          {stockCheckResult?.isValid ? (
-            <>
-              <Button onClick={() => setStockCheckResult(null)}>Cancel</Button>
-              <Button
-                onClick={() => {
-                  setStockCheckResult(null);
-                  if (selectedOrder) {
-                    handleApproveOrder(selectedOrder);
-                  }
-                }}
-                variant="contained"
-                color="success"
-              >
-                Confirm Approval
-              </Button>
-            </>
-          ) : (
-            <>
-              <Button onClick={() => setStockCheckResult(null)}>Close</Button>
-              <Button
-                onClick={() => {
-                  setStockCheckResult(null);
-                  if (selectedOrder) {
-                    handleOpenRejectDialog(selectedOrder);
-                  }
-                }}
-                variant="contained"
-                color="error"
-              >
-                Reject Order
-              </Button>
-            </>
-          )}
-        </DialogActions>
-      </Dialog>
-
       {/* Rejection dialog */}
       <Dialog
         open={openRejectDialog}
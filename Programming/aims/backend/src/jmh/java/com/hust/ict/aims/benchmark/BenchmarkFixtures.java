@@ -0,0 +1,114 @@
+package com.hust.ict.aims.benchmark;
+
+import com.hust.ict.aims.dto.CartItemDTO;
+import com.hust.ict.aims.model.*;
+import com.hust.ict.aims.repository.ProductRepository;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.*;
+
+/*
+ * Shared test data for the benchmarks: one product of each type and an in-memory ProductRepository,
+ * so the benchmarks measure our own code and not a database or a mocking framework.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static Product product(String type, long id) {
+        Product product = switch (type) {
+            case "BOOK" -> {
+                Book book = new Book();
+                book.setAuthor("Nam Cao");
+                book.setCoverType("Paperback");
+                book.setPublisher("NXB Van Hoc");
+                book.setLanguage("Vietnamese");
+                book.setNumberOfPage(320);
+                book.setPublicationDate(LocalDate.of(2020, 1, 1));
+                book.setGenre("Novel");
+                yield book;
+            }
+            case "DVD" -> {
+                DVD dvd = new DVD();
+                dvd.setDiscType("Blu-ray");
+                dvd.setDirector("Tran Anh Hung");
+                dvd.setRuntime("120");
+                dvd.setStudio("Studio 68");
+                dvd.setLanguage("Vietnamese");
+                dvd.setSubtitle("English");
+                dvd.setReleaseDate(LocalDate.of(2019, 6, 1));
+                dvd.setGenre("Drama");
+                yield dvd;
+            }
+            default -> {
+                MusicDisc disc = "LP".equals(type) ? new LP() : new CD();
+                disc.setAlbum("Album " + id);
+                disc.setArtist("Artist");
+                disc.setRecordLabel("Label");
+                disc.setTracklist("1. Intro\\n2. Song\\n3. Outro");
+                disc.setReleaseDate(LocalDate.of(2018, 3, 1));
+                disc.setGenre("Pop");
+                yield disc;
+            }
+        };
+        product.setId(id);
+        product.setTitle(type + " " + id);
+        product.setCategory(type);
+        product.setImageURL("https://example.com/" + id + ".jpg");
+        product.setProductDimensions("20x15x3");
+        product.setWarehouseEntryDate(LocalDate.of(2024, 1, 1));
+        product.setBarcode("893" + id);
+        product.setValue(100000);
+        product.setCurrentPrice(120000);
+        product.setWeight(0.4f + (id % 5) * 0.3f);
+        product.setQuantity(1000);
+        product.setRushOrderEligible(id % 2 == 0);
+        return product;
+    }
+
+    static List<Product> catalog(int size) {
+        String[] types = {"BOOK", "CD", "DVD", "LP"};
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            products.add(product(types[i % types.length], i));
+        }
+        return products;
+    }
+
+    static List<CartItemDTO> cartItems(int lines) {
+        List<CartItemDTO> items = new ArrayList<>(lines);
+        for (int i = 1; i <= lines; i++) {
+            CartItemDTO item = new CartItemDTO();
+            item.setProductId((long) i);
+            item.setQuantity(1 + i % 3);
+            items.add(item);
+        }
+        return items;
+    }
+
+    // Answers findByIdIn and findById from a map; any other repository call is a benchmark bug
+    static ProductRepository inMemoryProductRepository(List<Product> products) {
+        Map<Long, Product> byId = new HashMap<>();
+        products.forEach(product -> byId.put(product.getId(), product));
+        return (ProductRepository) Proxy.newProxyInstance(
+                ProductRepository.class.getClassLoader(),
+                new Class<?>[]{ProductRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findByIdIn" -> {
+                        List<Product> found = new ArrayList<>();
+                        for (Object id : (Collection<?>) args[0]) {
+                            Product product = byId.get(id);
+                            if (product != null) found.add(product);
+                        }
+                        yield found;
+                    }
+                    case "findById" -> Optional.ofNullable(byId.get(args[0]));
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryProductRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
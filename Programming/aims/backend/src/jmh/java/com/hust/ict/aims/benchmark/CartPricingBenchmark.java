@@ -0,0 +1,55 @@
+package com.hust.ict.aims.benchmark;
+
+import com.hust.ict.aims.dto.CartCalculationRequestDTO;
+import com.hust.ict.aims.dto.CartCalculationResponseDTO;
+import com.hust.ict.aims.repository.ProductRepository;
+import com.hust.ict.aims.service.CartPricingPipeline;
+import com.hust.ict.aims.service.impl.CartServiceImpl;
+import com.hust.ict.aims.shipping.ShippingRateEngine;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * calculateCartTotals and calculateRushCartTotals end to end: product lookup, line pricing,
+ * zone resolution and delivery fees, against an in-memory repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CartPricingBenchmark {
+
+    @Param({"3", "20"})
+    public int lines;
+
+    private CartServiceImpl cartService;
+    private CartCalculationRequestDTO request;
+
+    @Setup
+    public void setUp() {
+        ProductRepository productRepository =
+                BenchmarkFixtures.inMemoryProductRepository(BenchmarkFixtures.catalog(100));
+        ShippingRateEngine shippingRateEngine =
+                new ShippingRateEngine(new DefaultResourceLoader(), "classpath:shipping/rates.json");
+        cartService = new CartServiceImpl(null, null, productRepository,
+                new CartPricingPipeline(productRepository), shippingRateEngine);
+
+        request = new CartCalculationRequestDTO();
+        request.setItems(BenchmarkFixtures.cartItems(lines));
+        request.setProvince("Hà Nội");
+        request.setRushDelivery(true);
+    }
+
+    @Benchmark
+    public CartCalculationResponseDTO cartTotals() {
+        return cartService.calculateCartTotals(request);
+    }
+
+    @Benchmark
+    public CartCalculationResponseDTO rushCartTotals() {
+        return cartService.calculateRushCartTotals(request);
+    }
+}
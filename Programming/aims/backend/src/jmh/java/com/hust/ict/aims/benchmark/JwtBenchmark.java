@@ -0,0 +1,54 @@
+package com.hust.ict.aims.benchmark;
+
+import com.hust.ict.aims.config.JwtConfig;
+import com.hust.ict.aims.model.Role;
+import com.hust.ict.aims.model.User;
+import com.hust.ict.aims.security.jwt.JwtService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Bearer token verification: a full signature check (cache disabled) and a repeated token (cache hit).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtBenchmark {
+
+    private JwtService uncached;
+    private JwtService cached;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        JwtConfig config = new JwtConfig();
+        config.setSecret(Base64.getEncoder().encodeToString("benchmark-secret-benchmark-secret".getBytes()));
+        config.setExpiration(TimeUnit.HOURS.toMillis(1));
+
+        uncached = new JwtService(config, 0);
+        cached = new JwtService(config, 1000);
+
+        Role role = new Role();
+        role.setName("ROLE_CUSTOMER");
+        User user = new User();
+        user.setName("Bench");
+        user.setEmail("bench@aims.vn");
+        user.setRoles(List.of(role));
+        token = uncached.generateToken(user);
+    }
+
+    @Benchmark
+    public JwtService.VerifiedToken verify() {
+        return uncached.verify(token);
+    }
+
+    @Benchmark
+    public JwtService.VerifiedToken verifyCached() {
+        return cached.verify(token);
+    }
+}
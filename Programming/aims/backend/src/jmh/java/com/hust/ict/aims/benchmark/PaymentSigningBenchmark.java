@@ -0,0 +1,57 @@
+package com.hust.ict.aims.benchmark;
+
+import com.hust.ict.aims.subsystem.PaymentSubsystem.Config.VNPayConfig;
+import com.hust.ict.aims.subsystem.PaymentSubsystem.dto.VNPayPayRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * VNPay request signing: the raw HMAC and the full payment URL build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PaymentSigningBenchmark {
+
+    private VNPayConfig config;
+    private VNPayPayRequest payRequest;
+    private Map<String, String> params;
+    private String hashData;
+
+    @Setup
+    public void setUp() {
+        config = new VNPayConfig();
+        config.setTmnCode("BENCH001");
+        config.setHashSecret("BENCHMARKSECRETBENCHMARKSECRET12");
+        config.setVersion("2.1.0");
+        config.setPaymentUrl("http://localhost:8089/paymentv2/vpcpay.html");
+        config.setCurrCode("VND");
+        config.setLocale("vn");
+        config.setOrderType("other");
+        config.setPaymentResult("http://localhost:8080/api/payment/result");
+
+        payRequest = new VNPayPayRequest();
+        ReflectionTestUtils.setField(payRequest, "config", config);
+
+        params = Map.of("amount", "250000", "ip_addr", "127.0.0.1", "orderId", "1024", "orderInfo", "");
+        hashData = "vnp_Amount=25000000&vnp_Command=pay&vnp_CreateDate=20250101120000&vnp_CurrCode=VND"
+                + "&vnp_IpAddr=127.0.0.1&vnp_Locale=vn&vnp_OrderInfo=Thanh+toan+hoa+don+1024"
+                + "&vnp_OrderType=other&vnp_TmnCode=BENCH001&vnp_TxnRef=1024&vnp_Version=2.1.0";
+    }
+
+    @Benchmark
+    public String hmacSHA512() {
+        return config.hmacSHA512(config.getHashSecret(), hashData);
+    }
+
+    @Benchmark
+    public String paymentUrl() throws UnsupportedEncodingException {
+        return payRequest.getPaymentUrl(params);
+    }
+}
@@ -0,0 +1,33 @@
+package com.hust.ict.aims.benchmark;
+
+import com.hust.ict.aims.dto.ProductDTO;
+import com.hust.ict.aims.model.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * ProductDTO.fromEntity for each product subtype.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductMappingBenchmark {
+
+    @Param({"BOOK", "CD", "DVD", "LP"})
+    public String type;
+
+    private Product product;
+
+    @Setup
+    public void setUp() {
+        product = BenchmarkFixtures.product(type, 42);
+    }
+
+    @Benchmark
+    public ProductDTO fromEntity() {
+        return ProductDTO.fromEntity(product);
+    }
+}
@@ -0,0 +1,43 @@
+package com.hust.ict.aims.benchmark;
+
+import com.hust.ict.aims.shipping.ShippingRateEngine;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Delivery fee and inner-city checks, which replaced CartServiceImpl.calculateDeliveryFee and
+ * isInnerCityLocation when the rates moved into ShippingRateEngine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ShippingFeeBenchmark {
+
+    private ShippingRateEngine engine;
+    private int innerZone;
+
+    @Setup
+    public void setUp() {
+        engine = new ShippingRateEngine(new DefaultResourceLoader(), "classpath:shipping/rates.json");
+        innerZone = engine.resolveZone("Hà Nội");
+    }
+
+    @Benchmark
+    public int fee() {
+        return engine.fee(innerZone, ShippingRateEngine.toGrams(3.2), 90000, false);
+    }
+
+    @Benchmark
+    public int resolveZone() {
+        return engine.resolveZone("Quận Cầu Giấy, Hà Nội");
+    }
+
+    @Benchmark
+    public boolean isRushSupported() {
+        return engine.isRushSupported("Hà Nội", "Ba Đình");
+    }
+}
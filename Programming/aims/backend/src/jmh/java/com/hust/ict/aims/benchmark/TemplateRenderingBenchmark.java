@@ -0,0 +1,115 @@
+package com.hust.ict.aims.benchmark;
+
+import com.hust.ict.aims.model.*;
+import com.hust.ict.aims.render.OrderDocumentModel;
+import com.hust.ict.aims.render.TemplateRenderer;
+import org.openjdk.jmh.annotations.*;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Rendering the order confirmation email, and a batch of them as the outbox and reprints do.
+ *
+ * uncachedString is the path before TemplateRenderer: the MVC engine with devtools' cache=false,
+ * re-reading and re-parsing the template on every call and building a String. cachedString is the same
+ * engine with its cache on. rendererBytes and rendererBatch go through TemplateRenderer (parsed once,
+ * compiled SpEL, pooled UTF-8 buffers).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TemplateRenderingBenchmark {
+
+    private static final int BATCH = 50;
+
+    @Param({"5", "30"})
+    public int lines;
+
+    private SpringTemplateEngine uncachedEngine;
+    private SpringTemplateEngine cachedEngine;
+    private TemplateRenderer renderer;
+    private Map<String, Object> model;
+    private List<Map<String, Object>> batch;
+
+    @Setup
+    public void setUp() {
+        uncachedEngine = mvcEngine(false);
+        cachedEngine = mvcEngine(true);
+        renderer = new TemplateRenderer(16, 8192, 262144);
+        renderer.precompile();
+
+        model = OrderDocumentModel.of(order(lines));
+        batch = Collections.nCopies(BATCH, model);
+    }
+
+    @Benchmark
+    public byte[] uncachedString() {
+        return uncachedEngine.process(TemplateRenderer.ORDER_CONFIRMATION, new Context(Locale.getDefault(), model))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] cachedString() {
+        return cachedEngine.process(TemplateRenderer.ORDER_CONFIRMATION, new Context(Locale.getDefault(), model))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] rendererBytes() {
+        return renderer.renderToBytes(TemplateRenderer.ORDER_CONFIRMATION, model);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<TemplateRenderer.Rendered> rendererBatch() {
+        return renderer.renderBatch(TemplateRenderer.ORDER_CONFIRMATION, batch);
+    }
+
+    // Configured like Boot's ThymeleafAutoConfiguration
+    private static SpringTemplateEngine mvcEngine(boolean cache) {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(cache);
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        return engine;
+    }
+
+    private static Orders order(int lines) {
+        Cart cart = new Cart();
+        cart.setItems(new ArrayList<>());
+        for (Product product : BenchmarkFixtures.catalog(lines)) {
+            CartItem item = new CartItem();
+            item.setProduct(product);
+            item.setQuantity(2);
+            cart.getItems().add(item);
+        }
+
+        DeliveryInfo deliveryInfo = new DeliveryInfo();
+        deliveryInfo.setRecipientName("Nguyen Van A");
+        deliveryInfo.setDeliveryAddress("1 Dai Co Viet");
+        deliveryInfo.setDistrict("Hai Ba Trung");
+        deliveryInfo.setProvince("Ha Noi");
+        deliveryInfo.setPhoneNumber("0912345678");
+
+        Invoice invoice = new Invoice(cart, 2640000, 2662000, 22000);
+        Transaction transaction = new Transaction(2662000, "vnpay", "14512345", "SUCCESSFUL", null,
+                LocalDateTime.of(2025, 1, 1, 12, 0), new HashMap<>());
+
+        Orders order = new Orders(transaction, invoice, deliveryInfo, "PENDING");
+        order.setId(1024L);
+        return order;
+    }
+}
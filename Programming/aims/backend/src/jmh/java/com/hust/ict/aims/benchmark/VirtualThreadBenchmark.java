@@ -0,0 +1,113 @@
+package com.hust.ict.aims.benchmark;
+
+import com.hust.ict.aims.service.ProductLockManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * A burst of blocking requests on Tomcat's default platform pool (200 threads) against one virtual
+ * thread per request, as with spring.threads.virtual.enabled=true.
+ *
+ * blockingCalls waits on a slow dependency (SMTP, Google API, database) and takes a product lock the way
+ * product writes do. The other two block while holding one of a few shared locks: with virtual threads
+ * the synchronized variant pins every carrier and degrades to the carrier count, the ReentrantLock one
+ * does not. That is why the synchronized sections that query the database were turned into locks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class VirtualThreadBenchmark {
+
+    private static final int SHARED_LOCKS = 64;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"2000"})
+    public int requests;
+
+    @Param({"10"})
+    public int blockingMillis;
+
+    private ExecutorService executor;
+    private ProductLockManager lockManager;
+    private final Object[] monitors = new Object[SHARED_LOCKS];
+    private final ReentrantLock[] locks = new ReentrantLock[SHARED_LOCKS];
+
+    @Setup
+    public void setUp() {
+        executor = "virtual".equals(threads)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(200);
+        lockManager = new ProductLockManager(256);
+        for (int i = 0; i < SHARED_LOCKS; i++) {
+            monitors[i] = new Object();
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void blockingCalls() throws Exception {
+        runAll(() -> {
+            sleep(blockingMillis);
+            List<Long> product = List.of((long) ThreadLocalRandom.current().nextInt(10_000));
+            if (lockManager.tryLock(product, 1000)) {
+                lockManager.unlock(product);
+            }
+        });
+    }
+
+    @Benchmark
+    public void blockingInsideSynchronized() throws Exception {
+        runAll(() -> {
+            synchronized (monitors[ThreadLocalRandom.current().nextInt(SHARED_LOCKS)]) {
+                sleep(1);
+            }
+        });
+    }
+
+    @Benchmark
+    public void blockingInsideReentrantLock() throws Exception {
+        runAll(() -> {
+            ReentrantLock lock = locks[ThreadLocalRandom.current().nextInt(SHARED_LOCKS)];
+            lock.lock();
+            try {
+                sleep(1);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    private void runAll(Runnable request) throws Exception {
+        Future<?>[] futures = new Future<?>[requests];
+        for (int i = 0; i < requests; i++) {
+            futures[i] = executor.submit(request);
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private static void sleep(int millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
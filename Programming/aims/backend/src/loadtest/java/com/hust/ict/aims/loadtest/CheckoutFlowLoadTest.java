@@ -0,0 +1,218 @@
+package com.hust.ict.aims.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hust.ict.aims.model.*;
+import com.hust.ict.aims.repository.ProductRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Mixed traffic over the whole shop: 50% browsing, 25% filling a cart, 20% checkout with VNPay payment and
+ * 5% rush orders, from loadtest.users concurrent shoppers for loadtest.duration-seconds after a warm-up.
+ * Prints p50/p99/max and throughput per endpoint and writes them to target/loadtest-report.json.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
+@ActiveProfiles("loadtest")
+@AutoConfigureObservability(tracing = false)
+class CheckoutFlowLoadTest {
+
+    private static final String HASH_SECRET = "LOADTESTHASHSECRETLOADTESTHASH01";
+
+    private static final int USERS = Integer.getInteger("loadtest.users", 16);
+    private static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmup-seconds", 5);
+    private static final int DURATION_SECONDS = Integer.getInteger("loadtest.duration-seconds", 30);
+    private static final int PRODUCTS = Integer.getInteger("loadtest.products", 500);
+    private static final double MAX_ERROR_RATIO =
+            Double.parseDouble(System.getProperty("loadtest.max-error-ratio", "0.01"));
+    private static final String REPORT = System.getProperty("loadtest.report", "target/loadtest-report.json");
+
+    private static StubVNPayGateway gateway;
+    private static int port;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void gatewayProperties(DynamicPropertyRegistry registry) throws IOException {
+        gateway = new StubVNPayGateway(HASH_SECRET);
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        registry.add("server.port", () -> port);
+        registry.add("vnpay.hash-secret", () -> HASH_SECRET);
+        registry.add("vnpay.payment-url", gateway::paymentUrl);
+        registry.add("vnpay.payment-result", () -> "http://localhost:" + port + "/payment-result");
+    }
+
+    @AfterAll
+    static void stopGateway() {
+        if (gateway != null) {
+            gateway.close();
+        }
+    }
+
+    @Test
+    void mixedShoppingTraffic() throws Exception {
+        seedCatalog();
+        String baseUrl = "http://localhost:" + port;
+
+        run(baseUrl, new LatencyRecorder(), WARMUP_SECONDS);
+
+        LatencyRecorder recorder = new LatencyRecorder();
+        long started = System.nanoTime();
+        run(baseUrl, recorder, DURATION_SECONDS);
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+        List<LatencyRecorder.Summary> summaries = recorder.summarize(elapsedSeconds);
+        report(summaries, elapsedSeconds);
+
+        long requests = summaries.stream().mapToLong(LatencyRecorder.Summary::requests).sum();
+        long errors = summaries.stream().mapToLong(LatencyRecorder.Summary::errors).sum();
+        assertTrue(requests > 0, "No requests completed");
+        assertEquals(0, gateway.badSignatures(), "Payment requests with an invalid vnp_SecureHash");
+        assertTrue(summaries.stream().noneMatch(s -> s.endpoint().equals(ShopperSession.DUPLICATE_RESULT)),
+                "A retried checkout or payment return was processed twice");
+        assertTrue(errors <= requests * MAX_ERROR_RATIO,
+                "Error ratio " + errors + "/" + requests + " above " + MAX_ERROR_RATIO);
+    }
+
+    private void run(String baseUrl, LatencyRecorder recorder, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService shoppers = Executors.newFixedThreadPool(USERS);
+        for (int i = 0; i < USERS; i++) {
+            shoppers.submit(() -> {
+                ShopperSession session = new ShopperSession(baseUrl, PRODUCTS, recorder, objectMapper);
+                while (System.nanoTime() < deadline) {
+                    int roll = ThreadLocalRandom.current().nextInt(100);
+                    String scenario = roll < 50 ? "browse" : roll < 75 ? "cart" : roll < 95 ? "checkout" : "rush";
+                    try {
+                        switch (scenario) {
+                            case "browse" -> session.browse();
+                            case "cart" -> session.fillCart();
+                            case "checkout" -> session.checkout();
+                            default -> session.rushCheckout();
+                        }
+                    } catch (IOException e) {
+                        recorder.recordFailure("scenario " + scenario);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+        }
+        shoppers.shutdown();
+        if (!shoppers.awaitTermination(seconds + 60L, TimeUnit.SECONDS)) {
+            shoppers.shutdownNow();
+        }
+    }
+
+    private void report(List<LatencyRecorder.Summary> summaries, double elapsedSeconds) throws IOException {
+        System.out.printf("%n%-42s %9s %8s %7s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "rejected", "errors", "p50 ms", "p99 ms", "max ms", "req/s");
+        for (LatencyRecorder.Summary s : summaries) {
+            System.out.printf("%-42s %9d %8d %7d %9.2f %9.2f %9.2f %9.1f%n", s.endpoint(), s.requests(),
+                    s.rejected(), s.errors(), s.p50Millis(), s.p99Millis(), s.maxMillis(), s.throughputPerSecond());
+        }
+
+        // SQL statements per request, from QueryCountFilter; a JDBC batch counts once
+        Map<String, Double> queriesPerRequest = new TreeMap<>();
+        for (DistributionSummary summary : meterRegistry.find("aims.db.queries.per.request").summaries()) {
+            queriesPerRequest.put(summary.getId().getTag("method") + " " + summary.getId().getTag("uri"), summary.mean());
+        }
+        System.out.printf("%n%-42s %9s%n", "endpoint", "queries");
+        queriesPerRequest.forEach((endpoint, queries) -> System.out.printf("%-42s %9.1f%n", endpoint, queries));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("users", USERS);
+        report.put("durationSeconds", elapsedSeconds);
+        report.put("products", PRODUCTS);
+        report.put("endpoints", summaries);
+        report.put("queriesPerRequest", queriesPerRequest);
+        File file = new File(REPORT);
+        file.getParentFile().mkdirs();
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, report);
+        System.out.println("Load test report written to " + file.getAbsolutePath());
+    }
+
+    // Enough stock that the run measures throughput, not sell-outs
+    private void seedCatalog() {
+        if (productRepository.count() >= PRODUCTS) return;
+        String[] types = {"BOOK", "CD", "DVD", "LP"};
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (int i = 1; i <= PRODUCTS; i++) {
+            products.add(product(types[i % types.length], i));
+        }
+        productRepository.saveAll(products);
+    }
+
+    static Product product(String type, int n) {
+        Product product = switch (type) {
+            case "BOOK" -> {
+                Book book = new Book();
+                book.setAuthor("Author " + n);
+                book.setCoverType("Paperback");
+                book.setPublisher("NXB Tre");
+                book.setPublicationDate(LocalDate.of(2020, 1, 1));
+                book.setGenre("Novel");
+                yield book;
+            }
+            case "DVD" -> {
+                DVD dvd = new DVD();
+                dvd.setDiscType("Blu-ray");
+                dvd.setDirector("Director " + n);
+                dvd.setRuntime("120");
+                dvd.setStudio("Studio");
+                dvd.setLanguage("Vietnamese");
+                dvd.setGenre("Drama");
+                yield dvd;
+            }
+            default -> {
+                MusicDisc disc = "LP".equals(type) ? new LP() : new CD();
+                disc.setAlbum("Album " + n);
+                disc.setArtist("Artist " + n);
+                disc.setRecordLabel("Label");
+                disc.setGenre(n % 3 == 0 ? "Jazz" : "Pop");
+                yield disc;
+            }
+        };
+        product.setTitle(type.toLowerCase() + " " + (n % 2 == 0 ? "live " : "") + n);
+        product.setCategory(type);
+        product.setImageURL("https://example.com/" + n + ".jpg");
+        product.setProductDimensions("20x15x3");
+        product.setWarehouseEntryDate(LocalDate.of(2024, 1, 1));
+        product.setBarcode("LT" + n);
+        product.setValue(100000);
+        product.setCurrentPrice(110000 + (n % 10) * 5000);
+        product.setWeight(0.3f + (n % 5) * 0.4f);
+        product.setQuantity(1_000_000);
+        product.setRushOrderEligible(n % 2 == 0);
+        return product;
+    }
+}
@@ -0,0 +1,198 @@
+package com.hust.ict.aims.loadtest;
+
+import com.hust.ict.aims.cache.CatalogCache;
+import com.hust.ict.aims.metrics.QueryCounter;
+import com.hust.ict.aims.model.*;
+import com.hust.ict.aims.repository.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+ * Guards how many SQL statements each read endpoint runs, against a seeded catalog with carts, orders
+ * and operations. The limits do not depend on how many rows an endpoint returns, so an association
+ * loaded one row at a time (an N+1) fails the test. The product caches and Hibernate's second-level and
+ * query caches are emptied before every call, so the counts are those of a cold read. Runs in the loadtest profile for its H2 database.
+ */
+@SpringBootTest(properties = {
+        "loadtest.jdbc-url=jdbc:h2:mem:querycount;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;NON_KEYWORDS=VALUE,TIMESTAMP,USER",
+        "vnpay.hash-secret=unused",
+        "vnpay.payment-url=http://localhost/unused",
+        "vnpay.payment-result=http://localhost/unused"
+})
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("loadtest")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@WithMockUser(authorities = "ROLE_ADMIN")
+class EndpointQueryCountLoadTest {
+
+    private static final int PRODUCTS = 40;
+    private static final int ORDERS = 6;
+    private static final int ITEMS_PER_CART = 4;
+    private static final int OPERATIONS = 30;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private QueryCounter queryCounter;
+    @Autowired
+    private CatalogCache catalogCache;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private DeliveryInfoRepository deliveryInfoRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OperationRepository operationRepository;
+
+    private final List<Long> orderIds = new ArrayList<>();
+    private long productId;
+    private long cartId;
+    private long cartItemId;
+    private int invoiceId;
+    private long operationId;
+    private long rushOrderId;
+
+    // Endpoint and the most statements it may run; {placeholders} are replaced with seeded ids
+    Stream<Arguments> endpoints() {
+        return Stream.of(
+                // Page plus the active count; the count is cached like the page once the caches are warm
+                Arguments.of("/api/products?page=1&size=20", 2),
+                // No count: the page reads one extra row to know whether there is a next one
+                Arguments.of("/api/products?page=1&size=20&includeTotal=false", 1),
+                Arguments.of("/api/products/{product}", 1),
+                Arguments.of("/api/products/search?search=live&size=20", 2),
+                Arguments.of("/api/products/random?size=20", 2),
+                // Id index build plus one IN query for the sampled rows
+                Arguments.of("/api/products/random/sample?size=12", 2),
+                Arguments.of("/api/products/all", 1),
+                Arguments.of("/api/products/operations?limit=20", 2),
+                Arguments.of("/api/products/operations?limit=20&includeTotal=false", 1),
+                Arguments.of("/api/products/{product}/operations", 1),
+                Arguments.of("/api/operations", 1),
+                Arguments.of("/api/operations/{operation}", 1),
+                Arguments.of("/api/carts", 1),
+                Arguments.of("/api/carts/{cart}", 1),
+                Arguments.of("/api/carts/{cart}/check-inventory", 2),
+                Arguments.of("/api/cart-items", 1),
+                Arguments.of("/api/cart-items/{cartItem}", 1),
+                Arguments.of("/api/invoices", 1),
+                Arguments.of("/api/invoices/{invoice}", 1),
+                Arguments.of("/api/orders", 1),
+                Arguments.of("/api/orders/{order}", 1),
+                Arguments.of("/api/orders/{order}/invoice", 1),
+                Arguments.of("/api/orders/invoices?ids={orders}", 1),
+                Arguments.of("/api/rush-orders", 1),
+                Arguments.of("/api/rush-orders/{rushOrder}", 1));
+    }
+
+    @BeforeAll
+    void seed() {
+        List<Product> products = new ArrayList<>();
+        String[] types = {"BOOK", "CD", "DVD", "LP"};
+        for (int i = 1; i <= PRODUCTS; i++) {
+            products.add(CheckoutFlowLoadTest.product(types[i % types.length], i));
+        }
+        products = productRepository.saveAll(products);
+        productId = products.get(0).getId();
+
+        for (int o = 0; o < ORDERS; o++) {
+            Cart cart = new Cart();
+            for (int i = 0; i < ITEMS_PER_CART; i++) {
+                CartItem item = new CartItem();
+                item.setProduct(products.get((o * ITEMS_PER_CART + i) % PRODUCTS));
+                item.setQuantity(1 + i);
+                cart.addItem(item);
+            }
+            cart = cartRepository.save(cart);
+            Invoice invoice = invoiceRepository.save(new Invoice(cart, 440000, 462000, 22000));
+            Transaction transaction = transactionRepository.save(new Transaction(462000, "VNPay", "TX" + o,
+                    "SUCCESSFUL", null, LocalDateTime.now(), new HashMap<>()));
+            DeliveryInfo deliveryInfo = new DeliveryInfo();
+            deliveryInfo.setRecipientName("Nguyen Van " + o);
+            deliveryInfo.setEmail("shopper" + o + "@aims.local");
+            deliveryInfo.setPhoneNumber("0912345678");
+            deliveryInfo.setProvince("Hà Nội");
+            deliveryInfo.setDistrict("Ba Đình");
+            deliveryInfo.setDeliveryAddress("1 Dai Co Viet");
+            deliveryInfo = deliveryInfoRepository.save(deliveryInfo);
+
+            Orders order = o == ORDERS - 1
+                    ? new RushOrder(transaction, invoice, deliveryInfo, "PENDING",
+                    LocalDateTime.now().plusHours(2), "Call before delivery")
+                    : new Orders(transaction, invoice, deliveryInfo, "PENDING");
+            order = orderRepository.save(order);
+            orderIds.add(order.getId());
+            cartId = cart.getCartId();
+            cartItemId = cart.getItems().get(0).getId();
+            invoiceId = invoice.getId();
+            if (order instanceof RushOrder) {
+                rushOrderId = order.getId();
+            }
+        }
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            Operation operation = operationRepository.save(new Operation(products.get(i % 5), "UPDATE_PRODUCT",
+                    LocalDateTime.now().minusMinutes(i)));
+            operationId = operation.getOperationID();
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("endpoints")
+    void endpointRunsABoundedNumberOfStatements(String endpoint, int maxStatements) throws Exception {
+        String path = endpoint
+                .replace("{product}", String.valueOf(productId))
+                .replace("{operation}", String.valueOf(operationId))
+                .replace("{cartItem}", String.valueOf(cartItemId))
+                .replace("{cart}", String.valueOf(cartId))
+                .replace("{invoice}", String.valueOf(invoiceId))
+                .replace("{orders}", String.join(",", orderIds.stream().map(String::valueOf).toList()))
+                .replace("{order}", String.valueOf(orderIds.get(0)))
+                .replace("{rushOrder}", String.valueOf(rushOrderId));
+
+        catalogCache.evictAll();
+        entityManagerFactory.getCache().unwrap(Cache.class).evictAllRegions();
+        queryCounter.begin();
+        int statements;
+        try {
+            mockMvc.perform(get(path)).andExpect(status().isOk());
+        } finally {
+            statements = queryCounter.end();
+        }
+
+        System.out.printf("%-60s %3d statements (max %d)%n", path, statements, maxStatements);
+        assertTrue(statements <= maxStatements,
+                path + " ran " + statements + " statements, expected at most " + maxStatements);
+    }
+}
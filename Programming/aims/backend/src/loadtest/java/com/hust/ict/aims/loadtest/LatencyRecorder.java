@@ -0,0 +1,78 @@
+package com.hust.ict.aims.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Latency samples per endpoint, summarized as p50/p99/max and throughput once the run is over.
+ * 4xx answers (rejected input, out of stock) are counted apart from 5xx errors.
+ */
+final class LatencyRecorder {
+
+    record Summary(String endpoint, long requests, long rejected, long errors, double p50Millis, double p99Millis,
+                   double maxMillis, double throughputPerSecond) {
+    }
+
+    private static final class Samples {
+        private long[] nanos = new long[1024];
+        private int size;
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+
+        synchronized void add(long value) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = value;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(nanos, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    private final Map<String, Samples> endpoints = new ConcurrentSkipListMap<>();
+
+    void record(String endpoint, long nanos, int status) {
+        Samples samples = endpoints.computeIfAbsent(endpoint, e -> new Samples());
+        samples.add(nanos);
+        if (status >= 500) {
+            samples.errors.incrementAndGet();
+        } else if (status >= 400) {
+            samples.rejected.incrementAndGet();
+        }
+    }
+
+    // Requests that could not be sent at all count as errors
+    void recordFailure(String endpoint) {
+        endpoints.computeIfAbsent(endpoint, e -> new Samples()).errors.incrementAndGet();
+    }
+
+    List<Summary> summarize(double elapsedSeconds) {
+        List<Summary> summaries = new ArrayList<>();
+        endpoints.forEach((endpoint, samples) -> {
+            long[] sorted = samples.sorted();
+            if (sorted.length == 0) return;
+            summaries.add(new Summary(endpoint, sorted.length, samples.rejected.get(), samples.errors.get(),
+                    millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)),
+                    millis(sorted[sorted.length - 1]), sorted.length / elapsedSeconds));
+        });
+        return summaries;
+    }
+
+    // Nearest-rank percentile
+    private static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
@@ -0,0 +1,247 @@
+package com.hust.ict.aims.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * One simulated customer. Each scenario walks the same endpoints as the frontend, with its own cookie jar
+ * so the payment gateway choice kept in the HTTP session survives the VNPay redirect.
+ */
+final class ShopperSession {
+
+    private static final String[] SEARCH_TERMS = {"book", "cd", "dvd", "lp", "album", "novel", "jazz", "live"};
+    // Share of checkouts and payment returns sent twice, as a client does when a response is lost
+    private static final int RETRY_PERCENT = 20;
+    static final String DUPLICATE_RESULT = "retry with a different result";
+
+    private static final String[][] ADDRESSES = {
+            {"Hà Nội", "Ba Đình"}, {"Hà Nội", "Cầu Giấy"}, {"Hồ Chí Minh", "Quận 1"}, {"Đà Nẵng", "Hải Châu"}
+    };
+
+    private final String baseUrl;
+    private final long productCount;
+    private final LatencyRecorder recorder;
+    private final ObjectMapper mapper;
+    private final HttpClient client;
+
+    ShopperSession(String baseUrl, long productCount, LatencyRecorder recorder, ObjectMapper mapper) {
+        this.baseUrl = baseUrl;
+        this.productCount = productCount;
+        this.recorder = recorder;
+        this.mapper = mapper;
+        // Redirects are followed by hand so every hop of the payment flow is timed on its own
+        this.client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    // Browse → product detail → search
+    void browse() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        get("GET /api/products", "/api/products?page=" + random.nextInt(1, 6) + "&size=20&includeTotal=false");
+        get("GET /api/products/{id}", "/api/products/" + randomProductId());
+        get("GET /api/products/search",
+                "/api/products/search?size=20&search=" + SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)]);
+    }
+
+    // Browse → cart → calculate
+    void fillCart() throws IOException, InterruptedException {
+        JsonNode cart = post("POST /api/carts/create", "/api/carts/create", Map.of());
+        if (cart == null) return;
+        long cartId = cart.path("cartId").asLong();
+        for (Map<String, Object> item : randomItems()) {
+            post("POST /api/carts/{id}/items", "/api/carts/" + cartId + "/items", item);
+        }
+        calculate(randomItems(), ADDRESSES[0][0], false);
+    }
+
+    // Calculate → pay through VNPay → create the order
+    void checkout() throws IOException, InterruptedException {
+        List<Map<String, Object>> items = randomItems();
+        String[] address = ADDRESSES[ThreadLocalRandom.current().nextInt(ADDRESSES.length)];
+        JsonNode totals = calculate(items, address[0], false);
+        if (totals == null) return;
+
+        String transactionId = pay(totals.path("total").asDouble());
+        if (transactionId == null) return;
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("deliveryInfo", deliveryInfo(address));
+        body.put("invoiceData", invoice(items, totals));
+        body.put("transactionData", Map.of("transactionId", transactionId));
+        body.put("status", "PENDING");
+        String idempotencyKey = UUID.randomUUID().toString();
+        JsonNode order = post("POST /api/orders/checkout/create-order", "/api/orders/checkout/create-order", body,
+                idempotencyKey);
+        if (order == null || !retry()) return;
+
+        // The retry must get the same order back, not place a second one
+        JsonNode retried = post("POST /api/orders/checkout/create-order (retry)", "/api/orders/checkout/create-order",
+                body, idempotencyKey);
+        if (retried != null && !order.path("id").equals(retried.path("id"))) {
+            recorder.recordFailure(DUPLICATE_RESULT);
+        }
+    }
+
+    // Eligibility → rush totals → pay → rush order
+    void rushCheckout() throws IOException, InterruptedException {
+        List<Map<String, Object>> items = randomItems();
+        String[] address = ADDRESSES[ThreadLocalRandom.current().nextInt(2)];
+
+        Map<String, Object> eligibility = new HashMap<>();
+        eligibility.put("cartRequestDTO", Map.of("cartId", 0, "items", items));
+        eligibility.put("deliveryInfoDTO", deliveryInfo(address));
+        post("POST /api/rush-orders/check-eligibility", "/api/rush-orders/check-eligibility", eligibility);
+
+        JsonNode totals = calculate(items, address[0], true);
+        if (totals == null) return;
+        String transactionId = pay(totals.path("total").asDouble());
+        if (transactionId == null) return;
+
+        Map<String, Object> transaction = new HashMap<>();
+        transaction.put("amount", totals.path("total").asDouble());
+        transaction.put("payDate", LocalDateTime.now().withNano(0).toString());
+        transaction.put("gateway", "VNPay");
+        transaction.put("transactionStatus", "PENDING");
+        transaction.put("transactionNo", transactionId);
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("deliveryInfo", deliveryInfo(address));
+        body.put("invoiceRequest", invoice(items, totals));
+        body.put("transactionRequest", transaction);
+        body.put("status", "PENDING");
+        body.put("deliveryTime", LocalDateTime.now().plusHours(2).withNano(0).toString());
+        body.put("deliveryInstruction", "Call before delivery");
+        post("POST /api/rush-orders", "/api/rush-orders", body);
+    }
+
+    private JsonNode calculate(List<Map<String, Object>> items, String province, boolean rush)
+            throws IOException, InterruptedException {
+        Map<String, Object> body = new HashMap<>();
+        body.put("items", items);
+        body.put("province", province);
+        body.put("rushDelivery", rush);
+        return post(rush ? "POST /api/carts/calculate (rush)" : "POST /api/carts/calculate",
+                "/api/carts/calculate", body);
+    }
+
+    /**
+     * /api/pay_test redirects to the gateway, the gateway redirects back to /payment-result, which stores
+     * the transaction and redirects to the confirmation page with its id.
+     *
+     * @return the transaction id, or null if any hop failed
+     */
+    private String pay(double amount) throws IOException, InterruptedException {
+        String orderId = String.valueOf(ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE));
+        String gatewayUrl = redirect("GET /api/pay_test", baseUrl + "/api/pay_test?gateway=VNPay&amount="
+                + Math.max(1, Math.round(amount)) + "&orderId=" + orderId + "&orderInfo=");
+        if (gatewayUrl == null) return null;
+
+        String returnUrl = redirect("VNPay stub", gatewayUrl);
+        if (returnUrl == null) return null;
+
+        String confirmationUrl = redirect("GET /payment-result", returnUrl);
+        if (confirmationUrl == null) return null;
+        if (retry()) {
+            // A reloaded return page must point at the same transaction, not record the payment again
+            String replayed = redirect("GET /payment-result (replay)", returnUrl);
+            if (replayed != null && !replayed.equals(confirmationUrl)) {
+                recorder.recordFailure(DUPLICATE_RESULT);
+            }
+        }
+
+        String transactionId = confirmationUrl.substring(confirmationUrl.indexOf("transactionId=") + 14);
+        return "-1".equals(transactionId) ? null : transactionId;
+    }
+
+    private static boolean retry() {
+        return ThreadLocalRandom.current().nextInt(100) < RETRY_PERCENT;
+    }
+
+    private List<Map<String, Object>> randomItems() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int lines = random.nextInt(1, 5);
+        Set<Long> ids = new LinkedHashSet<>();
+        while (ids.size() < lines) {
+            ids.add(randomProductId());
+        }
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (Long id : ids) {
+            items.add(Map.of("productId", id, "quantity", random.nextInt(1, 3)));
+        }
+        return items;
+    }
+
+    private long randomProductId() {
+        return ThreadLocalRandom.current().nextLong(1, productCount + 1);
+    }
+
+    private static Map<String, Object> deliveryInfo(String[] address) {
+        Map<String, Object> info = new HashMap<>();
+        info.put("deliveryAddress", "1 Đại Cồ Việt");
+        info.put("province", address[0]);
+        info.put("district", address[1]);
+        info.put("phoneNumber", "0900000000");
+        info.put("recipientName", "Load Test");
+        info.put("email", "loadtest@aims.local");
+        return info;
+    }
+
+    private static Map<String, Object> invoice(List<Map<String, Object>> items, JsonNode totals) {
+        Map<String, Object> invoice = new HashMap<>();
+        invoice.put("cart", Map.of("cartId", 0,
+                "totalProductPriceBeforeVAT", totals.path("subtotal").asDouble(), "items", items));
+        invoice.put("totalProductPriceBeforeVAT", totals.path("subtotal").asDouble());
+        invoice.put("totalProductPriceAfterVAT", totals.path("subtotal").asDouble() + totals.path("tax").asDouble());
+        invoice.put("deliveryFee", totals.path("deliveryFee").asDouble());
+        invoice.put("totalAmount", totals.path("total").asDouble());
+        return invoice;
+    }
+
+    private void get(String endpoint, String path) throws IOException, InterruptedException {
+        send(endpoint, HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build());
+    }
+
+    private JsonNode post(String endpoint, String path, Object body) throws IOException, InterruptedException {
+        return post(endpoint, path, body, null);
+    }
+
+    private JsonNode post(String endpoint, String path, Object body, String idempotencyKey)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)));
+        if (idempotencyKey != null) {
+            builder.header("Idempotency-Key", idempotencyKey);
+        }
+        HttpResponse<String> response = send(endpoint, builder.build());
+        return response.statusCode() < 300 && !response.body().isEmpty() ? mapper.readTree(response.body()) : null;
+    }
+
+    // Expects a 302 and returns its Location
+    private String redirect(String endpoint, String url) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(endpoint, HttpRequest.newBuilder(URI.create(url)).GET().build());
+        return response.statusCode() == 302 ? response.headers().firstValue("Location").orElse(null) : null;
+    }
+
+    private HttpResponse<String> send(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        recorder.record(endpoint, System.nanoTime() - start, response.statusCode());
+        return response;
+    }
+}
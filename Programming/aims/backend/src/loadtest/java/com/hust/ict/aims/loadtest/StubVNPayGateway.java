@@ -0,0 +1,120 @@
+package com.hust.ict.aims.loadtest;
+
+import com.hust.ict.aims.subsystem.PaymentSubsystem.Config.VNPayConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Local stand-in for the VNPay sandbox. It checks the vnp_SecureHash of each payment request, approves it,
+ * and redirects to vnp_ReturnUrl with a result signed by VNPayConfig.hmacSHA512, the same way the real
+ * gateway signs its return URL.
+ */
+final class StubVNPayGateway implements AutoCloseable {
+
+    private static final DateTimeFormatter PAY_DATE = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final VNPayConfig signer = new VNPayConfig();
+    private final String hashSecret;
+    private final AtomicLong transactionNo = new AtomicLong(14000000);
+    private final AtomicInteger badSignatures = new AtomicInteger();
+
+    StubVNPayGateway(String hashSecret) throws IOException {
+        this.hashSecret = hashSecret;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.executor = Executors.newFixedThreadPool(8);
+        server.createContext("/paymentv2/vpcpay.html", this::pay);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String paymentUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/paymentv2/vpcpay.html";
+    }
+
+    int badSignatures() {
+        return badSignatures.get();
+    }
+
+    private void pay(HttpExchange exchange) throws IOException {
+        Map<String, String> request = parseQuery(exchange.getRequestURI().getRawQuery());
+        String receivedHash = request.remove("vnp_SecureHash");
+        if (receivedHash == null || !receivedHash.equals(sign(request))) {
+            badSignatures.incrementAndGet();
+            exchange.sendResponseHeaders(400, -1);
+            exchange.close();
+            return;
+        }
+
+        Map<String, String> result = new TreeMap<>();
+        result.put("vnp_Amount", request.get("vnp_Amount"));
+        result.put("vnp_BankCode", "NCB");
+        result.put("vnp_BankTranNo", "VNP" + transactionNo.get());
+        result.put("vnp_CardType", "ATM");
+        result.put("vnp_OrderInfo", request.get("vnp_OrderInfo"));
+        result.put("vnp_PayDate", LocalDateTime.now().format(PAY_DATE));
+        result.put("vnp_ResponseCode", "00");
+        result.put("vnp_TmnCode", request.get("vnp_TmnCode"));
+        result.put("vnp_TransactionNo", String.valueOf(transactionNo.incrementAndGet()));
+        result.put("vnp_TransactionStatus", "00");
+        result.put("vnp_TxnRef", request.get("vnp_TxnRef"));
+        String secureHash = sign(result);
+
+        StringJoiner query = new StringJoiner("&");
+        result.forEach((key, value) -> query.add(encode(key) + "=" + encode(value)));
+        query.add("vnp_SecureHash=" + secureHash);
+
+        exchange.getResponseHeaders().add("Location", request.get("vnp_ReturnUrl") + "?" + query);
+        exchange.sendResponseHeaders(302, -1);
+        exchange.close();
+    }
+
+    // Same hash data as VNPayPayRequest: non-empty fields sorted by name, values URL-encoded
+    private String sign(Map<String, String> params) {
+        StringJoiner hashData = new StringJoiner("&");
+        new TreeMap<>(params).forEach((key, value) -> {
+            if (value != null && !value.isEmpty()) {
+                hashData.add(key + "=" + encode(value));
+            }
+        });
+        return signer.hmacSHA512(hashSecret, hashData.toString());
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new TreeMap<>();
+        if (rawQuery == null) return params;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.US_ASCII),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.US_ASCII));
+        }
+        return params;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -2,10 +2,12 @@ package com.hust.ict.aims;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.core.env.Environment;
 import org.apache.commons.logging.LogFactory;
 
 @SpringBootApplication
+@EnableScheduling
 public class AimsApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(AimsApplication.class, args);
@@ -0,0 +1,173 @@
+package com.hust.ict.aims.cache;
+
+import com.hust.ict.aims.model.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through, size-bounded cache of product snapshots sitting in front of ProductRepository.
+ *
+ * Single products are cached by id; listing views (all active products, a listing page, ...) are cached
+ * by a caller-chosen key. Every committed product write evicts that product and the listings that
+ * contain it; only adding or deleting a product, which moves the others between pages and changes the
+ * counts, drops all listings and counts. A generation counter stops a load that raced with an eviction
+ * from writing stale data back: each entry is stored with the generation its load started in, the put
+ * compares that with the current generation atomically, and a read ignores entries loaded before the
+ * last time their map was cleared.
+ */
+@Component
+public class CatalogCache {
+
+    private final Map<Long, Entry<ProductSnapshot>> byId;
+    private final Map<String, Entry<List<ProductSnapshot>>> listings;
+    private final Map<String, Entry<Long>> counts;
+
+    private final AtomicLong generation = new AtomicLong();
+    // Entries loaded in an earlier generation than these were cleared and must not be served
+    private volatile long productsValidFrom;
+    private volatile long listingsValidFrom;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CatalogCache(@Value("${aims.catalog.cache.max-products:10000}") int maxProducts,
+                        @Value("${aims.catalog.cache.max-listings:256}") int maxListings) {
+        this.byId = boundedLru(maxProducts);
+        this.listings = boundedLru(maxListings);
+        this.counts = boundedLru(maxListings);
+    }
+
+    /**
+     * Return the cached snapshot for the id, loading it with {@code loader} on a miss.
+     * Returns null (and caches nothing) when the loader finds no product.
+     */
+    public ProductSnapshot get(Long id, Supplier<Product> loader) {
+        ProductSnapshot cached = read(byId, id, productsValidFrom);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+
+        long seen = generation.get();
+        Product loaded = loader.get();
+        if (loaded == null) {
+            return null;
+        }
+        ProductSnapshot snapshot = ProductSnapshot.of(loaded);
+        put(byId, id, snapshot, seen);
+        return snapshot;
+    }
+
+    /**
+     * Return a cached listing view, loading it with {@code loader} on a miss. Loaded products are
+     * also put into the by-id cache so follow-up detail reads are served from memory.
+     */
+    public List<ProductSnapshot> getListing(String key, Supplier<List<Product>> loader) {
+        List<ProductSnapshot> cached = read(listings, key, listingsValidFrom);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+
+        long seen = generation.get();
+        List<ProductSnapshot> snapshots = loader.get().stream()
+                .map(ProductSnapshot::of)
+                .toList();
+        if (put(listings, key, snapshots, seen)) {
+            for (ProductSnapshot snapshot : snapshots) {
+                put(byId, snapshot.id(), snapshot, seen);
+            }
+        }
+        return snapshots;
+    }
+
+    public long getCount(String key, Supplier<Long> loader) {
+        Long cached = read(counts, key, listingsValidFrom);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+
+        long seen = generation.get();
+        long count = loader.get();
+        put(counts, key, count, seen);
+        return count;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        evict(event.productId(), event.change());
+    }
+
+    public void evict(Long productId, ProductChangedEvent.Change change) {
+        long current = generation.incrementAndGet();
+        if (productId != null) {
+            byId.remove(productId);
+        }
+        if (productId == null || change == null || change.changesCatalog()) {
+            listingsValidFrom = current;
+            listings.clear();
+            counts.clear();
+            return;
+        }
+        // An update or stock change leaves every product on its page: only the listings showing it are stale
+        synchronized (listings) {
+            listings.values().removeIf(listing -> listing.value().stream().anyMatch(s -> s.id().equals(productId)));
+        }
+    }
+
+    public void evictAll() {
+        long current = generation.incrementAndGet();
+        productsValidFrom = current;
+        listingsValidFrom = current;
+        byId.clear();
+        listings.clear();
+        counts.clear();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    // A cached value and the generation its load started in
+    private record Entry<T>(T value, long generation) {
+    }
+
+    private static <K, T> T read(Map<K, Entry<T>> map, K key, long validFrom) {
+        Entry<T> entry = map.get(key);
+        return entry == null || entry.generation() < validFrom ? null : entry.value();
+    }
+
+    // Check and put under the map's lock, so an eviction either sees the entry or makes the check fail
+    private <K, T> boolean put(Map<K, Entry<T>> map, K key, T value, long seen) {
+        Entry<T> stored = map.compute(key, (k, old) -> generation.get() == seen ? new Entry<>(value, seen) : old);
+        return stored != null && stored.generation() == seen && stored.value() == value;
+    }
+
+    private static <K, V> Map<K, V> boundedLru(int maxEntries) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+}
@@ -0,0 +1,135 @@
+package com.hust.ict.aims.cache;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Cohesion Level: Functional Cohesion
+ * All members serve one purpose: holding Hibernate's second-level and query cache regions in this JVM.
+ *
+ * Each region is a RegionStorage with its own size bound (LRU beyond it) and time to live, taken from
+ * aims.cache.regions.<region>.max-entries / ttl-seconds with the defaults below. Reference data (roles)
+ * never expires; product state expires so a change made outside this application is picked up. The
+ * update-timestamps region is never bounded: dropping a timestamp could let a stale query result through.
+ * The application runs as a single instance, so no replicated provider is needed.
+ */
+public class LocalRegionFactory extends RegionFactoryTemplate {
+
+    // Entity and collection regions
+    public static final String PRODUCT = "aims.product";
+    public static final String ROLE = "aims.role";
+    public static final String USER_ROLES = "aims.user-roles";
+    // Query result regions
+    public static final String PRODUCT_STATS = "aims.product-stats";
+    public static final String ROLE_BY_NAME = "aims.role-by-name";
+    public static final String DEFAULT_QUERY_RESULTS = "default-query-results-region";
+
+    /**
+     * Size bound and time to live of a region; a zero ttl means entries do not expire.
+     */
+    public record RegionSpec(int maxEntries, Duration ttl) {
+    }
+
+    private static final RegionSpec FALLBACK = new RegionSpec(1000, Duration.ofMinutes(10));
+
+    private static final Map<String, RegionSpec> DEFAULTS = defaults();
+
+    private final Map<String, RegionSpec> specs;
+    private final Map<String, RegionStorage> regions = new ConcurrentHashMap<>();
+
+    public LocalRegionFactory(Map<String, RegionSpec> specs) {
+        this.specs = Map.copyOf(specs);
+    }
+
+    /**
+     * The default regions, each overridable through the environment.
+     */
+    public static LocalRegionFactory fromEnvironment(Environment environment) {
+        Map<String, RegionSpec> specs = new LinkedHashMap<>();
+        DEFAULTS.forEach((region, spec) -> {
+            String prefix = "aims.cache.regions." + region + ".";
+            specs.put(region, new RegionSpec(
+                    environment.getProperty(prefix + "max-entries", Integer.class, spec.maxEntries()),
+                    Duration.ofSeconds(environment.getProperty(prefix + "ttl-seconds", Long.class,
+                            spec.ttl().toSeconds()))));
+        });
+        return new LocalRegionFactory(specs);
+    }
+
+    public static List<String> regionNames() {
+        return List.copyOf(DEFAULTS.keySet());
+    }
+
+    /**
+     * Entries currently held by the region, or 0 when Hibernate has not built it yet.
+     */
+    public int size(String region) {
+        RegionStorage storage = regions.get(region);
+        return storage != null ? storage.size() : 0;
+    }
+
+    public long getEvictionCount(String region) {
+        RegionStorage storage = regions.get(region);
+        return storage != null ? storage.getEvictionCount() : 0;
+    }
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map<String, Object> configValues) {
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        regions.values().forEach(RegionStorage::release);
+        regions.clear();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                    DomainDataRegionBuildingContext buildingContext) {
+        return storage(regionConfig.getRegionName());
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+                                                                  SessionFactoryImplementor sessionFactory) {
+        return storage(regionName);
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+                                                                SessionFactoryImplementor sessionFactory) {
+        return regions.computeIfAbsent(regionName, name -> new RegionStorage(Integer.MAX_VALUE, Duration.ZERO));
+    }
+
+    private RegionStorage storage(String regionName) {
+        return regions.computeIfAbsent(regionName, name -> {
+            RegionSpec spec = specs.getOrDefault(name, FALLBACK);
+            return new RegionStorage(spec.maxEntries(), spec.ttl());
+        });
+    }
+
+    private static Map<String, RegionSpec> defaults() {
+        Map<String, RegionSpec> defaults = new LinkedHashMap<>();
+        defaults.put(PRODUCT, new RegionSpec(10000, Duration.ofMinutes(30)));
+        defaults.put(ROLE, new RegionSpec(100, Duration.ZERO));
+        defaults.put(USER_ROLES, new RegionSpec(10000, Duration.ofMinutes(30)));
+        // Invalidated by any write to the product table, so the ttl rarely matters
+        defaults.put(PRODUCT_STATS, new RegionSpec(16, Duration.ofMinutes(5)));
+        defaults.put(ROLE_BY_NAME, new RegionSpec(100, Duration.ZERO));
+        defaults.put(DEFAULT_QUERY_RESULTS, FALLBACK);
+        return Collections.unmodifiableMap(defaults);
+    }
+}
@@ -0,0 +1,24 @@
+package com.hust.ict.aims.cache;
+
+/**
+ * Published by the product service whenever a product row is inserted, updated, soft/hard deleted
+ * or has its stock changed. Listeners run after the surrounding transaction commits.
+ */
+public record ProductChangedEvent(Long productId, Change change) {
+
+    public enum Change {
+        ADDED,
+        // Any column of an existing product, e.g. title or price
+        UPDATED,
+        // Only the quantity, from a reservation, a release or a stock adjustment
+        STOCK,
+        DELETED,
+        // A soft-deleted product made active again
+        RESTORED;
+
+        // True when the set of active products changes, not just the columns of one of them
+        public boolean changesCatalog() {
+            return this == ADDED || this == DELETED || this == RESTORED;
+        }
+    }
+}
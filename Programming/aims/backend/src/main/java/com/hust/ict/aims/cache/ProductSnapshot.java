@@ -0,0 +1,152 @@
+package com.hust.ict.aims.cache;
+
+import com.hust.ict.aims.model.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable copy of a Product row (including its Book/CD/DVD/LP fields) as held by the catalog cache.
+ * Snapshots are never handed out directly; callers receive a fresh detached entity via {@link #toEntity()}.
+ */
+public record ProductSnapshot(
+        Long id,
+        String productType,
+        String imageURL,
+        boolean rushOrderEligible,
+        float weight,
+        String productDimensions,
+        LocalDate warehouseEntryDate,
+        String title,
+        String category,
+        float value,
+        float currentPrice,
+        String barcode,
+        String productDescription,
+        int quantity,
+        boolean deleted,
+        LocalDateTime deletedAt,
+        Details details) {
+
+    public sealed interface Details permits BookDetails, MusicDiscDetails, DVDDetails {
+    }
+
+    public record BookDetails(String author, String coverType, String publisher, String language,
+                              int numberOfPage, LocalDate publicationDate, String genre) implements Details {
+    }
+
+    public record MusicDiscDetails(String album, String artist, String recordLabel, LocalDate releaseDate,
+                                   String tracklist, String genre) implements Details {
+    }
+
+    public record DVDDetails(LocalDate releaseDate, String subtitle, String language, String studio,
+                             String runtime, String discType, String director, String genre) implements Details {
+    }
+
+    public static ProductSnapshot of(Product product) {
+        return new ProductSnapshot(
+                product.getId(),
+                productTypeOf(product),
+                product.getImageURL(),
+                product.isRushOrderEligible(),
+                product.getWeight(),
+                product.getProductDimensions(),
+                product.getWarehouseEntryDate(),
+                product.getTitle(),
+                product.getCategory(),
+                product.getValue(),
+                product.getCurrentPrice(),
+                product.getBarcode(),
+                product.getProductDescription(),
+                product.getQuantity(),
+                product.isDeleted(),
+                product.getDeletedAt(),
+                detailsOf(product));
+    }
+
+    /**
+     * Build a new detached entity of the right subtype from this snapshot.
+     */
+    public Product toEntity() {
+        Product product = switch (productType) {
+            case "BOOK" -> {
+                BookDetails d = (BookDetails) details;
+                Book book = new Book();
+                book.setAuthor(d.author());
+                book.setCoverType(d.coverType());
+                book.setPublisher(d.publisher());
+                book.setLanguage(d.language());
+                book.setNumberOfPage(d.numberOfPage());
+                book.setPublicationDate(d.publicationDate());
+                book.setGenre(d.genre());
+                yield book;
+            }
+            case "CD", "LP" -> {
+                MusicDiscDetails d = (MusicDiscDetails) details;
+                MusicDisc disc = "CD".equals(productType) ? new CD() : new LP();
+                disc.setAlbum(d.album());
+                disc.setArtist(d.artist());
+                disc.setRecordLabel(d.recordLabel());
+                disc.setReleaseDate(d.releaseDate());
+                disc.setTracklist(d.tracklist());
+                disc.setGenre(d.genre());
+                yield disc;
+            }
+            case "DVD" -> {
+                DVDDetails d = (DVDDetails) details;
+                DVD dvd = new DVD();
+                dvd.setReleaseDate(d.releaseDate());
+                dvd.setSubtitle(d.subtitle());
+                dvd.setLanguage(d.language());
+                dvd.setStudio(d.studio());
+                dvd.setRuntime(d.runtime());
+                dvd.setDiscType(d.discType());
+                dvd.setDirector(d.director());
+                dvd.setGenre(d.genre());
+                yield dvd;
+            }
+            default -> new Product();
+        };
+
+        product.setId(id);
+        product.setImageURL(imageURL);
+        product.setRushOrderEligible(rushOrderEligible);
+        product.setWeight(weight);
+        product.setProductDimensions(productDimensions);
+        product.setWarehouseEntryDate(warehouseEntryDate);
+        product.setTitle(title);
+        product.setCategory(category);
+        product.setValue(value);
+        product.setCurrentPrice(currentPrice);
+        product.setBarcode(barcode);
+        product.setProductDescription(productDescription);
+        product.setQuantity(quantity);
+        product.setDeleted(deleted);
+        product.setDeletedAt(deletedAt);
+        return product;
+    }
+
+    private static String productTypeOf(Product product) {
+        if (product instanceof Book) return "BOOK";
+        if (product instanceof CD) return "CD";
+        if (product instanceof LP) return "LP";
+        if (product instanceof DVD) return "DVD";
+        return "PRODUCT";
+    }
+
+    private static Details detailsOf(Product product) {
+        if (product instanceof Book book) {
+            return new BookDetails(book.getAuthor(), book.getCoverType(), book.getPublisher(),
+                    book.getLanguage(), book.getNumberOfPage(), book.getPublicationDate(), book.getGenre());
+        }
+        if (product instanceof MusicDisc disc) {
+            return new MusicDiscDetails(disc.getAlbum(), disc.getArtist(), disc.getRecordLabel(),
+                    disc.getReleaseDate(), disc.getTracklist(), disc.getGenre());
+        }
+        if (product instanceof DVD dvd) {
+            return new DVDDetails(dvd.getReleaseDate(), dvd.getSubtitle(), dvd.getLanguage(), dvd.getStudio(),
+                    dvd.getRuntime(), dvd.getDiscType(), dvd.getDirector(), dvd.getGenre());
+        }
+        return null;
+    }
+}
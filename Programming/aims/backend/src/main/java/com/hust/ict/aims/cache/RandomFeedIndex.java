@@ -0,0 +1,133 @@
+package com.hust.ict.aims.cache;
+
+import com.hust.ict.aims.repository.ProductRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shared seeded permutation of active product ids backing the random product feed.
+ *
+ * The permutation is built once per seed window (one minute, matching the previous behaviour) and shared
+ * by every request in that window, so a page request only has to slice a long[] and load those few ids.
+ * A committed add, delete or restore marks the permutation stale; it is rebuilt lazily by the next
+ * request. Stock and price updates leave the set of ids, and so the permutation, as it is.
+ * The same ids back sample(), which draws a uniform random set of active products without a table scan.
+ */
+@Component
+public class RandomFeedIndex {
+
+    private static final long SEED_WINDOW_MILLIS = 60_000L;
+
+    private final ProductRepository productRepository;
+    // Not synchronized: the rebuild queries the database, which would pin a virtual thread to its carrier
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile Permutation current;
+    private volatile boolean stale;
+
+    public RandomFeedIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Return the permutation for the current seed window, building it if necessary.
+     */
+    public long[] permutation() {
+        long seed = System.currentTimeMillis() / SEED_WINDOW_MILLIS;
+        Permutation snapshot = current;
+        if (snapshot != null && snapshot.seed == seed && !stale) {
+            return snapshot.ids;
+        }
+        return rebuild(seed);
+    }
+
+    /**
+     * Ids of the requested page, in feed order. Returns an empty array past the end.
+     */
+    public long[] page(long[] ids, int page, int size) {
+        int start = (int) Math.min((long) page * size, ids.length);
+        int end = Math.min(start + size, ids.length);
+        return Arrays.copyOfRange(ids, start, end);
+    }
+
+    /**
+     * Up to {@code size} distinct active product ids, each set of that size equally likely, in random
+     * order. A product deleted while the index is being rebuilt can still be drawn, so callers load the
+     * ids with their deleted check.
+     */
+    public long[] sample(int size) {
+        long[] ids = permutation();
+        int k = Math.min(size, ids.length);
+        if (k <= 0) {
+            return new long[0];
+        }
+        // Floyd's algorithm: k draws whatever the catalog size, no shuffle of the whole array
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Set<Integer> chosen = new LinkedHashSet<>(k * 2);
+        for (int j = ids.length - k; j < ids.length; j++) {
+            int t = random.nextInt(j + 1);
+            if (!chosen.add(t)) {
+                chosen.add(j);
+            }
+        }
+        long[] sample = new long[k];
+        int i = 0;
+        for (int index : chosen) {
+            sample[i++] = ids[index];
+        }
+        // Floyd's picks come out in a biased order (late indices tend to come last)
+        shuffle(sample, random);
+        return sample;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.change() == null || event.change().changesCatalog()) {
+            stale = true;
+        }
+    }
+
+    private long[] rebuild(long seed) {
+        rebuildLock.lock();
+        try {
+            Permutation snapshot = current;
+            if (snapshot != null && snapshot.seed == seed && !stale) {
+                return snapshot.ids;
+            }
+            stale = false;
+
+            List<Long> activeIds = productRepository.findActiveIdsOrdered();
+            long[] ids = new long[activeIds.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = activeIds.get(i);
+            }
+            shuffle(ids, new Random(seed));
+
+            current = new Permutation(seed, ids);
+            return ids;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Fisher-Yates over the primitive array, same algorithm as Collections.shuffle
+    private static void shuffle(long[] ids, Random random) {
+        for (int i = ids.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long tmp = ids[i];
+            ids[i] = ids[j];
+            ids[j] = tmp;
+        }
+    }
+
+    private record Permutation(long seed, long[] ids) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.hust.ict.aims.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves the id sequences past rows inserted while the tables still used IDENTITY ids. Hibernate's
+ * schema update creates the sequences starting at 1, which would collide with the existing ids.
+ * Runs once the schema is in place and before the web server takes requests. The sequence is only read,
+ * never advanced, and restarted only when it is behind the table. Only runs on PostgreSQL, where the
+ * tables had IDENTITY ids; other databases get the sequences with a freshly created schema.
+ */
+@Component
+public class IdSequenceAligner {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdSequenceAligner.class);
+
+    // Must match the allocationSize of the @SequenceGenerator
+    private static final int ALLOCATION_SIZE = 50;
+
+    private record BatchSequence(String sequence, String table, String idColumn) {
+    }
+
+    private static final List<BatchSequence> SEQUENCES = List.of(
+            new BatchSequence("cartitem_seq", "cartitem", "cartitemid"),
+            new BatchSequence("stock_hold_seq", "stock_hold", "id"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // The EntityManagerFactory parameter only orders this after Hibernate has created the schema
+    public IdSequenceAligner(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void align() {
+        String database = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            logger.debug("Skipping id sequence alignment on {}", database);
+            return;
+        }
+
+        for (BatchSequence batchSequence : SEQUENCES) {
+            Long maxId = jdbcTemplate.queryForObject(
+                    "SELECT MAX(" + batchSequence.idColumn() + ") FROM " + batchSequence.table(), Long.class);
+            if (maxId == null) continue;
+
+            // The value the next nextval will return, without consuming it
+            Map<String, Object> state = jdbcTemplate.queryForMap(
+                    "SELECT last_value, is_called FROM " + batchSequence.sequence());
+            long lastValue = ((Number) state.get("last_value")).longValue();
+            long next = Boolean.TRUE.equals(state.get("is_called")) ? lastValue + ALLOCATION_SIZE : lastValue;
+
+            // The pooled optimizer hands out the ALLOCATION_SIZE ids ending at the value it reads
+            if (next - ALLOCATION_SIZE >= maxId) continue;
+
+            long restartWith = maxId + ALLOCATION_SIZE + 1;
+            jdbcTemplate.execute("ALTER SEQUENCE " + batchSequence.sequence() + " RESTART WITH " + restartWith);
+            logger.info("Moved {} to {} past the existing {} ids", batchSequence.sequence(), restartWith,
+                    batchSequence.table());
+        }
+    }
+}
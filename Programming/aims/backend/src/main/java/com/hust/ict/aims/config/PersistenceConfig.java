@@ -0,0 +1,51 @@
+package com.hust.ict.aims.config;
+
+import com.hust.ict.aims.cache.LocalRegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/*
+ * JDBC batching for Hibernate: inserts and updates of the same table are grouped and sent in batches of
+ * aims.jpa.batch-size, so a checkout writes its cart items and stock holds in one round trip each.
+ * Batching only applies to entities with sequence ids (CartItem, StockHold); IDENTITY ids force Hibernate
+ * to insert each row on its own to read the id back.
+ *
+ * Second-level and query caches, held in this JVM by LocalRegionFactory. Only entities and queries that
+ * opt in with @Cache or the cacheable hint are cached (Product and its subtypes, Role, User.roles, the
+ * product count/min/max and role-by-name queries). Statistics are collected so the hit and miss counts
+ * of each region can be published as metrics. aims.cache.l2.enabled=false turns both caches off.
+ */
+@Configuration
+public class PersistenceConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatching(@Value("${aims.jpa.batch-size:50}") int batchSize) {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_BATCH_SIZE, batchSize);
+            properties.put(AvailableSettings.ORDER_INSERTS, true);
+            properties.put(AvailableSettings.ORDER_UPDATES, true);
+        };
+    }
+
+    @Bean
+    public LocalRegionFactory localRegionFactory(Environment environment) {
+        return LocalRegionFactory.fromEnvironment(environment);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache(LocalRegionFactory regionFactory,
+                                                          @Value("${aims.cache.l2.enabled:true}") boolean enabled) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, enabled);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, enabled);
+            properties.put(AvailableSettings.GENERATE_STATISTICS, enabled);
+            if (enabled) {
+                properties.put(AvailableSettings.CACHE_REGION_FACTORY, regionFactory);
+            }
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package com.hust.ict.aims.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/*
+ * Thread model switch. spring.threads.virtual.enabled=true (Java 21) runs Tomcat requests and @Scheduled
+ * jobs on virtual threads through Spring Boot, and both executors below on virtual threads as well.
+ * With it off, everything stays on platform thread pools.
+ *
+ * The integration executor runs calls to external systems (SMTP, Google APIs) off the request thread.
+ * aims.integration.max-concurrency bounds how many run at once in both modes, so a slow SMTP server
+ * cannot open an unbounded number of connections; in platform mode extra calls wait in the queue.
+ *
+ * Declaring an Executor bean turns off Spring Boot's own application executor, so it is declared here
+ * too, from the same builders Spring Boot would use.
+ */
+@Configuration
+@EnableAsync
+public class ThreadingConfig {
+
+    public static final String INTEGRATION_EXECUTOR = "integrationExecutor";
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Default executor for @Async and asynchronous MVC requests
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor(SimpleAsyncTaskExecutorBuilder simpleBuilder,
+                                                     ThreadPoolTaskExecutorBuilder poolBuilder) {
+        return virtualThreads ? simpleBuilder.build() : poolBuilder.build();
+    }
+
+    @Bean(INTEGRATION_EXECUTOR)
+    public AsyncTaskExecutor integrationExecutor(SimpleAsyncTaskExecutorBuilder simpleBuilder,
+                                                 ThreadPoolTaskExecutorBuilder poolBuilder,
+                                                 @Value("${aims.integration.max-concurrency:64}") int maxConcurrency,
+                                                 @Value("${aims.integration.queue-capacity:1000}") int queueCapacity) {
+        if (virtualThreads) {
+            return simpleBuilder
+                    .threadNamePrefix("integration-")
+                    .virtualThreads(true)
+                    .concurrencyLimit(maxConcurrency)
+                    .build();
+        }
+        return poolBuilder
+                .threadNamePrefix("integration-")
+                .corePoolSize(Math.min(8, maxConcurrency))
+                .maxPoolSize(maxConcurrency)
+                .queueCapacity(queueCapacity)
+                .build();
+    }
+}
@@ -3,12 +3,16 @@ package com.hust.ict.aims.controller;
 import com.hust.ict.aims.dto.CartCalculationRequestDTO;
 import com.hust.ict.aims.dto.CartCalculationResponseDTO;
 import com.hust.ict.aims.dto.CartItemRequestDTO;
+import com.hust.ict.aims.exception.InsufficientStockException;
 import com.hust.ict.aims.model.Cart;
+import com.hust.ict.aims.model.StockHold;
 import com.hust.ict.aims.service.CartService;
+import com.hust.ict.aims.service.StockReservationService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -18,9 +22,11 @@ import java.util.Map;
 public class CartController {
 
     private final CartService cartService;
+    private final StockReservationService stockReservationService;
 
-    public CartController(CartService cartService) {
+    public CartController(CartService cartService, StockReservationService stockReservationService) {
         this.cartService = cartService;
+        this.stockReservationService = stockReservationService;
     }
 
     @PostMapping("/create")
@@ -54,6 +60,31 @@ public class CartController {
         }
     }
 
+    // Hold the cart's stock for a limited time, e.g. while the customer is on the payment page
+    @PostMapping("/{cartId}/hold")
+    public ResponseEntity<?> holdCartStock(@PathVariable Long cartId) {
+        try {
+            List<StockHold> holds = stockReservationService.holdCart(cartId);
+            Map<String, Object> response = new HashMap<>();
+            response.put("holds", holds);
+            response.put("expiresAt", holds.isEmpty() ? null : holds.get(0).getExpiresAt());
+            return ResponseEntity.ok(response);
+        } catch (InsufficientStockException ex) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", ex.getMessage());
+            response.put("outOfStockItems", ex.getItems());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (RuntimeException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{cartId}/hold")
+    public ResponseEntity<Void> releaseCartStock(@PathVariable Long cartId) {
+        stockReservationService.release(StockReservationService.cartReference(cartId));
+        return ResponseEntity.noContent().build();
+    }
+
     @DeleteMapping("/{cartId}/items/{productId}")
     public ResponseEntity<?> removeItemFromCart(@PathVariable Long cartId, @PathVariable Long productId) {
         try {
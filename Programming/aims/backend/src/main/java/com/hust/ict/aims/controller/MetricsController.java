@@ -0,0 +1,35 @@
+package com.hust.ict.aims.controller;
+
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final ObjectProvider<PrometheusMeterRegistry> registry;
+
+    public MetricsController(ObjectProvider<PrometheusMeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Scrape endpoint in the Prometheus text format: endpoint and service timers, SQL statements per
+     * request, suspected N+1 requests, cache hit ratios, product lock waits, JVM and connection pool.
+     * 503 when Prometheus export is disabled (management.prometheus.metrics.export.enabled=false).
+     * GET /api/metrics
+     */
+    @GetMapping(produces = "text/plain;version=0.0.4;charset=utf-8")
+    public ResponseEntity<String> scrape() {
+        PrometheusMeterRegistry prometheus = registry.getIfAvailable();
+        if (prometheus == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Prometheus export is disabled");
+        }
+        return ResponseEntity.ok(prometheus.scrape());
+    }
+}
@@ -2,21 +2,30 @@ package com.hust.ict.aims.controller;
 
 import com.hust.ict.aims.dto.CheckoutRequest;
 import com.hust.ict.aims.dto.OrderStatusUpdateDTO;
-import com.hust.ict.aims.model.DeliveryInfo;
-import com.hust.ict.aims.model.Invoice;
+import com.hust.ict.aims.exception.InsufficientStockException;
+import com.hust.ict.aims.idempotency.IdempotencyStore;
 import com.hust.ict.aims.model.Orders;
-import com.hust.ict.aims.model.Transaction;
-import com.hust.ict.aims.service.DeliveryInfoService;
-import com.hust.ict.aims.service.InvoiceService;
+import com.hust.ict.aims.render.OrderDocumentModel;
+import com.hust.ict.aims.render.TemplateRenderer;
+import com.hust.ict.aims.service.CheckoutService;
 import com.hust.ict.aims.service.OrderService;
-import com.hust.ict.aims.service.TransactionService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -24,16 +33,16 @@ import java.util.Map;
 public class OrderController {
 
     private final OrderService orderService;
-    private final DeliveryInfoService deliveryInfoService;
-    private final InvoiceService invoiceService;
-    private final TransactionService transactionService;
+    private final CheckoutService checkoutService;
+    private final TemplateRenderer templateRenderer;
+    private final IdempotencyStore idempotencyStore;
 
-    public OrderController(OrderService orderService, DeliveryInfoService deliveryInfoService,
-                           InvoiceService invoiceService, TransactionService transactionService) {
+    public OrderController(OrderService orderService, CheckoutService checkoutService,
+                           TemplateRenderer templateRenderer, IdempotencyStore idempotencyStore) {
         this.orderService = orderService;
-        this.deliveryInfoService = deliveryInfoService;
-        this.invoiceService = invoiceService;
-        this.transactionService = transactionService;
+        this.checkoutService = checkoutService;
+        this.templateRenderer = templateRenderer;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @GetMapping
@@ -47,30 +56,29 @@ public class OrderController {
     }
 
     @PostMapping("checkout/create-order")
-    public ResponseEntity<?> completeCheckout(@RequestBody CheckoutRequest request) {
-        // 1. Create delivery info
-        DeliveryInfo deliveryInfo = deliveryInfoService.save(request.getDeliveryInfo());
-
-        // 2. Create invoice from invoice data and cart data
-        Invoice invoice = invoiceService.createInvoice(request.getInvoiceData());
-
-//      3. Create transaction
-//      Transaction transaction = transactionService.createTransaction(request.getTransactionData());
-
-        Transaction transaction = transactionService.getTransaction(request.getTransactionData());
-
-        if (transaction == null || invoice == null || deliveryInfo == null) {
-            System.err.println("Invalid references to transaction, invoice, or delivery info");
-            return ResponseEntity.badRequest().body("Invalid references to transaction, invoice, or delivery info");
+    public ResponseEntity<?> completeCheckout(@RequestBody CheckoutRequest request,
+                                              @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return placeOrder(request);
         }
+        // A retried checkout gets the order the first attempt created instead of a second one
+        return idempotencyStore.execute("checkout:" + idempotencyKey, request, () -> placeOrder(request));
+    }
 
-        // 4. Create order
-
-        Orders order = new Orders(transaction, invoice, deliveryInfo, request.getStatus());
-        Orders savedOrder = orderService.save(order);
-
-        // 5. Return the complete order with all relations
-        return ResponseEntity.ok(savedOrder);
+    private ResponseEntity<?> placeOrder(CheckoutRequest request) {
+        // Stock, delivery info, invoice and order are created in one transaction
+        try {
+            Orders savedOrder = checkoutService.checkout(request);
+            return ResponseEntity.ok(savedOrder);
+        } catch (InsufficientStockException e) {
+            Map<String, Object> body = new HashMap<>();
+            body.put("error", e.getMessage());
+            body.put("outOfStockItems", e.getItems());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @PutMapping("/{id}")
@@ -116,4 +124,66 @@ public class OrderController {
 
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Reprint an order's invoice, streamed into the response as HTML.
+     * @param id Order ID
+     */
+    @GetMapping(value = "/{id}/invoice", produces = MediaType.TEXT_HTML_VALUE)
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public void printInvoice(@PathVariable Long id, HttpServletResponse response) throws IOException {
+        Orders order = orderService.findById(id);
+        templateRenderer.render(TemplateRenderer.ORDER_CONFIRMATION, OrderDocumentModel.of(order), response);
+    }
+
+    /**
+     * Reprint the invoices of many orders in one batch, as a zip with one order-{id}.html per order.
+     * Orders that are missing or fail to render are listed in errors.txt instead.
+     * @param ids Order IDs
+     */
+    @GetMapping(value = "/invoices", produces = "application/zip")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public void printInvoices(@RequestParam List<Long> ids, HttpServletResponse response) throws IOException {
+        List<Long> found = new ArrayList<>();
+        List<Map<String, Object>> models = new ArrayList<>();
+        StringBuilder errors = new StringBuilder();
+        // One query for the whole batch instead of one findById per order
+        Map<Long, Orders> orders = new HashMap<>();
+        for (Orders order : orderService.findAllById(new LinkedHashSet<>(ids))) {
+            orders.put(order.getId(), order);
+        }
+        for (Long id : ids) {
+            Orders order = orders.get(id);
+            if (order == null) {
+                errors.append(id).append(": Order not found - ").append(id).append('\n');
+                continue;
+            }
+            try {
+                models.add(OrderDocumentModel.of(order));
+                found.add(id);
+            } catch (RuntimeException e) {
+                errors.append(id).append(": ").append(e.getMessage()).append('\n');
+            }
+        }
+        List<TemplateRenderer.Rendered> rendered = templateRenderer.renderBatch(TemplateRenderer.ORDER_CONFIRMATION, models);
+
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"invoices.zip\"");
+        try (ZipOutputStream zip = new ZipOutputStream(response.getOutputStream())) {
+            for (int i = 0; i < rendered.size(); i++) {
+                if (!rendered.get(i).succeeded()) {
+                    errors.append(found.get(i)).append(": ").append(rendered.get(i).failure().getMessage()).append('\n');
+                    continue;
+                }
+                zip.putNextEntry(new ZipEntry("order-" + found.get(i) + ".html"));
+                zip.write(rendered.get(i).content());
+                zip.closeEntry();
+            }
+            if (!errors.isEmpty()) {
+                zip.putNextEntry(new ZipEntry("errors.txt"));
+                zip.write(errors.toString().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+    }
 }
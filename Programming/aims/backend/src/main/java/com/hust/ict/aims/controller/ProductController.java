@@ -5,35 +5,59 @@ import com.hust.ict.aims.exception.ProductNotFoundException;
 import com.hust.ict.aims.model.*;
 import com.hust.ict.aims.repository.ProductRepository;
 import com.hust.ict.aims.repository.OperationRepository;
+import com.hust.ict.aims.search.ProductSearchResult;
 import com.hust.ict.aims.service.AddProductOperation;
 import com.hust.ict.aims.service.BusinessRulesService;
+import com.hust.ict.aims.service.CatalogExportService;
+import com.hust.ict.aims.service.DailyOperationQuota;
+import com.hust.ict.aims.service.OperationAuditLog;
 import com.hust.ict.aims.service.OperationService;
+import com.hust.ict.aims.service.ProductImportService;
+import com.hust.ict.aims.service.ProductLockManager;
 import com.hust.ict.aims.service.ProductService;
 import com.hust.ict.aims.service.UpdateProductOperation;
+import com.hust.ict.aims.utils.PageCursor;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/products")
 @CrossOrigin(origins = "http://localhost:5173")
 public class ProductController {
+
+    private static final int MAX_RANDOM_SAMPLE = 100;
     
     @Autowired
     private AddProductOperation addProductOperation;
@@ -43,6 +67,9 @@ public class ProductController {
 
     @Autowired
     private BusinessRulesService businessRulesService;
+
+    @Autowired
+    private DailyOperationQuota dailyOperationQuota;
     private final ProductService productService;
     private final OperationService operationService;
 
@@ -55,11 +82,47 @@ public class ProductController {
     @Autowired
     private ProductMapper productMapper;
 
+    @Autowired
+    private CatalogExportService catalogExportService;
+
+    @Autowired
+    private ProductImportService productImportService;
+
     @PostMapping
     public Product save(@RequestBody Product product) {
         return addProductOperation.executeOperation(product, "ADD_PRODUCT");
     }
 
+    /**
+     * Add many products from one file: one ProductCreateRequest per line by default, or format=csv with a
+     * header row of its field names. Answers 202 once the file is received; the job runs in the
+     * background and its progress and rejected rows are read from the Location.
+     */
+    @PostMapping("/import")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public ResponseEntity<ProductImportService.JobStatus> importProducts(
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletRequest request) throws IOException {
+        ProductImportService.Format importFormat;
+        try {
+            importFormat = ProductImportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported import format: " + format);
+        }
+        ProductImportService.JobStatus job = productImportService.submit(importFormat, request.getInputStream());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/products/import/" + job.jobId()))
+                .body(job);
+    }
+
+    @GetMapping("/import/{jobId}")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public ResponseEntity<ProductImportService.JobStatus> getImportStatus(@PathVariable String jobId) {
+        return productImportService.getStatus(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     // Phương thức kiểm tra tính hợp lệ của thông tin sản phẩm
     private void validateProductInformation(Product product) {
         // Kiểm tra title
@@ -134,21 +197,45 @@ public class ProductController {
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate,
             @RequestParam(required = false) String productId,
-            @RequestParam(required = false) String userId) {
-        
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean includeTotal) {
+
+        // Cursor = (timestamp, id) of the last operation the client has seen
+        PageCursor cursor = decodeCursor(after);
+        LocalDateTime afterTimestamp = cursor != null ? parseCursorTimestamp(cursor) : null;
+
         try {
-            // Use the service layer instead of repository directly
-            Page<Operation> operationsPage = operationService.findOperationsWithFilters(
-                    search, operationType, page, limit);
-            
             Map<String, Object> response = new HashMap<>();
-            response.put("data", operationsPage.getContent());
-            response.put("total", operationsPage.getTotalElements());
+            Slice<Operation> operations;
+            if (cursor != null) {
+                operations = operationService.findOperationsAfter(
+                        search, operationType, afterTimestamp, cursor.id(), limit);
+            } else if (includeTotal) {
+                // Use the service layer instead of repository directly
+                Page<Operation> operationsPage = operationService.findOperationsWithFilters(
+                        search, operationType, page, limit);
+                response.put("total", operationsPage.getTotalElements());
+                response.put("totalPages", operationsPage.getTotalPages());
+                operations = operationsPage;
+            } else {
+                operations = operationService.findOperationsSlice(search, operationType, page, limit);
+            }
+
+            List<Operation> content = operations.getContent();
+            response.put("data", content);
             response.put("page", page);
-            response.put("totalPages", operationsPage.getTotalPages());
-            
+            response.put("hasMore", operations.hasNext());
+            if (operations.hasNext() && !content.isEmpty()) {
+                Operation last = content.get(content.size() - 1);
+                response.put("nextCursor",
+                        new PageCursor(last.getTimestamp().toString(), last.getOperationID()).encode());
+            } else {
+                response.put("nextCursor", null);
+            }
+
             return ResponseEntity.ok(response);
-            
+
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -156,6 +243,20 @@ public class ProductController {
         }
     }
 
+    // Backpressure counters of the buffered operation log
+    @GetMapping("/operations/audit-stats")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public ResponseEntity<OperationAuditLog.Stats> getAuditStats() {
+        return ResponseEntity.ok(operationService.getAuditStats());
+    }
+
+    // Wait and contention counters of the per-product write locks
+    @GetMapping("/operations/lock-stats")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public ResponseEntity<ProductLockManager.Stats> getLockStats() {
+        return ResponseEntity.ok(businessRulesService.getLockStats());
+    }
+
     @GetMapping("/{productId}/operations")
     public ResponseEntity<Map<String, Object>> getProductOperationHistory(
             @PathVariable Long productId,
@@ -213,15 +314,22 @@ public class ProductController {
     @GetMapping
     public ResponseEntity<Map<String, Object>> getProducts(
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "20") int size) {
-
-        // Lấy tổng số sản phẩm
-        long totalItems = productService.countProducts();
-        int totalPages = (int) Math.ceil((double) totalItems / size);
-
-        //int page = ThreadLocalRandom.current().nextInt(0, totalPages - 1);
-        // Lấy page từ service (0-based)
-        Page<Product> productPage = productService.getProducts(page - 1, size);
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean includeTotal) {
+
+        // Với cursor thì seek theo id, không dùng OFFSET
+        PageCursor cursor = decodeCursor(after);
+        Slice<Product> productPage;
+        if (cursor != null) {
+            productPage = productService.getProductsAfter(cursor.id(), size);
+        } else if (includeTotal) {
+            // Lấy page từ service (0-based), kèm tổng số
+            productPage = productService.getProducts(page - 1, size);
+        } else {
+            // Không cần tổng: bỏ COUNT, chỉ đọc thêm một dòng để biết còn trang sau
+            productPage = productService.getProductsSlice(page - 1, size);
+        }
 
         // Map về DTO
         List<ProductDTO> dtos = productPage.getContent().stream()
@@ -231,20 +339,57 @@ public class ProductController {
         // Trả về object phân trang
         Map<String, Object> response = new HashMap<>();
         response.put("data", dtos);
-        response.put("total", totalItems);
         response.put("page", page);
-        response.put("totalPages", totalPages);
+        if (includeTotal) {
+            // Lấy tổng số sản phẩm; Page đã đếm sẵn thì không đếm lại
+            long totalItems = productPage instanceof Page<Product> counted
+                    ? counted.getTotalElements()
+                    : productService.countProducts();
+            response.put("total", totalItems);
+            response.put("totalPages", (int) Math.ceil((double) totalItems / size));
+        }
+        response.put("hasMore", productPage.hasNext());
+        List<Product> content = productPage.getContent();
+        response.put("nextCursor", productPage.hasNext() && !content.isEmpty()
+                ? PageCursor.ofId(content.get(content.size() - 1).getId()).encode()
+                : null);
 
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * The whole active catalog, streamed as it is read: a JSON array by default, or one product per line
+     * with format=ndjson. Gzipped when the client accepts it, and answered with 304 when the catalog has
+     * not changed since If-Modified-Since / If-None-Match.
+     */
     @GetMapping("/all")
-    public ResponseEntity<List<ProductDTO>> getAllProducts() {
-        List<Product> products = productService.findAll();
-        List<ProductDTO> dtos = products.stream()
-                .map(productMapper::toDTO)
-                .toList();
-        return ResponseEntity.ok(dtos);
+    public void getAllProducts(@RequestParam(defaultValue = "json") String format,
+                               @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                               ServletWebRequest webRequest) throws IOException {
+        CatalogExportService.Format exportFormat;
+        try {
+            exportFormat = CatalogExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + format);
+        }
+        if (webRequest.checkNotModified(catalogExportService.getETag(),
+                catalogExportService.getLastModified().toEpochMilli())) {
+            return;
+        }
+
+        HttpServletResponse response = webRequest.getResponse();
+        response.setContentType(exportFormat == CatalogExportService.Format.NDJSON
+                ? "application/x-ndjson" : MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            try (GZIPOutputStream gzip = new GZIPOutputStream(response.getOutputStream(), 8192)) {
+                catalogExportService.export(exportFormat, gzip);
+            }
+        } else {
+            catalogExportService.export(exportFormat, response.getOutputStream());
+        }
     }
 
     // New search endpoint with filtering capabilities
@@ -258,12 +403,20 @@ public class ProductController {
             @RequestParam(required = false) Double minPrice,
             @RequestParam(required = false) Double maxPrice,
             @RequestParam(required = false, defaultValue = "id") String sortBy,
-            @RequestParam(required = false, defaultValue = "asc") String sortDirection) {
+            @RequestParam(required = false, defaultValue = "asc") String sortDirection,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean includeTotal) {
+
+        PageCursor cursor = decodeCursor(after);
 
         try {
             // Use service layer for search with filters
-            Page<Product> productPage = productService.searchProductsWithFilters(
-                    search, category, productType, minPrice, maxPrice, sortBy, sortDirection, page, size);
+            ProductSearchResult result = cursor != null
+                    ? productService.searchProductsAfter(
+                            search, category, productType, minPrice, maxPrice, sortBy, sortDirection, cursor, size)
+                    : productService.searchProducts(
+                            search, category, productType, minPrice, maxPrice, sortBy, sortDirection, page, size);
+            Page<Product> productPage = result.page();
 
             // Map to DTOs
             List<ProductDTO> dtos = productPage.getContent().stream()
@@ -273,12 +426,21 @@ public class ProductController {
             // Build response
             Map<String, Object> response = new HashMap<>();
             response.put("data", dtos);
-            response.put("total", productPage.getTotalElements());
+            if (includeTotal) {
+                response.put("total", productPage.getTotalElements());
+                response.put("totalPages", productPage.getTotalPages());
+            }
             response.put("page", page + 1); // Convert to 1-based for frontend
-            response.put("totalPages", productPage.getTotalPages());
+            response.put("facets", result.facets());
+            response.put("hasMore", result.nextCursor() != null);
+            response.put("nextCursor", result.nextCursor() != null ? result.nextCursor().encode() : null);
 
             return ResponseEntity.ok(response);
 
+        } catch (IllegalArgumentException e) {
+            // e.g. a cursor issued for a different sortBy
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Collections.singletonMap("error", "Invalid search request: " + e.getMessage()));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -313,9 +475,24 @@ public class ProductController {
         }
     }
 
+    /**
+     * A handful of random active products, e.g. for a homepage widget. Reads only the sampled rows,
+     * however large the catalog; how they are drawn is set by aims.random.sampler.
+     */
+    @GetMapping("/random/sample")
+    public List<ProductDTO> getRandomSample(@RequestParam(defaultValue = "12") int size) {
+        if (size < 1 || size > MAX_RANDOM_SAMPLE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "size must be between 1 and " + MAX_RANDOM_SAMPLE);
+        }
+        return productService.getRandomPage(size).stream()
+                .map(productMapper::toDTO)
+                .toList();
+    }
+
     @PutMapping("/{id}")
     public Product update(@PathVariable Long id, @RequestBody Product product) {
-        return updateProductOperation.setProductId(id).executeOperation(product, "UPDATE_PRODUCT");
+        return updateProductOperation.update(id, product);
     }
 
     @DeleteMapping("/bulk")
@@ -327,28 +504,32 @@ public class ProductController {
             );
         }
         
+        // All products of the request are locked up front, in a fixed order shared by every request
+        businessRulesService.acquireOperationLock("DELETE_PRODUCT", productIds);
+        
+        LocalDateTime startedAt = LocalDateTime.now();
+        int unused = 0;
         try {
-            businessRulesService.acquireOperationLock("DELETE_PRODUCT");
-            businessRulesService.validateDailyOperationLimits("DELETE_PRODUCT", LocalDateTime.now());
+            // One daily slot per product in the request; slots of missing products are given back
+            businessRulesService.validateDailyOperationLimits("DELETE_PRODUCT", startedAt, productIds.size());
+            unused = productIds.size();
             
             for (Long id : productIds) {
                 Product product = productService.findById(id);
                 if (product != null) {
                     productService.softDelete(id);
+                    unused--;
                     
                     // Log each deletion
-                    Operation op = new Operation();
-                    op.setProduct(product);
-                    op.setOperationType("DELETE_PRODUCT");
-                    op.setTimestamp(LocalDateTime.now());
-                    operationService.save(op);
+                    operationService.record(product.getId(), "DELETE_PRODUCT");
                 }
             }
             
             return ResponseEntity.ok("Successfully deleted " + productIds.size() + " products");
             
         } finally {
-            businessRulesService.releaseOperationLock("DELETE_PRODUCT");
+            businessRulesService.releaseDailyOperation("DELETE_PRODUCT", startedAt, unused);
+            businessRulesService.releaseOperationLock("DELETE_PRODUCT", productIds);
         }
     }
     // Kiểm tra giá mới có nằm trong khoảng 30%-150% của giá trị không
@@ -366,13 +547,8 @@ public class ProductController {
 
     // Kiểm tra số lần cập nhật giá trong ngày
     private void validatePriceUpdateFrequency(Long productId) {
-        // Lấy ngày hiện tại
-        LocalDateTime startOfDay = LocalDateTime.now().toLocalDate().atStartOfDay();
-        LocalDateTime endOfDay = startOfDay.plusDays(1).minusNanos(1);
-
         // Đếm số lần cập nhật giá trong ngày
-        long updateCount = operationService.countByProductIdAndOperationTypeAndTimestampBetween(
-                productId, "UPDATE_PRODUCT", startOfDay, endOfDay);
+        int updateCount = dailyOperationQuota.count(productId, "UPDATE_PRODUCT", LocalDate.now());
 
         if (updateCount >= 2) {
             throw new ResponseStatusException(
@@ -384,9 +560,14 @@ public class ProductController {
 
     @DeleteMapping("/{id}")
     public ResponseEntity<String> delete(@PathVariable Long id) {
+        businessRulesService.acquireOperationLock("DELETE_PRODUCT", List.of(id));
+        
+        LocalDateTime startedAt = LocalDateTime.now();
+        boolean counted = false;
+        boolean deleted = false;
         try {
-            businessRulesService.acquireOperationLock("DELETE_PRODUCT");
-            businessRulesService.validateDailyOperationLimits("DELETE_PRODUCT", LocalDateTime.now());
+            businessRulesService.validateDailyOperationLimits("DELETE_PRODUCT", startedAt);
+            counted = true;
             
             Product product = productService.findById(id);
             if (product == null) {
@@ -397,18 +578,18 @@ public class ProductController {
             
             // Soft delete the product
             productService.softDelete(id);
+            deleted = true;
             
             // Log the operation
-            Operation op = new Operation();
-            op.setProduct(product); // Use the existing product object
-            op.setOperationType("DELETE_PRODUCT");
-            op.setTimestamp(LocalDateTime.now());
-            operationService.save(op);
+            operationService.record(product.getId(), "DELETE_PRODUCT");
             
             return ResponseEntity.ok("Product deleted successfully");
             
         } finally {
-            businessRulesService.releaseOperationLock("DELETE_PRODUCT");
+            if (counted && !deleted) {
+                businessRulesService.releaseDailyOperation("DELETE_PRODUCT", startedAt, 1);
+            }
+            businessRulesService.releaseOperationLock("DELETE_PRODUCT", List.of(id));
         }
     }
 
@@ -416,8 +597,18 @@ public class ProductController {
     public ResponseEntity<?> checkInventory(@RequestBody CartItemsRequest request) {
         List<OutOfStockProduct> outOfStockProducts = new ArrayList<>();
 
+        // The stock of every requested product in one query, instead of loading each product in turn
+        Set<Long> productIds = new HashSet<>();
         for (CartItemRequest item : request.getItems()) {
-            Product product = productService.findById(item.getProductId());
+            productIds.add(item.getProductId());
+        }
+        Map<Long, ProductStockDTO> stock = new HashMap<>();
+        for (ProductStockDTO product : productService.findStockByIds(productIds)) {
+            stock.put(product.getProductId(), product);
+        }
+
+        for (CartItemRequest item : request.getItems()) {
+            ProductStockDTO product = stock.get(item.getProductId());
 
             if (product == null) {
                 throw new ProductNotFoundException(item.getProductId());
@@ -425,7 +616,7 @@ public class ProductController {
 
             if (product.getQuantity() < item.getQuantity()) {
                 outOfStockProducts.add(new OutOfStockProduct(
-                        product.getId(),
+                        product.getProductId(),
                         item.getQuantity(),
                         product.getQuantity(),
                         product.getTitle(),
@@ -464,4 +655,20 @@ public class ProductController {
 
         return ResponseEntity.ok(updatedProduct);
     }
+
+    private PageCursor decodeCursor(String after) {
+        try {
+            return PageCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page cursor");
+        }
+    }
+
+    private LocalDateTime parseCursorTimestamp(PageCursor cursor) {
+        try {
+            return LocalDateTime.parse(cursor.key());
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page cursor");
+        }
+    }
 }
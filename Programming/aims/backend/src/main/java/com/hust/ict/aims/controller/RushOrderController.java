@@ -49,7 +49,7 @@ public class RushOrderController {
         Invoice invoice = invoiceService.createInvoice(rushCheckoutRequestDTO.getInvoiceRequest());
         DeliveryInfo deliveryInfo = deliveryInfoService.save(rushCheckoutRequestDTO.getDeliveryInfo());
         RushOrder rushOrder = new RushOrder(transaction, invoice, deliveryInfo, rushCheckoutRequestDTO.getStatus(), rushCheckoutRequestDTO.getDeliveryTime(), rushCheckoutRequestDTO.getDeliveryInstruction());
-        RushOrder savedRushOrder = rushOrderService.save(rushOrder );
+        RushOrder savedRushOrder = rushOrderService.placeOrder(rushOrder);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedRushOrder);
     }
 
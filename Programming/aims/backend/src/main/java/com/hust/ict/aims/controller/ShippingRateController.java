@@ -0,0 +1,39 @@
+package com.hust.ict.aims.controller;
+
+import com.hust.ict.aims.shipping.ShippingRateEngine;
+import com.hust.ict.aims.shipping.ShippingRateTable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collections;
+
+@RestController
+@RequestMapping("/api/shipping")
+@CrossOrigin(origins = "http://localhost:5173")
+public class ShippingRateController {
+
+    private final ShippingRateEngine shippingRateEngine;
+
+    public ShippingRateController(ShippingRateEngine shippingRateEngine) {
+        this.shippingRateEngine = shippingRateEngine;
+    }
+
+    @GetMapping("/rates")
+    public ShippingRateTable getRates() {
+        return shippingRateEngine.getRateTable();
+    }
+
+    // Re-read the rate file without a redeploy (point aims.shipping.rates-location at a file: URL)
+    @PostMapping("/rates/reload")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public ResponseEntity<?> reloadRates() {
+        try {
+            return ResponseEntity.ok(shippingRateEngine.reload());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+}
@@ -14,4 +14,6 @@ public class CartCalculationResponseDTO {
     private List<CartItemDetailDTO> items;
     private boolean allItemsAvailable;
     private List<InsufficientStockDTO> outOfStockItems;
+    // Requested product ids that no longer exist; these lines are left out of the totals
+    private List<Long> missingProductIds;
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.hust.ict.aims.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One line of a cart next to the stock of its product, read in one query without loading the
+ * cart or its products.
+ */
+@Getter
+@AllArgsConstructor
+public class CartLineStockDTO {
+    private Long productId;
+    private String title;
+    private int available;
+    private int requested;
+}
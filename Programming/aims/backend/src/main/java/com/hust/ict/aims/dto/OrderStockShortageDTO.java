@@ -0,0 +1,18 @@
+package com.hust.ict.aims.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One product of a pending order whose requested quantity (summed over the order's cart lines)
+ * exceeds what it can still get: the product's current stock plus the units the order already holds.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderStockShortageDTO {
+    private Long orderId;
+    private Long productId;
+    private String productTitle;
+    private Long requestedQuantity;
+    private Long availableQuantity;
+}
@@ -0,0 +1,16 @@
+package com.hust.ict.aims.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The stock of a product, read from the product table alone, for checks that do not need the
+ * subtype columns.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductStockDTO {
+    private Long productId;
+    private String title;
+    private int quantity;
+}
@@ -0,0 +1,21 @@
+package com.hust.ict.aims.exception;
+
+import com.hust.ict.aims.dto.InsufficientStockDTO;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.List;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class InsufficientStockException extends RuntimeException {
+    private final List<InsufficientStockDTO> items;
+
+    public InsufficientStockException(List<InsufficientStockDTO> items) {
+        super("Insufficient stock for " + items.size() + " product(s)");
+        this.items = items;
+    }
+
+    public List<InsufficientStockDTO> getItems() {
+        return items;
+    }
+}
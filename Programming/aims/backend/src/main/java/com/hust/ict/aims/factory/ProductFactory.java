@@ -25,6 +25,7 @@ public class ProductFactory {
         book.setPublicationDate(request.getPublicationDate());
         book.setLanguage(request.getLanguage());
         book.setNumberOfPage(request.getNumberOfPage());
+        book.setGenre(request.getGenre());
         return book;
     }
     
@@ -36,6 +37,7 @@ public class ProductFactory {
         cd.setRecordLabel(request.getRecordLabel());
         cd.setReleaseDate(request.getReleaseDate());
         cd.setTracklist(request.getTracklist());
+        cd.setGenre(request.getGenre());
         return cd;
     }
     
@@ -47,6 +49,7 @@ public class ProductFactory {
         lp.setRecordLabel(request.getRecordLabel());
         lp.setReleaseDate(request.getReleaseDate());
         lp.setTracklist(request.getTracklist());
+        lp.setGenre(request.getGenre());
         return lp;
     }
     
@@ -60,6 +63,7 @@ public class ProductFactory {
         dvd.setSubtitle(request.getSubtitle());
         dvd.setLanguage(request.getLanguage());
         dvd.setReleaseDate(request.getReleaseDate());
+        dvd.setGenre(request.getGenre());
         return dvd;
     }
     
@@ -76,6 +80,5 @@ public class ProductFactory {
         product.setWeight(request.getWeight());
         product.setImageURL(request.getImageURL());
         product.setRushOrderEligible(request.isRushOrderEligible());
-        product.setGenre(request.getGenre());
     }
 }
\ No newline at end of file
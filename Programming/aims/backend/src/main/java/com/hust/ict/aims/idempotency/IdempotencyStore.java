@@ -0,0 +1,261 @@
+package com.hust.ict.aims.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hust.ict.aims.model.IdempotencyRecord;
+import com.hust.ict.aims.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/*
+ * Cohesion Level: Functional Cohesion
+ * All members serve one purpose: running a request at most once per key and replaying its response.
+ *
+ * The first request claims the key in its own committed transaction, then runs and records its response in
+ * the same transaction as its work, so the order and the stored response commit or roll back together.
+ * A failed request (an exception or a 4xx/5xx) releases the key and may be retried. A repeat of a
+ * completed request gets the stored response with an Idempotent-Replayed header, from a bounded LRU in
+ * memory or else from the idempotency_record table; a repeat while the first is still running gets 409,
+ * and a key reused for a different request gets 422. A claim older than aims.idempotency.lease-seconds
+ * is considered abandoned and can be taken over. Records live for aims.idempotency.ttl-hours.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 200;
+
+    /**
+     * The response of a completed request, as it is kept in memory.
+     */
+    record StoredResponse(String requestHash, int status, String body, String location, LocalDateTime expiresAt) {
+    }
+
+    // The outcome of trying to claim a key: claimed, already completed (stored is set), or still running
+    private record Claim(boolean claimed, StoredResponse stored) {
+    }
+
+    private final IdempotencyRecordRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate claimTransaction;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter hashWriter;
+    private final Duration ttl;
+    private final Duration lease;
+    private final Map<String, StoredResponse> completed;
+
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter inProgress;
+    private final Counter mismatched;
+
+    public IdempotencyStore(IdempotencyRecordRepository repository, PlatformTransactionManager transactionManager,
+                            ObjectMapper objectMapper, MeterRegistry registry,
+                            @Value("${aims.idempotency.ttl-hours:24}") long ttlHours,
+                            @Value("${aims.idempotency.lease-seconds:30}") long leaseSeconds,
+                            @Value("${aims.idempotency.max-entries:5000}") int maxEntries) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.claimTransaction = new TransactionTemplate(transactionManager);
+        this.claimTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        // Map entries sorted, so the same parameters always hash the same
+        this.hashWriter = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        this.ttl = Duration.ofHours(ttlHours);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.completed = boundedLru(maxEntries);
+        this.executed = outcomeCounter(registry, "executed");
+        this.replayed = outcomeCounter(registry, "replayed");
+        this.inProgress = outcomeCounter(registry, "in_progress");
+        this.mismatched = outcomeCounter(registry, "mismatched");
+    }
+
+    /**
+     * Run {@code action} once for the key, or replay the response it gave the first time.
+     *
+     * @param key     the key, scoped by the caller to its endpoint
+     * @param request what the key stands for; a repeat must carry an equal request
+     * @param action  the work, run in a transaction that also records its response
+     */
+    public ResponseEntity<?> execute(String key, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(Map.of("error", HEADER + " is too long"));
+        }
+        String hash = hash(request);
+
+        StoredResponse cached = completed.get(key);
+        if (cached != null && cached.expiresAt().isAfter(LocalDateTime.now())) {
+            return replay(cached, hash);
+        }
+
+        Claim claim = claim(key, hash);
+        if (claim.stored() != null) {
+            completed.put(key, claim.stored());
+            return replay(claim.stored(), hash);
+        }
+        if (!claim.claimed()) {
+            inProgress.increment();
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "A request with this key is still being processed"));
+        }
+
+        StoredResponse[] stored = new StoredResponse[1];
+        ResponseEntity<?> response;
+        try {
+            response = transactionTemplate.execute(status -> {
+                ResponseEntity<?> result = action.get();
+                if (result.getStatusCode().isError()) {
+                    // Nothing of a failed request is kept, so it can be retried with the same key
+                    status.setRollbackOnly();
+                    return result;
+                }
+                stored[0] = toStored(hash, result);
+                repository.complete(key, stored[0].status(), stored[0].body(), stored[0].location());
+                return result;
+            });
+        } catch (RuntimeException e) {
+            release(key);
+            throw e;
+        }
+
+        if (stored[0] == null) {
+            release(key);
+        } else {
+            completed.put(key, stored[0]);
+        }
+        executed.increment();
+        return response;
+    }
+
+    /**
+     * Drop expired records from memory and from the table.
+     */
+    @Scheduled(fixedDelayString = "${aims.idempotency.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (completed) {
+            completed.values().removeIf(stored -> !stored.expiresAt().isAfter(now));
+        }
+        Integer deleted = transactionTemplate.execute(status -> repository.deleteExpired(now));
+        if (deleted != null && deleted > 0) {
+            logger.info("Purged {} expired idempotency records", deleted);
+        }
+    }
+
+    public int getCachedCount() {
+        return completed.size();
+    }
+
+    private Claim claim(String key, String hash) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(ttl);
+        try {
+            claimTransaction.executeWithoutResult(status -> repository.insertClaim(key, hash, now, expiresAt));
+            return new Claim(true, null);
+        } catch (DataIntegrityViolationException e) {
+            // Already taken: by a running request, a completed one, or one that died or expired
+        }
+        return claimTransaction.execute(status -> {
+            if (repository.takeOver(key, hash, now, expiresAt, now.minus(lease)) == 1) {
+                return new Claim(true, null);
+            }
+            IdempotencyRecord record = repository.findById(key).orElse(null);
+            if (record == null || !IdempotencyRecord.COMPLETED.equals(record.getStatus())) {
+                return new Claim(false, null);
+            }
+            return new Claim(false, new StoredResponse(record.getRequestHash(), record.getResponseStatus(),
+                    record.getResponseBody(), record.getResponseLocation(), record.getExpiresAt()));
+        });
+    }
+
+    private void release(String key) {
+        claimTransaction.executeWithoutResult(status -> repository.release(key));
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String hash) {
+        if (!stored.requestHash().equals(hash)) {
+            mismatched.increment();
+            return ResponseEntity.unprocessableEntity()
+                    .body(Map.of("error", HEADER + " was already used for a different request"));
+        }
+        replayed.increment();
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.status()).header(REPLAYED_HEADER, "true");
+        if (stored.location() != null) {
+            builder.location(URI.create(stored.location()));
+        }
+        if (stored.body() == null) {
+            return builder.build();
+        }
+        return builder.contentType(MediaType.APPLICATION_JSON).body(stored.body());
+    }
+
+    private StoredResponse toStored(String hash, ResponseEntity<?> response) {
+        URI location = response.getHeaders().getLocation();
+        String body = null;
+        if (response.getBody() != null) {
+            try {
+                body = objectMapper.writeValueAsString(response.getBody());
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Response cannot be stored for replay", e);
+            }
+        }
+        return new StoredResponse(hash, response.getStatusCode().value(), body,
+                location != null ? location.toString() : null, LocalDateTime.now().plus(ttl));
+    }
+
+    String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(hashWriter.writeValueAsBytes(request)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Request cannot be hashed", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Counter outcomeCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("aims.idempotency.requests")
+                .description("Idempotent requests by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static <K, V> Map<K, V> boundedLru(int maxEntries) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+}
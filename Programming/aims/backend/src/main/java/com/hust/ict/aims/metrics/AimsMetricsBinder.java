@@ -0,0 +1,124 @@
+package com.hust.ict.aims.metrics;
+
+import com.hust.ict.aims.cache.CatalogCache;
+import com.hust.ict.aims.cache.LocalRegionFactory;
+import com.hust.ict.aims.security.jwt.JwtService;
+import com.hust.ict.aims.service.OperationAuditLog;
+import com.hust.ict.aims.service.ProductLockManager;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/*
+ * Cohesion Level: Functional Cohesion
+ * All members serve one purpose: publishing the counters our components already keep as meters.
+ *
+ * The caches, the product locks and the operation audit log count their own hits, waits and writes;
+ * the meters here only read those counters when the registry is scraped, so nothing is added to the
+ * request path. Hibernate's second-level and query cache regions are published the same way, from its
+ * statistics, under the region name (cache=aims.product, ...).
+ */
+@Component
+public class AimsMetricsBinder implements MeterBinder {
+
+    private final CatalogCache catalogCache;
+    private final JwtService jwtService;
+    private final ProductLockManager lockManager;
+    private final OperationAuditLog auditLog;
+    private final EntityManagerFactory entityManagerFactory;
+    private final LocalRegionFactory regionFactory;
+
+    public AimsMetricsBinder(CatalogCache catalogCache, JwtService jwtService,
+                             ProductLockManager lockManager, OperationAuditLog auditLog,
+                             EntityManagerFactory entityManagerFactory, LocalRegionFactory regionFactory) {
+        this.catalogCache = catalogCache;
+        this.jwtService = jwtService;
+        this.lockManager = lockManager;
+        this.auditLog = auditLog;
+        this.entityManagerFactory = entityManagerFactory;
+        this.regionFactory = regionFactory;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindCache(registry, "catalog", catalogCache,
+                CatalogCache::getHitCount, CatalogCache::getMissCount, CatalogCache::size);
+        bindCache(registry, "jwt", jwtService,
+                JwtService::getCacheHitCount, JwtService::getCacheMissCount, JwtService::getCacheSize);
+        bindSecondLevelCache(registry);
+        bindLocks(registry);
+        bindAuditLog(registry);
+    }
+
+    private <T> void bindCache(MeterRegistry registry, String name, T cache,
+                               ToDoubleFunction<T> hits, ToDoubleFunction<T> misses, ToDoubleFunction<T> size) {
+        FunctionCounter.builder("aims.cache.gets", cache, hits)
+                .description("Cache lookups").tags("cache", name, "result", "hit").register(registry);
+        FunctionCounter.builder("aims.cache.gets", cache, misses)
+                .description("Cache lookups").tags("cache", name, "result", "miss").register(registry);
+        Gauge.builder("aims.cache.hit.ratio", cache, c -> {
+                    double h = hits.applyAsDouble(c);
+                    double total = h + misses.applyAsDouble(c);
+                    return total == 0 ? 0 : h / total;
+                })
+                .description("Hits over all lookups since startup").tag("cache", name).register(registry);
+        Gauge.builder("aims.cache.size", cache, size)
+                .description("Entries currently cached").tag("cache", name).register(registry);
+    }
+
+    private void bindSecondLevelCache(MeterRegistry registry) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (String region : LocalRegionFactory.regionNames()) {
+            bindCache(registry, region, statistics,
+                    s -> regionCount(s, region, CacheRegionStatistics::getHitCount),
+                    s -> regionCount(s, region, CacheRegionStatistics::getMissCount),
+                    s -> regionFactory.size(region));
+            FunctionCounter.builder("aims.cache.evictions", regionFactory, f -> f.getEvictionCount(region))
+                    .description("Entries dropped to keep the region within its size")
+                    .tag("cache", region).register(registry);
+        }
+    }
+
+    // A query region only exists once a query has used it; until then it has no statistics
+    private static long regionCount(Statistics statistics, String region, ToLongFunction<CacheRegionStatistics> count) {
+        CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+        return regionStatistics != null ? count.applyAsLong(regionStatistics) : 0;
+    }
+
+    private void bindLocks(MeterRegistry registry) {
+        FunctionCounter.builder("aims.locks.acquired", lockManager, m -> m.getStats().acquired())
+                .description("Product lock stripes acquired").register(registry);
+        FunctionCounter.builder("aims.locks.timeouts", lockManager, m -> m.getStats().timeouts())
+                .description("Product lock acquisitions given up after the timeout").register(registry);
+        // Only contended acquisitions wait, so count and total time both come from them
+        FunctionTimer.builder("aims.locks.wait", lockManager,
+                        m -> m.getStats().contended(), m -> m.getStats().totalWaitMillis(), TimeUnit.MILLISECONDS)
+                .description("Time spent waiting for a product lock held by another request").register(registry);
+        TimeGauge.builder("aims.locks.wait.max", lockManager, TimeUnit.MILLISECONDS,
+                        m -> m.getStats().maxWaitMillis())
+                .description("Longest wait for a product lock since startup").register(registry);
+    }
+
+    private void bindAuditLog(MeterRegistry registry) {
+        Gauge.builder("aims.audit.queued", auditLog, a -> a.getStats().queued())
+                .description("Operation records waiting to be inserted").register(registry);
+        FunctionCounter.builder("aims.audit.flushed", auditLog, a -> a.getStats().flushed())
+                .description("Operation records inserted").register(registry);
+        FunctionCounter.builder("aims.audit.direct.writes", auditLog, a -> a.getStats().directWrites())
+                .description("Operation records written synchronously because the buffer was full").register(registry);
+        FunctionCounter.builder("aims.audit.failed.batches", auditLog, a -> a.getStats().failedBatches())
+                .description("Operation record batches that failed and were retried").register(registry);
+    }
+}
@@ -0,0 +1,55 @@
+package com.hust.ict.aims.metrics;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * Wiring for the metrics: @Timed on the service classes, latency histograms for the endpoint and service
+ * timers (so p50/p99 can be computed per endpoint from the scrape), and QueryCounter as Hibernate's
+ * statement inspector. Endpoint timers (http.server.requests) come from Spring Boot Actuator.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public MeterFilter latencyHistograms() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getName().equals("http.server.requests") || id.getName().equals("aims.service")) {
+                    return DistributionStatisticConfig.builder()
+                            .percentilesHistogram(true)
+                            .build()
+                            .merge(config);
+                }
+                return config;
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCountingInspector(QueryCounter queryCounter) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, queryCounter);
+    }
+
+    // A bean of this configuration rather than a scanned @Component: web slice tests (@WebMvcTest) pick up
+    // every scanned filter, but not the QueryCounter it needs
+    @Bean
+    public QueryCountFilter queryCountFilter(QueryCounter queryCounter, MeterRegistry registry,
+                                             @Value("${aims.metrics.n-plus-one-threshold:20}") int threshold) {
+        return new QueryCountFilter(queryCounter, registry, threshold);
+    }
+}
@@ -0,0 +1,69 @@
+package com.hust.ict.aims.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/*
+ * Records how many SQL statements each HTTP request ran, per endpoint pattern. A request above the
+ * threshold (aims.metrics.n-plus-one-threshold) is almost always a lazy association loaded row by row,
+ * so it is counted as a suspected N+1 and logged with its endpoint. Registered by MetricsConfig.
+ */
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryCountFilter.class);
+
+    private final QueryCounter queryCounter;
+    private final MeterRegistry registry;
+    private final int threshold;
+
+    public QueryCountFilter(QueryCounter queryCounter, MeterRegistry registry, int threshold) {
+        this.queryCounter = queryCounter;
+        this.registry = registry;
+        this.threshold = threshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        queryCounter.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            record(request, queryCounter.end());
+        }
+    }
+
+    private void record(HttpServletRequest request, int queries) {
+        // The matched pattern (/api/products/{id}), never the raw path, so ids do not become tags
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String method = request.getMethod();
+
+        DistributionSummary.builder("aims.db.queries.per.request")
+                .description("SQL statements executed while handling one request")
+                .tags("method", method, "uri", uri)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry)
+                .record(queries);
+
+        if (queries > threshold) {
+            Counter.builder("aims.db.n_plus_one.suspected")
+                    .description("Requests that ran more SQL statements than aims.metrics.n-plus-one-threshold")
+                    .tags("method", method, "uri", uri)
+                    .register(registry)
+                    .increment();
+            logger.warn("{} {} ran {} SQL statements (threshold {}), possible N+1", method, uri, queries, threshold);
+        }
+    }
+}
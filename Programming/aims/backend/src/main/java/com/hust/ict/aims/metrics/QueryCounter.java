@@ -0,0 +1,73 @@
+package com.hust.ict.aims.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Cohesion Level: Functional Cohesion
+ * All members serve one purpose: counting the SQL statements Hibernate sends to the database.
+ *
+ * Registered as Hibernate's statement inspector, so every statement prepared through JPA (repository
+ * queries, lazy loads, flushes) passes through inspect(). Statements are counted globally by kind, and
+ * per thread between begin() and end() so QueryCountFilter can attribute them to one HTTP request.
+ * Plain JdbcTemplate statements (the operation audit log, daily counters) do not go through Hibernate
+ * and are not counted.
+ */
+@Component
+public class QueryCounter implements StatementInspector {
+
+    private final ThreadLocal<int[]> current = new ThreadLocal<>();
+    private final Map<String, Counter> byKind = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+
+    public QueryCounter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = current.get();
+        if (count != null) {
+            count[0]++;
+        }
+        byKind.computeIfAbsent(kindOf(sql), kind -> Counter.builder("aims.db.queries")
+                .description("SQL statements executed through JPA")
+                .tag("kind", kind)
+                .register(registry)).increment();
+        return sql;
+    }
+
+    /**
+     * Start counting the statements of the calling thread.
+     */
+    public void begin() {
+        current.set(new int[1]);
+    }
+
+    /**
+     * Stop counting for the calling thread and return how many statements it ran since begin().
+     */
+    public int end() {
+        int[] count = current.get();
+        current.remove();
+        return count != null ? count[0] : 0;
+    }
+
+    // select / insert / update / delete, anything else as "other", to keep the tag set small
+    private static String kindOf(String sql) {
+        String trimmed = sql.stripLeading();
+        int end = 0;
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) end++;
+        String verb = trimmed.substring(0, end).toLowerCase(Locale.ROOT);
+        return switch (verb) {
+            case "select", "insert", "update", "delete" -> verb;
+            default -> "other";
+        };
+    }
+}
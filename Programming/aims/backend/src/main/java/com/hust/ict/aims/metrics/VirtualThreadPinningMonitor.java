@@ -0,0 +1,112 @@
+package com.hust.ict.aims.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/*
+ * Cohesion Level: Functional Cohesion
+ * All members serve one purpose: reporting virtual threads pinned to their carrier thread.
+ *
+ * On Java 21 a virtual thread that blocks inside a synchronized block (or native frame) keeps its
+ * carrier, so a few of them can stall every request. When virtual threads are enabled this listens to
+ * the JDK Flight Recorder event jdk.VirtualThreadPinned, times each pin above
+ * aims.threads.pinning-threshold-ms under aims.threads.virtual.pinned, tagged with the first frame of
+ * our own code, and logs the stack so the synchronized section can be found and replaced by a lock.
+ */
+@Component
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.hust.ict.aims.";
+
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final Duration threshold;
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry registry,
+                                       @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                       @Value("${aims.threads.pinning-threshold-ms:20}") long thresholdMillis) {
+        this.registry = registry;
+        this.enabled = virtualThreads;
+        this.threshold = Duration.ofMillis(thresholdMillis);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        try {
+            stream = new RecordingStream();
+            stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+            stream.onEvent(PINNED_EVENT, this::onPinned);
+            stream.startAsync();
+        } catch (RuntimeException e) {
+            // JFR can be unavailable (some JVMs, restricted environments); the application runs regardless
+            logger.warn("Virtual thread pinning detection unavailable: {}", e.getMessage());
+            stream = null;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String site = siteOf(event.getStackTrace());
+        record(site, event.getDuration());
+        logger.warn("Virtual thread pinned for {} ms at {}\n{}", event.getDuration().toMillis(), site,
+                format(event.getStackTrace()));
+    }
+
+    void record(String site, Duration duration) {
+        Timer.builder("aims.threads.virtual.pinned")
+                .description("Virtual threads blocked while pinned to their carrier thread")
+                .tag("site", site)
+                .register(registry)
+                .record(duration);
+    }
+
+    // First frame of our code, e.g. DailyOperationQuota.countersFor; "other" for framework/JDK-only stacks
+    static String siteOf(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) return "other";
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith(APP_PACKAGE)) {
+                return type.substring(type.lastIndexOf('.') + 1) + "." + frame.getMethod().getName();
+            }
+        }
+        return "other";
+    }
+
+    private static String format(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) return "";
+        StringBuilder sb = new StringBuilder();
+        int shown = 0;
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (shown++ == 15) {
+                sb.append("\t...\n");
+                break;
+            }
+            sb.append("\tat ").append(frame.getMethod().getType().getName()).append('.')
+                    .append(frame.getMethod().getName()).append(':').append(frame.getLineNumber()).append('\n');
+        }
+        return sb.toString();
+    }
+}
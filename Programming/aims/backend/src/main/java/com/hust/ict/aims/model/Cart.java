@@ -17,7 +17,14 @@ import java.util.Collections;
     // ------------------------------------------------------------
 
     @Entity
+    // The cart with its lines and their products, as the API returns it
+    @NamedEntityGraph(name = Cart.WITH_ITEMS,
+            attributeNodes = @NamedAttributeNode(value = "items", subgraph = "items"),
+            subgraphs = @NamedSubgraph(name = "items", attributeNodes = @NamedAttributeNode("product")))
     public class Cart {
+
+        public static final String WITH_ITEMS = "Cart.withItems";
+
         @Id
         @GeneratedValue(strategy = GenerationType.IDENTITY)
         @Column(name = "cartid")
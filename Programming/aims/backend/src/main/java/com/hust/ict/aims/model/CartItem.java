@@ -16,10 +16,16 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "cartitem")
+@NamedEntityGraph(name = CartItem.WITH_PRODUCT,
+        attributeNodes = {@NamedAttributeNode("product"), @NamedAttributeNode("cart")})
 public class CartItem {
 
+    public static final String WITH_PRODUCT = "CartItem.withProduct";
+
+    // Sequence ids (50 per round trip) let Hibernate batch the inserts of a cart snapshot; IDENTITY cannot
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cartitem_seq")
+    @SequenceGenerator(name = "cartitem_seq", sequenceName = "cartitem_seq", allocationSize = 50)
     @Column(name = "cartitemid")
     private Long id;
 
@@ -0,0 +1,81 @@
+package com.hust.ict.aims.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/* Cohesion Level: Functional Cohesion
+ * All members describe one idempotent request: who holds it, and the response it produced.
+ *
+ * The key is scoped by the endpoint ("checkout:<Idempotency-Key>", "vnpay:<TxnRef>:<TransactionNo>").
+ * A row is IN_PROGRESS while the first request runs and COMPLETED with its response once it commits;
+ * it is purged after expires_at.
+ */
+@Entity
+@Table(name = "idempotency_record", indexes = @Index(name = "idx_idempotency_expires", columnList = "expires_at"))
+public class IdempotencyRecord {
+
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    public static final String COMPLETED = "COMPLETED";
+
+    @Id
+    @Column(name = "idem_key", length = 200)
+    private String key;
+
+    // SHA-256 of the request, so a key reused for a different request is refused
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(nullable = false)
+    private String status;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Column(name = "response_body", columnDefinition = "text")
+    private String responseBody;
+
+    @Column(name = "response_location", length = 2000)
+    private String responseLocation;
+
+    @Column(name = "locked_at", nullable = false)
+    private LocalDateTime lockedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public IdempotencyRecord() {
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Integer getResponseStatus() {
+        return responseStatus;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public String getResponseLocation() {
+        return responseLocation;
+    }
+
+    public LocalDateTime getLockedAt() {
+        return lockedAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
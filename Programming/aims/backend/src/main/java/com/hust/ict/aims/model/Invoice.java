@@ -14,8 +14,16 @@ import jakarta.persistence.*;
 
 @Entity
 @Table(name = "invoice")
+@NamedEntityGraph(name = Invoice.WITH_CART,
+        attributeNodes = @NamedAttributeNode(value = "cart", subgraph = "cart"),
+        subgraphs = {
+                @NamedSubgraph(name = "cart", attributeNodes = @NamedAttributeNode(value = "items", subgraph = "items")),
+                @NamedSubgraph(name = "items", attributeNodes = @NamedAttributeNode("product"))
+        })
 public class Invoice {
 
+    public static final String WITH_CART = "Invoice.withCart";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "invoiceid")
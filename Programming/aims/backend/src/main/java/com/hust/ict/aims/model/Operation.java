@@ -6,13 +6,23 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.Table;
 /* Cohesion Level: Functional Cohesion
  * Similarly demonstrates functional cohesion, with all members focused on representing an operation performed on a product. The timestamp, operation type, and product reference all support this single purpose.
 */
 @Entity
+// The history is read newest first by (timestamp, id), by page and by keyset cursor
+@Table(name = "operation", indexes = @Index(name = "idx_operation_timestamp_id", columnList = "timestamp, operationID"))
+@NamedEntityGraph(name = Operation.WITH_PRODUCT, attributeNodes = @NamedAttributeNode("product"))
 public class Operation {
+
+    public static final String WITH_PRODUCT = "Operation.withProduct";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long operationID;
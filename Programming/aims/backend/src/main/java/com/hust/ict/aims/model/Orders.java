@@ -16,8 +16,23 @@ import jakarta.persistence.*;
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
 @Table(name = "orders")
+// Everything an order is serialized or printed with, down to the products of its cart, in one query
+@NamedEntityGraph(name = Orders.WITH_DETAILS,
+        attributeNodes = {
+                @NamedAttributeNode("transaction"),
+                @NamedAttributeNode("deliveryInfo"),
+                @NamedAttributeNode(value = "invoice", subgraph = "invoice")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "invoice", attributeNodes = @NamedAttributeNode(value = "cart", subgraph = "cart")),
+                @NamedSubgraph(name = "cart", attributeNodes = @NamedAttributeNode(value = "items", subgraph = "items")),
+                @NamedSubgraph(name = "items", attributeNodes = @NamedAttributeNode("product"))
+        })
 public class Orders {
 
+    public static final String WITH_DETAILS = "Orders.withDetails";
+    public static final int REJECTION_REASON_LENGTH = 2000;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "orderid")
@@ -38,6 +53,14 @@ public class Orders {
     @Column(name = "orderstatus", nullable = false)
     private String status;
 
+    // Why the order was rejected automatically, null otherwise
+    @Column(name = "rejection_reason", length = REJECTION_REASON_LENGTH)
+    private String rejectionReason;
+
+    // Reference of the stock holds taken at checkout, null for an order placed without any
+    @Column(name = "stock_reference")
+    private String stockReference;
+
 
     public Orders() {}
 
@@ -88,4 +111,20 @@ public class Orders {
     public void setStatus(String status) {
         this.status = status;
     }
+
+    public String getRejectionReason() {
+        return rejectionReason;
+    }
+
+    public void setRejectionReason(String rejectionReason) {
+        this.rejectionReason = rejectionReason;
+    }
+
+    public String getStockReference() {
+        return stockReference;
+    }
+
+    public void setStockReference(String stockReference) {
+        this.stockReference = stockReference;
+    }
 }
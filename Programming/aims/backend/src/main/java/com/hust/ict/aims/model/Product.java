@@ -2,7 +2,10 @@ package com.hust.ict.aims.model;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+import com.hust.ict.aims.cache.LocalRegionFactory;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /* Cohesion Level: Functional Cohesion
  * Exhibits functional cohesion as all members contribute to the single responsibility of representing a product. The class manages product attributes like ID, title, price, and quantity, with all methods directly related to these attributes.
@@ -12,6 +15,9 @@ import jakarta.persistence.*;
 @Inheritance(strategy = InheritanceType.JOINED)
 @DiscriminatorColumn(name = "product_type", discriminatorType = DiscriminatorType.STRING)
 @Table(name = "product")
+// One region for the whole hierarchy; subtypes are cached with the root. Read-write, since stock changes
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = LocalRegionFactory.PRODUCT)
 public class Product {
 
     @Id
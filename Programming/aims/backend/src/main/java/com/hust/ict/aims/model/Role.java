@@ -1,14 +1,20 @@
 package com.hust.ict.aims.model;
 
+import com.hust.ict.aims.cache.LocalRegionFactory;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.List;
 
 @Entity
 @Data
 @NoArgsConstructor
 @Table(name = "roles")
+// Roles are created once and never renamed
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = LocalRegionFactory.ROLE)
 public class Role {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
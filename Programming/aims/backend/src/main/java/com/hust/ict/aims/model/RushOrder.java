@@ -11,8 +11,22 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "rush_order")
 @PrimaryKeyJoinColumn(name = "order_id")
+// Same fetch plan as Orders.withDetails; a named graph belongs to the entity it is declared on
+@NamedEntityGraph(name = RushOrder.WITH_DETAILS,
+        attributeNodes = {
+                @NamedAttributeNode("transaction"),
+                @NamedAttributeNode("deliveryInfo"),
+                @NamedAttributeNode(value = "invoice", subgraph = "invoice")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "invoice", attributeNodes = @NamedAttributeNode(value = "cart", subgraph = "cart")),
+                @NamedSubgraph(name = "cart", attributeNodes = @NamedAttributeNode(value = "items", subgraph = "items")),
+                @NamedSubgraph(name = "items", attributeNodes = @NamedAttributeNode("product"))
+        })
 public class RushOrder extends Orders{
 
+    public static final String WITH_DETAILS = "RushOrder.withDetails";
+
     @Column(name = "delivery_time")
     private LocalDateTime deliveryTime;
 
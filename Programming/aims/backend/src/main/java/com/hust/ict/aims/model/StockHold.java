@@ -0,0 +1,117 @@
+package com.hust.ict.aims.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/* Cohesion Level: Functional Cohesion
+ * All members describe one time-limited stock hold: which product, how many units, who holds them
+ * (a cart or checkout reference) and until when.
+ *
+ * The held units are already subtracted from Product.quantity. A HELD row either becomes CONFIRMED
+ * when the order is placed, or RELEASED (units returned) when it is cancelled or expires. A CONFIRMED
+ * row is RELEASED when its order is rejected or cancelled.
+ */
+@Entity
+@Table(name = "stock_hold", indexes = {
+        @Index(name = "idx_stock_hold_reference", columnList = "reference"),
+        @Index(name = "idx_stock_hold_status_expires", columnList = "status, expires_at")
+})
+public class StockHold {
+
+    public static final String HELD = "HELD";
+    public static final String CONFIRMED = "CONFIRMED";
+    public static final String RELEASED = "RELEASED";
+
+    // Sequence ids so the holds of one reservation are inserted in one JDBC batch
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_hold_seq")
+    @SequenceGenerator(name = "stock_hold_seq", sequenceName = "stock_hold_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Column(nullable = false)
+    private String reference;
+
+    @Column(nullable = false)
+    private String status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public StockHold() {
+    }
+
+    public StockHold(Long productId, int quantity, String reference, LocalDateTime createdAt, LocalDateTime expiresAt) {
+        this.productId = productId;
+        this.quantity = quantity;
+        this.reference = reference;
+        this.status = HELD;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public void setReference(String reference) {
+        this.reference = reference;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
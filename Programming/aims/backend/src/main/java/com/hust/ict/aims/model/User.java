@@ -1,8 +1,11 @@
 package com.hust.ict.aims.model;
 
+import com.hust.ict.aims.cache.LocalRegionFactory;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
@@ -24,7 +27,9 @@ public class User {
     @Column(nullable = false)
     private String password;
 
+    // The role ids of a user are cached, the roles themselves come from the role region
     @ManyToMany(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = LocalRegionFactory.USER_ROLES)
     @JoinTable(
             name = "user_roles",
             joinColumns = @JoinColumn(name = "user_id"),
@@ -0,0 +1,30 @@
+package com.hust.ict.aims.render;
+
+import com.hust.ict.aims.model.Invoice;
+import com.hust.ict.aims.model.Orders;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The template variables of an order document (the confirmation email and its reprints).
+ * Reads the order's lazy associations, so call it inside a transaction or an open session.
+ */
+public final class OrderDocumentModel {
+
+    private OrderDocumentModel() {
+    }
+
+    public static Map<String, Object> of(Orders order) {
+        Invoice invoice = order.getInvoice();
+
+        Map<String, Object> model = new HashMap<>();
+        model.put("order", order);
+        model.put("deliveryInfo", order.getDeliveryInfo());
+        model.put("invoice", invoice);
+        model.put("transaction", order.getTransaction());
+        model.put("items", invoice.getCart() != null ? invoice.getCart().getItems() : List.of());
+        return model;
+    }
+}
@@ -0,0 +1,250 @@
+package com.hust.ict.aims.render;
+
+import com.hust.ict.aims.model.DeliveryInfo;
+import com.hust.ict.aims.model.Invoice;
+import com.hust.ict.aims.model.Orders;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Renders the server-side pages and emails from templates that are parsed once and kept in memory.
+ *
+ * The engine is separate from the MVC view engine: its cache is always on (devtools switches the MVC one
+ * off, so every page re-read and re-parsed its template) and SpEL expressions are compiled to bytecode.
+ * The known templates are parsed at startup. Output goes straight to the caller's Writer or response;
+ * emails are rendered into pooled buffers and handed to the mail layer as bytes, with no String
+ * copy of the body in between.
+ */
+@Component
+public class TemplateRenderer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TemplateRenderer.class);
+
+    public static final String INVOICE = "invoice";
+    public static final String ORDER_TO_GMAIL = "order_to_gmail";
+    public static final String SUCCESSFUL_PAYMENT = "successful_payment";
+    public static final String FAIL_PAYMENT = "fail_payment";
+    public static final String ORDER_CONFIRMATION = "mail/order_confirmation";
+
+    private static final List<String> PRECOMPILED =
+            List.of(INVOICE, ORDER_TO_GMAIL, SUCCESSFUL_PAYMENT, FAIL_PAYMENT, ORDER_CONFIRMATION);
+
+    /**
+     * The output of one template in a batch: the UTF-8 bytes, or why it could not be rendered.
+     */
+    public record Rendered(byte[] content, RuntimeException failure) {
+        public boolean succeeded() {
+            return failure == null;
+        }
+    }
+
+    private final SpringTemplateEngine engine;
+    private final BlockingQueue<RenderBuffer> buffers;
+    private final int initialBufferBytes;
+    private final int maxRetainedBufferBytes;
+
+    public TemplateRenderer(@Value("${aims.render.buffer-pool-size:16}") int bufferPoolSize,
+                            @Value("${aims.render.initial-buffer-bytes:8192}") int initialBufferBytes,
+                            @Value("${aims.render.max-retained-buffer-bytes:262144}") int maxRetainedBufferBytes) {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        resolver.setCacheable(true);
+
+        this.engine = new SpringTemplateEngine();
+        this.engine.setTemplateResolver(resolver);
+        this.engine.setEnableSpringELCompiler(true);
+
+        this.buffers = new ArrayBlockingQueue<>(Math.max(1, bufferPoolSize));
+        this.initialBufferBytes = initialBufferBytes;
+        this.maxRetainedBufferBytes = maxRetainedBufferBytes;
+    }
+
+    /**
+     * Parse every known template into the cache and render it once, so the first request pays for neither
+     * the parse nor the expression compilation. The warm-up model holds empty entities, enough for every
+     * template to run to the end.
+     */
+    @PostConstruct
+    public void precompile() {
+        Map<String, Object> warmUp = Map.of(
+                "params", Map.of(),
+                "order", new Orders(),
+                "deliveryInfo", new DeliveryInfo(),
+                "invoice", new Invoice(),
+                "items", List.of());
+        for (String template : PRECOMPILED) {
+            try {
+                render(template, warmUp, Writer.nullWriter());
+            } catch (TemplateProcessingException e) {
+                // Still parsed and cached: parsing comes before any expression is evaluated
+                logger.warn("Warm-up render of {} failed: {}", template, e.getMessage());
+            }
+        }
+        logger.info("Precompiled {} templates", getCachedTemplateCount());
+    }
+
+    /**
+     * Render the template straight into the writer.
+     */
+    public void render(String template, Map<String, Object> variables, Writer out) {
+        engine.process(template, new Context(Locale.getDefault(), variables), out);
+    }
+
+    /**
+     * Render the template as the body of the response.
+     */
+    public void render(String template, Map<String, Object> variables, HttpServletResponse response) throws IOException {
+        response.setContentType("text/html;charset=UTF-8");
+        render(template, variables, response.getWriter());
+    }
+
+    /**
+     * Render the template into a pooled buffer and return its UTF-8 bytes.
+     */
+    public byte[] renderToBytes(String template, Map<String, Object> variables) {
+        RenderBuffer buffer = borrowBuffer();
+        try {
+            return buffer.render(template, variables);
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    /**
+     * Render the template once per model, in order, reusing one buffer for the whole batch.
+     * A model that fails to render does not stop the others; its entry carries the failure instead.
+     */
+    public List<Rendered> renderBatch(String template, List<? extends Map<String, Object>> models) {
+        List<Rendered> results = new ArrayList<>(models.size());
+        RenderBuffer buffer = borrowBuffer();
+        try {
+            for (Map<String, Object> model : models) {
+                try {
+                    results.add(new Rendered(buffer.render(template, model), null));
+                } catch (RuntimeException e) {
+                    buffer.discard();
+                    results.add(new Rendered(null, e));
+                }
+            }
+        } finally {
+            releaseBuffer(buffer);
+        }
+        return results;
+    }
+
+    public int getCachedTemplateCount() {
+        return engine.getCacheManager().getTemplateCache().keySet().size();
+    }
+
+    private RenderBuffer borrowBuffer() {
+        RenderBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : new RenderBuffer(initialBufferBytes);
+    }
+
+    private void releaseBuffer(RenderBuffer buffer) {
+        // A buffer grown by an unusually large render is dropped rather than pinned in the pool
+        if (buffer.capacity() <= maxRetainedBufferBytes) {
+            buffer.discard();
+            buffers.offer(buffer);
+        }
+    }
+
+    /**
+     * A reusable character buffer and UTF-8 encoder. Thymeleaf writes many small strings, so they are
+     * collected as chars and encoded once at the end, rather than through an OutputStreamWriter that wraps
+     * every write.
+     */
+    private final class RenderBuffer extends Writer {
+
+        private final StringBuilder chars;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private ByteBuffer bytes;
+
+        RenderBuffer(int size) {
+            this.chars = new StringBuilder(size);
+            this.bytes = ByteBuffer.allocate(size);
+        }
+
+        byte[] render(String template, Map<String, Object> variables) {
+            chars.setLength(0);
+            TemplateRenderer.this.render(template, variables, this);
+
+            int maxBytes = (int) (chars.length() * encoder.maxBytesPerChar());
+            if (bytes.capacity() < maxBytes) {
+                bytes = ByteBuffer.allocate(maxBytes);
+            }
+            bytes.clear();
+            encoder.reset();
+            encoder.encode(CharBuffer.wrap(chars), bytes, true);
+            encoder.flush(bytes);
+            return Arrays.copyOf(bytes.array(), bytes.position());
+        }
+
+        // Drop whatever a failed render left behind, so it does not leak into the next one
+        void discard() {
+            chars.setLength(0);
+        }
+
+        int capacity() {
+            return Math.max(chars.capacity(), bytes.capacity());
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            chars.append(buffer, offset, length);
+        }
+
+        @Override
+        public void write(String text, int offset, int length) {
+            chars.append(text, offset, offset + length);
+        }
+
+        @Override
+        public void write(int c) {
+            chars.append((char) c);
+        }
+
+        @Override
+        public Writer append(CharSequence text) {
+            chars.append(text);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
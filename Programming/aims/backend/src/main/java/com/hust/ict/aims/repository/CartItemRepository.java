@@ -1,12 +1,28 @@
 package com.hust.ict.aims.repository;
 
+import com.hust.ict.aims.dto.CartLineStockDTO;
 import com.hust.ict.aims.model.CartItem;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     List<CartItem> findByCart_CartId(Long cartId);
-}
 
+    @EntityGraph(CartItem.WITH_PRODUCT)
+    @Query("SELECT ci FROM CartItem ci ORDER BY ci.id ASC")
+    List<CartItem> findAllWithProduct();
+
+    @EntityGraph(CartItem.WITH_PRODUCT)
+    Optional<CartItem> findWithProductById(Long id);
+
+    // Requested vs available per line, from the product table only (no subtype joins)
+    @Query("SELECT new com.hust.ict.aims.dto.CartLineStockDTO(p.id, p.title, p.quantity, ci.quantity) " +
+           "FROM CartItem ci JOIN ci.product p WHERE ci.cart.cartId = :cartId ORDER BY ci.id ASC")
+    List<CartLineStockDTO> findStockByCartId(@Param("cartId") Long cartId);
+}
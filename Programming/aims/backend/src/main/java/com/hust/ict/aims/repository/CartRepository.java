@@ -1,11 +1,22 @@
 package com.hust.ict.aims.repository;
 
 import com.hust.ict.aims.model.Cart;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
+
+    // Carts with their items and products in one query, for reads that serialize the whole cart
+    @EntityGraph(Cart.WITH_ITEMS)
+    @Query("SELECT c FROM Cart c ORDER BY c.cartId ASC")
+    List<Cart> findAllWithItems();
+
+    @EntityGraph(Cart.WITH_ITEMS)
+    Optional<Cart> findWithItemsByCartId(Long cartId);
 }
@@ -0,0 +1,48 @@
+package com.hust.ict.aims.repository;
+
+import com.hust.ict.aims.model.IdempotencyRecord;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Fails with a constraint violation when the key is already taken. Declares its table so Hibernate
+    // does not empty the second-level cache for a native insert
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "idempotency_record"))
+    @Query(value = "INSERT INTO idempotency_record (idem_key, request_hash, status, locked_at, expires_at) " +
+            "VALUES (:key, :hash, 'IN_PROGRESS', :now, :expiresAt)", nativeQuery = true)
+    int insertClaim(@Param("key") String key, @Param("hash") String hash,
+                    @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Take over a key whose holder died without finishing, or whose record has expired
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = 'IN_PROGRESS', r.requestHash = :hash, r.lockedAt = :now, " +
+            "r.expiresAt = :expiresAt, r.responseStatus = null, r.responseBody = null, r.responseLocation = null " +
+            "WHERE r.key = :key AND ((r.status = 'IN_PROGRESS' AND r.lockedAt < :staleBefore) OR r.expiresAt < :now)")
+    int takeOver(@Param("key") String key, @Param("hash") String hash, @Param("now") LocalDateTime now,
+                 @Param("expiresAt") LocalDateTime expiresAt, @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = 'COMPLETED', r.responseStatus = :status, " +
+            "r.responseBody = :body, r.responseLocation = :location WHERE r.key = :key AND r.status = 'IN_PROGRESS'")
+    int complete(@Param("key") String key, @Param("status") int status,
+                 @Param("body") String body, @Param("location") String location);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.key = :key AND r.status = 'IN_PROGRESS'")
+    int release(@Param("key") String key);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -1,7 +1,20 @@
 package com.hust.ict.aims.repository;
 
 import com.hust.ict.aims.model.Invoice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface InvoiceRepository extends JpaRepository<Invoice, Integer> {
+
+    // Invoices with their cart, items and products in one query
+    @EntityGraph(Invoice.WITH_CART)
+    @Query("SELECT i FROM Invoice i ORDER BY i.id ASC")
+    List<Invoice> findAllWithCart();
+
+    @EntityGraph(Invoice.WITH_CART)
+    Optional<Invoice> findWithCartById(Integer id);
 }
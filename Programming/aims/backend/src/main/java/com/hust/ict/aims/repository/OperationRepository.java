@@ -1,28 +1,44 @@
 package com.hust.ict.aims.repository;
 
 import com.hust.ict.aims.model.Operation;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OperationRepository extends JpaRepository<Operation, Long> {
+
+    // Every read below fetches the product with the operation (Operation.withProduct): operations are
+    // serialized with their product, which would otherwise be loaded once per row
+
+    @EntityGraph(Operation.WITH_PRODUCT)
+    @Query("SELECT o FROM Operation o ORDER BY o.operationID ASC")
+    List<Operation> findAllWithProduct();
+
+    @EntityGraph(Operation.WITH_PRODUCT)
+    Optional<Operation> findWithProductByOperationID(Long operationID);
     
     // Find operations by product ID
+    @EntityGraph(Operation.WITH_PRODUCT)
     @Query("SELECT o FROM Operation o WHERE o.product.id = :productId ORDER BY o.timestamp DESC")
     List<Operation> findByProductId(@Param("productId") Long productId);
     
     // Find operations by product ID with pagination
+    @EntityGraph(Operation.WITH_PRODUCT)
     @Query("SELECT o FROM Operation o WHERE o.product.id = :productId ORDER BY o.timestamp DESC")
     Page<Operation> findByProductId(@Param("productId") Long productId, Pageable pageable);
     
     // Find operations by type
+    @EntityGraph(Operation.WITH_PRODUCT)
     @Query("SELECT o FROM Operation o WHERE o.operationType = :operationType ORDER BY o.timestamp DESC")
     List<Operation> findByOperationType(@Param("operationType") String operationType);
     
@@ -38,28 +54,57 @@ public interface OperationRepository extends JpaRepository<Operation, Long> {
             @Param("endTime") LocalDateTime endTime);
     
     // Find operations within time range
+    @EntityGraph(Operation.WITH_PRODUCT)
     @Query("SELECT o FROM Operation o WHERE o.timestamp BETWEEN :startTime AND :endTime ORDER BY o.timestamp DESC")
     List<Operation> findByTimestampBetween(
             @Param("startTime") LocalDateTime startTime,
             @Param("endTime") LocalDateTime endTime);
     
     // Find all operations ordered by timestamp (most recent first)
+    @EntityGraph(Operation.WITH_PRODUCT)
     @Query("SELECT o FROM Operation o ORDER BY o.timestamp DESC")
     List<Operation> findAllOrderByTimestampDesc();
     
     // Find all operations with pagination, ordered by timestamp
+    @EntityGraph(Operation.WITH_PRODUCT)
     @Query("SELECT o FROM Operation o ORDER BY o.timestamp DESC")
     Page<Operation> findAllOrderByTimestampDesc(Pageable pageable);
     
     // Search operations by product title (for operation history search functionality)
+    @EntityGraph(Operation.WITH_PRODUCT)
     @Query("SELECT o FROM Operation o WHERE " +
            "(:search IS NULL OR :search = '' OR LOWER(o.product.title) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
            "(:operationType IS NULL OR :operationType = '' OR o.operationType = :operationType) " +
-           "ORDER BY o.timestamp DESC")
+           "ORDER BY o.timestamp DESC, o.operationID DESC")
     Page<Operation> findOperationsWithFilters(
             @Param("search") String search,
             @Param("operationType") String operationType,
             Pageable pageable);
+
+    // Same filters without the COUNT query, for callers that do not need an exact total
+    @EntityGraph(Operation.WITH_PRODUCT)
+    @Query("SELECT o FROM Operation o WHERE " +
+           "(:search IS NULL OR :search = '' OR LOWER(o.product.title) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+           "(:operationType IS NULL OR :operationType = '' OR o.operationType = :operationType) " +
+           "ORDER BY o.timestamp DESC, o.operationID DESC")
+    Slice<Operation> findOperationsWithFiltersSlice(
+            @Param("search") String search,
+            @Param("operationType") String operationType,
+            Pageable pageable);
+
+    // Keyset page: operations strictly older than the (timestamp, id) of the last row already returned
+    @EntityGraph(Operation.WITH_PRODUCT)
+    @Query("SELECT o FROM Operation o WHERE " +
+           "(o.timestamp < :afterTimestamp OR (o.timestamp = :afterTimestamp AND o.operationID < :afterId)) AND " +
+           "(:search IS NULL OR :search = '' OR LOWER(o.product.title) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+           "(:operationType IS NULL OR :operationType = '' OR o.operationType = :operationType) " +
+           "ORDER BY o.timestamp DESC, o.operationID DESC")
+    Slice<Operation> findOperationsWithFiltersAfter(
+            @Param("search") String search,
+            @Param("operationType") String operationType,
+            @Param("afterTimestamp") LocalDateTime afterTimestamp,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
     
     // Delete operations by product ID (useful for cascade deletes)
     @Query("DELETE FROM Operation o WHERE o.product.id = :productId")
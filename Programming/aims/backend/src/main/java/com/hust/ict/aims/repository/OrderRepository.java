@@ -1,10 +1,52 @@
 package com.hust.ict.aims.repository;
 
+import com.hust.ict.aims.dto.OrderStockShortageDTO;
 import com.hust.ict.aims.model.Orders;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Orders, Long> {
     List<Orders> findByStatus(String pending);
+
+    // Orders with transaction, delivery info, invoice, cart, items and products in one query, for the
+    // reads that serialize or print them; without it each order loads its associations one by one
+    @EntityGraph(Orders.WITH_DETAILS)
+    @Query("SELECT o FROM Orders o ORDER BY o.id ASC")
+    List<Orders> findAllWithDetails();
+
+    @EntityGraph(Orders.WITH_DETAILS)
+    Optional<Orders> findWithDetailsById(Long id);
+
+    @EntityGraph(Orders.WITH_DETAILS)
+    List<Orders> findWithDetailsByIdIn(Collection<Long> ids);
+
+    // Keyset chunk of order ids in a given status, for jobs that must not load every order at once
+    @Query("SELECT o.id FROM Orders o WHERE o.status = :status AND o.id > :afterId ORDER BY o.id ASC")
+    List<Long> findIdsByStatusAfter(@Param("status") String status, @Param("afterId") Long afterId, Pageable pageable);
+
+    // Stock references of the given orders that took stock at checkout
+    @Query("SELECT o.stockReference FROM Orders o WHERE o.id IN :orderIds AND o.stockReference IS NOT NULL")
+    List<String> findStockReferencesByIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    // Units of a product the order still holds from checkout; they are already out of p.quantity
+    String ORDER_HELD_UNITS = "COALESCE((SELECT SUM(h.quantity) FROM StockHold h " +
+            "WHERE h.reference = o.stockReference AND h.productId = p.id AND h.status <> 'RELEASED'), 0)";
+
+    // Demand per (order, product) for the given orders, keeping only products that the stock plus the
+    // order's own holds cannot cover
+    @Query("SELECT new com.hust.ict.aims.dto.OrderStockShortageDTO(o.id, p.id, p.title, SUM(ci.quantity), " +
+           "CAST(p.quantity + " + ORDER_HELD_UNITS + " AS Long)) " +
+           "FROM Orders o JOIN o.invoice i JOIN i.cart c JOIN c.items ci JOIN ci.product p " +
+           "WHERE o.id IN :orderIds " +
+           "GROUP BY o.id, o.stockReference, p.id, p.title, p.quantity " +
+           "HAVING SUM(ci.quantity) > p.quantity + " + ORDER_HELD_UNITS + " " +
+           "ORDER BY o.id ASC, p.id ASC")
+    List<OrderStockShortageDTO> findStockShortages(@Param("orderIds") List<Long> orderIds);
 }
@@ -0,0 +1,21 @@
+package com.hust.ict.aims.repository;
+
+import com.hust.ict.aims.model.OutboxEmail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEmailRepository extends JpaRepository<OutboxEmail, Long> {
+
+    // Oldest first, so confirmations go out in checkout order
+    @Query("SELECT e FROM OutboxEmail e WHERE e.status = 'PENDING' AND e.nextAttemptAt <= :now ORDER BY e.id ASC")
+    List<OutboxEmail> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    long countByStatus(String status);
+}
@@ -1,15 +1,24 @@
 package com.hust.ict.aims.repository;
 
+import com.hust.ict.aims.cache.LocalRegionFactory;
+import com.hust.ict.aims.dto.ProductStockDTO;
 import com.hust.ict.aims.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import java.util.Collection;
 import java.util.List;  // <- ADD THIS LINE
 import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
@@ -27,24 +36,89 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
     Page<Product> findAllActiveRandom(Pageable pageable);
 
     // Random product methods with pivot-based approach
+    // Cached in the product-stats query region until the next write to the product table
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = LocalRegionFactory.PRODUCT_STATS)
+    })
     @Query("SELECT MIN(p.id) FROM Product p WHERE p.deleted = false")
     Long findMinId();
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = LocalRegionFactory.PRODUCT_STATS)
+    })
     @Query("SELECT MAX(p.id) FROM Product p WHERE p.deleted = false")
     Long findMaxId();
 
+    // The first rows of a run starting at the pivot; the Pageable puts the LIMIT in the query
     @Query("SELECT p FROM Product p WHERE p.id >= :pivot AND p.deleted = false ORDER BY p.id ASC")
-    List<Product> findFromPivot(@Param("pivot") long pivot);
+    List<Product> findFromPivot(@Param("pivot") long pivot, Pageable pageable);
 
     @Query("SELECT p FROM Product p WHERE p.id < :pivot AND p.deleted = false ORDER BY p.id ASC")
-    List<Product> findWrapAround(@Param("pivot") long pivot);
+    List<Product> findWrapAround(@Param("pivot") long pivot, Pageable pageable);
 
     // New paginated random methods with seed
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = LocalRegionFactory.PRODUCT_STATS)
+    })
     @Query("SELECT COUNT(p) FROM Product p WHERE p.deleted = false")
     long countActiveProducts();
 
     @Query("SELECT p FROM Product p WHERE p.deleted = false ORDER BY p.id ASC")
     List<Product> findAllActiveOrdered();
 
+    // Forward-only cursor for the catalog export; must be consumed inside a transaction and closed
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Product p WHERE p.deleted = false ORDER BY p.id ASC")
+    Stream<Product> streamAllActive();
+
+    // Null when there is no such product
+    @Query("SELECT p.deleted FROM Product p WHERE p.id = :id")
+    Boolean findDeletedById(@Param("id") Long id);
+
+    // Ids only, for building the shared random feed permutation without loading entities
+    @Query("SELECT p.id FROM Product p WHERE p.deleted = false ORDER BY p.id ASC")
+    List<Long> findActiveIdsOrdered();
+
     List<Product> findByIdIn(Set<Long> ids);
+
+    // Rows [offset, offset + limit) of the active listing without the COUNT a Page return would add;
+    // callers ask for one row more than the page to learn whether a next page exists
+    @Query("SELECT p FROM Product p WHERE p.deleted = false ORDER BY p.id ASC LIMIT :limit OFFSET :offset")
+    List<Product> findActiveRange(@Param("offset") int offset, @Param("limit") int limit);
+
+    // Base-table projections: Hibernate leaves the book/cd/dvd/lp joins out when only product columns are read
+    @Query("SELECT new com.hust.ict.aims.dto.ProductStockDTO(p.id, p.title, p.quantity) FROM Product p WHERE p.id IN :ids")
+    List<ProductStockDTO> findStockByIdIn(@Param("ids") Collection<Long> ids);
+
+    boolean existsByIdInAndRushOrderEligibleTrue(Collection<Long> ids);
+
+    // Deleted products included: the unique constraint on barcode covers them too
+    @Query("SELECT p.barcode FROM Product p WHERE p.barcode IN :barcodes")
+    List<String> findBarcodesIn(@Param("barcodes") Collection<String> barcodes);
+
+    // Conditional atomic decrement: 0 rows updated means the stock was not there, nothing to roll back.
+    // The native spaces hint tells Hibernate only product data is touched; without it a native update
+    // empties every second-level cache region
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "product"))
+    @Query(value = "UPDATE product SET quantity = quantity - :quantity WHERE product_id = :id AND quantity >= :quantity",
+            nativeQuery = true)
+    int decrementStockIfAvailable(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "product"))
+    @Query(value = "UPDATE product SET quantity = quantity + :quantity WHERE product_id = :id", nativeQuery = true)
+    int incrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Query("SELECT p.quantity FROM Product p WHERE p.id = :id")
+    Integer findQuantityById(@Param("id") Long id);
+
+    // Keyset page for the product listing; a Slice reads one extra row instead of running a COUNT
+    Slice<Product> findByIdGreaterThanAndDeletedFalse(Long id, Pageable pageable);
 }
\ No newline at end of file
@@ -1,10 +1,19 @@
 package com.hust.ict.aims.repository;
 
+import com.hust.ict.aims.cache.LocalRegionFactory;
 import com.hust.ict.aims.model.Role;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Optional;
 
 public interface RoleRepository extends JpaRepository<Role, Integer> {
+    // Looked up on every registration; the result (a role id) is cached, the role comes from its region
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = LocalRegionFactory.ROLE_BY_NAME)
+    })
     Optional<Role> findByName(String name);
 }
@@ -1,7 +1,19 @@
 package com.hust.ict.aims.repository;
 
 import com.hust.ict.aims.model.RushOrder;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface RushOrderRepository extends JpaRepository<RushOrder, Long> {
+
+    @EntityGraph(RushOrder.WITH_DETAILS)
+    @Query("SELECT o FROM RushOrder o ORDER BY o.id ASC")
+    List<RushOrder> findAllWithDetails();
+
+    @EntityGraph(RushOrder.WITH_DETAILS)
+    Optional<RushOrder> findWithDetailsById(Long id);
 }
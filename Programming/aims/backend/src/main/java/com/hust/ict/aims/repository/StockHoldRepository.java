@@ -0,0 +1,41 @@
+package com.hust.ict.aims.repository;
+
+import com.hust.ict.aims.model.StockHold;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockHoldRepository extends JpaRepository<StockHold, Long> {
+
+    List<StockHold> findByReferenceAndStatus(String reference, String status);
+
+    List<StockHold> findByReferenceAndStatusIn(String reference, Collection<String> statuses);
+
+    // Oldest expired holds first, one batch at a time
+    @Query("SELECT h FROM StockHold h WHERE h.status = 'HELD' AND h.expiresAt < :now ORDER BY h.expiresAt ASC")
+    List<StockHold> findExpired(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Only a HELD row can move on, so confirm, release and expiry never act on the same hold twice
+    @Modifying
+    @Query("UPDATE StockHold h SET h.status = :status WHERE h.id = :id AND h.status = 'HELD'")
+    int transitionFromHeld(@Param("id") Long id, @Param("status") String status);
+
+    // Confirm a held row and move it to the reference of the order that now owns it
+    @Modifying
+    @Query("UPDATE StockHold h SET h.status = 'CONFIRMED', h.reference = :reference " +
+           "WHERE h.id = :id AND h.status = 'HELD'")
+    int confirmFromHeld(@Param("id") Long id, @Param("reference") String reference);
+
+    // Guarded on the status the row was read in, so a hold's units are only ever returned once
+    @Modifying
+    @Query("UPDATE StockHold h SET h.status = 'RELEASED' WHERE h.id = :id AND h.status = :status")
+    int releaseFrom(@Param("id") Long id, @Param("status") String status);
+}
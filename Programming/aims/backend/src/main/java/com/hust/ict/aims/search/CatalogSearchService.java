@@ -0,0 +1,120 @@
+package com.hust.ict.aims.search;
+
+import com.hust.ict.aims.cache.ProductChangedEvent;
+import com.hust.ict.aims.model.Product;
+import com.hust.ict.aims.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Owns the in-memory ProductSearchIndex: builds it from the database on first use and keeps it in sync
+ * with committed product writes.
+ *
+ * Write paths only record the changed id; the next search reloads all pending ids with a single
+ * findByIdIn before querying, so indexing never adds latency to a manager's save.
+ */
+@Component
+public class CatalogSearchService {
+
+    private final ProductRepository productRepository;
+    private final ProductSearchIndex index = new ProductSearchIndex();
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+    private final int buildBatchSize;
+    // Not synchronized: the build pages through the database, which would pin a virtual thread
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    private volatile boolean built;
+
+    public CatalogSearchService(ProductRepository productRepository,
+                                @Value("${aims.search.build-batch-size:1000}") int buildBatchSize) {
+        this.productRepository = productRepository;
+        this.buildBatchSize = buildBatchSize;
+    }
+
+    public ProductSearchIndex.Hits search(String text, String category, String productType,
+                                          Double minPrice, Double maxPrice,
+                                          String sortBy, String sortDirection, int page, int size) {
+        ensureBuilt();
+        applyPending();
+        return index.search(text, category, productType, minPrice, maxPrice, sortBy, sortDirection, page, size);
+    }
+
+    public ProductSearchIndex.Hits searchAfter(String text, String category, String productType,
+                                               Double minPrice, Double maxPrice, String sortBy, String sortDirection,
+                                               String afterKey, long afterId, int size) {
+        ensureBuilt();
+        applyPending();
+        return index.searchAfter(text, category, productType, minPrice, maxPrice, sortBy, sortDirection,
+                afterKey, afterId, size);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // No indexed field depends on the quantity, so a stock change leaves the document as it is
+        if (event.productId() != null && event.change() != ProductChangedEvent.Change.STOCK) {
+            pendingIds.add(event.productId());
+        }
+    }
+
+    /**
+     * Drop the index; it is rebuilt from the database by the next search.
+     */
+    public void rebuild() {
+        buildLock.lock();
+        try {
+            built = false;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private void ensureBuilt() {
+        if (built) return;
+        buildLock.lock();
+        try {
+            if (built) return;
+            pendingIds.clear();
+            index.clear();
+
+            int pageNumber = 0;
+            Page<Product> page;
+            do {
+                page = productRepository.findAll(PageRequest.of(pageNumber++, buildBatchSize, Sort.by("id")));
+                for (Product product : page.getContent()) {
+                    index.put(product);
+                }
+            } while (page.hasNext());
+
+            built = true;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private void applyPending() {
+        if (pendingIds.isEmpty()) return;
+
+        Set<Long> ids = new HashSet<>(pendingIds);
+        pendingIds.removeAll(ids);
+
+        Set<Long> found = new HashSet<>();
+        for (Product product : productRepository.findByIdIn(ids)) {
+            index.put(product);
+            found.add(product.getId());
+        }
+        for (Long id : ids) {
+            if (!found.contains(id)) {
+                index.remove(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.hust.ict.aims.search;
+
+import com.hust.ict.aims.model.*;
+
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded inverted index over the searchable product fields: title, category, the creator field of each
+ * subtype (book author, disc artist, DVD director) and barcode.
+ *
+ * Terms are lower-cased and stripped of diacritics. A query term matches indexed terms exactly, by prefix
+ * or within a small edit distance; every query term has to match for a product to be a hit. Hits are scored
+ * by field weight and match quality, filtered and counted per category/productType in memory. Only the
+ * hits up to the end of the requested page are kept in order, in a bounded heap, so only that page of
+ * ids ever needs to be loaded from the database and a page costs O(n log k) rather than a full sort.
+ */
+public class ProductSearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+
+    // Field weights used for ranking
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float CREATOR_WEIGHT = 2.0f;
+    private static final float CATEGORY_WEIGHT = 1.0f;
+    private static final float BARCODE_WEIGHT = 4.0f;
+
+    // Match quality multipliers
+    private static final float EXACT = 1.0f;
+    private static final float PREFIX = 0.6f;
+    private static final float FUZZY = 0.3f;
+
+    // Prefixes a present value in a sort key, so an empty key can stand for a null field
+    private static final String PRESENT = "=";
+
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indexable view of a product. Only what search, filtering, faceting and sorting need is kept.
+     */
+    public record Document(long id, String title, String category, String productType, float price,
+                           float value, LocalDate warehouseEntryDate, Map<String, Float> terms) {
+    }
+
+    /**
+     * One page of hits. {@code lastSortKey} is the sort value of the last id on the page, which together
+     * with that id is what {@link #searchAfter} needs to continue from there.
+     */
+    public record Hits(List<Long> ids, long total, Map<String, Map<String, Long>> facets,
+                       String lastSortKey, boolean hasMore) {
+    }
+
+    public void put(Product product) {
+        Document document = toDocument(product);
+        lock.writeLock().lock();
+        try {
+            removeInternal(document.id());
+            if (product.isDeleted()) {
+                return;
+            }
+            documents.put(document.id(), document);
+            for (Map.Entry<String, Float> term : document.terms().entrySet()) {
+                postings.computeIfAbsent(term.getKey(), k -> new HashMap<>())
+                        .put(document.id(), term.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Run a query and return one page of matching ids, the total number of matches and facet counts.
+     * Each facet ignores its own filter so the client can show the alternatives for that dimension.
+     *
+     * @throws IllegalArgumentException if {@code sortBy} is not one of the indexed sort fields
+     */
+    public Hits search(String text, String category, String productType, Double minPrice, Double maxPrice,
+                       String sortBy, String sortDirection, int page, int size) {
+        return search(text, category, productType, minPrice, maxPrice, sortBy, sortDirection,
+                null, null, (long) page * size, size);
+    }
+
+    /**
+     * Keyset variant of {@link #search}: return the {@code size} hits that sort strictly after the hit
+     * identified by {@code afterKey}/{@code afterId}, whether or not that product is still indexed.
+     *
+     * @throws IllegalArgumentException if {@code afterKey} is not a sort key this index issued for {@code sortBy}
+     */
+    public Hits searchAfter(String text, String category, String productType, Double minPrice, Double maxPrice,
+                            String sortBy, String sortDirection, String afterKey, long afterId, int size) {
+        return search(text, category, productType, minPrice, maxPrice, sortBy, sortDirection,
+                afterKey, afterId, 0, size);
+    }
+
+    private Hits search(String text, String category, String productType, Double minPrice, Double maxPrice,
+                        String sortBy, String sortDirection, String afterKey, Long afterId, long offset, int size) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Float> scores = match(text);
+
+            Comparator<Ranked> comparator = comparator(sortBy, sortDirection);
+            // Seek: the probe sorts exactly where the last returned hit did, and only hits after it count
+            Ranked probe = afterId != null ? probe(sortBy, afterKey, afterId) : null;
+            long skip = probe != null ? 0 : offset;
+            long keep = Math.max(0, Math.min(skip + size, Integer.MAX_VALUE - 1L));
+
+            Map<String, Long> categoryFacet = new TreeMap<>();
+            Map<String, Long> typeFacet = new TreeMap<>();
+            // The worst kept hit on top, so a better hit replaces it in O(log k)
+            PriorityQueue<Ranked> best = new PriorityQueue<>((int) Math.min(keep, 1024) + 1, comparator.reversed());
+            long total = 0;
+            long candidates = 0;
+
+            for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+                Document document = documents.get(entry.getKey());
+                if (document == null) continue;
+                if (minPrice != null && document.price() < minPrice) continue;
+                if (maxPrice != null && document.price() > maxPrice) continue;
+
+                boolean categoryOk = isBlank(category) || category.equals(document.category());
+                boolean typeOk = isBlank(productType) || productType.equalsIgnoreCase(document.productType());
+
+                if (typeOk) categoryFacet.merge(document.category(), 1L, Long::sum);
+                if (categoryOk) typeFacet.merge(document.productType(), 1L, Long::sum);
+                if (!categoryOk || !typeOk) continue;
+
+                total++;
+                Ranked hit = new Ranked(document, entry.getValue());
+                if (probe != null && comparator.compare(hit, probe) <= 0) continue;
+                candidates++;
+                if (best.size() < keep) {
+                    best.add(hit);
+                } else if (keep > 0 && comparator.compare(hit, best.peek()) < 0) {
+                    best.poll();
+                    best.add(hit);
+                }
+            }
+
+            List<Ranked> ordered = new ArrayList<>(best);
+            ordered.sort(comparator);
+            int from = (int) Math.min(skip, ordered.size());
+            List<Ranked> window = ordered.subList(from, ordered.size());
+
+            List<Long> ids = new ArrayList<>(window.size());
+            for (Ranked hit : window) {
+                ids.add(hit.document().id());
+            }
+            String lastSortKey = window.isEmpty() ? null : sortKey(window.get(window.size() - 1), sortBy);
+
+            Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+            facets.put("category", categoryFacet);
+            facets.put("productType", typeFacet);
+            return new Hits(ids, total, facets, lastSortKey, skip + window.size() < candidates);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // A hit with its score, so sorting and the seek probe never look scores up in (or write them to) a map
+    private record Ranked(Document document, float score) {
+    }
+
+    // --- matching -----------------------------------------------------------------------------------
+
+    private Map<Long, Float> match(String text) {
+        List<String> queryTerms = tokenize(text);
+        if (queryTerms.isEmpty()) {
+            Map<Long, Float> all = new HashMap<>();
+            for (Long id : documents.keySet()) {
+                all.put(id, 0f);
+            }
+            return all;
+        }
+
+        Map<Long, Float> result = null;
+        for (String queryTerm : queryTerms) {
+            Map<Long, Float> termScores = matchTerm(queryTerm);
+            if (result == null) {
+                result = termScores;
+            } else {
+                Map<Long, Float> merged = new HashMap<>();
+                for (Map.Entry<Long, Float> entry : result.entrySet()) {
+                    Float other = termScores.get(entry.getKey());
+                    if (other != null) {
+                        merged.put(entry.getKey(), entry.getValue() + other);
+                    }
+                }
+                result = merged;
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private Map<Long, Float> matchTerm(String queryTerm) {
+        Map<Long, Float> scores = new HashMap<>();
+
+        // Exact and prefix matches share one range scan of the sorted dictionary
+        for (Map.Entry<String, Map<Long, Float>> entry
+                : postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false).entrySet()) {
+            float quality = entry.getKey().equals(queryTerm) ? EXACT : PREFIX;
+            accumulate(scores, entry.getValue(), quality);
+        }
+
+        // Typo tolerance: only for terms long enough that one or two edits are not noise
+        int maxEdits = queryTerm.length() >= 8 ? 2 : queryTerm.length() >= 4 ? 1 : 0;
+        if (maxEdits > 0) {
+            String first = queryTerm.substring(0, 1);
+            String end = first + Character.MAX_VALUE;
+            String term = postings.ceilingKey(first);
+            while (term != null && term.compareTo(end) < 0) {
+                int distance = boundedDistance(queryTerm, term, maxEdits);
+                if (distance < 0) {
+                    // No term starting with this prefix can come within maxEdits: jump past all of them
+                    term = postings.ceilingKey(term.substring(0, -distance) + Character.MAX_VALUE);
+                    continue;
+                }
+                if (distance <= maxEdits && !term.startsWith(queryTerm)) {
+                    accumulate(scores, postings.get(term), FUZZY);
+                }
+                term = postings.higherKey(term);
+            }
+        }
+        return scores;
+    }
+
+    private static void accumulate(Map<Long, Float> scores, Map<Long, Float> posting, float quality) {
+        for (Map.Entry<Long, Float> hit : posting.entrySet()) {
+            scores.merge(hit.getKey(), hit.getValue() * quality, Math::max);
+        }
+    }
+
+    /**
+     * Levenshtein distance from {@code query} to {@code term}, filled in one character of {@code term} at a
+     * time. Returns the distance, which may exceed {@code max}, or, as soon as every entry of a row exceeds
+     * {@code max}, minus the length of that prefix of {@code term}: every term sharing the prefix is at
+     * least that far from the query too, so the caller can skip them all.
+     */
+    static int boundedDistance(String query, String term, int max) {
+        int[] previous = new int[query.length() + 1];
+        int[] current = new int[query.length() + 1];
+        for (int j = 0; j <= query.length(); j++) previous[j] = j;
+
+        for (int i = 1; i <= term.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= query.length(); j++) {
+                int cost = term.charAt(i - 1) == query.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) return -i;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[query.length()];
+    }
+
+    // --- sorting ------------------------------------------------------------------------------------
+
+    // Product fields that can be sorted on; quantity is not indexed, so stock writes never touch the index
+    private static Comparator<Ranked> comparator(String sortBy, String sortDirection) {
+        Comparator<Ranked> byId = Comparator.comparingLong(r -> r.document().id());
+        Comparator<Ranked> comparator = switch (sortBy == null ? "id" : sortBy) {
+            case "id" -> byId;
+            case "relevance" -> Comparator.<Ranked>comparingDouble(Ranked::score).reversed();
+            case "title" -> Comparator.comparing(r -> r.document().title(),
+                    Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+            case "category" -> Comparator.comparing(r -> r.document().category(),
+                    Comparator.nullsLast(String::compareTo));
+            case "currentPrice", "price" -> Comparator.comparingDouble(r -> r.document().price());
+            case "value" -> Comparator.comparingDouble(r -> r.document().value());
+            case "warehouseEntryDate" -> Comparator.comparing(r -> r.document().warehouseEntryDate(),
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            default -> throw new IllegalArgumentException("Unsupported sortBy: " + sortBy);
+        };
+        if ("desc".equalsIgnoreCase(sortDirection)) {
+            comparator = comparator.reversed();
+        }
+        return comparator.thenComparing(byId);
+    }
+
+    private static String sortKey(Ranked hit, String sortBy) {
+        Document document = hit.document();
+        return switch (sortBy == null ? "id" : sortBy) {
+            case "relevance" -> Float.toString(hit.score());
+            case "title" -> nullableKey(document.title());
+            case "category" -> nullableKey(document.category());
+            case "currentPrice", "price" -> Float.toString(document.price());
+            case "value" -> Float.toString(document.value());
+            case "warehouseEntryDate" -> nullableKey(
+                    document.warehouseEntryDate() == null ? null : document.warehouseEntryDate().toString());
+            default -> "";
+        };
+    }
+
+    private static Ranked probe(String sortBy, String key, long id) {
+        String value = key == null ? "" : key;
+        try {
+            return switch (sortBy == null ? "id" : sortBy) {
+                case "relevance" -> new Ranked(new Document(id, null, null, null, 0f, 0f, null, Map.of()),
+                        Float.parseFloat(value));
+                case "title" -> new Ranked(new Document(id, nullableValue(value), null, null, 0f, 0f, null,
+                        Map.of()), 0f);
+                case "category" -> new Ranked(new Document(id, null, nullableValue(value), null, 0f, 0f, null,
+                        Map.of()), 0f);
+                case "currentPrice", "price" -> new Ranked(new Document(id, null, null, null,
+                        Float.parseFloat(value), 0f, null, Map.of()), 0f);
+                case "value" -> new Ranked(new Document(id, null, null, null, 0f, Float.parseFloat(value), null,
+                        Map.of()), 0f);
+                case "warehouseEntryDate" -> {
+                    String date = nullableValue(value);
+                    yield new Ranked(new Document(id, null, null, null, 0f, 0f,
+                            date == null ? null : LocalDate.parse(date), Map.of()), 0f);
+                }
+                default -> new Ranked(new Document(id, null, null, null, 0f, 0f, null, Map.of()), 0f);
+            };
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor for sortBy=" + sortBy, e);
+        }
+    }
+
+    // A null field becomes the empty key and a present one, even "", is prefixed, so the probe gets its null back
+    private static String nullableKey(String value) {
+        return value == null ? "" : PRESENT + value;
+    }
+
+    private static String nullableValue(String key) {
+        if (key.isEmpty()) return null;
+        if (!key.startsWith(PRESENT)) {
+            throw new IllegalArgumentException("Invalid cursor key");
+        }
+        return key.substring(PRESENT.length());
+    }
+
+    // --- indexing -----------------------------------------------------------------------------------
+
+    private void removeInternal(long id) {
+        Document previous = documents.remove(id);
+        if (previous == null) return;
+        for (String term : previous.terms().keySet()) {
+            Map<Long, Float> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    static Document toDocument(Product product) {
+        Map<String, Float> terms = new HashMap<>();
+        addTerms(terms, product.getTitle(), TITLE_WEIGHT);
+        addTerms(terms, product.getCategory(), CATEGORY_WEIGHT);
+        addTerms(terms, creatorOf(product), CREATOR_WEIGHT);
+        if (product.getBarcode() != null) {
+            String barcode = normalize(product.getBarcode()).replaceAll("\\s+", "");
+            if (!barcode.isEmpty()) {
+                terms.merge(barcode, BARCODE_WEIGHT, Math::max);
+            }
+        }
+        return new Document(product.getId(), product.getTitle(), product.getCategory(), productTypeOf(product),
+                product.getCurrentPrice(), product.getValue(), product.getWarehouseEntryDate(), terms);
+    }
+
+    private static void addTerms(Map<String, Float> terms, String text, float weight) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Math::max);
+        }
+    }
+
+    private static String creatorOf(Product product) {
+        if (product instanceof Book book) return book.getAuthor();
+        if (product instanceof MusicDisc disc) return disc.getArtist();
+        if (product instanceof DVD dvd) return dvd.getDirector();
+        return null;
+    }
+
+    private static String productTypeOf(Product product) {
+        if (product instanceof Book) return "BOOK";
+        if (product instanceof CD) return "CD";
+        if (product instanceof LP) return "LP";
+        if (product instanceof DVD) return "DVD";
+        return "UNKNOWN";
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    static String normalize(String text) {
+        String lower = text.toLowerCase(Locale.ROOT).replace('đ', 'd');
+        return DIACRITICS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+}
@@ -0,0 +1,15 @@
+package com.hust.ict.aims.search;
+
+import com.hust.ict.aims.model.Product;
+import com.hust.ict.aims.utils.PageCursor;
+import org.springframework.data.domain.Page;
+
+import java.util.Map;
+
+/**
+ * One page of hydrated search results plus facet counts (facet name -> value -> count).
+ * {@code nextCursor} continues after the last hit of this page and is null on the last page.
+ */
+public record ProductSearchResult(Page<Product> page, Map<String, Map<String, Long>> facets,
+                                  PageCursor nextCursor) {
+}
@@ -47,6 +47,12 @@ public class SecurityConfig {
                         //.requestMatchers(HttpMethod.POST,"/api/products/**").hasAuthority("ROLE_MANAGER")
                         .requestMatchers(HttpMethod.PUT, "/api/products/**").hasAuthority("ROLE_MANAGER")
                         .requestMatchers(HttpMethod.DELETE, "/api/products/**").hasAuthority("ROLE_MANAGER")
+                        // Prometheus scrape: timers, pool and cache internals are for operators only
+                        .requestMatchers("/api/metrics/**").hasAuthority("ROLE_ADMIN")
+                        // Same roles as the @PreAuthorize on the endpoints, which is not enforced without method security
+                        .requestMatchers(HttpMethod.GET, "/api/products/operations/audit-stats",
+                                "/api/products/operations/lock-stats")
+                                .hasAnyAuthority("ROLE_ADMIN", "ROLE_MANAGER")
                         .anyRequest().permitAll()
                 )
 
@@ -26,6 +26,14 @@ public class UserInfoDetails implements UserDetails {
         this.enabled = user.isEnabled();
     }
 
+    // Principal rebuilt from a verified JWT, without loading the user from the database
+    public UserInfoDetails(String username, List<GrantedAuthority> authorities) {
+        this.username = username;
+        this.password = null;
+        this.authorities = authorities;
+        this.enabled = true;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
@@ -4,6 +4,7 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import com.hust.ict.aims.security.UserInfoDetails;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -29,28 +30,29 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, @NotNull HttpServletResponse response, @NotNull FilterChain filterChain) throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
         String jwtToken = null;
-        String username = null;
 
         if(authHeader != null && authHeader.startsWith("Bearer ")) {
             jwtToken = authHeader.substring(7).trim();
         }
 
-        if (jwtToken != null && !jwtToken.isEmpty() && jwtToken.chars().filter(ch -> ch == '.').count() == 2) {
+        if (jwtToken != null && !jwtToken.isEmpty() && jwtToken.chars().filter(ch -> ch == '.').count() == 2
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
             try {
-                username = jwtService.extractUsername(jwtToken);
-            } catch (Exception e) {
-                Logger logger = LoggerFactory.getLogger(JwtAuthFilter.class);
-                logger.error("JWT parsing error: {}", e.getMessage());
-            }
-        }
+                // Parsed and verified at most once per token; later requests are served from the cache
+                JwtService.VerifiedToken verified = jwtService.verify(jwtToken);
+
+                // Authorities come from the "roles" claim; only tokens without it still need the database
+                UserDetails userDetails = verified.authorities() != null
+                        ? new UserInfoDetails(verified.username(), verified.authorities())
+                        : userDetailsService.loadUserByUsername(verified.username());
 
-        if(username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            if(jwtService.validateToken(jwtToken, userDetails)) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(userDetails,
                         null, userDetails.getAuthorities());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+            } catch (Exception e) {
+                Logger logger = LoggerFactory.getLogger(JwtAuthFilter.class);
+                logger.error("JWT parsing error: {}", e.getMessage());
             }
         }
         filterChain.doFilter(request, response);
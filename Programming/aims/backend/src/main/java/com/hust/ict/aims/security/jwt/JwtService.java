@@ -4,27 +4,59 @@ import com.hust.ict.aims.model.Role;
 import com.hust.ict.aims.model.User;
 import com.hust.ict.aims.config.JwtConfig;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
-import java.security.Key;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/*
+ * The signing key and the parser are built once. verify() parses a token at most once: the verified
+ * principal is cached under the SHA-256 of the token until the token's own expiry, so repeated requests
+ * with the same bearer token skip signature verification entirely.
+ */
 @Component
 public class JwtService {
 
     private final JwtConfig config;
+    private final Map<String, VerifiedToken> verifiedTokens;
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
 
-    public JwtService(JwtConfig config) {
+    private volatile SecretKey signKey;
+    private volatile JwtParser parser;
+
+    /**
+     * Verified content of a token. {@code authorities} is null for tokens issued without a "roles" claim.
+     */
+    public record VerifiedToken(String username, List<GrantedAuthority> authorities, long expiresAtMillis) {
+
+        public boolean isExpired() {
+            return expiresAtMillis <= System.currentTimeMillis();
+        }
+    }
+
+    public JwtService(JwtConfig config, @Value("${aims.jwt.cache-size:10000}") int cacheSize) {
         this.config = config;
+        this.verifiedTokens = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > cacheSize;
+            }
+        });
     }
 
     public String generateToken(User user) {
@@ -47,17 +79,68 @@ public class JwtService {
                 .compact();
     }
 
-    private Key getSignKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(config.getSecret());
-        return Keys.hmacShaKeyFor(keyBytes);
+    private SecretKey getSignKey() {
+        SecretKey key = signKey;
+        if (key == null) {
+            byte[] keyBytes = Decoders.BASE64.decode(config.getSecret());
+            key = Keys.hmacShaKeyFor(keyBytes);
+            signKey = key;
+        }
+        return key;
+    }
+
+    private JwtParser getParser() {
+        JwtParser current = parser;
+        if (current == null) {
+            // JwtParser is immutable and thread-safe once built
+            current = Jwts.parser().verifyWith(getSignKey()).build();
+            parser = current;
+        }
+        return current;
+    }
+
+    /**
+     * Verify the token and return its principal, from the cache when this exact token was verified before.
+     *
+     * @throws io.jsonwebtoken.JwtException if the signature is invalid or the token has expired
+     */
+    public VerifiedToken verify(String token) {
+        String key = hash(token);
+        VerifiedToken cached = verifiedTokens.get(key);
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                cacheHits.incrementAndGet();
+                return cached;
+            }
+            verifiedTokens.remove(key);
+        }
+        cacheMisses.incrementAndGet();
+
+        Claims claims = extractAllClaims(token);
+        VerifiedToken verified = new VerifiedToken(claims.getSubject(), authoritiesOf(claims),
+                claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE);
+        verifiedTokens.put(key, verified);
+        return verified;
+    }
+
+    public long getCacheHitCount() {
+        return cacheHits.get();
+    }
+
+    public long getCacheMissCount() {
+        return cacheMisses.get();
+    }
+
+    public int getCacheSize() {
+        return verifiedTokens.size();
     }
 
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).username();
     }
 
     public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        return new Date(verify(token).expiresAtMillis());
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
@@ -66,19 +149,34 @@ public class JwtService {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith((SecretKey) getSignKey())
-                .build()
+        return getParser()
                 .parseSignedClaims(token)
                 .getPayload();
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public Boolean validateToken(String token, UserDetails userDetails) {
+        VerifiedToken verified = verify(token);
+        return (verified.username().equals(userDetails.getUsername()) && !verified.isExpired());
     }
 
-    public Boolean validateToken(String token, UserDetails userDetails) {
-        final String email = extractUsername(token);
-        return (email.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    private static List<GrantedAuthority> authoritiesOf(Claims claims) {
+        Object roles = claims.get("roles");
+        if (!(roles instanceof Collection<?> names)) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = new ArrayList<>(names.size());
+        for (Object name : names) {
+            authorities.add(new SimpleGrantedAuthority(String.valueOf(name)));
+        }
+        return Collections.unmodifiableList(authorities);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 }
@@ -2,10 +2,16 @@ package com.hust.ict.aims.service;
 
 import com.hust.ict.aims.model.Operation;
 import java.time.LocalDateTime;
+import java.util.Collection;
 
 public interface BusinessRulesService {
+    // Counts the operation against today's quota when it is allowed; give it back with releaseDailyOperation if it fails
     void validateDailyOperationLimits(String operationType, LocalDateTime date);
-    void acquireOperationLock(String operationType);
-    void releaseOperationLock(String operationType);
+    void validateDailyOperationLimits(String operationType, LocalDateTime date, int count);
+    void releaseDailyOperation(String operationType, LocalDateTime date, int count);
+    // Locks the products being written (none for a new product); 409 if another manager keeps them locked
+    void acquireOperationLock(String operationType, Collection<Long> productIds);
+    void releaseOperationLock(String operationType, Collection<Long> productIds);
+    ProductLockManager.Stats getLockStats();
     boolean canPerformBulkDelete(int count);
 }
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.hust.ict.aims.service;
+
+import com.hust.ict.aims.dto.CartItemDTO;
+import com.hust.ict.aims.dto.CartItemDetailDTO;
+import com.hust.ict.aims.dto.InsufficientStockDTO;
+import com.hust.ict.aims.model.Product;
+import com.hust.ict.aims.repository.ProductRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Cohesion Level: Functional Cohesion
+ * All members serve one purpose: turning the line items of a cart request into priced lines.
+ *
+ * Shared by calculateCartTotals, calculateRushCartTotals and createCartSnapshot so that every cart
+ * resolves its products with a single findByIdIn, prices the lines in one pass and reports missing
+ * products and stock shortfalls instead of throwing in the middle of the loop.
+ */
+@Component
+public class CartPricingPipeline {
+
+    // Rush delivery surcharge per unit for rush-eligible products
+    public static final double RUSH_SURCHARGE = 10000;
+
+    private final ProductRepository productRepository;
+
+    public CartPricingPipeline(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * One request line resolved against its product.
+     *
+     * @param rush    true when rush pricing was requested and the product is rush eligible
+     * @param inStock false when the total quantity requested for this product exceeds its stock
+     */
+    public record PricedLine(Product product, int quantity, double unitPrice, double subtotal,
+                             boolean rush, boolean inStock) {
+
+        public CartItemDetailDTO toDetail() {
+            CartItemDetailDTO itemDetail = new CartItemDetailDTO();
+            itemDetail.setProductId(product.getId());
+            itemDetail.setTitle(product.getTitle());
+            itemDetail.setPrice(unitPrice);
+            itemDetail.setQuantity(quantity);
+            itemDetail.setSubtotal(subtotal);
+            itemDetail.setImageURL(product.getImageURL());
+            itemDetail.setCategory(product.getCategory());
+            itemDetail.setWeight(product.getWeight());
+            return itemDetail;
+        }
+    }
+
+    /**
+     * Result of pricing a cart: priced lines in request order, one stock shortfall entry per product
+     * and the ids that did not resolve to a product.
+     */
+    public record PricedCart(List<PricedLine> lines, List<InsufficientStockDTO> insufficientStock,
+                             List<Long> missingProductIds) {
+
+        public boolean isComplete() {
+            return missingProductIds.isEmpty();
+        }
+    }
+
+    /**
+     * Resolve and price the given lines.
+     *
+     * @param items       request lines; null is treated as an empty cart
+     * @param rushPricing whether rush-eligible products get the rush surcharge
+     */
+    public PricedCart price(List<CartItemDTO> items, boolean rushPricing) {
+        if (items == null || items.isEmpty()) {
+            return new PricedCart(Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+        }
+
+        // Total requested per product, so duplicated lines are checked against stock together
+        Map<Long, Integer> requested = new LinkedHashMap<>();
+        Set<Long> missing = new LinkedHashSet<>();
+        for (CartItemDTO item : items) {
+            if (item.getProductId() == null) continue;
+            requested.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+
+        Map<Long, Product> products = new HashMap<>();
+        if (!requested.isEmpty()) {
+            for (Product product : productRepository.findByIdIn(requested.keySet())) {
+                products.put(product.getId(), product);
+            }
+        }
+
+        List<InsufficientStockDTO> insufficientStock = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : requested.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product != null && product.getQuantity() < entry.getValue()) {
+                insufficientStock.add(new InsufficientStockDTO(
+                        product.getId(), product.getTitle(), entry.getValue(), product.getQuantity()));
+            }
+        }
+
+        List<PricedLine> lines = new ArrayList<>(items.size());
+        for (CartItemDTO item : items) {
+            Product product = item.getProductId() != null ? products.get(item.getProductId()) : null;
+            if (product == null) {
+                missing.add(item.getProductId());
+                continue;
+            }
+
+            boolean rush = rushPricing && product.isRushOrderEligible();
+            double unitPrice = rush ? product.getCurrentPrice() + RUSH_SURCHARGE : product.getCurrentPrice();
+            boolean inStock = product.getQuantity() >= requested.get(product.getId());
+            lines.add(new PricedLine(product, item.getQuantity(), unitPrice, unitPrice * item.getQuantity(),
+                    rush, inStock));
+        }
+
+        return new PricedCart(lines, insufficientStock, new ArrayList<>(missing));
+    }
+}
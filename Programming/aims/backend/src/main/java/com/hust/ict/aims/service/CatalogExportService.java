@@ -0,0 +1,44 @@
+package com.hust.ict.aims.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+
+// ------------------------------------------------------------
+// COHESION COMMENT:
+// Functional cohesion: the only operation is writing the active catalog out for feed partners.
+//
+// SRP COMMENT:
+// Single Responsibility: streams the catalog and knows when it last changed. How products are stored,
+// cached or mapped to DTOs stays with ProductRepository and ProductDTO.
+// ------------------------------------------------------------
+
+public interface CatalogExportService {
+
+    enum Format {
+        // One JSON array, the same body /api/products/all has always returned
+        JSON,
+        // One ProductDTO per line
+        NDJSON
+    }
+
+    /**
+     * When a product was last inserted, updated, deleted or had its stock changed. Before the first
+     * change it is the time the application started.
+     */
+    Instant getLastModified();
+
+    /**
+     * A strong ETag that changes with every product change, for clients that poll more often than the
+     * one-second resolution of Last-Modified.
+     */
+    String getETag();
+
+    /**
+     * Write every active product, ordered by id, to {@code out} as it is read from the database.
+     * The stream is flushed but not closed.
+     *
+     * @return how many products were written
+     */
+    long export(Format format, OutputStream out) throws IOException;
+}
@@ -0,0 +1,24 @@
+package com.hust.ict.aims.service;
+
+import com.hust.ict.aims.dto.CheckoutRequest;
+import com.hust.ict.aims.model.Orders;
+
+// ------------------------------------------------------------
+// COHESION COMMENT:
+// Functional cohesion: the only operation is turning a checkout request into a placed order.
+//
+// SRP COMMENT:
+// Single Responsibility: orchestrates the checkout steps in one unit of work. Delivery info, invoices,
+// stock and orders are still handled by their own services.
+// ------------------------------------------------------------
+
+public interface CheckoutService {
+    /**
+     * Reserve the stock, save the delivery info, invoice and cart snapshot, and place the order, all in one
+     * transaction: either the whole order exists afterwards or nothing does.
+     *
+     * @throws com.hust.ict.aims.exception.InsufficientStockException if any product is short
+     * @throws IllegalArgumentException if the transaction, invoice or delivery info is missing
+     */
+    Orders checkout(CheckoutRequest request);
+}
@@ -0,0 +1,151 @@
+package com.hust.ict.aims.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Cohesion Level: Functional Cohesion
+ * All members serve one purpose: counting today's product operations for the daily limits.
+ *
+ * Counters are kept per operation type and per (product, operation type) for the current day only, so
+ * every limit check is a map lookup instead of a COUNT over the operation table. Each counter is its own
+ * AtomicInteger in a ConcurrentHashMap, so managers working on different products never contend.
+ * The operation table stays the source of truth: the counters of a day are rebuilt from its rows the
+ * first time that day is used (at startup or after midnight), and the rows are written incrementally by
+ * OperationAuditLog as operations are recorded.
+ */
+@Component
+public class DailyOperationQuota {
+
+    private static final String COUNT_SQL =
+            "SELECT product_id, operation_type, COUNT(*) FROM operation " +
+            "WHERE timestamp >= ? AND timestamp < ? GROUP BY product_id, operation_type";
+
+    private record ProductKey(Long productId, String operationType) {
+    }
+
+    private static final class DayCounters {
+        final LocalDate date;
+        final Map<String, AtomicInteger> byType = new ConcurrentHashMap<>();
+        final Map<ProductKey, AtomicInteger> byProduct = new ConcurrentHashMap<>();
+
+        DayCounters(LocalDate date) {
+            this.date = date;
+        }
+
+        AtomicInteger type(String operationType) {
+            return byType.computeIfAbsent(operationType, t -> new AtomicInteger());
+        }
+
+        AtomicInteger product(Long productId, String operationType) {
+            return byProduct.computeIfAbsent(new ProductKey(productId, operationType), k -> new AtomicInteger());
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile DayCounters day;
+    // Guards loading a day from the table; a ReentrantLock so the query does not pin a virtual thread
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    public DailyOperationQuota(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Count {@code count} operations of this type on the given day if the operations of all
+     * {@code limitedTypes} together stay within {@code limit}. Nothing is counted when they would not.
+     */
+    public boolean tryAcquire(String operationType, LocalDate date, int count,
+                              Collection<String> limitedTypes, int limit) {
+        DayCounters counters = countersFor(date);
+        // The check spans several counters, so it is made atomic per day; these are rare manager writes
+        synchronized (counters) {
+            int used = 0;
+            for (String type : limitedTypes) {
+                used += counters.type(type).get();
+            }
+            if (used + count > limit) {
+                return false;
+            }
+            counters.type(operationType).addAndGet(count);
+            return true;
+        }
+    }
+
+    /**
+     * Give back operations counted by tryAcquire for an operation that did not happen.
+     */
+    public void release(String operationType, LocalDate date, int count) {
+        DayCounters counters = day;
+        if (counters == null || !counters.date.equals(date)) {
+            return; // that day is over, its counters are gone
+        }
+        synchronized (counters) {
+            counters.type(operationType).addAndGet(-count);
+        }
+    }
+
+    /**
+     * Count an operation that was performed on a product today.
+     */
+    public void recordProductOperation(Long productId, String operationType) {
+        if (productId == null) return;
+        countersFor(LocalDate.now()).product(productId, operationType).incrementAndGet();
+    }
+
+    public int count(String operationType, LocalDate date) {
+        AtomicInteger counter = countersFor(date).byType.get(operationType);
+        return counter != null ? counter.get() : 0;
+    }
+
+    public int count(Long productId, String operationType, LocalDate date) {
+        AtomicInteger counter = countersFor(date).byProduct.get(new ProductKey(productId, operationType));
+        return counter != null ? counter.get() : 0;
+    }
+
+    private DayCounters countersFor(LocalDate date) {
+        DayCounters counters = day;
+        if (counters != null && counters.date.equals(date)) {
+            return counters;
+        }
+        loadLock.lock();
+        try {
+            counters = day;
+            if (counters == null || counters.date.isBefore(date)) {
+                counters = load(date);
+                day = counters;
+            }
+        } finally {
+            loadLock.unlock();
+        }
+        if (!counters.date.equals(date)) {
+            // A date that is no longer current: answer from the table without replacing today
+            return load(date);
+        }
+        return counters;
+    }
+
+    private DayCounters load(LocalDate date) {
+        DayCounters counters = new DayCounters(date);
+        jdbcTemplate.query(COUNT_SQL, (RowCallbackHandler) rs -> {
+            long productId = rs.getLong(1);
+            boolean hasProduct = !rs.wasNull();
+            String operationType = rs.getString(2);
+            int count = rs.getInt(3);
+            counters.type(operationType).addAndGet(count);
+            if (hasProduct) {
+                counters.product(productId, operationType).addAndGet(count);
+            }
+        }, Timestamp.valueOf(date.atStartOfDay()), Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
+        return counters;
+    }
+}
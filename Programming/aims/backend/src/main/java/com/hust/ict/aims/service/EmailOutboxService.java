@@ -0,0 +1,54 @@
+package com.hust.ict.aims.service;
+
+import com.hust.ict.aims.model.DeliveryInfo;
+import com.hust.ict.aims.model.OutboxEmail;
+import com.hust.ict.aims.model.Orders;
+import com.hust.ict.aims.repository.OutboxEmailRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.stereotype.Service;
+
+/*
+ * Cohesion Level: Functional Cohesion
+ * All members serve one purpose: putting emails into the outbox.
+ *
+ * Enqueuing is a plain insert in the caller's transaction, so an order confirmation exists exactly when
+ * its order was committed; EmailOutboxDispatcher delivers it later. Checkout never waits for SMTP.
+ */
+@Service
+public class EmailOutboxService {
+
+    public static final String ORDER_CONFIRMATION_TEMPLATE = "mail/order_confirmation";
+    private static final String ORDER_CONFIRMATION_SUBJECT = "Xác nhận đơn hàng AIMS #";
+
+    private final OutboxEmailRepository outboxEmailRepository;
+
+    public EmailOutboxService(OutboxEmailRepository outboxEmailRepository) {
+        this.outboxEmailRepository = outboxEmailRepository;
+    }
+
+    /**
+     * Queue the confirmation of a saved order. Must run inside the transaction that saves the order.
+     * Orders without a delivery email get no confirmation.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void enqueueOrderConfirmation(Orders order) {
+        DeliveryInfo deliveryInfo = order.getDeliveryInfo();
+        if (deliveryInfo == null || deliveryInfo.getEmail() == null || deliveryInfo.getEmail().isBlank()) {
+            return;
+        }
+        outboxEmailRepository.save(new OutboxEmail(order.getId(), deliveryInfo.getEmail(),
+                ORDER_CONFIRMATION_SUBJECT + order.getId(), ORDER_CONFIRMATION_TEMPLATE, null));
+    }
+
+    /**
+     * Queue a plain-text email.
+     */
+    @Transactional
+    public OutboxEmail enqueue(String recipient, String subject, String body) {
+        return outboxEmailRepository.save(new OutboxEmail(null, recipient, subject, null, body));
+    }
+
+    public long countPending() {
+        return outboxEmailRepository.countByStatus(OutboxEmail.PENDING);
+    }
+}
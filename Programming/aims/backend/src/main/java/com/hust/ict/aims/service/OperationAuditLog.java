@@ -0,0 +1,291 @@
+package com.hust.ict.aims.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Cohesion Level: Functional Cohesion
+ * All members serve one purpose: getting product operation records into the operation table.
+ *
+ * Product writes only enqueue an entry into a bounded buffer; a single writer thread drains it and
+ * inserts the rows with one JDBC batch per flush. Entries leave the buffer in the order they were
+ * recorded and only one flush runs at a time, so the rows of a product are always inserted in order.
+ * When the buffer is full the caller waits briefly and then writes its own entry synchronously, so
+ * records are never dropped. A batch that fails to insert is held outside the buffer and retried before
+ * anything newer is drained, so a database outage fills the buffer rather than losing records. Entries
+ * not yet inserted are counted by pendingCount so the daily limits still see them.
+ */
+@Component
+public class OperationAuditLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(OperationAuditLog.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO operation (product_id, operation_type, timestamp) VALUES (?, ?, ?)";
+
+    /**
+     * One operation waiting to be inserted.
+     */
+    public record Entry(Long productId, String operationType, LocalDateTime timestamp) {
+
+        boolean matches(Long productId, String operationType, LocalDateTime startTime, LocalDateTime endTime) {
+            return (productId == null || productId.equals(this.productId))
+                    && this.operationType.equals(operationType)
+                    && !timestamp.isBefore(startTime) && !timestamp.isAfter(endTime);
+        }
+    }
+
+    /**
+     * Backpressure counters of the buffer.
+     *
+     * @param blockedOffers entries whose caller had to wait for room in the buffer
+     * @param directWrites  entries written synchronously because the buffer stayed full
+     */
+    public record Stats(int queued, int capacity, int maxQueued, long recorded, long flushed, long batches,
+                        long blockedOffers, long directWrites, long failedBatches, long lastFlushMillis) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<Entry> queue;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+
+    // Held while a batch is drained and inserted, so batches are written one after another
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile List<Entry> inFlight = Collections.emptyList();
+    // The batch whose insert failed, written before anything still in the queue; changed under flushLock
+    private volatile List<Entry> retry = Collections.emptyList();
+
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong blockedOffers = new AtomicLong();
+    private final AtomicLong directWrites = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private volatile int maxQueued;
+    private volatile long lastFlushMillis;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public OperationAuditLog(JdbcTemplate jdbcTemplate,
+                             @Value("${aims.audit.capacity:10000}") int capacity,
+                             @Value("${aims.audit.batch-size:200}") int batchSize,
+                             @Value("${aims.audit.flush-interval-ms:200}") long flushIntervalMillis,
+                             @Value("${aims.audit.offer-timeout-ms:50}") long offerTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::runWriter, "operation-audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stop the writer and insert everything still buffered before the datasource goes away.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        while (!queue.isEmpty() || !retry.isEmpty()) {
+            if (!flush()) {
+                logger.error("Dropping {} operation records on shutdown, database unavailable",
+                        queue.size() + retry.size());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Record an operation on a product, timestamped now.
+     */
+    public void record(Long productId, String operationType) {
+        Entry entry = new Entry(productId, operationType, LocalDateTime.now());
+        recorded.incrementAndGet();
+
+        if (!queue.offer(entry)) {
+            blockedOffers.incrementAndGet();
+            boolean accepted = false;
+            try {
+                accepted = queue.offer(entry, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!accepted) {
+                // Still full: write behind whatever is buffered, keeping the order of this product
+                directWrites.incrementAndGet();
+                flushLock.lock();
+                try {
+                    flushLocked();
+                    insert(List.of(entry));
+                } finally {
+                    flushLock.unlock();
+                }
+                return;
+            }
+        }
+
+        int size = queue.size();
+        if (size > maxQueued) {
+            maxQueued = size;
+        }
+    }
+
+    /**
+     * Number of recorded operations matching the filter that are not in the operation table yet.
+     * Approximate at batch boundaries: a batch that was just committed may be counted a second time
+     * for a moment, and one being handed to the writer may be missed for an instant.
+     */
+    public long pendingCount(Long productId, String operationType, LocalDateTime startTime, LocalDateTime endTime) {
+        long count = 0;
+        for (Entry entry : inFlight) {
+            if (entry.matches(productId, operationType, startTime, endTime)) count++;
+        }
+        for (Entry entry : retry) {
+            if (entry.matches(productId, operationType, startTime, endTime)) count++;
+        }
+        for (Entry entry : queue) {
+            if (entry.matches(productId, operationType, startTime, endTime)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Insert everything buffered so far on the calling thread.
+     *
+     * @return false if a batch could not be written and was put back
+     */
+    public boolean flush() {
+        flushLock.lock();
+        try {
+            return flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(queue.size() + retry.size(), capacity, maxQueued, recorded.get(), flushed.get(), batches.get(),
+                blockedOffers.get(), directWrites.get(), failedBatches.get(), lastFlushMillis);
+    }
+
+    private void runWriter() {
+        long backoff = flushIntervalMillis;
+        while (running) {
+            try {
+                // A failed batch is retried without waiting for new entries
+                Entry first = retry.isEmpty() ? queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS) : null;
+                if (first == null && retry.isEmpty()) continue;
+
+                flushLock.lock();
+                try {
+                    if (writeRetry()) {
+                        List<Entry> batch = new ArrayList<>(batchSize);
+                        if (first != null) batch.add(first);
+                        queue.drainTo(batch, batchSize - batch.size());
+                        if (write(batch)) {
+                            backoff = flushIntervalMillis;
+                            continue;
+                        }
+                    } else if (first != null) {
+                        // Another flush failed after this entry was polled: it is newer than that batch
+                        List<Entry> held = new ArrayList<>(retry);
+                        held.add(first);
+                        retry = held;
+                    }
+                } finally {
+                    flushLock.unlock();
+                }
+                // Database unavailable: wait a bit longer before each retry
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                if (!running) return;
+            }
+        }
+    }
+
+    private boolean flushLocked() {
+        if (!writeRetry()) {
+            return false;
+        }
+        while (!queue.isEmpty()) {
+            List<Entry> batch = new ArrayList<>(batchSize);
+            queue.drainTo(batch, batchSize);
+            if (!write(batch)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Caller holds flushLock
+    private boolean writeRetry() {
+        List<Entry> batch = retry;
+        retry = Collections.emptyList();
+        return write(batch);
+    }
+
+    // Caller holds flushLock. On failure the batch is kept ahead of newer entries for the next attempt.
+    private boolean write(List<Entry> batch) {
+        if (batch.isEmpty()) return true;
+        inFlight = batch;
+        try {
+            insert(batch);
+            return true;
+        } catch (RuntimeException e) {
+            failedBatches.incrementAndGet();
+            logger.warn("Failed to write {} operation records, will retry: {}", batch.size(), e.getMessage());
+            retry = batch;
+            return false;
+        } finally {
+            inFlight = Collections.emptyList();
+        }
+    }
+
+    private void insert(List<Entry> batch) {
+        long start = System.currentTimeMillis();
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, entry) -> {
+            ps.setObject(1, entry.productId());
+            ps.setString(2, entry.operationType());
+            ps.setTimestamp(3, Timestamp.valueOf(entry.timestamp()));
+        });
+        lastFlushMillis = System.currentTimeMillis() - start;
+        flushed.addAndGet(batch.size());
+        batches.incrementAndGet();
+    }
+}
@@ -4,9 +4,14 @@ import com.hust.ict.aims.model.Operation;
 import java.util.List;
 import java.time.LocalDateTime;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 public interface OperationService {
     Operation save(Operation operation);
+
+    // Audit record of a product write; buffered and inserted in batches, in order per product
+    void record(Long productId, String operationType);
+    OperationAuditLog.Stats getAuditStats();
     Operation findById(Long id);
     List<Operation> findAll();
     Operation update(Long id, Operation operation);
@@ -18,5 +23,10 @@ public interface OperationService {
     // ADD THESE NEW METHODS
     List<Operation> findAllOrderByTimestamp();
     Page<Operation> findOperationsWithFilters(String search, String operationType, int page, int size);
+    // Offset page without the COUNT query
+    Slice<Operation> findOperationsSlice(String search, String operationType, int page, int size);
+    // Keyset page: operations older than the (timestamp, id) of the last row already returned
+    Slice<Operation> findOperationsAfter(String search, String operationType,
+                                         LocalDateTime afterTimestamp, Long afterId, int size);
     List<Operation> findByProductId(Long productId);
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.hust.ict.aims.service;
 
 import com.hust.ict.aims.model.Orders;
+import java.util.Collection;
 import java.util.List;
 
 // ------------------------------------------------------------
@@ -16,7 +17,16 @@ import java.util.List;
 public interface OrderService {
     List<Orders> findAll();
     Orders findById(Long id);
+    /**
+     * Load the orders with the given ids, with everything they are printed with, in one query.
+     * Ids without an order are left out.
+     */
+    List<Orders> findAllById(Collection<Long> ids);
     Orders save(Orders order);
+    /**
+     * Save a new order from checkout and queue its confirmation email in the same transaction
+     */
+    Orders placeOrder(Orders order);
     void deleteById(Long id);
     Orders updateOrderStatus(Long id, String status);
     /**
@@ -0,0 +1,158 @@
+package com.hust.ict.aims.service;
+
+import com.hust.ict.aims.model.*;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Cohesion Level: Functional Cohesion
+ * All members serve one purpose: inserting new products with plain JDBC batches.
+ *
+ * Product is mapped JOINED, so one product is a row in product plus a row in its subtype table (and in
+ * music_disc for CDs and LPs). Hibernate inserts those one product at a time, because the IDENTITY id of
+ * the product row has to be read back before the subtype row can be written. Here all product rows of a
+ * batch go in one JDBC batch that returns the generated ids, then each subtype table gets one batch. The
+ * caller owns the transaction and publishes the product changes; the column lists must follow the entity
+ * mappings.
+ */
+@Component
+public class ProductBatchInserter {
+
+    private static final String INSERT_PRODUCT =
+            "INSERT INTO product (product_type, title, category, value, current_price, product_description, " +
+            "barcode, quantity, warehouse_entry_date, product_dimensions, weight, imageurl, rush_order_eligible, " +
+            "deleted) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, false)";
+    private static final String INSERT_BOOK =
+            "INSERT INTO book (product_id, author, covertype, publisher, language, number_of_page, " +
+            "publication_date, genre) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_MUSIC_DISC =
+            "INSERT INTO music_disc (product_id, album, artist, recordlabel, releasedate, tracklist, genre) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_CD = "INSERT INTO cd (product_id) VALUES (?)";
+    private static final String INSERT_LP = "INSERT INTO lp (product_id) VALUES (?)";
+    private static final String INSERT_DVD =
+            "INSERT INTO dvd (product_id, release_date, subtitle, language, studio, runtime, disc_type, director, " +
+            "genre) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductBatchInserter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insert new products, none of which has an id yet, and set the generated ids on them.
+     * Must run inside a transaction, so a failed batch leaves no product without its subtype row.
+     */
+    public void insert(List<? extends Product> products) {
+        if (products.isEmpty()) return;
+
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_PRODUCT, new String[]{"product_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        setProductRow(ps, products.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return products.size();
+                    }
+                },
+                keys);
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        if (generated.size() != products.size()) {
+            throw new IncorrectResultSizeDataAccessException("Generated product ids", products.size(),
+                    generated.size());
+        }
+        for (int i = 0; i < products.size(); i++) {
+            // The only generated column asked for, whatever case the driver reports its name in
+            products.get(i).setId(((Number) generated.get(i).values().iterator().next()).longValue());
+        }
+
+        insertRows(INSERT_BOOK, products, Book.class, (ps, book) -> {
+            ps.setLong(1, book.getId());
+            ps.setString(2, book.getAuthor());
+            ps.setString(3, book.getCoverType());
+            ps.setString(4, book.getPublisher());
+            ps.setString(5, book.getLanguage());
+            ps.setInt(6, book.getNumberOfPage());
+            setDate(ps, 7, book.getPublicationDate());
+            ps.setString(8, book.getGenre());
+        });
+        insertRows(INSERT_MUSIC_DISC, products, MusicDisc.class, (ps, disc) -> {
+            ps.setLong(1, disc.getId());
+            ps.setString(2, disc.getAlbum());
+            ps.setString(3, disc.getArtist());
+            ps.setString(4, disc.getRecordLabel());
+            setDate(ps, 5, disc.getReleaseDate());
+            ps.setString(6, disc.getTracklist());
+            ps.setString(7, disc.getGenre());
+        });
+        insertRows(INSERT_CD, products, CD.class, (ps, cd) -> ps.setLong(1, cd.getId()));
+        insertRows(INSERT_LP, products, LP.class, (ps, lp) -> ps.setLong(1, lp.getId()));
+        insertRows(INSERT_DVD, products, DVD.class, (ps, dvd) -> {
+            ps.setLong(1, dvd.getId());
+            setDate(ps, 2, dvd.getReleaseDate());
+            ps.setString(3, dvd.getSubtitle());
+            ps.setString(4, dvd.getLanguage());
+            ps.setString(5, dvd.getStudio());
+            ps.setString(6, dvd.getRuntime());
+            ps.setString(7, dvd.getDiscType());
+            ps.setString(8, dvd.getDirector());
+            ps.setString(9, dvd.getGenre());
+        });
+    }
+
+    private static void setProductRow(PreparedStatement ps, Product product) throws SQLException {
+        ps.setString(1, productType(product));
+        ps.setString(2, product.getTitle());
+        ps.setString(3, product.getCategory());
+        ps.setFloat(4, product.getValue());
+        ps.setFloat(5, product.getCurrentPrice());
+        ps.setString(6, product.getProductDescription());
+        ps.setString(7, product.getBarcode());
+        ps.setInt(8, product.getQuantity());
+        setDate(ps, 9, product.getWarehouseEntryDate());
+        ps.setString(10, product.getProductDimensions());
+        ps.setFloat(11, product.getWeight());
+        ps.setString(12, product.getImageURL());
+        ps.setBoolean(13, product.isRushOrderEligible());
+    }
+
+    // The @DiscriminatorValue of each subtype
+    private static String productType(Product product) {
+        if (product instanceof Book) return "BOOK";
+        if (product instanceof CD) return "CD";
+        if (product instanceof LP) return "LP";
+        if (product instanceof DVD) return "DVD";
+        throw new IllegalArgumentException("Cannot import a " + product.getClass().getSimpleName());
+    }
+
+    private <T extends Product> void insertRows(String sql, List<? extends Product> products, Class<T> type,
+                                                ParameterizedPreparedStatementSetter<T> setter) {
+        List<T> rows = products.stream().filter(type::isInstance).map(type::cast).toList();
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows, rows.size(), setter);
+        }
+    }
+
+    private static void setDate(PreparedStatement ps, int index, LocalDate date) throws SQLException {
+        ps.setObject(index, date, Types.DATE);
+    }
+}
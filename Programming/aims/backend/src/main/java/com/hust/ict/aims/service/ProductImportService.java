@@ -0,0 +1,65 @@
+package com.hust.ict.aims.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+// ------------------------------------------------------------
+// COHESION COMMENT:
+// Functional cohesion: the only operation is adding many products from one uploaded file.
+//
+// SRP COMMENT:
+// Single Responsibility: reads the file, validates and inserts its rows in batches and reports on the
+// job. Building products and the rules they must follow stay with ProductFactory and the validation
+// strategies, the SQL with ProductBatchInserter.
+// ------------------------------------------------------------
+
+public interface ProductImportService {
+
+    enum Format {
+        // Header row of ProductCreateRequest property names, then one product per row
+        CSV,
+        // One ProductCreateRequest per line
+        NDJSON
+    }
+
+    enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    /**
+     * A row that was not imported.
+     *
+     * @param line    line of the file the row starts on
+     * @param barcode barcode of the row, when it could be read
+     */
+    record RowError(long line, String barcode, List<String> errors) {
+    }
+
+    /**
+     * Progress of an import job. {@code errors} keeps the first rejected rows only; {@code rejected}
+     * counts all of them.
+     *
+     * @param failure why the job stopped before the end of the file, for a FAILED job
+     */
+    record JobStatus(String jobId, State state, long rowsRead, long imported, long rejected, int batches,
+                     List<RowError> errors, boolean errorsTruncated, String failure,
+                     Instant submittedAt, Instant finishedAt) {
+    }
+
+    /**
+     * Copy {@code body} to a temporary file and import it in the background.
+     *
+     * @return the status of the queued job
+     * @throws IOException if the body cannot be read or stored
+     * @throws org.springframework.web.server.ResponseStatusException 503 when too many imports are running
+     */
+    JobStatus submit(Format format, InputStream body) throws IOException;
+
+    Optional<JobStatus> getStatus(String jobId);
+}
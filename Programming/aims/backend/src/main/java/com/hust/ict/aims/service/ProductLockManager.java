@@ -0,0 +1,129 @@
+package com.hust.ict.aims.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Cohesion Level: Functional Cohesion
+ * All members serve one purpose: serializing writes to the same product.
+ *
+ * A fixed pool of ReentrantLocks; a product id always maps to the same stripe, so two managers only wait
+ * for each other when they edit the same product (or, rarely, two products sharing a stripe). Several
+ * products are locked stripe by stripe in ascending stripe order, so two bulk operations can never hold
+ * locks the other is waiting for.
+ */
+@Component
+public class ProductLockManager {
+
+    /**
+     * Lock counters since startup.
+     *
+     * @param contended acquisitions that had to wait for another holder
+     * @param timeouts  acquisitions given up after the timeout
+     */
+    public record Stats(int stripes, long acquired, long contended, long timeouts,
+                        long totalWaitMillis, long maxWaitMillis) {
+    }
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong contended = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public ProductLockManager(@Value("${aims.locks.stripes:256}") int stripeCount) {
+        // Round up to a power of two so the stripe is a mask of the hash
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Lock all given products, waiting at most {@code timeoutMillis} in total.
+     *
+     * @return false if the locks could not be taken in time; nothing is held then
+     */
+    public boolean tryLock(Collection<Long> productIds, long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        TreeSet<Integer> held = new TreeSet<>();
+        for (int stripe : stripesOf(productIds)) {
+            if (!lockStripe(stripe, deadline)) {
+                unlockStripes(held);
+                return false;
+            }
+            held.add(stripe);
+        }
+        return true;
+    }
+
+    /**
+     * Release the locks taken by a successful {@link #tryLock} for the same products.
+     */
+    public void unlock(Collection<Long> productIds) {
+        unlockStripes(stripesOf(productIds));
+    }
+
+    public Stats getStats() {
+        return new Stats(stripes.length, acquired.get(), contended.get(), timeouts.get(),
+                TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get()),
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+    }
+
+    private boolean lockStripe(int stripe, long deadline) {
+        ReentrantLock lock = stripes[stripe];
+        if (lock.tryLock()) {
+            acquired.incrementAndGet();
+            return true;
+        }
+
+        contended.incrementAndGet();
+        long start = System.nanoTime();
+        boolean locked = false;
+        try {
+            locked = lock.tryLock(Math.max(0, deadline - start), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        if (locked) {
+            acquired.incrementAndGet();
+        } else {
+            timeouts.incrementAndGet();
+        }
+        return locked;
+    }
+
+    private void unlockStripes(TreeSet<Integer> held) {
+        for (int stripe : held.descendingSet()) {
+            ReentrantLock lock = stripes[stripe];
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Distinct stripes in ascending order, the global lock order
+    private TreeSet<Integer> stripesOf(Collection<Long> productIds) {
+        TreeSet<Integer> result = new TreeSet<>();
+        for (Long productId : productIds) {
+            if (productId == null) continue;
+            int h = productId.hashCode();
+            result.add((h ^ (h >>> 16)) & mask);
+        }
+        return result;
+    }
+}
@@ -1,6 +1,5 @@
 package com.hust.ict.aims.service;
 
-import com.hust.ict.aims.model.Operation;
 import com.hust.ict.aims.model.Product;
 import com.hust.ict.aims.validation.ProductValidationContext;
 import com.hust.ict.aims.validation.ValidationResult;
@@ -10,6 +9,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Component
 public abstract class ProductOperationTemplate {
@@ -28,27 +28,39 @@ public abstract class ProductOperationTemplate {
     
     // Template method
     public final Product executeOperation(Product product, String operationType) {
+        // Step 1: Lock the product being written (a new product has no id yet and needs no lock)
+        List<Long> lockedIds = product.getId() != null ? List.of(product.getId()) : List.of();
+        businessRulesService.acquireOperationLock(operationType, lockedIds);
+        
+        LocalDateTime startedAt = LocalDateTime.now();
+        boolean counted = false;
+        boolean performed = false;
         try {
-            // Step 1: Acquire operation lock (if needed)
-            businessRulesService.acquireOperationLock(operationType);
+            // Step 2: Count the operation against the daily limits
+            businessRulesService.validateDailyOperationLimits(operationType, startedAt);
+            counted = true;
             
-            // Step 2: Validate business rules
+            // Step 3: Validate business rules
             validateBusinessRules(product, operationType);
             
-            // Step 3: Validate product information
+            // Step 4: Validate product information
             validateProduct(product);
             
-            // Step 4: Perform the actual operation
+            // Step 5: Perform the actual operation
             Product result = performOperation(product);
+            performed = true;
             
-            // Step 5: Log the operation
+            // Step 6: Log the operation
             logOperation(result, operationType);
             
             return result;
             
         } finally {
-            // Step 6: Release operation lock
-            businessRulesService.releaseOperationLock(operationType);
+            // Step 7: Give the daily slot back if the operation did not happen, then release the lock
+            if (counted && !performed) {
+                businessRulesService.releaseDailyOperation(operationType, startedAt, 1);
+            }
+            businessRulesService.releaseOperationLock(operationType, lockedIds);
         }
     }
     
@@ -57,7 +69,7 @@ public abstract class ProductOperationTemplate {
     
     // Template methods with default implementations
     protected void validateBusinessRules(Product product, String operationType) {
-        businessRulesService.validateDailyOperationLimits(operationType, LocalDateTime.now());
+        // Daily limits are checked by executeOperation; subclasses add their own rules
     }
     
     protected void validateProduct(Product product) {
@@ -75,11 +87,8 @@ public abstract class ProductOperationTemplate {
     }
     
     protected void logOperation(Product product, String operationType) {
-        Operation op = new Operation();
-        op.setProduct(product);
-        op.setOperationType(operationType);
-        op.setTimestamp(LocalDateTime.now());
-        operationService.save(op);
+        // Buffered, so the operation lock is not held for a second insert
+        operationService.record(product.getId(), operationType);
     }
     
     // Existing basic validation logic
@@ -1,12 +1,17 @@
 package com.hust.ict.aims.service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import com.hust.ict.aims.dto.ProductDTO;
+import com.hust.ict.aims.dto.ProductStockDTO;
 import com.hust.ict.aims.model.Product;
+import com.hust.ict.aims.search.ProductSearchResult;
+import com.hust.ict.aims.utils.PageCursor;
 import org.springframework.stereotype.Service;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 /* Cohesion Level: Functional Cohesion
  * Exhibits functional cohesion as all members contribute to the single responsibility of representing a product. The class manages product attributes like ID, title, price, and quantity, with all methods directly related to these attributes.
@@ -16,9 +21,19 @@ import org.springframework.data.domain.Page;
 public interface ProductService {
     Product save(Product product);
     Product findById(Long id);
+
+    // Id, title and stock of the given products in one query, from the product table only
+    List<ProductStockDTO> findStockByIds(Collection<Long> ids);
     List<Product> findAll();
+    // Active products only, like the listing pages
     long countProducts();
     Page<Product> getProducts(int page, int size);
+
+    // getProducts without the total: reads one row past the page instead of running a COUNT
+    Slice<Product> getProductsSlice(int page, int size);
+
+    // Keyset variant of getProducts: the next {@code size} products with id > afterId, without a count
+    Slice<Product> getProductsAfter(Long afterId, int size);
     Product update(Long id, Product product);
     void softDelete(Long id);
     void hardDelete(Long id); // For admin use only
@@ -27,8 +42,27 @@ public interface ProductService {
     Page<Product> searchProductsWithFilters(String search, String category, String productType, 
                                           Double minPrice, Double maxPrice, String sortBy, 
                                           String sortDirection, int page, int size);
+
+    // Same search served from the in-memory index, with category/productType facet counts
+    ProductSearchResult searchProducts(String search, String category, String productType,
+                                       Double minPrice, Double maxPrice, String sortBy,
+                                       String sortDirection, int page, int size);
+
+    // Keyset variant of searchProducts, continuing after the cursor of a previous result
+    ProductSearchResult searchProductsAfter(String search, String category, String productType,
+                                            Double minPrice, Double maxPrice, String sortBy,
+                                            String sortDirection, PageCursor after, int size);
     
-    // Random product method
+    // How getRandomPage picks its products (aims.random.sampler)
+    enum RandomSampling {
+        // Every set of active products equally likely: ids drawn from RandomFeedIndex, then one IN query
+        UNIFORM,
+        // A run of consecutive ids from a random pivot in [min id, max id]; needs no id index, but a
+        // product right after a gap of deleted ids comes up more often
+        PIVOT
+    }
+
+    // Random product method: at most {@code size} random active products, reading only those rows
     List<Product> getRandomPage(int size);
     
     // New paginated random method
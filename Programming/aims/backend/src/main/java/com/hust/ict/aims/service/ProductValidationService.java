@@ -1,27 +1,26 @@
 package com.hust.ict.aims.service;
 
 import com.hust.ict.aims.model.Product;
-import com.hust.ict.aims.validation.ProductValidationStrategy;
+import com.hust.ict.aims.validation.ProductValidationContext;
+import com.hust.ict.aims.validation.ValidationResult;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.List;
-
 @Service
 public class ProductValidationService {
-    
+
+    // Picks the strategy of the product's exact type, falling back to the base product rules
     @Autowired
-    private List<ProductValidationStrategy> strategies;
-    
+    private ProductValidationContext validationContext;
+
     public void validateProductInformation(Product product) {
-        ProductValidationStrategy strategy = strategies.stream()
-            .filter(s -> s.supports(product))
-            .findFirst()
-            .orElseThrow(() -> new ResponseStatusException(
-                HttpStatus.BAD_REQUEST, "No validation strategy found for product type"));
-        
-        strategy.validate(product);
+        ValidationResult result = validationContext.validate(product);
+        if (!result.isValid()) {
+            throw new ResponseStatusException(
+                HttpStatus.BAD_REQUEST,
+                "Product validation failed: " + String.join(", ", result.getErrors()));
+        }
     }
-}
\ No newline at end of file
+}
@@ -9,6 +9,7 @@ public interface RushOrderService {
     List<RushOrder> findAll();
     RushOrder findById(Long id);
     RushOrder save(RushOrder rushOrder);
+    RushOrder placeOrder(RushOrder rushOrder);
     void deleteById(Long id);
     boolean isSupportedAddress(DeliveryInfoDTO deliveryInfoDTO);
     boolean isAnySupportedItem(CartRequestDTO cartRequestDTO);
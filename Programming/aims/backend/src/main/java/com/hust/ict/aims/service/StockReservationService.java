@@ -0,0 +1,48 @@
+package com.hust.ict.aims.service;
+
+import com.hust.ict.aims.dto.CheckoutRequest;
+import com.hust.ict.aims.model.StockHold;
+
+import java.util.List;
+import java.util.Map;
+
+/* Cohesion Level: Functional Cohesion
+ * Every method manages the lifecycle of stock holds: take, confirm, release and expire.
+ *
+ * SRP: Compliant
+ * Stock is only ever changed here through conditional UPDATEs; pricing and order creation stay in their
+ * own services.
+ */
+public interface StockReservationService {
+
+    /**
+     * Atomically hold stock for every product in {@code quantities} (product id -> units) under
+     * {@code reference}, replacing any active holds for that reference. All or nothing.
+     *
+     * @throws com.hust.ict.aims.exception.InsufficientStockException if any product is short
+     */
+    List<StockHold> hold(String reference, Map<Long, Integer> quantities);
+
+    // Hold the current content of a persisted cart, e.g. when the customer proceeds to payment
+    List<StockHold> holdCart(Long cartId);
+
+    /**
+     * Reserve the whole cart of a checkout: confirms the matching cart holds if the customer took them,
+     * otherwise holds and confirms in one step. This is the only point where an order takes stock.
+     *
+     * @return the reference the order's confirmed holds are kept under, or null if the cart is empty
+     */
+    String reserveForCheckout(CheckoutRequest request);
+
+    void confirm(String reference);
+
+    // Return the units of all held and confirmed holds for the reference, e.g. when its order is rejected
+    void release(String reference);
+
+    // Release holds whose time ran out; returns the number of holds released
+    int releaseExpired();
+
+    static String cartReference(Long cartId) {
+        return "cart-" + cartId;
+    }
+}
@@ -1,25 +1,29 @@
 package com.hust.ict.aims.service;
 
 import com.hust.ict.aims.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.time.LocalDateTime;
+import java.time.LocalDate;
 
 @Component
 public class UpdateProductOperation extends ProductOperationTemplate {
     
-    private Long productId;
+    @Autowired
+    private DailyOperationQuota dailyOperationQuota;
     
-    public UpdateProductOperation setProductId(Long productId) {
-        this.productId = productId;
-        return this;
+    // Shared bean: the id travels on the product, so concurrent updates of different products do not mix
+    public Product update(Long productId, Product product) {
+        product.setId(productId);
+        return executeOperation(product, "UPDATE_PRODUCT");
     }
     
     @Override
     protected void validateBusinessRules(Product product, String operationType) {
         super.validateBusinessRules(product, operationType);
+        Long productId = product.getId();
         
         // Check if product exists
         Product existingProduct = productService.findById(productId);
@@ -38,7 +42,6 @@ public class UpdateProductOperation extends ProductOperationTemplate {
     
     @Override
     protected Product performOperation(Product product) {
-        product.setId(productId);
         return productService.save(product);
     }
     
@@ -55,11 +58,7 @@ public class UpdateProductOperation extends ProductOperationTemplate {
     }
 
     private void validatePriceUpdateFrequency(Long productId) {
-        LocalDateTime startOfDay = LocalDateTime.now().toLocalDate().atStartOfDay();
-        LocalDateTime endOfDay = startOfDay.plusDays(1).minusNanos(1);
-
-        long updateCount = operationService.countByProductIdAndOperationTypeAndTimestampBetween(
-                productId, "UPDATE_PRODUCT", startOfDay, endOfDay);
+        int updateCount = dailyOperationQuota.count(productId, "UPDATE_PRODUCT", LocalDate.now());
 
         if (updateCount >= 2) {
             throw new ResponseStatusException(
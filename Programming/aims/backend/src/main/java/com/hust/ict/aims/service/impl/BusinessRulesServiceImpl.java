@@ -1,47 +1,50 @@
 package com.hust.ict.aims.service.impl;
 
 import com.hust.ict.aims.service.BusinessRulesService;
-import com.hust.ict.aims.service.OperationService;
+import com.hust.ict.aims.service.DailyOperationQuota;
+import com.hust.ict.aims.service.ProductLockManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Collection;
+import java.util.List;
 
 @Service
 public class BusinessRulesServiceImpl implements BusinessRulesService {
     
-    private final OperationService operationService;
-    private final ConcurrentHashMap<String, ReentrantLock> operationLocks;
+    private final DailyOperationQuota dailyOperationQuota;
+    private final ProductLockManager productLockManager;
+    private final long lockTimeoutMillis;
     
     // Business rule constants
     private static final int MAX_DAILY_UPDATES_DELETES = 30;
     private static final int MAX_BULK_DELETE = 10;
+    private static final List<String> LIMITED_OPERATIONS = List.of("UPDATE_PRODUCT", "DELETE_PRODUCT");
     
     @Autowired
-    public BusinessRulesServiceImpl(OperationService operationService) {
-        this.operationService = operationService;
-        this.operationLocks = new ConcurrentHashMap<>();
-        // Initialize locks for different operation types
-        operationLocks.put("ADD_PRODUCT", new ReentrantLock());
-        operationLocks.put("UPDATE_PRODUCT", new ReentrantLock());
+    public BusinessRulesServiceImpl(DailyOperationQuota dailyOperationQuota,
+                                    ProductLockManager productLockManager,
+                                    @Value("${aims.locks.timeout-ms:2000}") long lockTimeoutMillis) {
+        this.dailyOperationQuota = dailyOperationQuota;
+        this.productLockManager = productLockManager;
+        this.lockTimeoutMillis = lockTimeoutMillis;
     }
     
     @Override
     public void validateDailyOperationLimits(String operationType, LocalDateTime date) {
-        if ("UPDATE_PRODUCT".equals(operationType) || "DELETE_PRODUCT".equals(operationType)) {
-            LocalDateTime startOfDay = date.toLocalDate().atStartOfDay();
-            LocalDateTime endOfDay = startOfDay.plusDays(1).minusNanos(1);
-            
-            long updateCount = operationService.countByProductIdAndOperationTypeAndTimestampBetween(
-                    null, "UPDATE_PRODUCT", startOfDay, endOfDay);
-            long deleteCount = operationService.countByProductIdAndOperationTypeAndTimestampBetween(
-                    null, "DELETE_PRODUCT", startOfDay, endOfDay);
-            
-            if (updateCount + deleteCount >= MAX_DAILY_UPDATES_DELETES) {
+        validateDailyOperationLimits(operationType, date, 1);
+    }
+
+    @Override
+    public void validateDailyOperationLimits(String operationType, LocalDateTime date, int count) {
+        if (LIMITED_OPERATIONS.contains(operationType)) {
+            // Check and count in one step, so concurrent managers cannot both take the last slot
+            if (!dailyOperationQuota.tryAcquire(operationType, date.toLocalDate(), count,
+                    LIMITED_OPERATIONS, MAX_DAILY_UPDATES_DELETES)) {
                 throw new ResponseStatusException(
                         HttpStatus.BAD_REQUEST,
                         "Daily limit exceeded: Cannot perform more than " + MAX_DAILY_UPDATES_DELETES + 
@@ -50,31 +53,36 @@ public class BusinessRulesServiceImpl implements BusinessRulesService {
             }
         }
     }
-    
+
     @Override
-    public void acquireOperationLock(String operationType) {
-        if ("ADD_PRODUCT".equals(operationType) || "UPDATE_PRODUCT".equals(operationType)) {
-            ReentrantLock lock = operationLocks.get(operationType);
-            if (lock != null && !lock.tryLock()) {
-                throw new ResponseStatusException(
-                        HttpStatus.CONFLICT,
-                        "Another " + operationType.toLowerCase().replace("_", " ") + 
-                        " operation is in progress. Only one product can be added/edited at a time."
-                );
-            }
+    public void releaseDailyOperation(String operationType, LocalDateTime date, int count) {
+        if (LIMITED_OPERATIONS.contains(operationType) && count > 0) {
+            dailyOperationQuota.release(operationType, date.toLocalDate(), count);
         }
     }
     
     @Override
-    public void releaseOperationLock(String operationType) {
-        if ("ADD_PRODUCT".equals(operationType) || "UPDATE_PRODUCT".equals(operationType)) {
-            ReentrantLock lock = operationLocks.get(operationType);
-            if (lock != null && lock.isHeldByCurrentThread()) {
-                lock.unlock();
-            }
+    public void acquireOperationLock(String operationType, Collection<Long> productIds) {
+        // Only writes to the same product wait for each other; adding a product locks nothing
+        if (!productLockManager.tryLock(productIds, lockTimeoutMillis)) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "Another operation on " + (productIds.size() == 1 ? "this product" : "these products") +
+                    " is in progress. Please try again."
+            );
         }
     }
     
+    @Override
+    public void releaseOperationLock(String operationType, Collection<Long> productIds) {
+        productLockManager.unlock(productIds);
+    }
+
+    @Override
+    public ProductLockManager.Stats getLockStats() {
+        return productLockManager.getStats();
+    }
+    
     @Override
     public boolean canPerformBulkDelete(int count) {
         return count <= MAX_BULK_DELETE;
@@ -23,13 +23,13 @@ public class CartItemServiceImpl implements CartItemService {
 
     @Override
     public CartItem findById(Long id) {
-        Optional<CartItem> optionalCartItem = cartItemRepository.findById(id);
+        Optional<CartItem> optionalCartItem = cartItemRepository.findWithProductById(id);
         return optionalCartItem.orElse(null);
     }
 
     @Override
     public List<CartItem> findAll() {
-        return cartItemRepository.findAll();
+        return cartItemRepository.findAllWithProduct();
     }
 
     @Override
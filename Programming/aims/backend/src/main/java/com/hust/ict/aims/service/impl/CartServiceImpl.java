@@ -7,57 +7,44 @@ import com.hust.ict.aims.model.Product;
 import com.hust.ict.aims.repository.CartItemRepository;
 import com.hust.ict.aims.repository.CartRepository;
 import com.hust.ict.aims.repository.ProductRepository;
+import com.hust.ict.aims.service.CartPricingPipeline;
 import com.hust.ict.aims.service.CartService;
+import com.hust.ict.aims.shipping.ShippingRateEngine;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
+@Timed("aims.service")
 public class CartServiceImpl implements CartService {
 
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final ProductRepository productRepository;
+    private final CartPricingPipeline cartPricingPipeline;
+    private final ShippingRateEngine shippingRateEngine;
 
     @Override
     public CartCalculationResponseDTO calculateCartTotals(CartCalculationRequestDTO request) {
         CartCalculationResponseDTO response = new CartCalculationResponseDTO();
         List<CartItemDetailDTO> itemDetails = new ArrayList<>();
-        List<InsufficientStockDTO> outOfStockItems = new ArrayList<>();
-        boolean allItemsAvailable = true;
         double subtotal = 0;
         double heaviestItemWeight = 0;
 
-        // Process each item
-        for (CartItemDTO item : request.getItems()) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new RuntimeException("Product not found: " + item.getProductId()));
+        // Resolve every product in one query and price the lines in one pass
+        CartPricingPipeline.PricedCart pricedCart = cartPricingPipeline.price(request.getItems(), false);
 
-
-            // Calculate item subtotal
-            double itemSubtotal = product.getCurrentPrice() * item.getQuantity();
-            subtotal += itemSubtotal;
+        for (CartPricingPipeline.PricedLine line : pricedCart.lines()) {
+            subtotal += line.subtotal();
 
             // Track heaviest item weight for shipping calculation
-            if (product.getWeight() > heaviestItemWeight) {
-                heaviestItemWeight = product.getWeight();
-            }
+            heaviestItemWeight = Math.max(heaviestItemWeight, line.product().getWeight());
 
-            // Add to item details
-            CartItemDetailDTO itemDetail = new CartItemDetailDTO();
-            itemDetail.setProductId(product.getId());
-            itemDetail.setTitle(product.getTitle());
-            itemDetail.setPrice(product.getCurrentPrice());
-            itemDetail.setQuantity(item.getQuantity());
-            itemDetail.setSubtotal(itemSubtotal);
-            itemDetail.setImageURL(product.getImageURL());
-            itemDetail.setCategory(product.getCategory());
-            itemDetail.setWeight(product.getWeight());
-
-            itemDetails.add(itemDetail);
+            itemDetails.add(line.toDetail());
         }
 
         // Calculate VAT (10%)
@@ -65,7 +52,7 @@ public class CartServiceImpl implements CartService {
 
         // Calculate delivery fee based on new rules
         double deliveryFee = calculateDeliveryFee(subtotal, request.isRushDelivery(),
-                request.getProvince(), heaviestItemWeight);
+                shippingRateEngine.resolveZone(request.getProvince()), heaviestItemWeight);
 
         // Calculate total
         double total = subtotal + tax + deliveryFee;
@@ -76,8 +63,9 @@ public class CartServiceImpl implements CartService {
         response.setDeliveryFee(deliveryFee);
         response.setTotal(total);
         response.setItems(itemDetails);
-        response.setAllItemsAvailable(allItemsAvailable);
-        response.setOutOfStockItems(outOfStockItems);
+        response.setAllItemsAvailable(pricedCart.isComplete());
+        response.setOutOfStockItems(new ArrayList<>());
+        response.setMissingProductIds(pricedCart.missingProductIds());
 
         return response;
     }
@@ -85,68 +73,40 @@ public class CartServiceImpl implements CartService {
     @Override
     public CartCalculationResponseDTO calculateRushCartTotals(CartCalculationRequestDTO request) {
         CartCalculationResponseDTO response = new CartCalculationResponseDTO();
-        boolean isAllItemsAvailable = true;
         double subtotal = 0;
         double normalSubtotal = 0;
         double rushSubtotal = 0;
         double normalHeaviestItemWeight = 0;
         double rushHeaviestItemWeight = 0;
         int rushItemCount = 0;
-        List<InsufficientStockDTO> outOfStockItems = new ArrayList<>();
         List<CartItemDetailDTO> itemDetails = new ArrayList<>();
-        Map<Long, Integer> items = new HashMap<>();
-
-        for(CartItemDTO item : request.getItems()) {
-            items.put(item.getProductId(), item.getQuantity());
-        }
-
-        List<Product> products = productRepository.findByIdIn(items.keySet());
 
-        for(Product product: products) {
-            long productId = product.getId();
+        CartPricingPipeline.PricedCart pricedCart = cartPricingPipeline.price(request.getItems(), true);
 
-            if(!items.containsKey(productId)) {
-                throw new RuntimeException("Product not found: " + product.getId());
-            }
-
-            if(product.getQuantity() < items.get(productId)) {
-                isAllItemsAvailable = false;
-                InsufficientStockDTO outOfStockItem = new InsufficientStockDTO(productId, product.getTitle(), items.get(productId), product.getQuantity());
-                outOfStockItems.add(outOfStockItem);
+        for (CartPricingPipeline.PricedLine line : pricedCart.lines()) {
+            // Out-of-stock lines are reported, not priced
+            if (!line.inStock()) {
                 continue;
             }
 
-            double basePrice = product.getCurrentPrice();
-            double adjustedPrice = product.isRushOrderEligible() ? basePrice + 10000 : basePrice;
-            double itemSubtotal = adjustedPrice * items.get(productId);
-
-            CartItemDetailDTO itemDetail = new CartItemDetailDTO();
-            itemDetail.setProductId(productId);
-            itemDetail.setTitle(product.getTitle());
-            itemDetail.setPrice(adjustedPrice);
-            itemDetail.setQuantity(items.get(productId));
-            itemDetail.setSubtotal(itemSubtotal);
-            itemDetail.setImageURL(product.getImageURL());
-            itemDetail.setCategory(product.getCategory());
-            itemDetail.setWeight(product.getWeight());
+            itemDetails.add(line.toDetail());
 
-            itemDetails.add(itemDetail);
-
-            if(product.isRushOrderEligible()) {
-                rushSubtotal += itemSubtotal;
+            if (line.rush()) {
+                rushSubtotal += line.subtotal();
                 rushItemCount++;
-                rushHeaviestItemWeight = Math.max(rushHeaviestItemWeight, product.getWeight());
+                rushHeaviestItemWeight = Math.max(rushHeaviestItemWeight, line.product().getWeight());
             } else {
-                normalSubtotal += itemSubtotal;
-                normalHeaviestItemWeight = Math.max(normalHeaviestItemWeight, product.getWeight());
+                normalSubtotal += line.subtotal();
+                normalHeaviestItemWeight = Math.max(normalHeaviestItemWeight, line.product().getWeight());
             }
         }
         subtotal = normalSubtotal + rushSubtotal;
 
         double tax = subtotal * 0.1;
 
-        double normalDeliveryFee = normalSubtotal > 0 ? calculateDeliveryFee(normalSubtotal, false, request.getProvince(), normalHeaviestItemWeight) : 0;
-        double rushDeliveryFee = rushItemCount > 0 ? calculateDeliveryFee(rushSubtotal, true, request.getProvince(), rushHeaviestItemWeight) : 0;
+        int zone = shippingRateEngine.resolveZone(request.getProvince());
+        double normalDeliveryFee = normalSubtotal > 0 ? calculateDeliveryFee(normalSubtotal, false, zone, normalHeaviestItemWeight) : 0;
+        double rushDeliveryFee = rushItemCount > 0 ? calculateDeliveryFee(rushSubtotal, true, zone, rushHeaviestItemWeight) : 0;
 
         double total = subtotal + tax + rushDeliveryFee;
 
@@ -156,8 +116,9 @@ public class CartServiceImpl implements CartService {
         response.setDeliveryFee(normalDeliveryFee);
         response.setRushDeliveryFee(rushDeliveryFee);
         response.setTotal(total);
-        response.setAllItemsAvailable(isAllItemsAvailable);
-        response.setOutOfStockItems(outOfStockItems);
+        response.setAllItemsAvailable(pricedCart.insufficientStock().isEmpty() && pricedCart.isComplete());
+        response.setOutOfStockItems(pricedCart.insufficientStock());
+        response.setMissingProductIds(pricedCart.missingProductIds());
 
         return response;
     }
@@ -165,81 +126,15 @@ public class CartServiceImpl implements CartService {
     /**
      * Calculates delivery fee based on location, order value, item weight, and rush delivery status
      *
-     * @param subtotal Total value of non-rush items
+     * @param subtotal Total value of the items shipped together
      * @param isRushDelivery Whether this is a rush delivery
-     * @param province Customer province/city
+     * @param zone Shipping zone resolved from the customer province/city
      * @param heaviestItemWeight Weight of the heaviest item in kg
      * @return The calculated delivery fee
      */
     private double calculateDeliveryFee(double subtotal, boolean isRushDelivery,
-                                        String province, double heaviestItemWeight) {
-        // Base variables
-        double deliveryFee = 0;
-        boolean isInnerCity = isInnerCityLocation(province);
-
-        // Calculate base shipping fee based on location and weight
-        if (isInnerCity) {
-            // Inner Hanoi or HCMC: 22,000 VND for first 3kg
-            deliveryFee = 22000;
-
-            // Add 2,500 VND for each additional 0.5kg beyond 3kg
-            if (heaviestItemWeight > 3.0) {
-                double additionalWeight = heaviestItemWeight - 3.0;
-                int additionalHalfKilos = (int) Math.ceil(additionalWeight / 0.5);
-                deliveryFee += additionalHalfKilos * 2500;
-            }
-        } else {
-            // Elsewhere in Vietnam: 30,000 VND for first 0.5kg
-            deliveryFee = 30000;
-
-            // Add 2,500 VND for each additional 0.5kg beyond 0.5kg
-            if (heaviestItemWeight > 0.5) {
-                double additionalWeight = heaviestItemWeight - 0.5;
-                int additionalHalfKilos = (int) Math.ceil(additionalWeight / 0.5);
-                deliveryFee += additionalHalfKilos * 2500;
-            }
-        }
-
-        // Apply free shipping for orders over 100,000 VND (non-rush items only)
-        if (!isRushDelivery && subtotal >= 100000) {
-            // Free shipping up to 25,000 VND max
-            if (deliveryFee <= 25000) {
-                return 0; // Completely free
-            } else {
-                // Discount 25,000 VND from the delivery fee
-                return deliveryFee - 25000;
-            }
-        }
-
-        return deliveryFee;
-    }
-
-    /**
-     * Determines if a location is in inner Hanoi or HCMC
-     */
-    private boolean isInnerCityLocation(String province) {
-        if (province == null) {
-            return false;
-        }
-
-        String normalizedProvince = province.toLowerCase().trim();
-
-        // Check for inner Hanoi districts
-        boolean isInnerHanoi = normalizedProvince.contains("hanoi") ||
-                normalizedProvince.contains("hà nội");
-
-        // Check for inner HCMC districts
-        boolean isInnerHCMC = normalizedProvince.contains("ho chi minh") ||
-                normalizedProvince.contains("hồ chí minh") ||
-                normalizedProvince.contains("hcmc") ||
-                normalizedProvince.contains("saigon") ||
-                normalizedProvince.contains("sài gòn");
-
-        return isInnerHanoi || isInnerHCMC;
-
-        // Note: For a real implementation, you might want to check for specific inner districts
-        // rather than just the city name. This would require a more detailed database of
-        // districts and their classifications.
+                                        int zone, double heaviestItemWeight) {
+        return shippingRateEngine.fee(zone, ShippingRateEngine.toGrams(heaviestItemWeight), subtotal, isRushDelivery);
     }
 
     @Override
@@ -252,31 +147,23 @@ public class CartServiceImpl implements CartService {
         // Save cart first to get ID
         Cart savedCart = cartRepository.save(cart);
 
+        // Resolve all products with one query instead of one findById per item
+        CartPricingPipeline.PricedCart pricedCart = cartPricingPipeline.price(cartData.getItems(), false);
+
         // Create cart items
         List<CartItem> cartItems = new ArrayList<>();
+        for (CartPricingPipeline.PricedLine line : pricedCart.lines()) {
+            CartItem cartItem = new CartItem();
+            cartItem.setProduct(line.product());
+            cartItem.setQuantity(line.quantity());
+            cartItem.setCart(savedCart);
+            cartItems.add(cartItem);
+        }
+        cartItems = new ArrayList<>(cartItemRepository.saveAll(cartItems));
 
-        if (cartData.getItems() != null) {
-            for (CartItemDTO itemRequest : cartData.getItems()) {
-                // Find product by ID
-                Optional<Product> productOpt = productRepository.findById(itemRequest.getProductId());
-
-                if (productOpt.isPresent()) {
-                    Product product = productOpt.get();
-
-                    // Create cart item
-                    CartItem cartItem = new CartItem();
-                    cartItem.setProduct(product);
-                    cartItem.setQuantity(itemRequest.getQuantity());
-                    cartItem.setCart(savedCart);
-
-                    // Save cart item
-                    CartItem savedItem = cartItemRepository.save(cartItem);
-                    cartItems.add(savedItem);
-                } else {
-                    // Log warning if product not found
-                    System.out.println("Warning: Product with ID " + itemRequest.getProductId() + " not found");
-                }
-            }
+        for (Long missingId : pricedCart.missingProductIds()) {
+            // Log warning if product not found
+            System.out.println("Warning: Product with ID " + missingId + " not found");
         }
 
         // Set items on cart
@@ -301,10 +188,14 @@ public class CartServiceImpl implements CartService {
     public CartServiceImpl(
             CartRepository cartRepository,
             CartItemRepository cartItemRepository,
-            ProductRepository productRepository) {
+            ProductRepository productRepository,
+            CartPricingPipeline cartPricingPipeline,
+            ShippingRateEngine shippingRateEngine) {
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
         this.productRepository = productRepository;
+        this.cartPricingPipeline = cartPricingPipeline;
+        this.shippingRateEngine = shippingRateEngine;
     }
 
     @Override
@@ -316,7 +207,7 @@ public class CartServiceImpl implements CartService {
 
     @Transactional
     public Cart updateItemQuanity(Long cartId, Long productId, Integer newQuantity) {
-        Cart cart = cartRepository.findById(cartId)
+        Cart cart = cartRepository.findWithItemsByCartId(cartId)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
 
         CartItem cartItem = cart.getItems().stream()
@@ -352,7 +243,7 @@ public class CartServiceImpl implements CartService {
 
     @Transactional
     public Cart addItemToCart(Long cartId, CartItemRequestDTO dto) {
-        Cart cart = cartRepository.findById(cartId)
+        Cart cart = cartRepository.findWithItemsByCartId(cartId)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
 
         Product product = productRepository.findById(dto.productId)
@@ -402,7 +293,7 @@ public class CartServiceImpl implements CartService {
 
     @Transactional
     public Cart removeItemFromCart(Long cartId, Long productId) {
-        Cart cart = cartRepository.findById(cartId)
+        Cart cart = cartRepository.findWithItemsByCartId(cartId)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
 
         // Find the item in the cart
@@ -424,22 +315,24 @@ public class CartServiceImpl implements CartService {
     }
 
     public Map<String, Object> checkInventoryForCart(Long cartId) {
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
+        if (!cartRepository.existsById(cartId)) {
+            throw new RuntimeException("Cart not found");
+        }
 
         List<Map<String, Object>> issues = new ArrayList<>();
         boolean allAvailable = true;
 
-        for (CartItem item : cart.getItems()) {
-            Product product = item.getProduct();
-            int available = product.getQuantity();
-            int requested = item.getQuantity();
+        // Only stock is compared, so the lines are read as a projection instead of loading the cart,
+        // its items and every product with its subtype
+        for (CartLineStockDTO line : cartItemRepository.findStockByCartId(cartId)) {
+            int available = line.getAvailable();
+            int requested = line.getRequested();
 
             if (available < requested) {
                 allAvailable = false;
                 Map<String, Object> issue = new HashMap<>();
-                issue.put("productId", product.getId());
-                issue.put("title", product.getTitle());
+                issue.put("productId", line.getProductId());
+                issue.put("title", line.getTitle());
                 issue.put("available", available);
                 issue.put("requested", requested);
                 issue.put("message", "Insufficient stock");
@@ -508,12 +401,12 @@ public class CartServiceImpl implements CartService {
 
     @Override
     public Cart findById(Long id) {
-        return cartRepository.findById(id).orElse(null);
+        return cartRepository.findWithItemsByCartId(id).orElse(null);
     }
 
     @Override
     public List<Cart> findAll() {
-        return cartRepository.findAll();
+        return cartRepository.findAllWithItems();
     }
 
     @Override
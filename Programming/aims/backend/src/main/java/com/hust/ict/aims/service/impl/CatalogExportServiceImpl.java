@@ -0,0 +1,128 @@
+package com.hust.ict.aims.service.impl;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hust.ict.aims.cache.ProductChangedEvent;
+import com.hust.ict.aims.dto.ProductDTO;
+import com.hust.ict.aims.model.Product;
+import com.hust.ict.aims.repository.ProductRepository;
+import com.hust.ict.aims.service.CatalogExportService;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/*
+ * The export reads the catalog through a forward-only cursor (ProductRepository.streamAllActive, fetch
+ * size 500) and writes each product as soon as it is mapped, detaching it afterwards. Memory stays the
+ * same whatever the catalog size, where /api/products/all used to hold every entity, every DTO and the
+ * whole JSON array at once. It bypasses CatalogCache on purpose: caching the full catalog is what the
+ * export is meant to avoid.
+ */
+@Service
+@Timed("aims.service")
+public class CatalogExportServiceImpl implements CatalogExportService {
+
+    private static final SerializedString NEWLINE = new SerializedString("\n");
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter dtoWriter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final long startedAt = System.currentTimeMillis();
+    private final AtomicLong changes = new AtomicLong();
+    private volatile Instant lastModified = Instant.ofEpochMilli(startedAt);
+
+    public CatalogExportServiceImpl(ProductRepository productRepository, PlatformTransactionManager transactionManager,
+                                    ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        // Postgres only honours the fetch size inside a transaction; outside one it reads the whole result
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        // Written as ProductDTO, like the elements of a List<ProductDTO>, so the subtype fields and
+        // productType come out as before; no flush per product, the generator flushes as its buffer fills
+        this.dtoWriter = objectMapper.writerFor(ProductDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Override
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String getETag() {
+        // The start time keeps the tags of two runs of the application apart
+        return "\"" + Long.toHexString(startedAt) + "-" + changes.get() + "\"";
+    }
+
+    @Override
+    public long export(Format format, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (format == Format.JSON) {
+                generator.writeStartArray();
+            } else {
+                generator.setRootValueSeparator(NEWLINE);
+            }
+
+            long written = writeProducts(generator);
+
+            if (format == Format.JSON) {
+                generator.writeEndArray();
+            } else if (written > 0) {
+                generator.writeRaw('\n');
+            }
+            return written;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        changes.incrementAndGet();
+        lastModified = Instant.now();
+    }
+
+    private long writeProducts(JsonGenerator generator) throws IOException {
+        try {
+            Long written = readOnlyTransaction.execute(status -> {
+                long count = 0;
+                try (Stream<Product> products = productRepository.streamAllActive()) {
+                    for (Iterator<Product> it = products.iterator(); it.hasNext(); ) {
+                        Product product = it.next();
+                        dtoWriter.writeValue(generator, ProductDTO.fromEntity(product));
+                        entityManager.detach(product);
+                        count++;
+                    }
+                } catch (IOException e) {
+                    // The client went away; stop reading instead of walking the rest of the catalog
+                    throw new UncheckedIOException(e);
+                }
+                return count;
+            });
+            return written != null ? written : 0;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.hust.ict.aims.service.impl;
+
+import com.hust.ict.aims.dto.CheckoutRequest;
+import com.hust.ict.aims.model.DeliveryInfo;
+import com.hust.ict.aims.model.Invoice;
+import com.hust.ict.aims.model.Orders;
+import com.hust.ict.aims.model.Transaction;
+import com.hust.ict.aims.service.CheckoutService;
+import com.hust.ict.aims.service.DeliveryInfoService;
+import com.hust.ict.aims.service.InvoiceService;
+import com.hust.ict.aims.service.OrderService;
+import com.hust.ict.aims.service.StockReservationService;
+import com.hust.ict.aims.service.TransactionService;
+import io.micrometer.core.annotation.Timed;
+import jakarta.transaction.Transactional;
+import org.springframework.stereotype.Service;
+
+/*
+ * One transaction for the whole checkout. Before, every step committed on its own, so a failure half way
+ * (a shortage, a missing transaction) left a delivery info, cart and invoice without an order, and every
+ * step paid for its own commit. Inside the transaction the cart items and stock holds use sequence ids
+ * and go out as JDBC batches at the final flush.
+ */
+@Service
+@Timed("aims.service")
+public class CheckoutServiceImpl implements CheckoutService {
+
+    private final StockReservationService stockReservationService;
+    private final DeliveryInfoService deliveryInfoService;
+    private final InvoiceService invoiceService;
+    private final TransactionService transactionService;
+    private final OrderService orderService;
+
+    public CheckoutServiceImpl(StockReservationService stockReservationService,
+                               DeliveryInfoService deliveryInfoService, InvoiceService invoiceService,
+                               TransactionService transactionService, OrderService orderService) {
+        this.stockReservationService = stockReservationService;
+        this.deliveryInfoService = deliveryInfoService;
+        this.invoiceService = invoiceService;
+        this.transactionService = transactionService;
+        this.orderService = orderService;
+    }
+
+    @Override
+    @Transactional
+    public Orders checkout(CheckoutRequest request) {
+        // Stock first: a shortage fails before anything is written, and the conditional stock UPDATEs
+        // clear the persistence context, which must happen before the order's entities are created
+        String stockReference = stockReservationService.reserveForCheckout(request);
+
+        DeliveryInfo deliveryInfo = deliveryInfoService.save(request.getDeliveryInfo());
+        Invoice invoice = invoiceService.createInvoice(request.getInvoiceData());
+        Transaction transaction = transactionService.getTransaction(request.getTransactionData());
+
+        if (transaction == null || invoice == null || deliveryInfo == null) {
+            throw new IllegalArgumentException("Invalid references to transaction, invoice, or delivery info");
+        }
+
+        Orders order = new Orders(transaction, invoice, deliveryInfo, request.getStatus());
+        order.setStockReference(stockReference);
+        return orderService.placeOrder(order);
+    }
+}
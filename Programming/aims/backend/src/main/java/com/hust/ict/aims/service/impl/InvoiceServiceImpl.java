@@ -10,38 +10,44 @@ import com.hust.ict.aims.repository.InvoiceRepository;
 import com.hust.ict.aims.model.Invoice;
 import com.hust.ict.aims.service.CartService;
 import com.hust.ict.aims.service.InvoiceService;
+import com.hust.ict.aims.shipping.ShippingRateEngine;
 import org.springframework.beans.factory.annotation.Autowired;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
 
 @Service
+@Timed("aims.service")
 public class InvoiceServiceImpl implements InvoiceService {
 
     private final InvoiceRepository invoiceRepository;
     private final CartRepository cartRepository;
     private final DeliveryInfoRepository deliveryInfoRepository;
     private final CartService cartService;
+    private final ShippingRateEngine shippingRateEngine;
 
     @Autowired
     public InvoiceServiceImpl(InvoiceRepository invoiceRepository,
                               CartRepository cartRepository,
-                              DeliveryInfoRepository deliveryInfoRepository, CartService cartService) {
+                              DeliveryInfoRepository deliveryInfoRepository, CartService cartService,
+                              ShippingRateEngine shippingRateEngine) {
         this.invoiceRepository = invoiceRepository;
         this.cartRepository = cartRepository;
         this.deliveryInfoRepository = deliveryInfoRepository;
         this.cartService = cartService;
+        this.shippingRateEngine = shippingRateEngine;
     }
 
     @Override
     public List<Invoice> findAll() {
-        return invoiceRepository.findAll();
+        return invoiceRepository.findAllWithCart();
     }
 
     @Override
     public Invoice findById(int id) {
-        Optional<Invoice> result = invoiceRepository.findById(id);
+        Optional<Invoice> result = invoiceRepository.findWithCartById(id);
         return result.orElseThrow(() -> new RuntimeException("Invoice not found - " + id));
     }
 
@@ -129,24 +135,7 @@ public class InvoiceServiceImpl implements InvoiceService {
                 .mapToDouble(i -> i.getProduct().getWeight() * i.getQuantity())
                 .max().orElse(0.0);
 
-        boolean isInnerCity = deliveryInfo.getDeliveryAddress().toLowerCase().contains("hanoi") ||
-                deliveryInfo.getDeliveryAddress().toLowerCase().contains("ho chi minh");
-
-        float baseRate = isInnerCity ? 22000 : 30000;
-        float baseWeight = isInnerCity ? 3.0f : 0.5f;
-        float extraPerUnit = 2500;
-
-        float deliveryFee = baseRate;
-        if (maxWeight > baseWeight) {
-            float extraWeight = maxWeight - baseWeight;
-            int extraUnits = (int) Math.ceil(extraWeight / 0.5);
-            deliveryFee += extraUnits * extraPerUnit;
-        }
-
-        if (itemTotal > 100000) {
-            deliveryFee = Math.max(deliveryFee - 25000, 0);
-        }
-
-        return deliveryFee;
+        int zone = shippingRateEngine.resolveZone(deliveryInfo.getDeliveryAddress());
+        return shippingRateEngine.fee(zone, ShippingRateEngine.toGrams(maxWeight), itemTotal, false);
     }
 }
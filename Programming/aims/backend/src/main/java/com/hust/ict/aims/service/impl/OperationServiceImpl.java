@@ -2,20 +2,28 @@ package com.hust.ict.aims.service.impl;
 
 import com.hust.ict.aims.model.Operation;
 import com.hust.ict.aims.repository.OperationRepository;
+import com.hust.ict.aims.service.DailyOperationQuota;
+import com.hust.ict.aims.service.OperationAuditLog;
 import com.hust.ict.aims.service.OperationService;
 import org.springframework.stereotype.Service;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
 public class OperationServiceImpl implements OperationService {
     private final OperationRepository operationRepository;
+    private final OperationAuditLog auditLog;
+    private final DailyOperationQuota dailyOperationQuota;
 
-    public OperationServiceImpl(OperationRepository operationRepository) {
+    public OperationServiceImpl(OperationRepository operationRepository, OperationAuditLog auditLog,
+                                DailyOperationQuota dailyOperationQuota) {
         this.operationRepository = operationRepository;
+        this.auditLog = auditLog;
+        this.dailyOperationQuota = dailyOperationQuota;
     }
 
     @Override
@@ -23,14 +31,25 @@ public class OperationServiceImpl implements OperationService {
         return operationRepository.save(operation);
     }
 
+    @Override
+    public void record(Long productId, String operationType) {
+        dailyOperationQuota.recordProductOperation(productId, operationType);
+        auditLog.record(productId, operationType);
+    }
+
+    @Override
+    public OperationAuditLog.Stats getAuditStats() {
+        return auditLog.getStats();
+    }
+
     @Override
     public Operation findById(Long id) {
-        return operationRepository.findById(id).orElse(null);
+        return operationRepository.findWithProductByOperationID(id).orElse(null);
     }
 
     @Override
     public List<Operation> findAll() {
-        return operationRepository.findAll();
+        return operationRepository.findAllWithProduct();
     }
 
     @Override
@@ -52,9 +71,10 @@ public class OperationServiceImpl implements OperationService {
             Long productId, String operationType,
             LocalDateTime startTime, LocalDateTime endTime) {
 
-        // Use the repository method instead of filtering in Java
+        // Use the repository method instead of filtering in Java, plus records still buffered
         return operationRepository.countByProductIdAndOperationTypeAndTimestampBetween(
-                productId, operationType, startTime, endTime);
+                productId, operationType, startTime, endTime)
+                + auditLog.pendingCount(productId, operationType, startTime, endTime);
     }
 
     // IMPLEMENT THE NEW METHODS
@@ -70,6 +90,18 @@ public class OperationServiceImpl implements OperationService {
         return operationRepository.findOperationsWithFilters(search, operationType, pageable);
     }
 
+    @Override
+    public Slice<Operation> findOperationsSlice(String search, String operationType, int page, int size) {
+        return operationRepository.findOperationsWithFiltersSlice(search, operationType, PageRequest.of(page, size));
+    }
+
+    @Override
+    public Slice<Operation> findOperationsAfter(String search, String operationType,
+                                                LocalDateTime afterTimestamp, Long afterId, int size) {
+        return operationRepository.findOperationsWithFiltersAfter(
+                search, operationType, afterTimestamp, afterId, PageRequest.of(0, size));
+    }
+
     @Override
     public List<Operation> findByProductId(Long productId) {
         return operationRepository.findByProductId(productId);
@@ -1,47 +1,86 @@
 package com.hust.ict.aims.service.impl;
 
-import com.hust.ict.aims.model.CartItem;
-import com.hust.ict.aims.model.Product;
+import com.hust.ict.aims.dto.OrderStockShortageDTO;
 import com.hust.ict.aims.repository.OrderRepository;
 import com.hust.ict.aims.model.Orders;
 import com.hust.ict.aims.repository.ProductRepository;
+import com.hust.ict.aims.service.EmailOutboxService;
 import com.hust.ict.aims.service.OrderService;
+import com.hust.ict.aims.service.StockReservationService;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
+@Timed("aims.service")
 public class OrderServiceImpl implements OrderService {
 
+    private static final String REJECTION_REASON_PREFIX = "Order automatically rejected due to insufficient stock: ";
+    private static final int MORE_ITEMS_RESERVE = " and 2147483647 more".length();
+
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final EmailOutboxService emailOutboxService;
+    private final StockReservationService stockReservationService;
+    private final int rejectChunkSize;
 
     @Autowired
-    public OrderServiceImpl(OrderRepository orderRepository, ProductRepository productRepository) {
+    public OrderServiceImpl(OrderRepository orderRepository, ProductRepository productRepository,
+                            JdbcTemplate jdbcTemplate, EmailOutboxService emailOutboxService,
+                            StockReservationService stockReservationService,
+                            @Value("${aims.orders.auto-reject-chunk-size:1000}") int rejectChunkSize) {
         this.orderRepository = orderRepository;
         this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.emailOutboxService = emailOutboxService;
+        this.stockReservationService = stockReservationService;
+        this.rejectChunkSize = rejectChunkSize;
     }
 
     @Override
     public List<Orders> findAll() {
-        return orderRepository.findAll();
+        return orderRepository.findAllWithDetails();
     }
 
     @Override
     public Orders findById(Long id) {
-        Optional<Orders> result = orderRepository.findById(id);
+        Optional<Orders> result = orderRepository.findWithDetailsById(id);
         return result.orElseThrow(() -> new RuntimeException("Order not found - " + id));
     }
 
+    @Override
+    public List<Orders> findAllById(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return orderRepository.findWithDetailsByIdIn(ids);
+    }
+
     @Override
     public Orders save(Orders order) {
         return orderRepository.save(order);
     }
 
+    @Override
+    @Transactional
+    public Orders placeOrder(Orders order) {
+        Orders saved = orderRepository.save(order);
+        emailOutboxService.enqueueOrderConfirmation(saved);
+        return saved;
+    }
+
     @Override
     public void deleteById(Long id) {
         orderRepository.deleteById(id);
@@ -60,6 +99,11 @@ public class OrderServiceImpl implements OrderService {
         // Update status
         order.setStatus(status);
 
+        // The stock was taken at checkout and approval keeps it; a rejected or cancelled order gives it back
+        if ((status.equals("REJECTED") || status.equals("CANCELLED")) && order.getStockReference() != null) {
+            stockReservationService.release(order.getStockReference());
+        }
+
         // Save and return
         return orderRepository.save(order);
     }
@@ -99,47 +143,69 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
-    @Transactional
     public List<Long> rejectOrdersWithInsufficientStock() {
-        // Find all pending orders
-        List<Orders> pendingOrders = orderRepository.findByStatus("PENDING");
         List<Long> rejectedOrderIds = new ArrayList<>();
+        long afterId = 0;
 
-        // Check each pending order
-        for (Orders order : pendingOrders) {
-            boolean hasInsufficientItems = false;
-            StringBuilder insufficientItems = new StringBuilder();
-
-            // Check each item in the order
-            for (CartItem item : order.getInvoice().getCart().getItems()) {
-                Product product = productRepository.findById(item.getProduct().getId())
-                        .orElseThrow(() -> new RuntimeException("Product not found: " + item.getProduct().getId()));
-
-                // If requested quantity exceeds available stock
-                if (item.getQuantity() > product.getQuantity()) {
-                    hasInsufficientItems = true;
-                    insufficientItems.append(product.getTitle())
-                            .append(" (requested: ")
-                            .append(item.getQuantity())
-                            .append(", available: ")
-                            .append(product.getQuantity())
-                            .append("), ");
-                }
+        // Walk PENDING orders in id-ordered chunks so memory stays flat however many there are
+        while (true) {
+            List<Long> chunk = orderRepository.findIdsByStatusAfter(
+                    "PENDING", afterId, PageRequest.of(0, rejectChunkSize));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            afterId = chunk.get(chunk.size() - 1);
+
+            // One aggregate query per chunk instead of one findById per order item
+            Map<Long, List<String>> insufficientItems = new LinkedHashMap<>();
+            for (OrderStockShortageDTO shortage : orderRepository.findStockShortages(chunk)) {
+                insufficientItems.computeIfAbsent(shortage.getOrderId(), id -> new ArrayList<>())
+                        .add(shortage.getProductTitle() + " (requested: " + shortage.getRequestedQuantity()
+                                + ", available: " + shortage.getAvailableQuantity() + ")");
+            }
+            if (insufficientItems.isEmpty()) {
+                continue;
             }
 
-            // Reject the order if any items have insufficient stock
-            if (hasInsufficientItems) {
-                // Update status to REJECTED
-                order.setStatus("REJECTED");
-                orderRepository.save(order);
-
-                // Add rejection note
-                String reason = "Order automatically rejected due to insufficient stock: " +
-                        insufficientItems.substring(0, insufficientItems.length() - 2);
-
-                rejectedOrderIds.add(order.getId());
+            // Reject the whole chunk in one JDBC batch; the status guard skips orders changed meanwhile
+            List<Object[]> batch = new ArrayList<>(insufficientItems.size());
+            List<Long> orderIds = new ArrayList<>(insufficientItems.size());
+            for (Map.Entry<Long, List<String>> entry : insufficientItems.entrySet()) {
+                batch.add(new Object[]{rejectionReason(entry.getValue()), entry.getKey()});
+                orderIds.add(entry.getKey());
+            }
+            int[] updated = jdbcTemplate.batchUpdate(
+                    "UPDATE orders SET orderstatus = 'REJECTED', rejection_reason = ? " +
+                    "WHERE orderid = ? AND orderstatus = 'PENDING'", batch);
+            List<Long> rejectedInChunk = new ArrayList<>();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] != 0) {
+                    rejectedInChunk.add(orderIds.get(i));
+                }
+            }
+            if (!rejectedInChunk.isEmpty()) {
+                // Give back whatever stock the rejected orders took at checkout
+                for (String stockReference : orderRepository.findStockReferencesByIdIn(rejectedInChunk)) {
+                    stockReservationService.release(stockReference);
+                }
+                rejectedOrderIds.addAll(rejectedInChunk);
             }
         }
         return rejectedOrderIds;
     }
+
+    // Lists the short products that fit in the rejection_reason column and only counts the rest
+    private static String rejectionReason(List<String> insufficientItems) {
+        StringBuilder reason = new StringBuilder(REJECTION_REASON_PREFIX);
+        for (int i = 0; i < insufficientItems.size(); i++) {
+            String item = (i == 0 ? "" : ", ") + insufficientItems.get(i);
+            // Room for the " and N more" suffix, unless this is the last item
+            int reserved = i + 1 < insufficientItems.size() ? MORE_ITEMS_RESERVE : 0;
+            if (reason.length() + item.length() + reserved > Orders.REJECTION_REASON_LENGTH) {
+                return reason.append(" and ").append(insufficientItems.size() - i).append(" more").toString();
+            }
+            reason.append(item);
+        }
+        return reason.toString();
+    }
 }
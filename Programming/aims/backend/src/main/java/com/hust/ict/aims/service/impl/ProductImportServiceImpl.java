@@ -0,0 +1,421 @@
+package com.hust.ict.aims.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hust.ict.aims.cache.ProductChangedEvent;
+import com.hust.ict.aims.dto.ProductCreateRequest;
+import com.hust.ict.aims.factory.ProductFactory;
+import com.hust.ict.aims.model.Product;
+import com.hust.ict.aims.repository.ProductRepository;
+import com.hust.ict.aims.service.OperationService;
+import com.hust.ict.aims.service.ProductBatchInserter;
+import com.hust.ict.aims.service.ProductImportService;
+import com.hust.ict.aims.utils.CsvRecordReader;
+import com.hust.ict.aims.validation.BaseProductValidationStrategy;
+import com.hust.ict.aims.validation.ProductValidationContext;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * An import is spooled to a temporary file and run on the application executor, so the upload returns
+ * at once with a job id and the file is read as a stream whatever its size. Rows are taken in batches of
+ * aims.import.batch-size: each batch is built with ProductFactory and checked against the same
+ * validation strategies as a single add, in parallel, then barcodes already in the catalog or earlier
+ * in the file are rejected with one query. The valid rows are inserted with ProductBatchInserter in one
+ * transaction; when the database still refuses the batch, its rows are retried one at a time so only
+ * the offending rows are reported.
+ *
+ * Each inserted batch is recorded as one IMPORT_PRODUCTS operation instead of one ADD_PRODUCT per row.
+ * Operations are listed through their product, so the record points at the first product of its batch.
+ */
+@Service
+@Timed("aims.service")
+public class ProductImportServiceImpl implements ProductImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportServiceImpl.class);
+
+    public static final String OPERATION_TYPE = "IMPORT_PRODUCTS";
+
+    private record Row(long line, ProductCreateRequest request, String error) {
+    }
+
+    private record CheckedRow(Row row, Product product, List<String> errors) {
+
+        String barcode() {
+            return row.request() != null ? row.request().getBarcode() : null;
+        }
+    }
+
+    private interface RowReader extends Closeable {
+        // Null at the end of the file
+        Row next() throws IOException;
+    }
+
+    private final ProductFactory productFactory;
+    private final BaseProductValidationStrategy baseValidation;
+    private final ProductValidationContext validationContext;
+    private final ProductRepository productRepository;
+    private final ProductBatchInserter batchInserter;
+    private final OperationService operationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transaction;
+    private final ObjectMapper objectMapper;
+    private final AsyncTaskExecutor executor;
+    private final int batchSize;
+    private final int maxConcurrentJobs;
+    private final int maxReportedErrors;
+
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    // Finished jobs are kept for their status until newer jobs push them out
+    private final Map<String, Job> jobs;
+
+    public ProductImportServiceImpl(ProductFactory productFactory,
+                                    BaseProductValidationStrategy baseValidation,
+                                    ProductValidationContext validationContext,
+                                    ProductRepository productRepository,
+                                    ProductBatchInserter batchInserter,
+                                    OperationService operationService,
+                                    ApplicationEventPublisher eventPublisher,
+                                    EntityManagerFactory entityManagerFactory,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectMapper objectMapper,
+                                    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                                    AsyncTaskExecutor executor,
+                                    @Value("${aims.import.batch-size:500}") int batchSize,
+                                    @Value("${aims.import.max-concurrent-jobs:2}") int maxConcurrentJobs,
+                                    @Value("${aims.import.max-reported-errors:1000}") int maxReportedErrors,
+                                    @Value("${aims.import.retained-jobs:100}") int retainedJobs) {
+        this.productFactory = productFactory;
+        this.baseValidation = baseValidation;
+        this.validationContext = validationContext;
+        this.productRepository = productRepository;
+        this.batchInserter = batchInserter;
+        this.operationService = operationService;
+        this.eventPublisher = eventPublisher;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxConcurrentJobs = maxConcurrentJobs;
+        this.maxReportedErrors = maxReportedErrors;
+        this.jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+                return size() > retainedJobs;
+            }
+        });
+    }
+
+    @Override
+    public JobStatus submit(Format format, InputStream body) throws IOException {
+        if (activeJobs.incrementAndGet() > maxConcurrentJobs) {
+            activeJobs.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many product imports are running. Please try again later.");
+        }
+
+        Path file = null;
+        try {
+            file = Files.createTempFile("aims-import-", "." + format.name().toLowerCase(Locale.ROOT));
+            Files.copy(body, file, StandardCopyOption.REPLACE_EXISTING);
+
+            Job job = new Job(UUID.randomUUID().toString());
+            jobs.put(job.id, job);
+            Path spooled = file;
+            executor.execute(() -> run(job, format, spooled));
+            return job.status();
+        } catch (TaskRejectedException e) {
+            activeJobs.decrementAndGet();
+            deleteQuietly(file);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many product imports are running. Please try again later.");
+        } catch (IOException | RuntimeException e) {
+            activeJobs.decrementAndGet();
+            deleteQuietly(file);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<JobStatus> getStatus(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(Job::status);
+    }
+
+    private void run(Job job, Format format, Path file) {
+        job.state = State.RUNNING;
+        try (RowReader rows = open(format, Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            List<Row> batch = new ArrayList<>(batchSize);
+            for (Row row = rows.next(); row != null; row = rows.next()) {
+                job.rowsRead.incrementAndGet();
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    importBatch(job, batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                importBatch(job, batch);
+            }
+            job.finish(State.COMPLETED, null);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Product import {} stopped after {} rows: {}", job.id, job.rowsRead.get(), e.getMessage());
+            job.finish(State.FAILED, e.getMessage());
+        } finally {
+            activeJobs.decrementAndGet();
+            deleteQuietly(file);
+        }
+    }
+
+    private void importBatch(Job job, List<Row> rows) {
+        // Building and validating a row touches nothing shared, so the rows are checked in parallel
+        List<CheckedRow> checked = rows.parallelStream().map(this::check).toList();
+
+        Set<String> barcodes = new HashSet<>();
+        for (CheckedRow row : checked) {
+            if (row.errors().isEmpty()) barcodes.add(row.barcode());
+        }
+        Set<String> existing = barcodes.isEmpty()
+                ? Set.of() : new HashSet<>(productRepository.findBarcodesIn(barcodes));
+
+        List<CheckedRow> accepted = new ArrayList<>();
+        for (CheckedRow row : checked) {
+            if (!row.errors().isEmpty()) {
+                job.reject(row.row().line(), row.barcode(), row.errors());
+            } else if (existing.contains(row.barcode())) {
+                job.reject(row.row().line(), row.barcode(), List.of("Barcode " + row.barcode() + " already exists"));
+            } else if (!job.barcodes.add(row.barcode())) {
+                job.reject(row.row().line(), row.barcode(),
+                        List.of("Barcode " + row.barcode() + " appears earlier in the file"));
+            } else {
+                accepted.add(row);
+            }
+        }
+
+        List<Product> inserted = insert(job, accepted);
+        if (inserted.isEmpty()) return;
+
+        // The inserts bypass Hibernate, which therefore cannot invalidate the cached product queries itself
+        entityManagerFactory.getCache().unwrap(Cache.class).evictQueryRegions();
+        for (Product product : inserted) {
+            eventPublisher.publishEvent(new ProductChangedEvent(product.getId(), ProductChangedEvent.Change.ADDED));
+        }
+        operationService.record(inserted.get(0).getId(), OPERATION_TYPE);
+        job.imported.addAndGet(inserted.size());
+        job.batches.incrementAndGet();
+    }
+
+    private CheckedRow check(Row row) {
+        if (row.error() != null) {
+            return new CheckedRow(row, null, List.of(row.error()));
+        }
+        if (row.request().getMediaType() == null) {
+            return new CheckedRow(row, null, List.of("Media type is required"));
+        }
+        Product product = productFactory.createProduct(row.request());
+        List<String> errors = new ArrayList<>(baseValidation.validate(product).getErrors());
+        errors.addAll(validationContext.validate(product).getErrors());
+        return new CheckedRow(row, product, errors);
+    }
+
+    private List<Product> insert(Job job, List<CheckedRow> rows) {
+        List<Product> products = rows.stream().map(CheckedRow::product).toList();
+        if (products.isEmpty()) return products;
+        try {
+            transaction.executeWithoutResult(status -> batchInserter.insert(products));
+            return products;
+        } catch (DataAccessException e) {
+            logger.debug("Product import {} batch refused, retrying its rows one by one: {}", job.id, e.getMessage());
+        }
+
+        // Ids handed out before the rollback are gone
+        products.forEach(product -> product.setId(null));
+        List<Product> inserted = new ArrayList<>();
+        for (CheckedRow row : rows) {
+            try {
+                transaction.executeWithoutResult(status -> batchInserter.insert(List.of(row.product())));
+                inserted.add(row.product());
+            } catch (DataAccessException e) {
+                row.product().setId(null);
+                job.reject(row.row().line(), row.barcode(),
+                        List.of("Could not be saved: " + e.getMostSpecificCause().getMessage()));
+            }
+        }
+        return inserted;
+    }
+
+    private RowReader open(Format format, BufferedReader reader) throws IOException {
+        return format == Format.CSV ? csvRows(reader) : ndjsonRows(reader);
+    }
+
+    private RowReader ndjsonRows(BufferedReader reader) {
+        return new RowReader() {
+            private long line;
+
+            @Override
+            public Row next() throws IOException {
+                String text;
+                do {
+                    text = reader.readLine();
+                    line++;
+                } while (text != null && text.isBlank());
+                if (text == null) return null;
+                try {
+                    return new Row(line, objectMapper.readValue(text, ProductCreateRequest.class), null);
+                } catch (JsonProcessingException e) {
+                    return new Row(line, null, "Unreadable row: " + e.getOriginalMessage());
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    private RowReader csvRows(BufferedReader reader) throws IOException {
+        CsvRecordReader records = new CsvRecordReader(reader);
+        List<String> header = records.next();
+        if (header == null) {
+            records.close();
+            return new RowReader() {
+                @Override
+                public Row next() {
+                    return null;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+        List<String> columns = header.stream().map(name -> name.replace("\uFEFF", "").trim()).toList();
+
+        return new RowReader() {
+            @Override
+            public Row next() throws IOException {
+                List<String> fields;
+                do {
+                    fields = records.next();
+                } while (fields != null && fields.size() == 1 && fields.get(0).isBlank());
+                if (fields == null) return null;
+
+                long line = records.getLine();
+                if (fields.size() != columns.size()) {
+                    return new Row(line, null,
+                            "Expected " + columns.size() + " fields, found " + fields.size());
+                }
+                // Empty cells are left out, so the request keeps its defaults for them
+                Map<String, String> values = new LinkedHashMap<>();
+                for (int i = 0; i < columns.size(); i++) {
+                    if (!fields.get(i).isEmpty()) values.put(columns.get(i), fields.get(i));
+                }
+                try {
+                    return new Row(line, objectMapper.convertValue(values, ProductCreateRequest.class), null);
+                } catch (IllegalArgumentException e) {
+                    String message = e.getCause() instanceof JsonProcessingException cause
+                            ? cause.getOriginalMessage() : e.getMessage();
+                    return new Row(line, null, "Unreadable row: " + message);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                records.close();
+            }
+        };
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete import file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private final class Job {
+
+        private final String id;
+        private final Instant submittedAt = Instant.now();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicInteger batches = new AtomicInteger();
+        private final List<RowError> errors = new ArrayList<>();
+        // Barcodes accepted so far; only the job's own thread reads or writes them
+        private final Set<String> barcodes = new HashSet<>();
+        private volatile State state = State.QUEUED;
+        private volatile String failure;
+        private volatile Instant finishedAt;
+
+        private Job(String id) {
+            this.id = id;
+        }
+
+        void reject(long line, String barcode, List<String> rowErrors) {
+            rejected.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < maxReportedErrors) {
+                    errors.add(new RowError(line, barcode, List.copyOf(rowErrors)));
+                }
+            }
+        }
+
+        void finish(State state, String failure) {
+            this.failure = failure;
+            this.finishedAt = Instant.now();
+            this.state = state;
+        }
+
+        JobStatus status() {
+            List<RowError> reported;
+            synchronized (errors) {
+                reported = List.copyOf(errors);
+            }
+            long rejectedRows = rejected.get();
+            return new JobStatus(id, state, rowsRead.get(), imported.get(), rejectedRows, batches.get(),
+                    reported, rejectedRows > reported.size(), failure, submittedAt, finishedAt);
+        }
+    }
+}
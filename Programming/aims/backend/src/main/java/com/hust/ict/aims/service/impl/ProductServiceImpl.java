@@ -1,23 +1,41 @@
 package com.hust.ict.aims.service.impl;
 
+import com.hust.ict.aims.cache.CatalogCache;
+import com.hust.ict.aims.cache.ProductChangedEvent;
+import com.hust.ict.aims.cache.ProductSnapshot;
+import com.hust.ict.aims.cache.RandomFeedIndex;
 import com.hust.ict.aims.dto.ProductDTO;
+import com.hust.ict.aims.dto.ProductStockDTO;
 import com.hust.ict.aims.model.Product;
 import com.hust.ict.aims.repository.ProductRepository;
+import com.hust.ict.aims.search.CatalogSearchService;
+import com.hust.ict.aims.search.ProductSearchIndex;
+import com.hust.ict.aims.search.ProductSearchResult;
 import com.hust.ict.aims.service.ProductService;
+import com.hust.ict.aims.utils.PageCursor;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import org.hibernate.Hibernate;
 import org.hibernate.proxy.HibernateProxy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
-import org.springframework.data.jpa.domain.Specification;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 
 /*
  * Cohesion Level: Functional Cohesion
@@ -27,18 +45,42 @@ import java.util.concurrent.ThreadLocalRandom;
  * SRP: Compliant
  * The class does not mix unrelated logic; it delegates persistence to the repository and
  * contains service-level behavior such as unproxying Product instances for correct subclass access.
+ *
+ * Catalog reads are served from CatalogCache; every write publishes a ProductChangedEvent that evicts
+ * the affected entries once the write has committed.
  */
 @Service
+@Timed("aims.service")
 public class ProductServiceImpl implements ProductService {
     private final ProductRepository productRepository;
+    private final CatalogCache catalogCache;
+    private final RandomFeedIndex randomFeedIndex;
+    private final CatalogSearchService catalogSearchService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RandomSampling randomSampling;
 
-    public ProductServiceImpl(ProductRepository productRepository) {
+    public ProductServiceImpl(ProductRepository productRepository,
+                              CatalogCache catalogCache,
+                              RandomFeedIndex randomFeedIndex,
+                              CatalogSearchService catalogSearchService,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${aims.random.sampler:uniform}") String randomSampling) {
         this.productRepository = productRepository;
+        this.catalogCache = catalogCache;
+        this.randomFeedIndex = randomFeedIndex;
+        this.catalogSearchService = catalogSearchService;
+        this.eventPublisher = eventPublisher;
+        this.randomSampling = RandomSampling.valueOf(randomSampling.trim().toUpperCase(Locale.ROOT));
     }
 
     @Override
     public Product save(Product product) {
-        return productRepository.save(product);
+        ProductChangedEvent.Change change = product.getId() == null
+                ? ProductChangedEvent.Change.ADDED
+                : ProductChangedEvent.Change.UPDATED;
+        Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(saved.getId(), change));
+        return saved;
     }
 
     @PersistenceContext
@@ -46,6 +88,19 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public Product findById(Long id) {
+        ProductSnapshot snapshot = catalogCache.get(id, () -> loadProduct(id));
+        return snapshot != null ? snapshot.toEntity() : null;
+    }
+
+    @Override
+    public List<ProductStockDTO> findStockByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return productRepository.findStockByIdIn(ids);
+    }
+
+    private Product loadProduct(Long id) {
         Product product = entityManager.find(Product.class, id);
         if (product != null) {
             // Unproxy để lấy đối tượng thực sự
@@ -60,26 +115,57 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public List<Product> findAll() {
-        return productRepository.findAllActive();
+        return toEntities(catalogCache.getListing("active", productRepository::findAllActive));
     }
 
     @Override
     public long countProducts() {
-        return productRepository.count();
+        return catalogCache.getCount("active", productRepository::countActiveProducts);
     }
 
     @Override
     public Page<Product> getProducts(int page, int size) {
-        return productRepository.findAll(PageRequest.of(page, size));
+        Slice<Product> slice = getProductsSlice(page, size);
+        return new PageImpl<>(slice.getContent(), slice.getPageable(), countProducts());
         //return productRepository.findAllActiveRandom(PageRequest.of(page, size));
         //return productRepository.findAll(PageRequest.of(page, size, Sort.by("id").ascending()));
     }
 
+    @Override
+    public Slice<Product> getProductsSlice(int page, int size) {
+        // Ordered by id so a page's last id is a valid keyset cursor for getProductsAfter
+        PageRequest pageable = PageRequest.of(page, size, Sort.by("id"));
+        // The cached listing keeps the extra row that tells whether a next page exists
+        List<ProductSnapshot> rows = catalogCache.getListing("page:" + page + ":" + size,
+                () -> productRepository.findActiveRange(page * size, size + 1));
+        boolean hasNext = rows.size() > size;
+        return new SliceImpl<>(toEntities(hasNext ? rows.subList(0, size) : rows), pageable, hasNext);
+    }
+
+    @Override
+    public Slice<Product> getProductsAfter(Long afterId, int size) {
+        // Seek on the primary key instead of OFFSET: every page is one index range scan
+        return productRepository.findByIdGreaterThanAndDeletedFalse(afterId, PageRequest.of(0, size, Sort.by("id")));
+    }
+
+    private List<Product> toEntities(List<ProductSnapshot> snapshots) {
+        return snapshots.stream()
+                .map(ProductSnapshot::toEntity)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public Product update(Long id, Product product) {
-        if (!productRepository.existsById(id)) return null;
+        // Same single query as an existence check, and tells whether this update deletes or restores
+        Boolean wasDeleted = productRepository.findDeletedById(id);
+        if (wasDeleted == null) return null;
         product.setId(id);
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        ProductChangedEvent.Change change = wasDeleted == product.isDeleted()
+                ? ProductChangedEvent.Change.UPDATED
+                : product.isDeleted() ? ProductChangedEvent.Change.DELETED : ProductChangedEvent.Change.RESTORED;
+        eventPublisher.publishEvent(new ProductChangedEvent(id, change));
+        return saved;
     }
 
     @Override
@@ -89,65 +175,89 @@ public class ProductServiceImpl implements ProductService {
         product.setDeleted(true);
         product.setDeletedAt(LocalDateTime.now());
         productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.Change.DELETED));
     }
 
     @Override
     public void hardDelete(Long id) {
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.Change.DELETED));
     }
 
     @Override
     public Page<Product> searchProductsWithFilters(String search, String category, String productType, 
                                                  Double minPrice, Double maxPrice, String sortBy, 
                                                  String sortDirection, int page, int size) {
-        
-        // Create sort specification
-        Sort sort = Sort.by(Sort.Direction.fromString(sortDirection), sortBy);
-        Pageable pageable = PageRequest.of(page, size, sort);
-        
-        // Build dynamic query using Specification pattern
-        Specification<Product> spec = Specification.where(null);
-        
-        // Search by title (case-insensitive)
-        if (search != null && !search.trim().isEmpty()) {
-            spec = spec.and((root, query, criteriaBuilder) -> 
-                criteriaBuilder.like(criteriaBuilder.lower(root.get("title")), 
-                                   "%" + search.toLowerCase() + "%"));
-        }
-        
-        // Filter by category
-        if (category != null && !category.trim().isEmpty()) {
-            spec = spec.and((root, query, criteriaBuilder) -> 
-                criteriaBuilder.equal(root.get("category"), category));
-        }
-        
-        // Filter by product type
-        if (productType != null && !productType.trim().isEmpty()) {
-            spec = spec.and((root, query, criteriaBuilder) -> 
-                criteriaBuilder.equal(root.get("productType"), productType));
+        return searchProducts(search, category, productType, minPrice, maxPrice,
+                sortBy, sortDirection, page, size).page();
+    }
+
+    @Override
+    public ProductSearchResult searchProducts(String search, String category, String productType,
+                                              Double minPrice, Double maxPrice, String sortBy,
+                                              String sortDirection, int page, int size) {
+        // Matching, filtering, faceting and sorting all happen in the in-memory index
+        ProductSearchIndex.Hits hits = catalogSearchService.search(
+                search, category, productType, minPrice, maxPrice, sortBy, sortDirection, page, size);
+
+        return toSearchResult(hits, PageRequest.of(page, size));
+    }
+
+    @Override
+    public ProductSearchResult searchProductsAfter(String search, String category, String productType,
+                                                   Double minPrice, Double maxPrice, String sortBy,
+                                                   String sortDirection, PageCursor after, int size) {
+        ProductSearchIndex.Hits hits = catalogSearchService.searchAfter(
+                search, category, productType, minPrice, maxPrice, sortBy, sortDirection,
+                after.key(), after.id(), size);
+        return toSearchResult(hits, PageRequest.of(0, size));
+    }
+
+    private ProductSearchResult toSearchResult(ProductSearchIndex.Hits hits, Pageable pageable) {
+        // Hydrate only the requested page, keeping the index order
+        List<Product> content = findAllByIdsInOrder(hits.ids());
+        Page<Product> result = new PageImpl<>(content, pageable, hits.total());
+        PageCursor nextCursor = hits.hasMore()
+                ? new PageCursor(hits.lastSortKey(), hits.ids().get(hits.ids().size() - 1))
+                : null;
+        return new ProductSearchResult(result, hits.facets(), nextCursor);
+    }
+
+    private List<Product> findAllByIdsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
         }
-        
-        // Filter by price range
-        if (minPrice != null) {
-            spec = spec.and((root, query, criteriaBuilder) -> 
-                criteriaBuilder.greaterThanOrEqualTo(root.get("currentPrice"), minPrice));
+        Map<Long, Product> loaded = new HashMap<>();
+        for (Product product : productRepository.findByIdIn(new HashSet<>(ids))) {
+            if (!product.isDeleted()) {
+                loaded.put(product.getId(), product);
+            }
         }
-        
-        if (maxPrice != null) {
-            spec = spec.and((root, query, criteriaBuilder) -> 
-                criteriaBuilder.lessThanOrEqualTo(root.get("currentPrice"), maxPrice));
+        List<Product> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = loaded.get(id);
+            if (product != null) {
+                ordered.add(product);
+            }
         }
-        
-        // Only show non-deleted products
-        spec = spec.and((root, query, criteriaBuilder) -> 
-            criteriaBuilder.equal(root.get("deleted"), false));
-        
-        return productRepository.findAll(spec, pageable);
+        return ordered;
     }
 
     @Override
     public List<Product> getRandomPage(int size) {
-        // Get min and max IDs for active products
+        if (size <= 0) {
+            return Collections.emptyList();
+        }
+        if (randomSampling == RandomSampling.UNIFORM) {
+            long[] sample = randomFeedIndex.sample(size);
+            List<Long> ids = new ArrayList<>(sample.length);
+            for (long id : sample) {
+                ids.add(id);
+            }
+            return findAllByIdsInOrder(ids);
+        }
+
+        // Get min and max IDs for active products (both served from the query cache)
         Long minId = productRepository.findMinId();
         Long maxId = productRepository.findMaxId();
         
@@ -159,25 +269,13 @@ public class ProductServiceImpl implements ProductService {
         // Generate random pivot between min and max ID
         long pivot = ThreadLocalRandom.current().nextLong(minId, maxId + 1);
         
-        // Get products from pivot onwards
-        List<Product> first = productRepository.findFromPivot(pivot);
-        
-        // Apply size limit to first list
-        if (first.size() > size) {
-            first = first.subList(0, size);
-        }
+        // At most size rows from the pivot onwards; deleted ids are skipped by the query, so a gap
+        // after the pivot never shortens the page
+        List<Product> first = new ArrayList<>(productRepository.findFromPivot(pivot, PageRequest.of(0, size)));
         
-        // If we don't have enough products, wrap around to the beginning
+        // If we don't have enough products, wrap around to the beginning for the rest
         if (first.size() < size) {
-            List<Product> wrap = productRepository.findWrapAround(pivot);
-            
-            // Apply remaining size limit to wrap list
-            int remainingSize = size - first.size();
-            if (wrap.size() > remainingSize) {
-                wrap = wrap.subList(0, remainingSize);
-            }
-            
-            first.addAll(wrap);
+            first.addAll(productRepository.findWrapAround(pivot, PageRequest.of(0, size - first.size())));
         }
         
         return first;
@@ -185,9 +283,10 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public Page<Product> getRandomProducts(int page, int size) {
-        // Get total count of active products
-        long totalElements = productRepository.countActiveProducts();
-        
+        // Shared permutation of active ids for the current minute-based seed
+        long[] ids = randomFeedIndex.permutation();
+        long totalElements = ids.length;
+
         if (totalElements == 0) {
             return Page.empty();
         }
@@ -202,44 +301,33 @@ public class ProductServiceImpl implements ProductService {
         if (page < 0) {
             page = 0;
         }
-        
-        // Get all active products ordered by ID
-        List<Product> allProducts = productRepository.findAllActiveOrdered();
-        
-        // Generate a seed based on current minute (changes every minute)
-        // This ensures same order for same minute, different order each minute
-        int seed = (int) (System.currentTimeMillis() / (1000 * 60)); // Minute-based seed
-        
-        // Shuffle the list using the seed for consistent random order
-        Collections.shuffle(allProducts, new java.util.Random(seed));
-        
-        // Apply pagination manually
-        int start = page * size;
-        int end = Math.min(start + size, allProducts.size());
-        
-        List<Product> content = start < allProducts.size() ? 
-            allProducts.subList(start, end) : Collections.emptyList();
-        
-        // Create Page object
-        return new PageImpl<>(content, org.springframework.data.domain.PageRequest.of(page, size), totalElements);
+
+        // Load only the ids of the requested page, then restore feed order
+        long[] pageIds = randomFeedIndex.page(ids, page, size);
+        List<Long> idList = new ArrayList<>(pageIds.length);
+        for (long id : pageIds) {
+            idList.add(id);
+        }
+        List<Product> content = findAllByIdsInOrder(idList);
+
+        return new PageImpl<>(content, PageRequest.of(page, size), totalElements);
     }
 
     @Override
     @Transactional
     public Product updateProductStock(Long productId, int quantity, String operation) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
-
-        int oldQuantity = product.getQuantity();
-        int newQuantity;
-
+        // Conditional atomic UPDATEs: no read-modify-write, so concurrent updates cannot be lost
         if ("increase".equalsIgnoreCase(operation)) {
-            newQuantity = oldQuantity + quantity;
+            if (productRepository.incrementStock(productId, quantity) == 0) {
+                throw new RuntimeException("Product not found with id: " + productId);
+            }
         } else if ("decrease".equalsIgnoreCase(operation)) {
-            newQuantity = oldQuantity - quantity;
-
-            // Prevent negative stock
-            if (newQuantity < 0) {
+            if (productRepository.decrementStockIfAvailable(productId, quantity) == 0) {
+                Integer oldQuantity = productRepository.findQuantityById(productId);
+                if (oldQuantity == null) {
+                    throw new RuntimeException("Product not found with id: " + productId);
+                }
+                // Prevent negative stock
                 throw new IllegalArgumentException(
                         "Cannot decrease stock below zero. Current stock: " +
                                 oldQuantity + ", Requested decrease: " + quantity
@@ -251,8 +339,9 @@ public class ProductServiceImpl implements ProductService {
             );
         }
 
-        product.setQuantity(newQuantity);
-
-        return productRepository.save(product);
+        Product saved = productRepository.findById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Change.STOCK));
+        return saved;
     }
-}
\ No newline at end of file
+}
@@ -6,8 +6,10 @@ import com.hust.ict.aims.dto.DeliveryInfoDTO;
 import com.hust.ict.aims.model.*;
 import com.hust.ict.aims.repository.ProductRepository;
 import com.hust.ict.aims.repository.RushOrderRepository;
+import com.hust.ict.aims.service.EmailOutboxService;
 import com.hust.ict.aims.service.RushOrderService;
-import com.hust.ict.aims.config.Config;
+import com.hust.ict.aims.shipping.ShippingRateEngine;
+import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -17,20 +19,25 @@ import java.util.*;
 public class RushOrderServiceImpl implements RushOrderService {
     private final RushOrderRepository rushOrderRepository;
     private final ProductRepository productRepository;
+    private final ShippingRateEngine shippingRateEngine;
+    private final EmailOutboxService emailOutboxService;
 
-    public RushOrderServiceImpl(RushOrderRepository rushOrderRepository, ProductRepository productRepository) {
+    public RushOrderServiceImpl(RushOrderRepository rushOrderRepository, ProductRepository productRepository,
+                                ShippingRateEngine shippingRateEngine, EmailOutboxService emailOutboxService) {
         this.rushOrderRepository = rushOrderRepository;
         this.productRepository = productRepository;
+        this.shippingRateEngine = shippingRateEngine;
+        this.emailOutboxService = emailOutboxService;
     }
 
     @Override
     public List<RushOrder> findAll() {
-        return rushOrderRepository.findAll();
+        return rushOrderRepository.findAllWithDetails();
     }
 
     @Override
     public RushOrder findById(Long id) {
-        Optional<RushOrder> result =  rushOrderRepository.findById(id);
+        Optional<RushOrder> result =  rushOrderRepository.findWithDetailsById(id);
         return result.orElseThrow(() -> new RuntimeException("RushOrder not found"));
     }
 
@@ -39,6 +46,15 @@ public class RushOrderServiceImpl implements RushOrderService {
         return rushOrderRepository.save(rushOrder);
     }
 
+    // The confirmation email is queued in the transaction that saves the order
+    @Override
+    @Transactional
+    public RushOrder placeOrder(RushOrder rushOrder) {
+        RushOrder saved = rushOrderRepository.save(rushOrder);
+        emailOutboxService.enqueueOrderConfirmation(saved);
+        return saved;
+    }
+
     @Override
     public void deleteById(Long id) {
         rushOrderRepository.deleteById(id);
@@ -46,10 +62,8 @@ public class RushOrderServiceImpl implements RushOrderService {
 
     @Override
     public boolean isSupportedAddress(DeliveryInfoDTO deliveryInfoDTO) {
-        if(!deliveryInfoDTO.getProvince().equalsIgnoreCase("hanoi")) {
-            return false;
-        }
-        return Config.INNER_DISTRICTS.contains(deliveryInfoDTO.getDistrict());
+        // Same diacritics-insensitive lookup as delivery fees ("Hà Nội" / "hanoi", "Ba Đình" / "Ba Dinh")
+        return shippingRateEngine.isRushSupported(deliveryInfoDTO.getProvince(), deliveryInfoDTO.getDistrict());
     }
 
     @Override
@@ -58,13 +72,8 @@ public class RushOrderServiceImpl implements RushOrderService {
         for(CartItemDTO cartItemDTO : cartRequestDTO.getItems()) {
             productIds.add(cartItemDTO.getProductId());
         }
-        List<Product> products = productRepository.findByIdIn(productIds);
-        for (Product product : products) {
-            if(product.isRushOrderEligible()) {
-                return true;
-            }
-        }
-        return false;
+        // Answered from the product table alone, without loading the products
+        return !productIds.isEmpty() && productRepository.existsByIdInAndRushOrderEligibleTrue(productIds);
     }
 
 }
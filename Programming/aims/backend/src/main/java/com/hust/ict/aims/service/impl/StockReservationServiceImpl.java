@@ -0,0 +1,263 @@
+package com.hust.ict.aims.service.impl;
+
+import com.hust.ict.aims.cache.ProductChangedEvent;
+import com.hust.ict.aims.dto.CartItemDTO;
+import com.hust.ict.aims.dto.CartRequestDTO;
+import com.hust.ict.aims.dto.CheckoutRequest;
+import com.hust.ict.aims.dto.InsufficientStockDTO;
+import com.hust.ict.aims.exception.InsufficientStockException;
+import com.hust.ict.aims.model.Cart;
+import com.hust.ict.aims.model.CartItem;
+import com.hust.ict.aims.model.StockHold;
+import com.hust.ict.aims.repository.CartRepository;
+import com.hust.ict.aims.repository.ProductRepository;
+import com.hust.ict.aims.repository.StockHoldRepository;
+import com.hust.ict.aims.service.StockReservationService;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Stock is taken with "UPDATE product SET quantity = quantity - ? WHERE product_id = ? AND quantity >= ?",
+ * so two buyers can never both get the last unit and there is no read-modify-write to lose.
+ *
+ * Hot SKUs: each reservation is one short transaction that locks its product rows only for the duration
+ * of the conditional UPDATEs, always in ascending product id order so multi-product carts cannot deadlock.
+ * Once a product is seen sold out, further requests for it fail fast in memory (for a short window, or
+ * until its stock goes up again) instead of queueing on the row lock.
+ */
+@Service
+public class StockReservationServiceImpl implements StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationServiceImpl.class);
+
+    private final ProductRepository productRepository;
+    private final StockHoldRepository stockHoldRepository;
+    private final CartRepository cartRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final long holdMinutes;
+    private final long soldOutMillis;
+    private final int releaseBatchSize;
+
+    // productId -> time it was last seen sold out
+    private final Map<Long, Long> soldOut = new ConcurrentHashMap<>();
+
+    public StockReservationServiceImpl(ProductRepository productRepository,
+                                       StockHoldRepository stockHoldRepository,
+                                       CartRepository cartRepository,
+                                       ApplicationEventPublisher eventPublisher,
+                                       @Value("${aims.stock.hold-minutes:15}") long holdMinutes,
+                                       @Value("${aims.stock.sold-out-cache-ms:2000}") long soldOutMillis,
+                                       @Value("${aims.stock.release-batch-size:500}") int releaseBatchSize) {
+        this.productRepository = productRepository;
+        this.stockHoldRepository = stockHoldRepository;
+        this.cartRepository = cartRepository;
+        this.eventPublisher = eventPublisher;
+        this.holdMinutes = holdMinutes;
+        this.soldOutMillis = soldOutMillis;
+        this.releaseBatchSize = releaseBatchSize;
+    }
+
+    @Override
+    @Transactional
+    public List<StockHold> hold(String reference, Map<Long, Integer> quantities) {
+        return take(reference, quantities, StockHold.HELD,
+                stockHoldRepository.findByReferenceAndStatus(reference, StockHold.HELD));
+    }
+
+    // Release the reference's active holds, then take the stock and record it as holds in the given status
+    private List<StockHold> take(String reference, Map<Long, Integer> quantities, String status,
+                                 List<StockHold> activeHolds) {
+        for (StockHold hold : activeHolds) {
+            releaseHold(hold);
+        }
+
+        // Fail fast on products already known to be sold out, without touching their rows
+        List<InsufficientStockDTO> shortages = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (entry.getValue() > 0 && isKnownSoldOut(entry.getKey())) {
+                shortages.add(new InsufficientStockDTO(entry.getKey(), null, entry.getValue(), 0));
+            }
+        }
+        if (!shortages.isEmpty()) {
+            throw new InsufficientStockException(shortages);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusMinutes(holdMinutes);
+        List<StockHold> holds = new ArrayList<>();
+
+        // Ascending id order: concurrent multi-product reservations lock rows in the same order
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantities).entrySet()) {
+            Long productId = entry.getKey();
+            int quantity = entry.getValue();
+            if (quantity <= 0) continue;
+
+            if (!shortages.isEmpty()) {
+                // Already rolling back: only collect the remaining shortages, take no more locks
+                Integer available = productRepository.findQuantityById(productId);
+                if (available == null || available < quantity) {
+                    shortages.add(new InsufficientStockDTO(productId, null, quantity, available == null ? 0 : available));
+                }
+                continue;
+            }
+
+            if (productRepository.decrementStockIfAvailable(productId, quantity) == 0) {
+                Integer available = productRepository.findQuantityById(productId);
+                if (available == null || available == 0) {
+                    soldOut.put(productId, System.currentTimeMillis());
+                }
+                shortages.add(new InsufficientStockDTO(productId, null, quantity, available == null ? 0 : available));
+                continue;
+            }
+            StockHold hold = new StockHold(productId, quantity, reference, now, expiresAt);
+            hold.setStatus(status);
+            holds.add(hold);
+        }
+
+        if (!shortages.isEmpty()) {
+            // Runtime exception: the decrements above are rolled back with the transaction
+            throw new InsufficientStockException(shortages);
+        }
+
+        List<StockHold> saved = stockHoldRepository.saveAll(holds);
+        for (StockHold hold : saved) {
+            eventPublisher.publishEvent(new ProductChangedEvent(hold.getProductId(), ProductChangedEvent.Change.STOCK));
+        }
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public List<StockHold> holdCart(Long cartId) {
+        Cart cart = cartRepository.findById(cartId)
+                .orElseThrow(() -> new RuntimeException("Cart not found"));
+
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (CartItem item : cart.getItems()) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        return hold(StockReservationService.cartReference(cartId), quantities);
+    }
+
+    @Override
+    @Transactional
+    public String reserveForCheckout(CheckoutRequest request) {
+        CartRequestDTO cart = request.getInvoiceData() != null ? request.getInvoiceData().getCart() : null;
+        if (cart == null || cart.getItems() == null || cart.getItems().isEmpty()) {
+            return null;
+        }
+
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (CartItemDTO item : cart.getItems()) {
+            if (item.getProductId() != null) {
+                quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+        }
+
+        // Confirmed holds get a reference of their own, so releasing one order's stock never touches
+        // another order placed from the same cart
+        String reference = "checkout-" + UUID.randomUUID();
+        List<StockHold> held = cart.getCartId() > 0
+                ? stockHoldRepository.findByReferenceAndStatus(
+                        StockReservationService.cartReference(cart.getCartId()), StockHold.HELD)
+                : Collections.<StockHold>emptyList();
+        Map<Long, Integer> heldQuantities = new HashMap<>();
+        for (StockHold hold : held) {
+            heldQuantities.merge(hold.getProductId(), hold.getQuantity(), Integer::sum);
+        }
+
+        // Reuse the holds taken before payment if they still cover exactly this cart
+        if (held.isEmpty() || !heldQuantities.equals(quantities)) {
+            // Taken and confirmed in one step: no other transaction can see these holds before commit
+            take(reference, quantities, StockHold.CONFIRMED, held);
+            return reference;
+        }
+        // A hold released since it was read (expired, or the cart let go of it) has returned its units:
+        // take those lines again with the conditional decrement, which fails the checkout if they are gone
+        Map<Long, Integer> lost = new HashMap<>();
+        for (StockHold hold : held) {
+            if (stockHoldRepository.confirmFromHeld(hold.getId(), reference) == 0) {
+                lost.merge(hold.getProductId(), hold.getQuantity(), Integer::sum);
+            }
+        }
+        if (!lost.isEmpty()) {
+            take(reference, lost, StockHold.CONFIRMED, Collections.emptyList());
+        }
+        return reference;
+    }
+
+    @Override
+    @Transactional
+    public void confirm(String reference) {
+        for (StockHold hold : stockHoldRepository.findByReferenceAndStatus(reference, StockHold.HELD)) {
+            stockHoldRepository.transitionFromHeld(hold.getId(), StockHold.CONFIRMED);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void release(String reference) {
+        for (StockHold hold : stockHoldRepository.findByReferenceAndStatusIn(
+                reference, List.of(StockHold.HELD, StockHold.CONFIRMED))) {
+            releaseHold(hold);
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${aims.stock.release-interval-ms:30000}")
+    @Transactional
+    public int releaseExpired() {
+        List<StockHold> expired = stockHoldRepository.findExpired(
+                LocalDateTime.now(), PageRequest.of(0, releaseBatchSize));
+        int released = 0;
+        for (StockHold hold : expired) {
+            if (releaseHold(hold)) {
+                released++;
+            }
+        }
+        if (released > 0) {
+            logger.info("Released {} expired stock hold(s)", released);
+        }
+        return released;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // Stock may have gone up (restock, release); let the next request hit the database again
+        if (event.productId() != null) {
+            soldOut.remove(event.productId());
+        }
+    }
+
+    private boolean releaseHold(StockHold hold) {
+        // The status guard makes a release racing with confirm or another release a no-op
+        if (stockHoldRepository.releaseFrom(hold.getId(), hold.getStatus()) == 0) {
+            return false;
+        }
+        productRepository.incrementStock(hold.getProductId(), hold.getQuantity());
+        eventPublisher.publishEvent(new ProductChangedEvent(hold.getProductId(), ProductChangedEvent.Change.STOCK));
+        return true;
+    }
+
+    private boolean isKnownSoldOut(Long productId) {
+        Long seenAt = soldOut.get(productId);
+        if (seenAt == null) return false;
+        if (System.currentTimeMillis() - seenAt > soldOutMillis) {
+            soldOut.remove(productId, seenAt);
+            return false;
+        }
+        return true;
+    }
+}
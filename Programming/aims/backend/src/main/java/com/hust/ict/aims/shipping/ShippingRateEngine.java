@@ -0,0 +1,245 @@
+package com.hust.ict.aims.shipping;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hust.ict.aims.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/*
+ * Cohesion Level: Functional Cohesion
+ * Everything here serves one purpose: turning (address, weight, subtotal, rush) into a delivery fee.
+ *
+ * The rate file is compiled into flat per-zone arrays plus a lookup table from normalized place names
+ * (lower case, no diacritics, no spaces: "Hồ Chí Minh" -> "hochiminh") to zone ids. Free-text addresses
+ * are resolved once and memoized, so pricing a cart is a map hit plus a few integer operations.
+ * reload() swaps in a freshly compiled table atomically; in-flight requests keep the one they started with.
+ */
+@Component
+public class ShippingRateEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShippingRateEngine.class);
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9]+");
+    private static final int MAX_WINDOW = 4;
+    private static final int MAX_MEMOIZED = 10_000;
+
+    private final ResourceLoader resourceLoader;
+    private final String location;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private volatile CompiledRates rates;
+    private final Map<String, Integer> resolvedZones = new ConcurrentHashMap<>();
+
+    public ShippingRateEngine(ResourceLoader resourceLoader,
+                              @Value("${aims.shipping.rates-location:classpath:shipping/rates.json}") String location) {
+        this.resourceLoader = resourceLoader;
+        this.location = location;
+        reload();
+    }
+
+    /**
+     * Delivery fee in VND. Allocation free: reads the current compiled table only.
+     *
+     * @param zone        zone id from {@link #resolveZone}
+     * @param weightGrams weight the fee is based on
+     * @param subtotal    value of the goods shipped together
+     * @param rush        rush deliveries never get the free-shipping discount
+     */
+    public int fee(int zone, int weightGrams, double subtotal, boolean rush) {
+        CompiledRates current = rates;
+        int z = zone >= 0 && zone < current.baseFee.length && current.defined[zone] ? zone : current.defaultZone;
+
+        int fee = current.baseFee[z];
+        int extraGrams = weightGrams - current.baseWeightGrams[z];
+        if (extraGrams > 0) {
+            int steps = (extraGrams + current.stepGrams[z] - 1) / current.stepGrams[z];
+            fee += steps * current.stepFee[z];
+        }
+
+        if (!rush && subtotal >= current.freeShippingMinSubtotal) {
+            fee = Math.max(fee - current.freeShippingMaxDiscount, 0);
+        }
+        return fee;
+    }
+
+    /**
+     * Zone of a province name or free-text address ("Quận Cầu Giấy, Hà Nội"), the default zone if nothing
+     * in it is known.
+     */
+    public int resolveZone(String address) {
+        CompiledRates current = rates;
+        if (address == null || address.isBlank()) {
+            return current.defaultZone;
+        }
+        Integer cached = resolvedZones.get(address);
+        if (cached != null) {
+            return cached;
+        }
+
+        int zone = lookup(current.zoneByName, address, current.defaultZone);
+        if (resolvedZones.size() >= MAX_MEMOIZED) {
+            resolvedZones.clear();
+        }
+        // Do not memoize a result computed against a table that was swapped out meanwhile
+        if (rates == current) {
+            resolvedZones.put(address, zone);
+        }
+        return zone;
+    }
+
+    /**
+     * Whether rush delivery is offered for the province/district pair.
+     */
+    public boolean isRushSupported(String province, String district) {
+        CompiledRates current = rates;
+        return province != null && district != null
+                && current.rushProvinces.contains(key(province))
+                && current.rushDistricts.contains(key(district));
+    }
+
+    public static int toGrams(double kilograms) {
+        return (int) Math.round(kilograms * 1000);
+    }
+
+    public ShippingRateTable getRateTable() {
+        return rates.table;
+    }
+
+    /**
+     * Re-read and recompile the rate file. On failure the previous table stays active.
+     */
+    public synchronized ShippingRateTable reload() {
+        Resource resource = resourceLoader.getResource(location);
+        try (InputStream in = resource.getInputStream()) {
+            ShippingRateTable table = objectMapper.readValue(in, ShippingRateTable.class);
+            rates = compile(table);
+            resolvedZones.clear();
+            logger.info("Loaded {} shipping zone(s) from {}", table.zones().size(), location);
+            return table;
+        } catch (IOException | RuntimeException e) {
+            if (rates == null) {
+                throw new IllegalStateException("Cannot load shipping rates from " + location, e);
+            }
+            logger.error("Reloading shipping rates from {} failed, keeping the current table", location, e);
+            throw new IllegalStateException("Cannot load shipping rates from " + location + ": " + e.getMessage(), e);
+        }
+    }
+
+    // --- compilation --------------------------------------------------------------------------------
+
+    private static CompiledRates compile(ShippingRateTable table) {
+        if (table.zones() == null || table.zones().isEmpty()) {
+            throw new IllegalArgumentException("Rate table defines no zones");
+        }
+        int size = 0;
+        for (ShippingRateTable.Zone zone : table.zones()) {
+            if (zone.id() < 0) throw new IllegalArgumentException("Negative zone id: " + zone.id());
+            if (zone.stepGrams() <= 0) throw new IllegalArgumentException("Zone " + zone.id() + " needs stepGrams > 0");
+            size = Math.max(size, zone.id() + 1);
+        }
+
+        CompiledRates compiled = new CompiledRates(size);
+        Map<String, Integer> zoneByName = new HashMap<>();
+        for (ShippingRateTable.Zone zone : table.zones()) {
+            compiled.defined[zone.id()] = true;
+            compiled.baseFee[zone.id()] = zone.baseFee();
+            compiled.baseWeightGrams[zone.id()] = zone.baseWeightGrams();
+            compiled.stepGrams[zone.id()] = zone.stepGrams();
+            compiled.stepFee[zone.id()] = zone.stepFee();
+            if (zone.aliases() != null) {
+                for (String alias : zone.aliases()) {
+                    zoneByName.put(key(alias), zone.id());
+                }
+            }
+        }
+        if (table.defaultZone() >= size || !compiled.defined[table.defaultZone()]) {
+            throw new IllegalArgumentException("Default zone " + table.defaultZone() + " is not defined");
+        }
+
+        compiled.defaultZone = table.defaultZone();
+        compiled.zoneByName = zoneByName;
+        compiled.freeShippingMinSubtotal = table.freeShipping() != null
+                ? table.freeShipping().minSubtotal() : Double.MAX_VALUE;
+        compiled.freeShippingMaxDiscount = table.freeShipping() != null ? table.freeShipping().maxDiscount() : 0;
+        compiled.rushProvinces = keys(table.rushProvinces() != null ? table.rushProvinces() : List.of());
+        // The district list lives in Config unless the rate file overrides it
+        compiled.rushDistricts = keys(table.rushDistricts() != null ? table.rushDistricts() : Config.INNER_DISTRICTS);
+        compiled.table = table;
+        return compiled;
+    }
+
+    /**
+     * Look for the longest run of words (up to MAX_WINDOW) of the address that names a known place.
+     */
+    private static int lookup(Map<String, Integer> zoneByName, String address, int defaultZone) {
+        String[] words = SEPARATORS.split(normalize(address).trim());
+        for (int window = Math.min(MAX_WINDOW, words.length); window >= 1; window--) {
+            for (int start = 0; start + window <= words.length; start++) {
+                StringBuilder candidate = new StringBuilder();
+                for (int i = start; i < start + window; i++) {
+                    candidate.append(words[i]);
+                }
+                Integer zone = zoneByName.get(candidate.toString());
+                if (zone != null) {
+                    return zone;
+                }
+            }
+        }
+        return defaultZone;
+    }
+
+    private static Set<String> keys(Collection<String> names) {
+        Set<String> keys = new HashSet<>();
+        for (String name : names) {
+            keys.add(key(name));
+        }
+        return keys;
+    }
+
+    // "Hà Nội" -> "hanoi", "Ba Đình" -> "badinh"
+    static String key(String name) {
+        return SEPARATORS.matcher(normalize(name)).replaceAll("");
+    }
+
+    private static String normalize(String text) {
+        String lower = text.toLowerCase(Locale.ROOT).replace('đ', 'd');
+        return DIACRITICS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    private static final class CompiledRates {
+        final boolean[] defined;
+        final int[] baseFee;
+        final int[] baseWeightGrams;
+        final int[] stepGrams;
+        final int[] stepFee;
+        int defaultZone;
+        double freeShippingMinSubtotal;
+        int freeShippingMaxDiscount;
+        Map<String, Integer> zoneByName;
+        Set<String> rushProvinces;
+        Set<String> rushDistricts;
+        ShippingRateTable table;
+
+        CompiledRates(int size) {
+            defined = new boolean[size];
+            baseFee = new int[size];
+            baseWeightGrams = new int[size];
+            stepGrams = new int[size];
+            stepFee = new int[size];
+        }
+    }
+}
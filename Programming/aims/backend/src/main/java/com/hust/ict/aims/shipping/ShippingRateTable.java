@@ -0,0 +1,21 @@
+package com.hust.ict.aims.shipping;
+
+import java.util.List;
+
+/**
+ * Shipping rates as loaded from the rate file (classpath:shipping/rates.json by default).
+ *
+ * A zone charges {@code baseFee} up to {@code baseWeightGrams} and {@code stepFee} for every started
+ * {@code stepGrams} above that. Non-rush deliveries with a subtotal of at least
+ * {@code freeShipping.minSubtotal} get up to {@code freeShipping.maxDiscount} off.
+ */
+public record ShippingRateTable(int defaultZone, FreeShipping freeShipping, List<Zone> zones,
+                                List<String> rushProvinces, List<String> rushDistricts) {
+
+    public record Zone(int id, String name, int baseFee, int baseWeightGrams, int stepGrams, int stepFee,
+                       List<String> aliases) {
+    }
+
+    public record FreeShipping(double minSubtotal, int maxDiscount) {
+    }
+}
@@ -9,7 +9,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.stereotype.Controller;
-import org.springframework.ui.Model;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -26,11 +25,10 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.hust.ict.aims.subsystem.GmailSubsystem.service.MailService;
+import com.hust.ict.aims.render.TemplateRenderer;
+import com.hust.ict.aims.service.EmailOutboxService;
 import org.springframework.web.client.RestTemplate;
 
-import javax.mail.MessagingException;
-
 @Controller
 @RequiredArgsConstructor
 public class OauthController {
@@ -52,7 +50,8 @@ public class OauthController {
 
     private Logger logger = LoggerFactory.getLogger(OauthController.class);
 
-    private final MailService emailService;
+    private final EmailOutboxService emailOutboxService;
+    private final TemplateRenderer templateRenderer;
     @GetMapping("/gmail/login")
     public void login(HttpServletResponse response) throws IOException {
         String authUrl = "https://accounts.google.com/o/oauth2/v2/auth?" +
@@ -65,7 +64,7 @@ public class OauthController {
     }
 
     @GetMapping("/oauth2/callback")
-    public String oauthCallback(@RequestParam("code") String code, Model model, HttpServletRequest request) throws Exception {
+    public void oauthCallback(@RequestParam("code") String code, HttpServletRequest request, HttpServletResponse response) throws Exception {
         RestTemplate restTemplate = new RestTemplate();
         MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
         params.add("code", code);
@@ -87,14 +86,18 @@ public class OauthController {
         System.out.println("Transaction info: " + trans.toString());
         String email = (String) userInfoResponse.getBody().get("email");
         String username = (String) userInfoResponse.getBody().get("username");
-        emailService.sendEmail(email, "Thông tin đơn hàng VNPay", "Cảm ơn bạn đã thanh toán. Đơn hàng của bạn đang được xử lý.\nĐường dẫn");
-        model.addAttribute("email", email);
-        model.addAttribute("username", username);
-        return "order_to_gmail";
+        // Delivered by the outbox dispatcher; the page does not wait for SMTP
+        emailOutboxService.enqueue(email, "Thông tin đơn hàng VNPay", "Cảm ơn bạn đã thanh toán. Đơn hàng của bạn đang được xử lý.\nĐường dẫn");
+        Map<String, Object> model = new HashMap<>();
+        model.put("email", email);
+        model.put("username", username);
+        templateRenderer.render(TemplateRenderer.ORDER_TO_GMAIL, model, response);
     }
 
     /**
-     * Send order confirmation email
+     * Send order confirmation email.
+     * The mail is queued in the email outbox and delivered by EmailOutboxDispatcher, with retries, so the
+     * request never waits for the SMTP server.
      * @param toGmail recipient email address
      * @param orderInfo order details
      * @return response with status
@@ -107,32 +110,31 @@ public class OauthController {
     ) {
         Map<String, String> response = new HashMap<>();
 
+        // Validate email
+        if (toGmail == null || toGmail.isEmpty() || !toGmail.contains("@")) {
+            logger.warn("Invalid email address provided: {}", toGmail);
+            response.put("status", "error");
+            response.put("message", "Invalid email address");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        // Use provided order info or default message
+        String messageBody = orderInfo.isEmpty()
+                ? "Cảm ơn bạn đã thanh toán. Đơn hàng của bạn đang được xử lý."
+                : orderInfo;
+
         try {
-            // Validate email
-            if (toGmail == null || toGmail.isEmpty() || !toGmail.contains("@")) {
-                logger.warn("Invalid email address provided: {}", toGmail);
-                response.put("status", "error");
-                response.put("message", "Invalid email address");
-                return ResponseEntity.badRequest().body(response);
-            }
-
-            // Use provided order info or default message
-            String messageBody = orderInfo.isEmpty()
-                    ? "Cảm ơn bạn đã thanh toán. Đơn hàng của bạn đang được xử lý."
-                    : orderInfo;
-
-            emailService.sendEmail(toGmail, "Thông tin đơn hàng AIMS", messageBody);
-
-            logger.info("Order confirmation email sent to {}", toGmail);
-            response.put("status", "success");
-            response.put("message", "Email sent successfully");
-            return ResponseEntity.ok(response);
-
-        } catch (MessagingException e) {
-            logger.error("Failed to send email: {}", e.getMessage(), e);
+            emailOutboxService.enqueue(toGmail, "Thông tin đơn hàng AIMS", messageBody);
+        } catch (RuntimeException e) {
+            logger.error("Failed to queue email: {}", e.getMessage(), e);
             response.put("status", "error");
             response.put("message", "Failed to send email: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
+
+        logger.info("Order confirmation email queued for {}", toGmail);
+        response.put("status", "success");
+        response.put("message", "Email queued for delivery");
+        return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+}
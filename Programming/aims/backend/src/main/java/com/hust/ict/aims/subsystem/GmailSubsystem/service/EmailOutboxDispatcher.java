@@ -0,0 +1,214 @@
+package com.hust.ict.aims.subsystem.GmailSubsystem.service;
+
+import com.hust.ict.aims.model.OutboxEmail;
+import com.hust.ict.aims.model.Orders;
+import com.hust.ict.aims.render.OrderDocumentModel;
+import com.hust.ict.aims.render.TemplateRenderer;
+import com.hust.ict.aims.repository.OrderRepository;
+import com.hust.ict.aims.repository.OutboxEmailRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.mail.MessagingException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Cohesion Level: Functional Cohesion
+ * All members serve one purpose: delivering the emails waiting in the outbox.
+ *
+ * Every poll takes the due PENDING rows oldest first, renders them in one batch per template, sends
+ * them over one pooled SMTP connection and records the outcome. A failed mail is retried with
+ * exponential backoff (aims.mail.outbox.retry-base-ms doubling up to retry-max-ms) and marked FAILED
+ * after max-attempts, so a mail outage delays confirmations but never drops them. Delivery is at least once: a crash
+ * between sending and recording the batch resends it.
+ */
+@Component
+public class EmailOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    private final OutboxEmailRepository outboxEmailRepository;
+    private final OrderRepository orderRepository;
+    private final MailService mailService;
+    private final TemplateRenderer templateRenderer;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBaseMillis;
+    private final long retryMaxMillis;
+
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter failed;
+
+    public EmailOutboxDispatcher(OutboxEmailRepository outboxEmailRepository, OrderRepository orderRepository,
+                                 MailService mailService, TemplateRenderer templateRenderer,
+                                 TransactionTemplate transactionTemplate, MeterRegistry registry,
+                                 @Value("${aims.mail.outbox.batch-size:50}") int batchSize,
+                                 @Value("${aims.mail.outbox.max-attempts:10}") int maxAttempts,
+                                 @Value("${aims.mail.outbox.retry-base-ms:30000}") long retryBaseMillis,
+                                 @Value("${aims.mail.outbox.retry-max-ms:3600000}") long retryMaxMillis) {
+        this.outboxEmailRepository = outboxEmailRepository;
+        this.orderRepository = orderRepository;
+        this.mailService = mailService;
+        this.templateRenderer = templateRenderer;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseMillis = retryBaseMillis;
+        this.retryMaxMillis = retryMaxMillis;
+        this.sent = outcomeCounter(registry, "sent");
+        this.retried = outcomeCounter(registry, "retried");
+        this.failed = outcomeCounter(registry, "failed");
+    }
+
+    @Scheduled(fixedDelayString = "${aims.mail.outbox.poll-interval-ms:2000}")
+    public void dispatch() {
+        // Keep going while batches come back full, so a backlog drains in one run
+        int attempted;
+        do {
+            attempted = dispatchBatch();
+        } while (attempted == batchSize);
+    }
+
+    /**
+     * Send one batch of due emails.
+     *
+     * @return how many emails were attempted
+     */
+    public int dispatchBatch() {
+        List<OutboxEmail> due = new ArrayList<>();
+        List<MailService.OutgoingMail> mails = new ArrayList<>();
+        List<String> renderErrors = new ArrayList<>();
+
+        // Rendering walks the order's lazy associations, so it runs inside a transaction
+        transactionTemplate.executeWithoutResult(status -> {
+            due.addAll(outboxEmailRepository.findDue(LocalDateTime.now(), PageRequest.of(0, batchSize)));
+            mails.addAll(Collections.nCopies(due.size(), null));
+            renderErrors.addAll(Collections.nCopies(due.size(), null));
+
+            // Plain-text rows are sent as they are; templated rows are rendered one batch per template
+            Map<String, List<Integer>> byTemplate = new LinkedHashMap<>();
+            for (int i = 0; i < due.size(); i++) {
+                OutboxEmail email = due.get(i);
+                if (email.getTemplate() == null) {
+                    mails.set(i, MailService.OutgoingMail.text(email.getRecipient(), email.getSubject(), email.getBody()));
+                } else {
+                    byTemplate.computeIfAbsent(email.getTemplate(), template -> new ArrayList<>()).add(i);
+                }
+            }
+            byTemplate.forEach((template, indexes) -> renderAll(template, indexes, due, mails, renderErrors));
+        });
+        if (due.isEmpty()) return 0;
+
+        List<MailService.OutgoingMail> sendable = new ArrayList<>();
+        for (MailService.OutgoingMail mail : mails) {
+            if (mail != null) sendable.add(mail);
+        }
+        List<MessagingException> sendResults = sendable.isEmpty()
+                ? Collections.emptyList()
+                : mailService.sendBatch(sendable);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            int next = 0;
+            for (int i = 0; i < due.size(); i++) {
+                OutboxEmail email = due.get(i);
+                String error = renderErrors.get(i);
+                if (error == null) {
+                    MessagingException failure = sendResults.get(next++);
+                    error = failure != null ? failure.getMessage() : null;
+                }
+                if (error == null) {
+                    markSent(email);
+                } else {
+                    markFailedAttempt(email, error);
+                }
+                outboxEmailRepository.save(email);
+            }
+        });
+        return due.size();
+    }
+
+    private void renderAll(String template, List<Integer> indexes, List<OutboxEmail> due,
+                           List<MailService.OutgoingMail> mails, List<String> renderErrors) {
+        List<Integer> rendering = new ArrayList<>();
+        List<Map<String, Object>> models = new ArrayList<>();
+        for (int i : indexes) {
+            try {
+                models.add(model(due.get(i)));
+                rendering.add(i);
+            } catch (RuntimeException e) {
+                renderErrors.set(i, "Render failed: " + e.getMessage());
+            }
+        }
+
+        List<TemplateRenderer.Rendered> results = templateRenderer.renderBatch(template, models);
+        for (int n = 0; n < results.size(); n++) {
+            int i = rendering.get(n);
+            OutboxEmail email = due.get(i);
+            TemplateRenderer.Rendered rendered = results.get(n);
+            if (rendered.succeeded()) {
+                mails.set(i, MailService.OutgoingMail.html(email.getRecipient(), email.getSubject(), rendered.content()));
+            } else {
+                renderErrors.set(i, "Render failed: " + rendered.failure().getMessage());
+            }
+        }
+    }
+
+    private Map<String, Object> model(OutboxEmail email) {
+        Orders order = orderRepository.findById(email.getOrderId())
+                .orElseThrow(() -> new IllegalStateException("Order not found - " + email.getOrderId()));
+        return OrderDocumentModel.of(order);
+    }
+
+    private void markSent(OutboxEmail email) {
+        email.setStatus(OutboxEmail.SENT);
+        email.setSentAt(LocalDateTime.now());
+        email.setAttempts(email.getAttempts() + 1);
+        email.setLastError(null);
+        sent.increment();
+    }
+
+    private void markFailedAttempt(OutboxEmail email, String error) {
+        int attempts = email.getAttempts() + 1;
+        email.setAttempts(attempts);
+        email.setLastError(error != null && error.length() > 2000 ? error.substring(0, 2000) : error);
+        if (attempts >= maxAttempts) {
+            email.setStatus(OutboxEmail.FAILED);
+            failed.increment();
+            logger.error("Giving up on email {} to {} after {} attempts: {}",
+                    email.getId(), email.getRecipient(), attempts, error);
+            return;
+        }
+        email.setNextAttemptAt(LocalDateTime.now().plus(backoff(attempts)));
+        retried.increment();
+        logger.warn("Email {} to {} failed (attempt {}), retrying at {}: {}",
+                email.getId(), email.getRecipient(), attempts, email.getNextAttemptAt(), error);
+    }
+
+    // retry-base-ms, doubled per failed attempt, at most retry-max-ms
+    Duration backoff(int attempts) {
+        long millis = retryBaseMillis << Math.min(attempts - 1, 30);
+        return Duration.ofMillis(millis <= 0 ? retryMaxMillis : Math.min(millis, retryMaxMillis));
+    }
+
+    private static Counter outcomeCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("aims.mail.outbox.deliveries")
+                .description("Outbox email delivery attempts by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
@@ -2,44 +2,198 @@ package com.hust.ict.aims.subsystem.GmailSubsystem.service;
 
 import javax.mail.*;
 import javax.mail.internet.*;
+import javax.mail.util.ByteArrayDataSource;
+import javax.activation.DataHandler;
 
+import com.hust.ict.aims.config.ThreadingConfig;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 
+/*
+ * The SMTP session is built once, and connected transports are kept in a small pool and reused, so
+ * consecutive messages skip the TCP + STARTTLS + AUTH handshake. A transport the server has dropped is
+ * noticed by isConnected() (an SMTP NOOP) and reconnected on the next borrow.
+ */
 @Service
 @Component
 @CrossOrigin(origins = "http://localhost:5173")
 public class MailService {
 
+    private static final Logger logger = LoggerFactory.getLogger(MailService.class);
+
+    /**
+     * One message to send: a plain-text body, or an HTML body already encoded as UTF-8 bytes.
+     */
+    public record OutgoingMail(String to, String subject, String text, byte[] html) {
+
+        public static OutgoingMail text(String to, String subject, String text) {
+            return new OutgoingMail(to, subject, text, null);
+        }
+
+        public static OutgoingMail html(String to, String subject, byte[] utf8Html) {
+            return new OutgoingMail(to, subject, null, utf8Html);
+        }
+    }
+
     @Value("${spring.mail.username}")
     private String senderEmail;
     @Value("${spring.mail.password}")
     private String senderPassword;
+    @Value("${aims.mail.host:smtp.gmail.com}")
+    private String host;
+    @Value("${aims.mail.port:587}")
+    private String port;
+    // Connect, read and write timeouts, so a stalled SMTP server cannot hold a thread forever
+    @Value("${aims.mail.timeout-ms:10000}")
+    private String timeoutMillis;
+
+    private final BlockingQueue<Transport> idleTransports;
+    private volatile Session session;
+
+    public MailService(@Value("${aims.mail.pool-size:2}") int poolSize) {
+        this.idleTransports = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    }
 
     public void sendEmail(String toEmail, String subject, String body) throws MessagingException {
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", true);
-        props.put("mail.smtp.starttls.enable", true);
-        props.put("mail.smtp.host", "smtp.gmail.com");
-        props.put("mail.smtp.port", "587");
-
-        Session session = Session.getInstance(props, new Authenticator() {
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(senderEmail, senderPassword);
+        MessagingException failure = sendBatch(List.of(OutgoingMail.text(toEmail, subject, body))).get(0);
+        if (failure != null) {
+            throw failure;
+        }
+        logger.info("Sent message successfully to {}", toEmail);
+    }
+
+    /**
+     * Send the messages over one pooled connection.
+     *
+     * @return one entry per message, in order: null when it was sent, otherwise why it was not
+     */
+    public List<MessagingException> sendBatch(List<OutgoingMail> mails) {
+        List<MessagingException> results = new ArrayList<>(mails.size());
+        Transport transport;
+        try {
+            transport = borrowTransport();
+        } catch (MessagingException e) {
+            for (int i = 0; i < mails.size(); i++) results.add(e);
+            return results;
+        }
+
+        try {
+            for (OutgoingMail mail : mails) {
+                try {
+                    if (!transport.isConnected()) {
+                        transport.connect();
+                    }
+                    Message message = toMessage(mail);
+                    transport.sendMessage(message, message.getAllRecipients());
+                    results.add(null);
+                } catch (MessagingException e) {
+                    results.add(e);
+                }
             }
-        });
-        //session.setDebug(true);
-        Message message = new MimeMessage(session);
+        } finally {
+            releaseTransport(transport);
+        }
+        return results;
+    }
+
+    /**
+     * Send on the integration executor instead of the caller's thread. The future fails with the
+     * MessagingException when the mail could not be sent.
+     */
+    @Async(ThreadingConfig.INTEGRATION_EXECUTOR)
+    public CompletableFuture<Void> sendEmailAsync(String toEmail, String subject, String body) {
+        try {
+            sendEmail(toEmail, subject, body);
+            return CompletableFuture.completedFuture(null);
+        } catch (MessagingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @PreDestroy
+    public void closeTransports() {
+        Transport transport;
+        while ((transport = idleTransports.poll()) != null) {
+            close(transport);
+        }
+    }
+
+    private Message toMessage(OutgoingMail mail) throws MessagingException {
+        MimeMessage message = new MimeMessage(session());
         message.setFrom(new InternetAddress(senderEmail));
-        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(toEmail));
-        message.setSubject(subject);
-        message.setText(body);
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(mail.to()));
+        message.setSubject(mail.subject(), "UTF-8");
+        if (mail.html() != null) {
+            // The rendered bytes go into the MIME part as they are; no String copy of the body is made
+            message.setDataHandler(new DataHandler(new ByteArrayDataSource(mail.html(), "text/html; charset=UTF-8")));
+        } else {
+            message.setText(mail.text(), "UTF-8");
+        }
+        return message;
+    }
+
+    private Transport borrowTransport() throws MessagingException {
+        Transport transport = idleTransports.poll();
+        if (transport == null) {
+            transport = session().getTransport("smtp");
+        }
+        if (!transport.isConnected()) {
+            transport.connect();
+        }
+        return transport;
+    }
 
-        Transport.send(message);
-        System.out.println("Sent message successfully to " + toEmail);
+    private void releaseTransport(Transport transport) {
+        if (!transport.isConnected() || !idleTransports.offer(transport)) {
+            close(transport);
+        }
+    }
+
+    private static void close(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            // Already closed by the server
+        }
+    }
+
+    private Session session() {
+        Session current = session;
+        if (current == null) {
+            synchronized (this) {
+                current = session;
+                if (current == null) {
+                    Properties props = new Properties();
+                    props.put("mail.smtp.auth", true);
+                    props.put("mail.smtp.starttls.enable", true);
+                    props.put("mail.smtp.host", host);
+                    props.put("mail.smtp.port", port);
+                    props.put("mail.smtp.connectiontimeout", timeoutMillis);
+                    props.put("mail.smtp.timeout", timeoutMillis);
+                    props.put("mail.smtp.writetimeout", timeoutMillis);
+
+                    current = Session.getInstance(props, new Authenticator() {
+                        protected PasswordAuthentication getPasswordAuthentication() {
+                            return new PasswordAuthentication(senderEmail, senderPassword);
+                        }
+                    });
+                    session = current;
+                }
+            }
+        }
+        return current;
     }
 }
@@ -2,6 +2,7 @@ package com.hust.ict.aims.subsystem.PaymentSubsystem.controller;
 
 import com.hust.ict.aims.dto.TransactionRequest;
 import com.hust.ict.aims.exception.PaymentException;
+import com.hust.ict.aims.idempotency.IdempotencyStore;
 import com.hust.ict.aims.model.Transaction;
 import com.hust.ict.aims.service.TransactionService;
 import com.hust.ict.aims.service.impl.TransactionServiceImpl;
@@ -13,6 +14,8 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -22,6 +25,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 @Component
@@ -37,6 +41,9 @@ public class PaymentController implements IPayment {
     @Autowired
     private TransactionServiceImpl transactionService;
 
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
     @GetMapping("/api/pay_test")
     public void submitOrder(
             HttpServletRequest request,
@@ -65,19 +72,34 @@ public class PaymentController implements IPayment {
     }
 
     @GetMapping("/payment-result")
-    public void paymentReturn(@RequestParam Map<String,String> allParams, HttpServletResponse response, HttpSession session) throws IOException {
+    public ResponseEntity<?> paymentReturn(@RequestParam Map<String,String> allParams, HttpSession session) {
+        String txnRef = allParams.get("vnp_TxnRef");
+        String transactionNo = allParams.get("vnp_TransactionNo");
+        if (txnRef == null || transactionNo == null) {
+            return processPaymentReturn(allParams, session);
+        }
+        // A refreshed or replayed return URL is redirected like the first one instead of recording the payment again
+        return idempotencyStore.execute("vnpay:" + txnRef + ":" + transactionNo, allParams,
+                () -> processPaymentReturn(allParams, session));
+    }
+
+    private ResponseEntity<?> processPaymentReturn(Map<String,String> allParams, HttpSession session) {
         String gateway = (String) session.getAttribute("gateway");
         session.removeAttribute("gateway");
         allParams.put("gateway", gateway);
         PaymentStrategy  paymentStrategy = paymentService.getPaymentStrategy(gateway);
+        String transactionId;
         try {
             Transaction transaction = paymentStrategy.createPaymentTransaction(allParams);
             payOrder(transaction);
-            response.sendRedirect(this.checkoutConfirmation + "?transactionId=" + transaction.getTransactionId());
+            transactionId = String.valueOf(transaction.getTransactionId());
         } catch (PaymentException e) {
             System.err.println(e.getMessage());
-            response.sendRedirect(this.checkoutConfirmation + "?transactionId=-1");
+            transactionId = "-1";
         }
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .location(URI.create(this.checkoutConfirmation + "?transactionId=" + transactionId))
+                .build();
     }
 
     @Override
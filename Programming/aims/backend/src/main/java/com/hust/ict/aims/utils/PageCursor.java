@@ -0,0 +1,46 @@
+package com.hust.ict.aims.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset pagination token: the sort key and id of the last row a client has seen.
+ *
+ * The next page is read with "WHERE (key, id) > (lastKey, lastId)" instead of OFFSET, so a deep page
+ * costs the same as the first one. The token is URL-safe Base64 and carries no meaning for clients.
+ */
+public record PageCursor(String key, long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public static PageCursor ofId(long id) {
+        return new PageCursor("", id);
+    }
+
+    public String encode() {
+        String raw = (key == null ? "" : key) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token produced by {@link #encode()}. Returns null for a null/blank token.
+     *
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The id is always numeric, so the last separator splits even keys that contain '|'
+            int split = raw.lastIndexOf(SEPARATOR);
+            if (split < 0) {
+                throw new IllegalArgumentException("Invalid page cursor");
+            }
+            return new PageCursor(raw.substring(0, split), Long.parseLong(raw.substring(split + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page cursor", e);
+        }
+    }
+}
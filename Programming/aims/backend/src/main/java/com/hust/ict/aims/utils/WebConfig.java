@@ -1,18 +0,0 @@
-package com.hust.ict.aims.utils;
-
-import org.springframework.context.annotation.Configuration;
-import org.springframework.web.servlet.config.annotation.CorsRegistry;
-import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
-
-@Configuration
-public class WebConfig implements WebMvcConfigurer {
-
-    @Override
-    public void addCorsMappings(CorsRegistry registry) {
-        registry.addMapping("/**") // Cho tất cả đường dẫn
-                .allowedOrigins("http://localhost:5173") // Cho phép từ localhost:5173
-                .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS") // Các phương thức được phép
-                .allowedHeaders("*")
-                .allowCredentials(true);
-    }
-}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.hust.ict.aims.cache;
+
+import com.hust.ict.aims.model.Book;
+import com.hust.ict.aims.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogCacheTest {
+
+    private static Book book(long id, String title) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor("Author " + id);
+        book.setNumberOfPage(120);
+        return book;
+    }
+
+    @Test
+    void testReadThroughLoadsOnce() {
+        CatalogCache cache = new CatalogCache(10, 10);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, () -> { loads.incrementAndGet(); return book(1L, "Dune"); });
+        ProductSnapshot second = cache.get(1L, () -> { loads.incrementAndGet(); return book(1L, "Dune"); });
+
+        assertEquals(1, loads.get());
+        assertEquals("Dune", second.title());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void testSnapshotRebuildsSubtype() {
+        Product entity = ProductSnapshot.of(book(7L, "Emma")).toEntity();
+
+        assertInstanceOf(Book.class, entity);
+        assertEquals("Author 7", ((Book) entity).getAuthor());
+        assertEquals(120, ((Book) entity).getNumberOfPage());
+    }
+
+    @Test
+    void testEvictDropsProductAndListings() {
+        CatalogCache cache = new CatalogCache(10, 10);
+        cache.getListing("active", () -> List.of(book(1L, "A"), book(2L, "B")));
+
+        cache.onProductChanged(new ProductChangedEvent(1L, ProductChangedEvent.Change.UPDATED));
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.getListing("active", () -> { loads.incrementAndGet(); return List.of(book(2L, "B")); });
+        cache.get(2L, () -> { loads.incrementAndGet(); return book(2L, "B"); });
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testStockChangeKeepsListingsWithoutTheProductAndCounts() {
+        CatalogCache cache = new CatalogCache(10, 10);
+        cache.getListing("page:0:2", () -> List.of(book(1L, "A"), book(2L, "B")));
+        cache.getListing("page:1:2", () -> List.of(book(3L, "C")));
+        cache.getCount("active", () -> 3L);
+
+        cache.onProductChanged(new ProductChangedEvent(3L, ProductChangedEvent.Change.STOCK));
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.getListing("page:0:2", () -> { loads.incrementAndGet(); return List.of(); });
+        cache.getCount("active", () -> { loads.incrementAndGet(); return 0L; });
+        assertEquals(0, loads.get());
+        cache.getListing("page:1:2", () -> { loads.incrementAndGet(); return List.of(book(3L, "C")); });
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testAddedProductDropsAllListingsAndCounts() {
+        CatalogCache cache = new CatalogCache(10, 10);
+        cache.getListing("page:0:2", () -> List.of(book(1L, "A"), book(2L, "B")));
+        cache.getCount("active", () -> 2L);
+
+        cache.onProductChanged(new ProductChangedEvent(3L, ProductChangedEvent.Change.ADDED));
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.getListing("page:0:2", () -> { loads.incrementAndGet(); return List.of(book(1L, "A")); });
+        assertEquals(3L, cache.getCount("active", () -> { loads.incrementAndGet(); return 3L; }));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testLoadThatRacedWithAnEvictionIsNotCached() {
+        CatalogCache cache = new CatalogCache(10, 10);
+        cache.getListing("page:0:2", () -> {
+            // The product changes while its old row is being read
+            cache.onProductChanged(new ProductChangedEvent(1L, ProductChangedEvent.Change.UPDATED));
+            return List.of(book(1L, "Old"));
+        });
+        cache.getCount("active", () -> {
+            cache.onProductChanged(new ProductChangedEvent(2L, ProductChangedEvent.Change.ADDED));
+            return 1L;
+        });
+
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("New", cache.getListing("page:0:2",
+                () -> { loads.incrementAndGet(); return List.of(book(1L, "New")); }).get(0).title());
+        assertEquals("New", cache.get(1L, () -> { loads.incrementAndGet(); return book(1L, "Newer"); }).title());
+        assertEquals(2L, cache.getCount("active", () -> { loads.incrementAndGet(); return 2L; }));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testSizeIsBounded() {
+        CatalogCache cache = new CatalogCache(2, 2);
+        for (long id = 1; id <= 5; id++) {
+            long current = id;
+            cache.get(current, () -> book(current, "T" + current));
+        }
+        assertEquals(2, cache.size());
+    }
+}
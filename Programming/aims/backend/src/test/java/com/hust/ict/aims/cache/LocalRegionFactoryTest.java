@@ -0,0 +1,67 @@
+package com.hust.ict.aims.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalRegionFactoryTest {
+
+    @Test
+    void testRegionKeepsTheMostRecentlyUsedEntries() {
+        RegionStorage storage = new RegionStorage(2, Duration.ZERO);
+        storage.putIntoCache(1L, "one", null);
+        storage.putIntoCache(2L, "two", null);
+        storage.getFromCache(1L, null);
+
+        storage.putIntoCache(3L, "three", null);
+
+        assertEquals("one", storage.getFromCache(1L, null));
+        assertNull(storage.getFromCache(2L, null));
+        assertEquals(2, storage.size());
+        assertEquals(1, storage.getEvictionCount());
+    }
+
+    @Test
+    void testEntriesExpireAfterTheRegionTtl() throws InterruptedException {
+        RegionStorage storage = new RegionStorage(10, Duration.ofMillis(1));
+        storage.putIntoCache(1L, "one", null);
+
+        Thread.sleep(5);
+
+        assertNull(storage.getFromCache(1L, null));
+        assertFalse(storage.contains(1L));
+        assertEquals(0, storage.size());
+    }
+
+    @Test
+    void testRegionSettingsComeFromTheEnvironment() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("aims.cache.regions.aims.product.max-entries", "1");
+        LocalRegionFactory factory = LocalRegionFactory.fromEnvironment(environment);
+
+        RegionStorage products = (RegionStorage) factory.createQueryResultsRegionStorageAccess(
+                LocalRegionFactory.PRODUCT, null);
+        products.putIntoCache(1L, "one", null);
+        products.putIntoCache(2L, "two", null);
+
+        assertEquals(1, factory.size(LocalRegionFactory.PRODUCT));
+        assertEquals(1, factory.getEvictionCount(LocalRegionFactory.PRODUCT));
+        assertEquals(0, factory.size(LocalRegionFactory.ROLE));
+    }
+
+    @Test
+    void testTimestampsAreNeverEvicted() {
+        LocalRegionFactory factory = new LocalRegionFactory(Map.of());
+        RegionStorage timestamps = (RegionStorage) factory.createTimestampsRegionStorageAccess("timestamps", null);
+        for (int i = 0; i < 5000; i++) {
+            timestamps.putIntoCache("table" + i, (long) i, null);
+        }
+
+        assertEquals(5000, timestamps.size());
+        assertEquals(0, timestamps.getEvictionCount());
+    }
+}
@@ -0,0 +1,91 @@
+package com.hust.ict.aims.cache;
+
+import com.hust.ict.aims.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class RandomFeedIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private RandomFeedIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new RandomFeedIndex(productRepository);
+    }
+
+    private void givenActiveIds(long count) {
+        // Every other id, as if half the catalog had been soft-deleted
+        given(productRepository.findActiveIdsOrdered())
+                .willReturn(LongStream.rangeClosed(1, count).map(i -> i * 2).boxed().toList());
+    }
+
+    @Test
+    void testSampleDrawsDistinctActiveIds() {
+        givenActiveIds(50);
+
+        long[] sample = index.sample(12);
+
+        assertEquals(12, sample.length);
+        assertEquals(12, Arrays.stream(sample).distinct().count());
+        assertTrue(Arrays.stream(sample).allMatch(id -> id % 2 == 0 && id <= 100));
+        // The ids come from the shared index, built once
+        index.sample(12);
+        verify(productRepository, times(1)).findActiveIdsOrdered();
+    }
+
+    @Test
+    void testOnlyCatalogChangesRebuildThePermutation() {
+        givenActiveIds(5);
+        index.permutation();
+
+        index.onProductChanged(new ProductChangedEvent(2L, ProductChangedEvent.Change.STOCK));
+        index.onProductChanged(new ProductChangedEvent(4L, ProductChangedEvent.Change.UPDATED));
+        index.permutation();
+        verify(productRepository, times(1)).findActiveIdsOrdered();
+
+        index.onProductChanged(new ProductChangedEvent(4L, ProductChangedEvent.Change.DELETED));
+        index.permutation();
+        verify(productRepository, times(2)).findActiveIdsOrdered();
+    }
+
+    @Test
+    void testSampleIsCappedByTheCatalog() {
+        givenActiveIds(5);
+
+        assertEquals(5, index.sample(12).length);
+        assertEquals(0, index.sample(0).length);
+    }
+
+    @Test
+    void testEveryProductIsEquallyLikely() {
+        givenActiveIds(10);
+        int[] drawn = new int[21];
+
+        for (int i = 0; i < 20000; i++) {
+            for (long id : index.sample(3)) {
+                drawn[(int) id]++;
+            }
+        }
+
+        // 6000 expected per product
+        for (long id : List.of(2L, 4L, 6L, 8L, 10L, 12L, 14L, 16L, 18L, 20L)) {
+            assertTrue(Math.abs(drawn[(int) id] - 6000) < 600, "id " + id + " drawn " + drawn[(int) id]);
+        }
+    }
+}
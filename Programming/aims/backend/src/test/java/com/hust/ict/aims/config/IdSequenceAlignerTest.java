@@ -0,0 +1,56 @@
+package com.hust.ict.aims.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdSequenceAlignerTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final IdSequenceAligner aligner = new IdSequenceAligner(jdbcTemplate, mock(EntityManagerFactory.class));
+
+    @Test
+    void testSequenceAheadOfTheTableIsLeftAlone() {
+        database("PostgreSQL");
+        when(jdbcTemplate.queryForObject(startsWith("SELECT MAX("), eq(Long.class))).thenReturn(120L);
+        when(jdbcTemplate.queryForMap(startsWith("SELECT last_value"))).thenReturn(Map.of("last_value", 151L, "is_called", true));
+
+        aligner.align();
+
+        verify(jdbcTemplate, never()).queryForObject(contains("nextval"), eq(Long.class));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void testSequenceBehindTheTableIsRestartedPastIt() {
+        database("PostgreSQL");
+        when(jdbcTemplate.queryForObject(startsWith("SELECT MAX("), eq(Long.class))).thenReturn(120L);
+        when(jdbcTemplate.queryForMap(startsWith("SELECT last_value"))).thenReturn(Map.of("last_value", 1L, "is_called", false));
+
+        aligner.align();
+
+        verify(jdbcTemplate).execute("ALTER SEQUENCE cartitem_seq RESTART WITH 171");
+        verify(jdbcTemplate).execute("ALTER SEQUENCE stock_hold_seq RESTART WITH 171");
+    }
+
+    @Test
+    void testOtherDatabasesAreSkipped() {
+        database("H2");
+
+        aligner.align();
+
+        verify(jdbcTemplate, never()).queryForObject(anyString(), eq(Long.class));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void database(String productName) {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(productName);
+    }
+}
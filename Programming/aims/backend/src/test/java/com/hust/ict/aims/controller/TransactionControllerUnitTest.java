@@ -2,10 +2,13 @@ package com.hust.ict.aims.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hust.ict.aims.model.Transaction;
+import com.hust.ict.aims.security.jwt.JwtService;
 import com.hust.ict.aims.service.TransactionService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -18,6 +21,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(TransactionController.class)
+@AutoConfigureMockMvc(addFilters = false)
 class TransactionControllerUnitTest {
 
     @Autowired
@@ -26,6 +30,13 @@ class TransactionControllerUnitTest {
     @MockitoBean
     private TransactionService transactionService;
 
+    // Needed to build JwtAuthFilter; the filters themselves are left out of the chain
+    @MockitoBean
+    private JwtService jwtService;
+
+    @MockitoBean
+    private UserDetailsService userDetailsService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -38,7 +49,7 @@ class TransactionControllerUnitTest {
 
         mockMvc.perform(get("/api/transactions"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].transactionID").value(1));
+                .andExpect(jsonPath("$[0].transactionId").value(1));
     }
 
     @Test
@@ -50,7 +61,7 @@ class TransactionControllerUnitTest {
 
         mockMvc.perform(get("/api/transactions/1"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.transactionID").value(1));
+                .andExpect(jsonPath("$.transactionId").value(1));
     }
 
     @Test
@@ -74,7 +85,7 @@ class TransactionControllerUnitTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(transaction)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.transactionID").value(1))
+                .andExpect(jsonPath("$.transactionId").value(1))
                 .andExpect(jsonPath("$.amount").value(150.0));
     }
 
@@ -90,7 +101,7 @@ class TransactionControllerUnitTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(updated)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.transactionID").value(1))
+                .andExpect(jsonPath("$.transactionId").value(1))
                 .andExpect(jsonPath("$.amount").value(200.0));
     }
 
@@ -0,0 +1,123 @@
+package com.hust.ict.aims.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hust.ict.aims.model.IdempotencyRecord;
+import com.hust.ict.aims.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreTest {
+
+    @Mock
+    private IdempotencyRecordRepository repository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IdempotencyStore store;
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        given(transactionManager.getTransaction(any())).willAnswer(invocation -> new SimpleTransactionStatus());
+        store = new IdempotencyStore(repository, transactionManager, new ObjectMapper(), new SimpleMeterRegistry(),
+                24, 30, 100);
+    }
+
+    @Test
+    void testRepeatIsReplayedWithoutRunningAgain() {
+        Map<String, Object> request = Map.of("cartId", 7);
+
+        ResponseEntity<?> first = store.execute("checkout:k1", request, this::placeOrder);
+        ResponseEntity<?> second = store.execute("checkout:k1", request, this::placeOrder);
+
+        assertEquals(1, runs.get());
+        assertEquals(HttpStatus.OK, second.getStatusCode());
+        assertEquals("{\"orderId\":1}", second.getBody());
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertNull(first.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        verify(repository).complete("checkout:k1", 200, "{\"orderId\":1}", null);
+    }
+
+    @Test
+    void testKeyReusedForAnotherRequestIsRefused() {
+        store.execute("checkout:k2", Map.of("cartId", 7), this::placeOrder);
+
+        ResponseEntity<?> reused = store.execute("checkout:k2", Map.of("cartId", 8), this::placeOrder);
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, reused.getStatusCode());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void testFailedRequestReleasesTheKey() {
+        ResponseEntity<?> failed = store.execute("checkout:k3", Map.of("cartId", 7),
+                () -> ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "out of stock")));
+        ResponseEntity<?> retried = store.execute("checkout:k3", Map.of("cartId", 7), this::placeOrder);
+
+        assertEquals(HttpStatus.CONFLICT, failed.getStatusCode());
+        assertEquals(HttpStatus.OK, retried.getStatusCode());
+        verify(repository).release("checkout:k3");
+        verify(repository, times(1)).complete(eq("checkout:k3"), anyInt(), any(), any());
+    }
+
+    @Test
+    void testCompletedRecordFromTheTableIsReplayed() {
+        String hash = store.hash(Map.of("vnp_TxnRef", "42"));
+        given(repository.insertClaim(eq("vnpay:42:9"), any(), any(), any()))
+                .willThrow(new DataIntegrityViolationException("duplicate key"));
+        given(repository.findById("vnpay:42:9")).willReturn(Optional.of(completedRecord(hash)));
+
+        ResponseEntity<?> replayed = store.execute("vnpay:42:9", Map.of("vnp_TxnRef", "42"), this::placeOrder);
+
+        assertEquals(0, runs.get());
+        assertEquals(HttpStatus.FOUND, replayed.getStatusCode());
+        assertEquals("/checkout/confirmation?transactionId=5", replayed.getHeaders().getLocation().toString());
+    }
+
+    @Test
+    void testRequestStillRunningGetsConflict() {
+        given(repository.insertClaim(eq("checkout:k4"), any(), any(), any()))
+                .willThrow(new DataIntegrityViolationException("duplicate key"));
+
+        ResponseEntity<?> response = store.execute("checkout:k4", Map.of("cartId", 7), this::placeOrder);
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals(0, runs.get());
+    }
+
+    private ResponseEntity<?> placeOrder() {
+        return ResponseEntity.ok(Map.of("orderId", runs.incrementAndGet()));
+    }
+
+    private static IdempotencyRecord completedRecord(String hash) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        ReflectionTestUtils.setField(record, "key", "vnpay:42:9");
+        ReflectionTestUtils.setField(record, "requestHash", hash);
+        ReflectionTestUtils.setField(record, "status", IdempotencyRecord.COMPLETED);
+        ReflectionTestUtils.setField(record, "responseStatus", 302);
+        ReflectionTestUtils.setField(record, "responseLocation", "/checkout/confirmation?transactionId=5");
+        ReflectionTestUtils.setField(record, "expiresAt", LocalDateTime.now().plusHours(1));
+        return record;
+    }
+}
@@ -0,0 +1,50 @@
+package com.hust.ict.aims.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCountFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final QueryCounter queryCounter = new QueryCounter(registry);
+    private final QueryCountFilter filter = new QueryCountFilter(queryCounter, registry, 5);
+
+    @Test
+    void testQueriesAreCountedPerRequestPattern() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/42");
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/products/{id}");
+            queryCounter.inspect("select p1_0.product_id from product p1_0 where p1_0.product_id=?");
+            queryCounter.inspect("  select b1_0.author from book b1_0 where b1_0.product_id=?");
+        });
+
+        DistributionSummary summary = registry.get("aims.db.queries.per.request")
+                .tags("method", "GET", "uri", "/api/products/{id}").summary();
+        assertEquals(1, summary.count());
+        assertEquals(2, summary.totalAmount());
+        assertEquals(2, registry.get("aims.db.queries").tag("kind", "select").counter().count());
+        assertNull(registry.find("aims.db.n_plus_one.suspected").counter());
+    }
+
+    @Test
+    void testRequestAboveThresholdIsFlaggedAsNPlusOne() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/orders");
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/orders");
+            for (int i = 0; i < 8; i++) {
+                queryCounter.inspect("select * from invoice where order_id=?");
+            }
+        });
+
+        assertEquals(1, registry.get("aims.db.n_plus_one.suspected").tag("uri", "/api/orders").counter().count());
+        // Counting stops with the request
+        queryCounter.inspect("insert into operation values (?, ?, ?)");
+        assertEquals(0, queryCounter.end());
+    }
+}
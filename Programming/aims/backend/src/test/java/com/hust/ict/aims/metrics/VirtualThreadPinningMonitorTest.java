@@ -0,0 +1,52 @@
+package com.hust.ict.aims.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadPinningMonitorTest {
+
+    private final Object monitor = new Object();
+
+    @Test
+    void testBlockingInsideSynchronizedIsReported() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        VirtualThreadPinningMonitor pinningMonitor = new VirtualThreadPinningMonitor(registry, true, 5);
+        pinningMonitor.start();
+        try {
+            Thread.ofVirtual().start(this::sleepWhileHoldingMonitor).join();
+
+            // Flight Recorder streams events about once a second
+            Timer pinned = null;
+            for (int i = 0; i < 100 && pinned == null; i++) {
+                pinned = registry.find("aims.threads.virtual.pinned").timer();
+                if (pinned == null) Thread.sleep(100);
+            }
+            assertNotNull(pinned, "pinned virtual thread was not reported");
+            assertEquals("VirtualThreadPinningMonitorTest.sleepWhileHoldingMonitor", pinned.getId().getTag("site"));
+        } finally {
+            pinningMonitor.stop();
+        }
+    }
+
+    @Test
+    void testDisabledWithPlatformThreads() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        VirtualThreadPinningMonitor pinningMonitor = new VirtualThreadPinningMonitor(registry, false, 5);
+        pinningMonitor.start();
+        pinningMonitor.stop();
+        assertNull(registry.find("aims.threads.virtual.pinned").timer());
+    }
+
+    private void sleepWhileHoldingMonitor() {
+        synchronized (monitor) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.hust.ict.aims.render;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateRendererTest {
+
+    private TemplateRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        renderer = new TemplateRenderer(2, 64, 1024);
+    }
+
+    @Test
+    void testPrecompileCachesEveryKnownTemplate() {
+        renderer.precompile();
+
+        assertEquals(5, renderer.getCachedTemplateCount());
+    }
+
+    @Test
+    void testPooledBytesMatchTheStreamedOutput() {
+        Map<String, Object> model = Map.of("params", Map.of("vnp_TxnRef", "1024", "vnp_OrderInfo", "Thanh toán đơn hàng"));
+
+        StringWriter streamed = new StringWriter();
+        renderer.render(TemplateRenderer.SUCCESSFUL_PAYMENT, model, streamed);
+        byte[] pooled = renderer.renderToBytes(TemplateRenderer.SUCCESSFUL_PAYMENT, model);
+
+        assertEquals(streamed.toString(), new String(pooled, StandardCharsets.UTF_8));
+        assertTrue(streamed.toString().contains("Thanh toán đơn hàng"));
+    }
+
+    @Test
+    void testBatchKeepsGoingPastAFailedModel() {
+        List<Map<String, Object>> models = List.of(
+                Map.of("params", Map.of("vnp_TxnRef", "1")),
+                Map.of(),
+                Map.of("params", Map.of("vnp_TxnRef", "3")));
+
+        List<TemplateRenderer.Rendered> results = renderer.renderBatch(TemplateRenderer.FAIL_PAYMENT, models);
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).succeeded());
+        assertFalse(results.get(1).succeeded());
+        assertNotNull(results.get(1).failure());
+        String third = new String(results.get(2).content(), StandardCharsets.UTF_8);
+        assertTrue(third.startsWith("<!DOCTYPE html>"));
+        assertTrue(third.contains(">3<"));
+        assertFalse(third.contains(">1<"));
+    }
+}
@@ -0,0 +1,41 @@
+package com.hust.ict.aims.search;
+
+import com.hust.ict.aims.cache.ProductChangedEvent;
+import com.hust.ict.aims.model.Book;
+import com.hust.ict.aims.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.*;
+
+class CatalogSearchServiceTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final CatalogSearchService service = new CatalogSearchService(productRepository, 100);
+
+    @Test
+    void testStockChangesDoNotReindex() {
+        Book book = new Book();
+        book.setId(1L);
+        book.setTitle("Dune");
+        book.setCategory("Novel");
+        when(productRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(book)));
+        when(productRepository.findByIdIn(Set.of(1L))).thenReturn(List.of(book));
+        service.search(null, null, null, null, null, "id", "asc", 0, 10);
+
+        service.onProductChanged(new ProductChangedEvent(1L, ProductChangedEvent.Change.STOCK));
+        service.search(null, null, null, null, null, "id", "asc", 0, 10);
+        verify(productRepository, never()).findByIdIn(anySet());
+
+        service.onProductChanged(new ProductChangedEvent(1L, ProductChangedEvent.Change.UPDATED));
+        assertEquals(List.of(1L), service.search(null, null, null, null, null, "id", "asc", 0, 10).ids());
+        verify(productRepository).findByIdIn(Set.of(1L));
+    }
+}
@@ -0,0 +1,210 @@
+package com.hust.ict.aims.search;
+
+import com.hust.ict.aims.model.Book;
+import com.hust.ict.aims.model.DVD;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    private static Book book(long id, String title, String author, String category, float price) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setCategory(category);
+        book.setCurrentPrice(price);
+        return book;
+    }
+
+    private static DVD dvd(long id, String title, String director, String category, float price) {
+        DVD dvd = new DVD();
+        dvd.setId(id);
+        dvd.setTitle(title);
+        dvd.setDirector(director);
+        dvd.setCategory(category);
+        dvd.setCurrentPrice(price);
+        return dvd;
+    }
+
+    private static ProductSearchIndex sample() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.put(book(1L, "Dế Mèn Phiêu Lưu Ký", "Tô Hoài", "Văn học", 50000f));
+        index.put(book(2L, "Harry Potter", "J.K. Rowling", "Fantasy", 120000f));
+        index.put(dvd(3L, "Harry Potter and the Goblet of Fire", "Mike Newell", "Fantasy", 90000f));
+        return index;
+    }
+
+    @Test
+    void testPrefixAndDiacriticsInsensitiveMatch() {
+        ProductSearchIndex index = sample();
+
+        assertEquals(List.of(1L), index.search("de men", null, null, null, null, "id", "asc", 0, 10).ids());
+        assertEquals(List.of(1L), index.search("phieu", null, null, null, null, "id", "asc", 0, 10).ids());
+        assertEquals(List.of(2L, 3L), index.search("harr", null, null, null, null, "id", "asc", 0, 10).ids());
+    }
+
+    @Test
+    void testTypoTolerance() {
+        ProductSearchIndex index = sample();
+
+        assertEquals(List.of(2L), index.search("rowlng", null, null, null, null, "id", "asc", 0, 10).ids());
+        assertEquals(2, index.search("poter", null, null, null, null, "id", "asc", 0, 10).total());
+    }
+
+    @Test
+    void testFacetsIgnoreOwnFilter() {
+        ProductSearchIndex index = sample();
+
+        ProductSearchIndex.Hits hits = index.search("harry", null, "DVD", null, null, "id", "asc", 0, 10);
+
+        assertEquals(List.of(3L), hits.ids());
+        assertEquals(1L, hits.facets().get("productType").get("BOOK"));
+        assertEquals(1L, hits.facets().get("productType").get("DVD"));
+        assertEquals(1L, hits.facets().get("category").get("Fantasy"));
+    }
+
+    @Test
+    void testRelevanceSortAndRemoval() {
+        ProductSearchIndex index = sample();
+        index.put(book(4L, "Cooking Basics", "Harry Smith", "Cooking", 30000f));
+
+        // Title matches outrank a creator match for the same term
+        assertEquals(List.of(2L, 3L, 4L),
+                index.search("harry", null, null, null, null, "relevance", "asc", 0, 10).ids());
+
+        index.remove(3L);
+        assertEquals(List.of(2L), index.search("potter", null, null, null, null, "relevance", "asc", 0, 10).ids());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void testSearchAfterContinuesFromCursor() {
+        ProductSearchIndex index = sample();
+        index.put(book(4L, "Cooking Basics", "Harry Smith", "Cooking", 30000f));
+
+        ProductSearchIndex.Hits first = index.search(null, null, null, null, null, "price", "asc", 0, 2);
+        assertEquals(List.of(4L, 1L), first.ids());
+        assertTrue(first.hasMore());
+
+        ProductSearchIndex.Hits second = index.searchAfter(null, null, null, null, null, "price", "asc",
+                first.lastSortKey(), 1L, 2);
+        assertEquals(List.of(3L, 2L), second.ids());
+        assertFalse(second.hasMore());
+
+        // The cursor stays valid after the product it points at is removed
+        index.remove(1L);
+        assertEquals(List.of(3L, 2L), index.searchAfter(null, null, null, null, null, "price", "asc",
+                first.lastSortKey(), 1L, 2).ids());
+    }
+
+    @Test
+    void testNewestFirstPagesByWarehouseEntryDate() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        for (long id = 1; id <= 4; id++) {
+            Book book = book(id, "Title " + id, "Author", "Novel", 1000f);
+            book.setWarehouseEntryDate(LocalDate.of(2024, 1, 1).plusDays(id % 3));
+            index.put(book);
+        }
+
+        ProductSearchIndex.Hits first = index.search(null, null, null, null, null, "warehouseEntryDate", "desc", 0, 2);
+        ProductSearchIndex.Hits rest = index.searchAfter(null, null, null, null, null, "warehouseEntryDate", "desc",
+                first.lastSortKey(), first.ids().get(1), 10);
+
+        assertEquals(List.of(2L, 1L), first.ids());
+        assertEquals(List.of(4L, 3L), rest.ids());
+    }
+
+    @Test
+    void testUnknownSortByIsRejected() {
+        ProductSearchIndex index = sample();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> index.search(null, null, null, null, null, "quantity", "asc", 0, 10));
+    }
+
+    @Test
+    void testTitleCursorPagesPastProductsWithoutATitle() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.put(book(1L, null, "Author", "Novel", 1000f));
+        index.put(book(2L, "", "Author", "Novel", 1000f));
+        index.put(book(3L, "Alpha", "Author", "Novel", 1000f));
+        index.put(book(4L, null, "Author", "Novel", 1000f));
+
+        List<Long> paged = new ArrayList<>();
+        ProductSearchIndex.Hits hits = index.search(null, null, null, null, null, "title", "asc", 0, 1);
+        paged.addAll(hits.ids());
+        while (hits.hasMore() && paged.size() <= 4) {
+            hits = index.searchAfter(null, null, null, null, null, "title", "asc",
+                    hits.lastSortKey(), hits.ids().get(0), 1);
+            paged.addAll(hits.ids());
+        }
+
+        assertEquals(List.of(2L, 3L, 1L, 4L), paged);
+    }
+
+    @Test
+    void testMalformedCursorKeyIsRejected() {
+        ProductSearchIndex index = sample();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> index.searchAfter(null, null, null, null, null, "price", "asc", "abc", 1L, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> index.searchAfter(null, null, null, null, null, "warehouseEntryDate", "asc", "=2024-13-40", 1L, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> index.searchAfter(null, null, null, null, null, "title", "asc", "Harry", 1L, 10));
+    }
+
+    @Test
+    void testPagesOfTheBoundedHeapMatchOneFullOrdering() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        for (long id = 1; id <= 50; id++) {
+            index.put(book(id, "Title " + id, "Author", "Novel", (id * 37) % 11 * 1000f));
+        }
+
+        List<Long> paged = new ArrayList<>();
+        for (int page = 0; page < 6; page++) {
+            ProductSearchIndex.Hits hits = index.search(null, null, null, null, null, "price", "desc", page, 9);
+            assertEquals(50, hits.total());
+            assertEquals(page < 5, hits.hasMore());
+            paged.addAll(hits.ids());
+        }
+
+        assertEquals(index.search(null, null, null, null, null, "price", "desc", 0, 50).ids(), paged);
+        assertEquals(50, paged.stream().distinct().count());
+    }
+
+    @Test
+    void testRelevanceCursorContinuesWithoutChangingScores() {
+        ProductSearchIndex index = sample();
+        index.put(book(4L, "Cooking Basics", "Harry Smith", "Cooking", 30000f));
+
+        ProductSearchIndex.Hits first = index.search("harry", null, null, null, null, "relevance", "asc", 0, 1);
+        ProductSearchIndex.Hits rest = index.searchAfter("harry", null, null, null, null, "relevance", "asc",
+                first.lastSortKey(), first.ids().get(0), 10);
+
+        assertEquals(List.of(2L), first.ids());
+        assertEquals(List.of(3L, 4L), rest.ids());
+        // A cursor from a stale score only moves where the page starts; the next query ranks as before
+        index.searchAfter("harry", null, null, null, null, "relevance", "asc", "0.1", 3L, 10);
+        assertEquals(List.of(2L, 3L, 4L),
+                index.search("harry", null, null, null, null, "relevance", "asc", 0, 10).ids());
+    }
+
+    @Test
+    void testTypoToleranceAcrossManyTermsWithTheSameFirstLetter() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        for (long id = 1; id <= 200; id++) {
+            index.put(book(id, "Rabbit" + id, "Nobody", "Novel", 1000f));
+        }
+        index.put(book(500L, "Rowling Collection", "Nobody", "Novel", 1000f));
+
+        assertEquals(List.of(500L), index.search("rowlng", null, null, null, null, "id", "asc", 0, 10).ids());
+        assertEquals(List.of(500L), index.search("rowlimg", null, null, null, null, "id", "asc", 0, 10).ids());
+    }
+}
@@ -0,0 +1,57 @@
+package com.hust.ict.aims.security.jwt;
+
+import com.hust.ict.aims.config.JwtConfig;
+import com.hust.ict.aims.model.Role;
+import com.hust.ict.aims.model.User;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        JwtConfig config = new JwtConfig();
+        config.setSecret(Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes()));
+        config.setExpiration(60_000);
+        jwtService = new JwtService(config, 100);
+    }
+
+    private static User user() {
+        Role role = new Role();
+        role.setName("ROLE_ADMIN");
+        User user = new User();
+        user.setName("Admin");
+        user.setEmail("admin@aims.vn");
+        user.setRoles(List.of(role));
+        return user;
+    }
+
+    @Test
+    void testVerifyReturnsPrincipalFromClaims() {
+        String token = jwtService.generateToken(user());
+
+        JwtService.VerifiedToken verified = jwtService.verify(token);
+
+        assertEquals("admin@aims.vn", verified.username());
+        assertEquals("ROLE_ADMIN", verified.authorities().get(0).getAuthority());
+        assertFalse(verified.isExpired());
+        assertSame(verified, jwtService.verify(token));
+    }
+
+    @Test
+    void testTamperedTokenIsRejected() {
+        String token = jwtService.generateToken(user());
+        String tampered = token.substring(0, token.length() - 2)
+                + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThrows(JwtException.class, () -> jwtService.verify(tampered));
+    }
+}
@@ -0,0 +1,76 @@
+package com.hust.ict.aims.service;
+
+import com.hust.ict.aims.dto.CartItemDTO;
+import com.hust.ict.aims.model.Book;
+import com.hust.ict.aims.model.Product;
+import com.hust.ict.aims.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CartPricingPipelineTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private CartPricingPipeline cartPricingPipeline;
+
+    private static Product product(long id, float price, int quantity, boolean rushEligible) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Book " + id);
+        book.setCurrentPrice(price);
+        book.setQuantity(quantity);
+        book.setRushOrderEligible(rushEligible);
+        return book;
+    }
+
+    private static CartItemDTO item(long productId, int quantity) {
+        CartItemDTO item = new CartItemDTO();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    @Test
+    void testPricesAllLinesWithOneQuery() {
+        given(productRepository.findByIdIn(anySet()))
+                .willReturn(List.of(product(1L, 50000f, 10, true), product(2L, 20000f, 10, false)));
+
+        CartPricingPipeline.PricedCart priced = cartPricingPipeline.price(
+                List.of(item(1L, 2), item(2L, 1), item(3L, 1)), true);
+
+        verify(productRepository, times(1)).findByIdIn(anySet());
+        assertEquals(2, priced.lines().size());
+        assertEquals(2 * (50000 + CartPricingPipeline.RUSH_SURCHARGE), priced.lines().get(0).subtotal());
+        assertTrue(priced.lines().get(0).rush());
+        assertEquals(20000, priced.lines().get(1).subtotal());
+        assertEquals(List.of(3L), priced.missingProductIds());
+        assertFalse(priced.isComplete());
+    }
+
+    @Test
+    void testStockIsCheckedAgainstTotalRequestedPerProduct() {
+        given(productRepository.findByIdIn(anySet())).willReturn(List.of(product(1L, 10000f, 3, false)));
+
+        CartPricingPipeline.PricedCart priced = cartPricingPipeline.price(
+                List.of(item(1L, 2), item(1L, 2)), false);
+
+        assertEquals(1, priced.insufficientStock().size());
+        assertEquals(4, priced.insufficientStock().get(0).getRequestedQuantity());
+        assertFalse(priced.lines().get(0).inStock());
+        assertFalse(priced.lines().get(1).inStock());
+    }
+}
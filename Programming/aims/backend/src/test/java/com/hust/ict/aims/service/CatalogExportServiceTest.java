@@ -0,0 +1,108 @@
+package com.hust.ict.aims.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hust.ict.aims.cache.ProductChangedEvent;
+import com.hust.ict.aims.dto.ProductDTO;
+import com.hust.ict.aims.model.Book;
+import com.hust.ict.aims.model.CD;
+import com.hust.ict.aims.model.Product;
+import com.hust.ict.aims.repository.ProductRepository;
+import com.hust.ict.aims.service.impl.CatalogExportServiceImpl;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogExportServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private CatalogExportServiceImpl exportService;
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new CatalogExportServiceImpl(productRepository, transactionManager, objectMapper);
+        ReflectionTestUtils.setField(exportService, "entityManager", entityManager);
+
+        Book book = new Book();
+        book.setId(1L);
+        book.setTitle("Dune");
+        book.setAuthor("Frank Herbert");
+        book.setWarehouseEntryDate(LocalDate.of(2025, 1, 2));
+        CD cd = new CD();
+        cd.setId(2L);
+        cd.setTitle("Kind of Blue");
+        products = List.of(book, cd);
+    }
+
+    @Test
+    void testNdjsonWritesOneProductPerLineAndDetachesIt() throws Exception {
+        givenCatalog();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = exportService.export(CatalogExportService.Format.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertEquals(2, written);
+        assertEquals(3, lines.length);
+        assertEquals("", lines[2]);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals("BOOK", first.path("productType").asText());
+        assertEquals("Frank Herbert", first.path("author").asText());
+        assertEquals("CD", objectMapper.readTree(lines[1]).path("productType").asText());
+        products.forEach(product -> verify(entityManager).detach(product));
+    }
+
+    @Test
+    void testJsonIsTheArrayTheListEndpointReturned() throws Exception {
+        givenCatalog();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(CatalogExportService.Format.JSON, out);
+
+        List<ProductDTO> dtos = products.stream().map(ProductDTO::fromEntity).toList();
+        String expected = objectMapper.writerFor(new TypeReference<List<ProductDTO>>() {}).writeValueAsString(dtos);
+        assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testProductChangeMovesTheValidators() {
+        String etag = exportService.getETag();
+
+        exportService.onProductChanged(new ProductChangedEvent(1L, ProductChangedEvent.Change.UPDATED));
+
+        assertNotEquals(etag, exportService.getETag());
+        assertFalse(exportService.getLastModified().isAfter(Instant.now()));
+    }
+
+    private void givenCatalog() {
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        given(productRepository.streamAllActive()).willReturn(products.stream());
+    }
+}
@@ -0,0 +1,93 @@
+package com.hust.ict.aims.service;
+
+import com.hust.ict.aims.dto.CheckoutRequest;
+import com.hust.ict.aims.dto.InsufficientStockDTO;
+import com.hust.ict.aims.dto.InvoiceRequest;
+import com.hust.ict.aims.dto.TransactionRequest;
+import com.hust.ict.aims.exception.InsufficientStockException;
+import com.hust.ict.aims.model.DeliveryInfo;
+import com.hust.ict.aims.model.Invoice;
+import com.hust.ict.aims.model.Orders;
+import com.hust.ict.aims.model.Transaction;
+import com.hust.ict.aims.service.impl.CheckoutServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutServiceTest {
+
+    @Mock
+    private StockReservationService stockReservationService;
+    @Mock
+    private DeliveryInfoService deliveryInfoService;
+    @Mock
+    private InvoiceService invoiceService;
+    @Mock
+    private TransactionService transactionService;
+    @Mock
+    private OrderService orderService;
+
+    private CheckoutServiceImpl checkoutService;
+    private CheckoutRequest request;
+
+    @BeforeEach
+    void setUp() {
+        checkoutService = new CheckoutServiceImpl(stockReservationService, deliveryInfoService, invoiceService,
+                transactionService, orderService);
+        request = new CheckoutRequest();
+        request.setDeliveryInfo(new DeliveryInfo());
+        request.setInvoiceData(new InvoiceRequest());
+        request.setTransactionData(new TransactionRequest());
+        request.setStatus("PENDING");
+    }
+
+    @Test
+    void testStockIsReservedBeforeAnythingIsWritten() {
+        given(deliveryInfoService.save(any())).willReturn(new DeliveryInfo());
+        given(invoiceService.createInvoice(any())).willReturn(new Invoice());
+        given(transactionService.getTransaction(any())).willReturn(new Transaction());
+        given(orderService.placeOrder(any())).willAnswer(invocation -> invocation.getArgument(0));
+        given(stockReservationService.reserveForCheckout(request)).willReturn("checkout-1");
+
+        Orders order = checkoutService.checkout(request);
+
+        InOrder inOrder = inOrder(stockReservationService, deliveryInfoService, invoiceService, orderService);
+        inOrder.verify(stockReservationService).reserveForCheckout(request);
+        inOrder.verify(deliveryInfoService).save(any());
+        inOrder.verify(invoiceService).createInvoice(any());
+        inOrder.verify(orderService).placeOrder(any());
+        assertEquals("PENDING", order.getStatus());
+        assertEquals("checkout-1", order.getStockReference());
+    }
+
+    @Test
+    void testShortageStopsTheCheckoutBeforeAnyWrite() {
+        given(stockReservationService.reserveForCheckout(request)).willThrow(
+                new InsufficientStockException(List.of(new InsufficientStockDTO(5L, null, 2, 0))));
+
+        assertThrows(InsufficientStockException.class, () -> checkoutService.checkout(request));
+
+        verifyNoInteractions(deliveryInfoService, invoiceService, transactionService, orderService);
+    }
+
+    @Test
+    void testMissingTransactionIsRejected() {
+        given(deliveryInfoService.save(any())).willReturn(new DeliveryInfo());
+        given(invoiceService.createInvoice(any())).willReturn(new Invoice());
+
+        assertThrows(IllegalArgumentException.class, () -> checkoutService.checkout(request));
+
+        verify(orderService, never()).placeOrder(any());
+    }
+}
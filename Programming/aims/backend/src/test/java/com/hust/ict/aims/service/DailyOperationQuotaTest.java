@@ -0,0 +1,61 @@
+package com.hust.ict.aims.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class DailyOperationQuotaTest {
+
+    private static final List<String> LIMITED = List.of("UPDATE_PRODUCT", "DELETE_PRODUCT");
+
+    private final DailyOperationQuota quota = new DailyOperationQuota(mock(JdbcTemplate.class));
+
+    @Test
+    void testLimitHoldsUnderConcurrentManagers() throws InterruptedException {
+        LocalDate today = LocalDate.now();
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 100; i++) {
+            String type = i % 2 == 0 ? "UPDATE_PRODUCT" : "DELETE_PRODUCT";
+            executor.submit(() -> {
+                if (quota.tryAcquire(type, today, 1, LIMITED, 30)) granted.incrementAndGet();
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(30, granted.get());
+        assertEquals(30, quota.count("UPDATE_PRODUCT", today) + quota.count("DELETE_PRODUCT", today));
+    }
+
+    @Test
+    void testReleaseGivesSlotsBack() {
+        LocalDate today = LocalDate.now();
+        assertTrue(quota.tryAcquire("DELETE_PRODUCT", today, 10, LIMITED, 10));
+        assertFalse(quota.tryAcquire("UPDATE_PRODUCT", today, 1, LIMITED, 10));
+
+        quota.release("DELETE_PRODUCT", today, 3);
+
+        assertTrue(quota.tryAcquire("UPDATE_PRODUCT", today, 3, LIMITED, 10));
+    }
+
+    @Test
+    void testCountsPerProduct() {
+        quota.recordProductOperation(1L, "UPDATE_PRODUCT");
+        quota.recordProductOperation(1L, "UPDATE_PRODUCT");
+        quota.recordProductOperation(2L, "UPDATE_PRODUCT");
+
+        assertEquals(2, quota.count(1L, "UPDATE_PRODUCT", LocalDate.now()));
+        assertEquals(1, quota.count(2L, "UPDATE_PRODUCT", LocalDate.now()));
+        assertEquals(0, quota.count(1L, "DELETE_PRODUCT", LocalDate.now()));
+    }
+}
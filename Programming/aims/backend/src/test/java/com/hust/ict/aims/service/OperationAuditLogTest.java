@@ -0,0 +1,92 @@
+package com.hust.ict.aims.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OperationAuditLogTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private List<List<OperationAuditLog.Entry>> capturedBatches() {
+        ArgumentCaptor<List<OperationAuditLog.Entry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(anyString(), captor.capture(), anyInt(), any());
+        return captor.getAllValues();
+    }
+
+    @Test
+    void testFlushWritesBatchesInRecordedOrder() {
+        OperationAuditLog auditLog = new OperationAuditLog(jdbcTemplate, 100, 2, 200, 10);
+        auditLog.record(1L, "ADD_PRODUCT");
+        auditLog.record(1L, "UPDATE_PRODUCT");
+        auditLog.record(1L, "DELETE_PRODUCT");
+
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(1, auditLog.pendingCount(null, "UPDATE_PRODUCT", now.minusMinutes(1), now.plusMinutes(1)));
+
+        assertTrue(auditLog.flush());
+
+        List<String> written = new ArrayList<>();
+        capturedBatches().forEach(batch -> batch.forEach(entry -> written.add(entry.operationType())));
+        assertEquals(List.of("ADD_PRODUCT", "UPDATE_PRODUCT", "DELETE_PRODUCT"), written);
+        assertEquals(0, auditLog.pendingCount(null, "UPDATE_PRODUCT", now.minusMinutes(1), now.plusMinutes(1)));
+        assertEquals(2, auditLog.getStats().batches());
+    }
+
+    @Test
+    void testFullBufferFallsBackToDirectWrite() {
+        OperationAuditLog auditLog = new OperationAuditLog(jdbcTemplate, 1, 10, 200, 1);
+        auditLog.record(1L, "ADD_PRODUCT");
+        auditLog.record(2L, "ADD_PRODUCT");
+
+        OperationAuditLog.Stats stats = auditLog.getStats();
+        assertEquals(1, stats.blockedOffers());
+        assertEquals(1, stats.directWrites());
+        assertEquals(0, stats.queued());
+        assertEquals(2, stats.flushed());
+    }
+
+    @Test
+    void testFailedBatchIsKeptForRetry() {
+        doThrow(new RuntimeException("db down")).when(jdbcTemplate)
+                .batchUpdate(anyString(), anyList(), anyInt(), any());
+        OperationAuditLog auditLog = new OperationAuditLog(jdbcTemplate, 10, 10, 200, 1);
+        auditLog.record(1L, "UPDATE_PRODUCT");
+
+        assertFalse(auditLog.flush());
+        assertEquals(1, auditLog.getStats().queued());
+        assertEquals(1, auditLog.getStats().failedBatches());
+    }
+
+    @Test
+    void testFailedBatchIsRetriedAheadOfEntriesThatRefilledTheBuffer() {
+        OperationAuditLog auditLog = new OperationAuditLog(jdbcTemplate, 2, 2, 200, 1);
+        auditLog.record(1L, "A");
+        auditLog.record(1L, "B");
+        // Callers fill the buffer again while the insert of A and B fails
+        doAnswer(invocation -> {
+            auditLog.record(1L, "C");
+            auditLog.record(1L, "D");
+            throw new RuntimeException("db down");
+        }).doReturn(new int[0][]).when(jdbcTemplate).batchUpdate(anyString(), anyList(), anyInt(), any());
+
+        assertFalse(auditLog.flush());
+        assertEquals(4, auditLog.getStats().queued());
+        assertTrue(auditLog.flush());
+
+        List<String> written = new ArrayList<>();
+        capturedBatches().forEach(batch -> batch.forEach(entry -> written.add(entry.operationType())));
+        assertEquals(List.of("A", "B", "A", "B", "C", "D"), written);
+        assertEquals(4, auditLog.getStats().flushed());
+        assertEquals(0, auditLog.getStats().queued());
+    }
+}
@@ -0,0 +1,86 @@
+package com.hust.ict.aims.service;
+
+import com.hust.ict.aims.dto.OrderStockShortageDTO;
+import com.hust.ict.aims.model.Orders;
+import com.hust.ict.aims.repository.OrderRepository;
+import com.hust.ict.aims.repository.ProductRepository;
+import com.hust.ict.aims.service.impl.OrderServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderAutoRejectTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private StockReservationService stockReservationService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRejectsInChunksWithReason() {
+        OrderServiceImpl orderService = new OrderServiceImpl(orderRepository, productRepository, jdbcTemplate, null,
+                stockReservationService, 2);
+
+        given(orderRepository.findIdsByStatusAfter(eq("PENDING"), eq(0L), any())).willReturn(List.of(1L, 2L));
+        given(orderRepository.findIdsByStatusAfter(eq("PENDING"), eq(2L), any())).willReturn(List.of(3L));
+        given(orderRepository.findIdsByStatusAfter(eq("PENDING"), eq(3L), any())).willReturn(List.of());
+        given(orderRepository.findStockShortages(List.of(1L, 2L))).willReturn(List.of(
+                new OrderStockShortageDTO(2L, 10L, "Dune", 3L, 1L),
+                new OrderStockShortageDTO(2L, 11L, "Emma", 2L, 0L)));
+        given(orderRepository.findStockShortages(List.of(3L))).willReturn(List.of());
+        given(jdbcTemplate.batchUpdate(anyString(), anyList())).willReturn(new int[]{1});
+        given(orderRepository.findStockReferencesByIdIn(List.of(2L))).willReturn(List.of("checkout-2"));
+
+        List<Long> rejected = orderService.rejectOrdersWithInsufficientStock();
+
+        assertEquals(List.of(2L), rejected);
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batch.capture());
+        assertEquals("Order automatically rejected due to insufficient stock: "
+                + "Dune (requested: 3, available: 1), Emma (requested: 2, available: 0)", batch.getValue().get(0)[0]);
+        // The rejected order's checkout stock goes back
+        verify(stockReservationService).release("checkout-2");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReasonForManyShortProductsFitsTheColumn() {
+        OrderServiceImpl orderService = new OrderServiceImpl(orderRepository, productRepository, jdbcTemplate, null,
+                stockReservationService, 10);
+
+        List<OrderStockShortageDTO> shortages = new ArrayList<>();
+        for (long productId = 1; productId <= 200; productId++) {
+            shortages.add(new OrderStockShortageDTO(1L, productId, "Product with a long title " + productId, 2L, 1L));
+        }
+        given(orderRepository.findIdsByStatusAfter(eq("PENDING"), eq(0L), any())).willReturn(List.of(1L));
+        given(orderRepository.findIdsByStatusAfter(eq("PENDING"), eq(1L), any())).willReturn(List.of());
+        given(orderRepository.findStockShortages(List.of(1L))).willReturn(shortages);
+        given(jdbcTemplate.batchUpdate(anyString(), anyList())).willReturn(new int[]{1});
+
+        orderService.rejectOrdersWithInsufficientStock();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        String reason = (String) batch.getValue().get(0)[0];
+        assertTrue(reason.length() <= Orders.REJECTION_REASON_LENGTH);
+        assertTrue(reason.contains("Product with a long title 1 (requested: 2, available: 1)"));
+        assertTrue(reason.matches(".* and \\d+ more"), reason);
+    }
+}
@@ -0,0 +1,156 @@
+package com.hust.ict.aims.service;
+
+import com.hust.ict.aims.dto.CartItemDTO;
+import com.hust.ict.aims.dto.CartRequestDTO;
+import com.hust.ict.aims.dto.CheckoutRequest;
+import com.hust.ict.aims.dto.InvoiceRequest;
+import com.hust.ict.aims.dto.TransactionRequest;
+import com.hust.ict.aims.model.DeliveryInfo;
+import com.hust.ict.aims.model.Invoice;
+import com.hust.ict.aims.model.Orders;
+import com.hust.ict.aims.model.StockHold;
+import com.hust.ict.aims.model.Transaction;
+import com.hust.ict.aims.repository.CartRepository;
+import com.hust.ict.aims.repository.OrderRepository;
+import com.hust.ict.aims.repository.ProductRepository;
+import com.hust.ict.aims.repository.StockHoldRepository;
+import com.hust.ict.aims.service.impl.CheckoutServiceImpl;
+import com.hust.ict.aims.service.impl.OrderServiceImpl;
+import com.hust.ict.aims.service.impl.StockReservationServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Checkout, approval, rejection and cancellation wired together over in-memory stock, to follow one order's units
+class OrderStockLifecycleTest {
+
+    private static final long PRODUCT_ID = 7L;
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final StockHoldRepository stockHoldRepository = mock(StockHoldRepository.class);
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final DeliveryInfoService deliveryInfoService = mock(DeliveryInfoService.class);
+    private final InvoiceService invoiceService = mock(InvoiceService.class);
+    private final TransactionService transactionService = mock(TransactionService.class);
+
+    private final Map<Long, Integer> stock = new HashMap<>();
+    private final List<StockHold> holds = new ArrayList<>();
+
+    private CheckoutService checkoutService;
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        stock.put(PRODUCT_ID, 10);
+        fakeStock();
+        fakeHolds();
+
+        StockReservationService stockReservationService = new StockReservationServiceImpl(productRepository,
+                stockHoldRepository, mock(CartRepository.class), mock(ApplicationEventPublisher.class), 15, 2000, 500);
+        orderService = new OrderServiceImpl(orderRepository, productRepository, mock(JdbcTemplate.class),
+                mock(EmailOutboxService.class), stockReservationService, 1000);
+        checkoutService = new CheckoutServiceImpl(stockReservationService, deliveryInfoService, invoiceService,
+                transactionService, orderService);
+
+        when(deliveryInfoService.save(any())).thenReturn(new DeliveryInfo());
+        when(invoiceService.createInvoice(any())).thenReturn(new Invoice());
+        when(transactionService.getTransaction(any())).thenReturn(new Transaction());
+        when(orderRepository.save(any())).thenAnswer(invocation -> {
+            Orders order = invocation.getArgument(0);
+            order.setId(1L);
+            when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+            return order;
+        });
+    }
+
+    @Test
+    void testApprovalKeepsTheCheckoutStockAndCancellationReturnsIt() {
+        Orders order = checkoutService.checkout(checkoutRequest(3));
+        assertEquals(7, stock.get(PRODUCT_ID));
+
+        orderService.updateOrderStatus(order.getId(), "APPROVED");
+        assertEquals(7, stock.get(PRODUCT_ID));
+
+        orderService.updateOrderStatus(order.getId(), "CANCELLED");
+        assertEquals(10, stock.get(PRODUCT_ID));
+        assertTrue(holds.stream().allMatch(hold -> hold.getStatus().equals(StockHold.RELEASED)));
+    }
+
+    @Test
+    void testRejectedPendingOrderReturnsItsStock() {
+        Orders order = checkoutService.checkout(checkoutRequest(4));
+        assertEquals(6, stock.get(PRODUCT_ID));
+
+        orderService.updateOrderStatus(order.getId(), "REJECTED");
+
+        assertEquals(10, stock.get(PRODUCT_ID));
+    }
+
+    private void fakeStock() {
+        when(productRepository.decrementStockIfAvailable(anyLong(), anyInt())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            int quantity = invocation.getArgument(1);
+            if (stock.get(id) < quantity) return 0;
+            stock.merge(id, -quantity, Integer::sum);
+            return 1;
+        });
+        when(productRepository.incrementStock(anyLong(), anyInt())).thenAnswer(invocation -> {
+            stock.merge(invocation.getArgument(0), invocation.getArgument(1), Integer::sum);
+            return 1;
+        });
+    }
+
+    private void fakeHolds() {
+        when(stockHoldRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<StockHold> saved = invocation.getArgument(0);
+            for (StockHold hold : saved) {
+                hold.setId((long) holds.size() + 1);
+                holds.add(hold);
+            }
+            return saved;
+        });
+        when(stockHoldRepository.findByReferenceAndStatus(anyString(), anyString())).thenAnswer(invocation ->
+                holds.stream().filter(hold -> hold.getReference().equals(invocation.getArgument(0))
+                        && hold.getStatus().equals(invocation.getArgument(1))).toList());
+        when(stockHoldRepository.findByReferenceAndStatusIn(anyString(), anyCollection())).thenAnswer(invocation -> {
+            Collection<String> statuses = invocation.getArgument(1);
+            return holds.stream().filter(hold -> hold.getReference().equals(invocation.getArgument(0))
+                    && statuses.contains(hold.getStatus())).toList();
+        });
+        when(stockHoldRepository.releaseFrom(anyLong(), anyString())).thenAnswer(invocation -> {
+            StockHold hold = holds.get(((Long) invocation.getArgument(0)).intValue() - 1);
+            if (!hold.getStatus().equals(invocation.getArgument(1))) return 0;
+            hold.setStatus(StockHold.RELEASED);
+            return 1;
+        });
+    }
+
+    private static CheckoutRequest checkoutRequest(int quantity) {
+        CartItemDTO item = new CartItemDTO();
+        item.setProductId(PRODUCT_ID);
+        item.setQuantity(quantity);
+        CartRequestDTO cart = new CartRequestDTO();
+        cart.setItems(List.of(item));
+        InvoiceRequest invoice = new InvoiceRequest();
+        invoice.setCart(cart);
+
+        CheckoutRequest request = new CheckoutRequest();
+        request.setDeliveryInfo(new DeliveryInfo());
+        request.setInvoiceData(invoice);
+        request.setTransactionData(new TransactionRequest());
+        request.setStatus("PENDING");
+        return request;
+    }
+}
@@ -0,0 +1,146 @@
+package com.hust.ict.aims.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hust.ict.aims.cache.ProductChangedEvent;
+import com.hust.ict.aims.factory.ProductFactory;
+import com.hust.ict.aims.model.Product;
+import com.hust.ict.aims.repository.ProductRepository;
+import com.hust.ict.aims.service.impl.ProductImportServiceImpl;
+import com.hust.ict.aims.validation.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductImportServiceTest {
+
+    private static final String CSV_HEADER = "title,barcode,mediaType,author,coverType,publisher,publicationDate," +
+            "language,numberOfPage,category,value,currentPrice,quantity,warehouseEntryDate,productDimensions," +
+            "weight,imageURL\r\n";
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductBatchInserter batchInserter = mock(ProductBatchInserter.class);
+    private final OperationService operationService = mock(OperationService.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class, RETURNS_DEEP_STUBS);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    private ProductImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(entityManagerFactory.getCache().unwrap(Cache.class)).thenReturn(mock(Cache.class));
+        doAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            products.forEach(product -> product.setId(nextId.getAndIncrement()));
+            return null;
+        }).when(batchInserter).insert(anyList());
+
+        BaseProductValidationStrategy baseValidation = new BaseProductValidationStrategy();
+        ProductValidationContext validationContext = new ProductValidationContext(new BookValidationStrategy(),
+                new CDValidationStrategy(), new DVDValidationStrategy(), new LPValidationStrategy(), baseValidation);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        // Runs each job on the submitting thread, so it has finished when submit returns
+        importService = new ProductImportServiceImpl(new ProductFactory(), baseValidation, validationContext,
+                productRepository, batchInserter, operationService, eventPublisher, entityManagerFactory,
+                transactionManager, objectMapper, new TaskExecutorAdapter(Runnable::run), 2, 1, 10, 10);
+    }
+
+    @Test
+    void testValidRowsAreInsertedInBatchesWithOneOperationEach() throws Exception {
+        String file = bookRow("b1", "Dune") + bookRow("b2", "Emma") + "\r\n" + bookRow("b3", "\"Ulysses, 1922\"");
+
+        ProductImportService.JobStatus job = run(ProductImportService.Format.CSV, CSV_HEADER + file);
+
+        assertEquals(ProductImportService.State.COMPLETED, job.state());
+        assertEquals(3, job.rowsRead());
+        assertEquals(3, job.imported());
+        assertEquals(0, job.rejected());
+        assertEquals(2, job.batches());
+        verify(batchInserter, times(2)).insert(anyList());
+        verify(operationService).record(1L, ProductImportServiceImpl.OPERATION_TYPE);
+        verify(operationService).record(3L, ProductImportServiceImpl.OPERATION_TYPE);
+        verify(eventPublisher, times(3)).publishEvent(any(ProductChangedEvent.class));
+        verify(productRepository).findBarcodesIn(argThat(barcodes -> barcodes.size() == 2));
+    }
+
+    @Test
+    void testRejectedRowsAreReportedWithTheirLine() throws Exception {
+        when(productRepository.findBarcodesIn(anyCollection())).thenReturn(List.of("old"));
+        String file = String.join("\n",
+                ndjsonBook("b1"),
+                "{not json",
+                ndjsonBook("old"),
+                ndjsonBook("b1"),
+                "{\"barcode\":\"b5\",\"mediaType\":\"BOOK\"}");
+
+        ProductImportService.JobStatus job = run(ProductImportService.Format.NDJSON, file);
+
+        assertEquals(1, job.imported());
+        assertEquals(4, job.rejected());
+        assertEquals(List.of(2L, 3L, 4L, 5L), job.errors().stream().map(ProductImportService.RowError::line).toList());
+        assertTrue(job.errors().get(0).errors().get(0).startsWith("Unreadable row"));
+        assertEquals(List.of("Barcode old already exists"), job.errors().get(1).errors());
+        assertEquals(List.of("Barcode b1 appears earlier in the file"), job.errors().get(2).errors());
+        assertTrue(job.errors().get(3).errors().contains("Product title is required"));
+        assertTrue(job.errors().get(3).errors().contains("Book author is required"));
+    }
+
+    @Test
+    void testRefusedBatchIsRetriedOneRowAtATime() throws Exception {
+        doThrow(new DataIntegrityViolationException("value too long"))
+                .when(batchInserter).insert(argThat(products -> products.stream()
+                        .anyMatch(product -> product.getBarcode().equals("long"))));
+
+        ProductImportService.JobStatus job = run(ProductImportService.Format.NDJSON,
+                ndjsonBook("long") + "\n" + ndjsonBook("b2"));
+
+        assertEquals(1, job.imported());
+        assertEquals(1, job.errors().size());
+        assertEquals("long", job.errors().get(0).barcode());
+        assertEquals(List.of("Could not be saved: value too long"), job.errors().get(0).errors());
+        verify(operationService).record(1L, ProductImportServiceImpl.OPERATION_TYPE);
+    }
+
+    @Test
+    void testStatusOfAnUnknownJobIsEmpty() {
+        assertTrue(importService.getStatus("missing").isEmpty());
+    }
+
+    private ProductImportService.JobStatus run(ProductImportService.Format format, String file) throws Exception {
+        ProductImportService.JobStatus submitted = importService.submit(format,
+                new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)));
+        return importService.getStatus(submitted.jobId()).orElseThrow();
+    }
+
+    private static String bookRow(String barcode, String title) {
+        return title + "," + barcode + ",BOOK,Frank Herbert,Hardcover,Chilton,1965-08-01,en,412,Novel,100000," +
+                "90000,5,2025-01-02,20x13x4,0.6,http://img/" + barcode + "\r\n";
+    }
+
+    private static String ndjsonBook(String barcode) {
+        return "{\"title\":\"Dune\",\"barcode\":\"" + barcode + "\",\"mediaType\":\"BOOK\",\"author\":\"Frank Herbert\"," +
+                "\"coverType\":\"Hardcover\",\"publisher\":\"Chilton\",\"publicationDate\":\"1965-08-01\"," +
+                "\"language\":\"en\",\"numberOfPage\":412,\"category\":\"Novel\",\"value\":100000," +
+                "\"currentPrice\":90000,\"quantity\":5,\"warehouseEntryDate\":\"2025-01-02\"," +
+                "\"productDimensions\":\"20x13x4\",\"weight\":0.6,\"imageURL\":\"http://img/" + barcode + "\"}";
+    }
+}
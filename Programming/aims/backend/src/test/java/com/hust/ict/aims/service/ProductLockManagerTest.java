@@ -0,0 +1,48 @@
+package com.hust.ict.aims.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductLockManagerTest {
+
+    private final ProductLockManager lockManager = new ProductLockManager(256);
+
+    @Test
+    void testDifferentProductsDoNotBlockEachOther() throws Exception {
+        assertTrue(lockManager.tryLock(List.of(1L), 100));
+
+        boolean other = CompletableFuture.supplyAsync(() -> {
+            boolean locked = lockManager.tryLock(List.of(2L), 100);
+            if (locked) lockManager.unlock(List.of(2L));
+            return locked;
+        }).get();
+
+        assertTrue(other);
+        lockManager.unlock(List.of(1L));
+    }
+
+    @Test
+    void testSameProductTimesOutAndHoldsNothing() throws Exception {
+        assertTrue(lockManager.tryLock(List.of(5L), 100));
+
+        boolean bulk = CompletableFuture.supplyAsync(() -> lockManager.tryLock(List.of(3L, 5L), 50)).get();
+        assertFalse(bulk);
+
+        // The stripe of product 3 was given back when the bulk lock failed
+        boolean single = CompletableFuture.supplyAsync(() -> {
+            boolean locked = lockManager.tryLock(List.of(3L), 50);
+            if (locked) lockManager.unlock(List.of(3L));
+            return locked;
+        }).get();
+        assertTrue(single);
+
+        lockManager.unlock(List.of(5L));
+        ProductLockManager.Stats stats = lockManager.getStats();
+        assertEquals(1, stats.timeouts());
+        assertEquals(1, stats.contended());
+    }
+}
@@ -0,0 +1,131 @@
+package com.hust.ict.aims.service;
+
+import com.hust.ict.aims.dto.CartItemDTO;
+import com.hust.ict.aims.dto.CartRequestDTO;
+import com.hust.ict.aims.dto.CheckoutRequest;
+import com.hust.ict.aims.dto.InvoiceRequest;
+import com.hust.ict.aims.exception.InsufficientStockException;
+import com.hust.ict.aims.model.StockHold;
+import com.hust.ict.aims.repository.CartRepository;
+import com.hust.ict.aims.repository.ProductRepository;
+import com.hust.ict.aims.repository.StockHoldRepository;
+import com.hust.ict.aims.service.impl.StockReservationServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private StockHoldRepository stockHoldRepository;
+    @Mock
+    private CartRepository cartRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private StockReservationServiceImpl stockReservationService;
+
+    @BeforeEach
+    void setUp() {
+        stockReservationService = new StockReservationServiceImpl(productRepository, stockHoldRepository,
+                cartRepository, eventPublisher, 15, 60_000, 500);
+    }
+
+    @Test
+    void testHoldDecrementsInProductIdOrder() {
+        given(productRepository.decrementStockIfAvailable(anyLong(), anyInt())).willReturn(1);
+        given(stockHoldRepository.saveAll(anyList())).willAnswer(invocation -> invocation.getArgument(0));
+
+        List<StockHold> holds = stockReservationService.hold("cart-1", Map.of(9L, 1, 3L, 2));
+
+        InOrder inOrder = inOrder(productRepository);
+        inOrder.verify(productRepository).decrementStockIfAvailable(3L, 2);
+        inOrder.verify(productRepository).decrementStockIfAvailable(9L, 1);
+        assertEquals(2, holds.size());
+        assertEquals(StockHold.HELD, holds.get(0).getStatus());
+    }
+
+    @Test
+    void testShortageFailsWholeReservationAndSoldOutFailsFast() {
+        given(productRepository.decrementStockIfAvailable(5L, 1)).willReturn(0);
+        given(productRepository.findQuantityById(5L)).willReturn(0);
+
+        InsufficientStockException first = assertThrows(InsufficientStockException.class,
+                () -> stockReservationService.hold("cart-1", Map.of(5L, 1)));
+        assertEquals(5L, first.getItems().get(0).getProductId());
+        verify(stockHoldRepository, never()).saveAll(anyList());
+
+        // Known sold out: rejected without another UPDATE on the hot row
+        assertThrows(InsufficientStockException.class,
+                () -> stockReservationService.hold("cart-2", Map.of(5L, 1)));
+        verify(productRepository, times(1)).decrementStockIfAvailable(5L, 1);
+    }
+
+    @Test
+    void testExpiredHoldIsReleasedOnlyOnce() {
+        StockHold hold = new StockHold(7L, 2, "cart-1", null, null);
+        hold.setId(1L);
+        given(stockHoldRepository.findExpired(any(), any())).willReturn(List.of(hold, hold));
+        given(stockHoldRepository.releaseFrom(1L, StockHold.HELD)).willReturn(1, 0);
+
+        assertEquals(1, stockReservationService.releaseExpired());
+        verify(productRepository, times(1)).incrementStock(7L, 2);
+    }
+
+    @Test
+    void testCheckoutRetakesAHoldReleasedAfterItWasRead() {
+        StockHold hold = new StockHold(7L, 2, "cart-4", null, null);
+        hold.setId(1L);
+        given(stockHoldRepository.findByReferenceAndStatus("cart-4", StockHold.HELD)).willReturn(List.of(hold));
+        // Expired between the read and the confirmation
+        given(stockHoldRepository.confirmFromHeld(eq(1L), anyString())).willReturn(0);
+        given(productRepository.decrementStockIfAvailable(7L, 2)).willReturn(0);
+        given(productRepository.findQuantityById(7L)).willReturn(1);
+
+        assertThrows(InsufficientStockException.class,
+                () -> stockReservationService.reserveForCheckout(checkoutRequest(4L, 7L, 2)));
+        verify(productRepository).decrementStockIfAvailable(7L, 2);
+    }
+
+    @Test
+    void testCheckoutConfirmsTheCartHoldsUnderItsOwnReference() {
+        StockHold hold = new StockHold(7L, 2, "cart-4", null, null);
+        hold.setId(1L);
+        given(stockHoldRepository.findByReferenceAndStatus("cart-4", StockHold.HELD)).willReturn(List.of(hold));
+        given(stockHoldRepository.confirmFromHeld(eq(1L), anyString())).willReturn(1);
+
+        String reference = stockReservationService.reserveForCheckout(checkoutRequest(4L, 7L, 2));
+
+        verify(stockHoldRepository).confirmFromHeld(1L, reference);
+        verify(productRepository, never()).decrementStockIfAvailable(anyLong(), anyInt());
+    }
+
+    private static CheckoutRequest checkoutRequest(long cartId, long productId, int quantity) {
+        CartItemDTO item = new CartItemDTO();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        CartRequestDTO cart = new CartRequestDTO();
+        cart.setCartId(cartId);
+        cart.setItems(List.of(item));
+        InvoiceRequest invoice = new InvoiceRequest();
+        invoice.setCart(cart);
+        CheckoutRequest request = new CheckoutRequest();
+        request.setInvoiceData(invoice);
+        return request;
+    }
+}
@@ -0,0 +1,44 @@
+package com.hust.ict.aims.shipping;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShippingRateEngineTest {
+
+    private final ShippingRateEngine engine =
+            new ShippingRateEngine(new DefaultResourceLoader(), "classpath:shipping/rates.json");
+
+    @Test
+    void testResolvesZoneIgnoringDiacriticsAndSpacing() {
+        int inner = engine.resolveZone("Hanoi");
+
+        assertEquals(inner, engine.resolveZone("Quận Cầu Giấy, Hà Nội"));
+        assertEquals(inner, engine.resolveZone("TP. Hồ Chí Minh"));
+        assertEquals(inner, engine.resolveZone("sai gon"));
+        assertNotEquals(inner, engine.resolveZone("Đà Nẵng"));
+    }
+
+    @Test
+    void testWeightTiersAndFreeShipping() {
+        int inner = engine.resolveZone("Hà Nội");
+        int other = engine.resolveZone("Huế");
+
+        assertEquals(22000, engine.fee(inner, 3000, 0, false));
+        assertEquals(24500, engine.fee(inner, 3200, 0, false));
+        assertEquals(35000, engine.fee(other, 1500, 0, false));
+        // Free shipping caps at 25,000 and never applies to rush deliveries
+        assertEquals(0, engine.fee(inner, 1000, 100000, false));
+        assertEquals(10000, engine.fee(other, 1500, 150000, false));
+        assertEquals(35000, engine.fee(other, 1500, 150000, true));
+    }
+
+    @Test
+    void testRushAddressCheck() {
+        assertTrue(engine.isRushSupported("Hà Nội", "Ba Đình"));
+        assertTrue(engine.isRushSupported("hanoi", "Cau Giay"));
+        assertFalse(engine.isRushSupported("Hồ Chí Minh", "Ba Đình"));
+        assertFalse(engine.isRushSupported("Hà Nội", "Sóc Sơn"));
+    }
+}
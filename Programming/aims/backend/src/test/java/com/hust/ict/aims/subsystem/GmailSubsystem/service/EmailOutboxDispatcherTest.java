@@ -0,0 +1,88 @@
+package com.hust.ict.aims.subsystem.GmailSubsystem.service;
+
+import com.hust.ict.aims.model.OutboxEmail;
+import com.hust.ict.aims.render.TemplateRenderer;
+import com.hust.ict.aims.repository.OrderRepository;
+import com.hust.ict.aims.repository.OutboxEmailRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.mail.MessagingException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailOutboxDispatcherTest {
+
+    @Mock
+    private OutboxEmailRepository outboxEmailRepository;
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private MailService mailService;
+    @Mock
+    private TemplateRenderer templateRenderer;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private EmailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new EmailOutboxDispatcher(outboxEmailRepository, orderRepository, mailService, templateRenderer,
+                new TransactionTemplate(transactionManager), new SimpleMeterRegistry(), 50, 3, 1000, 60000);
+    }
+
+    @Test
+    void testBatchIsSentOverOneConnectionAndFailuresAreRetriedLater() {
+        OutboxEmail ok = new OutboxEmail(null, "a@example.com", "Subject", null, "Body");
+        OutboxEmail bounced = new OutboxEmail(null, "b@example.com", "Subject", null, "Body");
+        given(outboxEmailRepository.findDue(any(), any())).willReturn(List.of(ok, bounced));
+        given(mailService.sendBatch(anyList())).willReturn(Arrays.asList(null, new MessagingException("452 mailbox full")));
+
+        LocalDateTime before = LocalDateTime.now();
+        assertEquals(2, dispatcher.dispatchBatch());
+
+        verify(mailService, times(1)).sendBatch(argThat(mails -> mails.size() == 2));
+        assertEquals(OutboxEmail.SENT, ok.getStatus());
+        assertNotNull(ok.getSentAt());
+        assertEquals(OutboxEmail.PENDING, bounced.getStatus());
+        assertEquals(1, bounced.getAttempts());
+        assertEquals("452 mailbox full", bounced.getLastError());
+        assertTrue(bounced.getNextAttemptAt().isAfter(before.plusNanos(999_000_000)));
+        verify(outboxEmailRepository, times(2)).save(any());
+    }
+
+    @Test
+    void testMarkedFailedAfterMaxAttempts() {
+        OutboxEmail email = new OutboxEmail(null, "a@example.com", "Subject", null, "Body");
+        email.setAttempts(2);
+        given(outboxEmailRepository.findDue(any(), any())).willReturn(List.of(email));
+        given(mailService.sendBatch(anyList())).willReturn(Arrays.asList(new MessagingException("connection refused")));
+
+        dispatcher.dispatchBatch();
+
+        assertEquals(OutboxEmail.FAILED, email.getStatus());
+        assertEquals(3, email.getAttempts());
+    }
+
+    @Test
+    void testBackoffDoublesUpToTheMaximum() {
+        assertEquals(Duration.ofSeconds(1), dispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(4), dispatcher.backoff(3));
+        assertEquals(Duration.ofMinutes(1), dispatcher.backoff(40));
+    }
+}